@@ -0,0 +1,86 @@
+package com.senacor.elasticsearch.evolution.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+/**
+ * Fixtures shared by the benchmarks
+ */
+public final class BenchmarkUtils {
+
+    private BenchmarkUtils() {
+    }
+
+    /**
+     * writes the given number of realistic migration scripts ({@code V1__...http} up to {@code V<count>__...http})
+     *
+     * @param directory target directory, will be created if absent
+     * @param count     number of scripts
+     * @return the directory
+     */
+    public static Path writeScripts(Path directory, int count) throws IOException {
+        Files.createDirectories(directory);
+        for (int i = 1; i <= count; i++) {
+            Files.writeString(directory.resolve("V" + i + "__create_index_" + i + ".http"), script(i));
+        }
+        return directory;
+    }
+
+    /**
+     * packs the content of a directory into a jar file with directory entries, like the maven-jar-plugin does
+     *
+     * @param directory directory to pack
+     * @param jar       jar file to write
+     * @return the jar file
+     */
+    public static Path writeJar(Path directory, Path jar) throws IOException {
+        final List<Path> paths;
+        try (Stream<Path> walk = Files.walk(directory)) {
+            paths = walk.filter(path -> !path.equals(directory)).sorted().toList();
+        }
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+            for (Path path : paths) {
+                final String name = directory.relativize(path).toString().replace(path.getFileSystem().getSeparator(), "/");
+                if (Files.isDirectory(path)) {
+                    out.putNextEntry(new JarEntry(name + "/"));
+                } else {
+                    out.putNextEntry(new JarEntry(name));
+                    Files.copy(path, out);
+                }
+                out.closeEntry();
+            }
+        }
+        return jar;
+    }
+
+    /**
+     * @return a realistic migration script creating an index with some mappings
+     */
+    public static String script(int i) {
+        return """
+                # create index %1$s
+                PUT /index_%1$s
+                Content-Type: application/json
+
+                {
+                  "settings": {
+                    "number_of_shards": 1,
+                    "number_of_replicas": 0
+                  },
+                  "mappings": {
+                    "properties": {
+                      "id": { "type": "keyword" },
+                      "name": { "type": "text", "fields": { "raw": { "type": "keyword" } } },
+                      "created": { "type": "date" },
+                      "counter": { "type": "long" }
+                    }
+                  }
+                }
+                """.formatted(i);
+    }
+}
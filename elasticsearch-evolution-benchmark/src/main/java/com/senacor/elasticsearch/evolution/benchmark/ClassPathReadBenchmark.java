@@ -0,0 +1,107 @@
+package com.senacor.elasticsearch.evolution.benchmark;
+
+import com.senacor.elasticsearch.evolution.core.MigrationManifestGenerator;
+import com.senacor.elasticsearch.evolution.core.api.config.ElasticsearchEvolutionConfigImpl;
+import com.senacor.elasticsearch.evolution.core.internal.migration.input.MigrationScriptReaderImpl;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.RawMigrationScript;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Collections.singletonList;
+
+/**
+ * Compares reading migrations from the classpath by scanning with ClassGraph, by scanning with the built-in lightweight
+ * scanner and by reading them from a build-time manifest.
+ * <p>
+ * All variants read the same scripts from a directory or jar file on the classpath, the manifest variant additionally
+ * contains the manifest written by {@link MigrationManifestGenerator}. ClassGraph scans the whole classpath of the
+ * benchmark, like it does in an application. Run with {@code -prof gc} to get the allocations per read
+ * ({@code gc.alloc.rate.norm}).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ClassPathReadBenchmark {
+
+    private static final String LOCATION = "es/benchmark/migration";
+
+    @Param({"100", "1000"})
+    int scripts;
+
+    /**
+     * whether the scripts are in a directory or a jar file
+     */
+    @Param({"directory", "jar"})
+    String container;
+
+    private ElasticsearchEvolutionConfigImpl config;
+    private ElasticsearchEvolutionConfigImpl classGraphConfig;
+    private URLClassLoader scanClassLoader;
+    private URLClassLoader manifestClassLoader;
+
+    @Setup
+    public void setUp() throws IOException {
+        config = new ElasticsearchEvolutionConfigImpl()
+                .setLocations(singletonList("classpath:" + LOCATION));
+        classGraphConfig = new ElasticsearchEvolutionConfigImpl()
+                .setLocations(singletonList("classpath:" + LOCATION))
+                .setLightweightClasspathScan(false);
+        final Path scanDirectory = Files.createTempDirectory("scan");
+        BenchmarkUtils.writeScripts(scanDirectory.resolve(LOCATION), scripts);
+        final Path manifestDirectory = Files.createTempDirectory("manifest");
+        BenchmarkUtils.writeScripts(manifestDirectory.resolve(LOCATION), scripts);
+        new MigrationManifestGenerator(config).generate(manifestDirectory);
+
+        scanClassLoader = new URLClassLoader(new URL[]{classPathEntry(scanDirectory)}, getClass().getClassLoader());
+        manifestClassLoader = new URLClassLoader(new URL[]{classPathEntry(manifestDirectory)}, getClass().getClassLoader());
+    }
+
+    private URL classPathEntry(Path directory) throws IOException {
+        if ("jar".equals(container)) {
+            return BenchmarkUtils.writeJar(directory, Files.createTempFile("migrations", ".jar")).toUri().toURL();
+        }
+        return directory.toUri().toURL();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        scanClassLoader.close();
+        manifestClassLoader.close();
+    }
+
+    @Benchmark
+    public List<RawMigrationScript<?>> classGraphScan() {
+        return readWith(scanClassLoader, classGraphConfig);
+    }
+
+    @Benchmark
+    public List<RawMigrationScript<?>> lightweightScan() {
+        return readWith(scanClassLoader, config);
+    }
+
+    @Benchmark
+    public List<RawMigrationScript<?>> manifest() {
+        return readWith(manifestClassLoader, config);
+    }
+
+    private List<RawMigrationScript<?>> readWith(ClassLoader classLoader, ElasticsearchEvolutionConfigImpl config) {
+        final Thread thread = Thread.currentThread();
+        final ClassLoader original = thread.getContextClassLoader();
+        thread.setContextClassLoader(classLoader);
+        try {
+            return new MigrationScriptReaderImpl(config).read();
+        } finally {
+            thread.setContextClassLoader(original);
+        }
+    }
+}
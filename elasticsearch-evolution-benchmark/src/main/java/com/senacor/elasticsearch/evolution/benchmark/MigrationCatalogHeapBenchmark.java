@@ -0,0 +1,91 @@
+package com.senacor.elasticsearch.evolution.benchmark;
+
+import com.senacor.elasticsearch.evolution.core.api.config.ElasticsearchEvolutionConfigImpl;
+import com.senacor.elasticsearch.evolution.core.internal.migration.input.MigrationScriptParserImpl;
+import com.senacor.elasticsearch.evolution.core.internal.migration.input.MigrationScriptReaderImpl;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.ParsedMigration;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Collections.singletonList;
+
+/**
+ * Measures the heap retained by the parsed migrations of a large migration set, which are kept while migrating.
+ * <p>
+ * The retained heap is the difference of the used heap after a full GC before and after the migrations were read and
+ * parsed. It is reported as the secondary result {@code retained:bytesPerMigration}, the time of a single read and
+ * parse is the primary result. The stages are:
+ * <ul>
+ *     <li>{@code parsed}: read and parsed, the requests were not accessed yet (like with disabled JSON validation)</li>
+ *     <li>{@code validated}: all requests were accessed (like the JSON validation before the migration does)</li>
+ *     <li>{@code executed}: all requests were accessed and released again (like after the migration)</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+// auxiliary counters of type EVENTS are summed over the iterations, so there is only one
+@Measurement(iterations = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class MigrationCatalogHeapBenchmark {
+
+    @Param({"10000", "50000"})
+    int scripts;
+
+    @Param({"parsed", "validated", "executed"})
+    String stage;
+
+    private ElasticsearchEvolutionConfigImpl config;
+    private MigrationScriptParserImpl parser;
+
+    /**
+     * the used heap in bytes, reported per migration
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Retained {
+        public long bytesPerMigration;
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        final Path directory = BenchmarkUtils.writeScripts(Files.createTempDirectory("catalog"), scripts);
+        config = new ElasticsearchEvolutionConfigImpl()
+                .setLocations(singletonList("file:" + directory));
+        parser = new MigrationScriptParserImpl("V", List.of(".http"), Map.of(), "${", "}", false, "\n");
+    }
+
+    @Benchmark
+    public Collection<ParsedMigration<?>> catalog(Retained retained) {
+        final long before = usedHeapAfterGc();
+        final List<ParsedMigration<?>> migrations = new ArrayList<>(parser.parse(new MigrationScriptReaderImpl(config).read()));
+        if (!"parsed".equals(stage)) {
+            migrations.forEach(ParsedMigration::getMigrationRequest);
+        }
+        if ("executed".equals(stage)) {
+            migrations.forEach(ParsedMigration::releaseMigrationRequest);
+        }
+        retained.bytesPerMigration = (usedHeapAfterGc() - before) / migrations.size();
+        return migrations;
+    }
+
+    private static long usedHeapAfterGc() {
+        final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        // several GCs, so objects with finalization or soft references are collected as well
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
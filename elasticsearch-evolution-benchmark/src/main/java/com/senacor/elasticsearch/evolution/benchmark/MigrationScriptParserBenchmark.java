@@ -0,0 +1,126 @@
+package com.senacor.elasticsearch.evolution.benchmark;
+
+import com.senacor.elasticsearch.evolution.core.api.MigrationException;
+import com.senacor.elasticsearch.evolution.core.internal.migration.input.MigrationScriptParserImpl;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.MigrationRequest;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.MigrationScriptRequest;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.RawMigrationScript;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.ScriptMigrationContent;
+import com.senacor.elasticsearch.evolution.rest.abstraction.HttpMethod;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Compares the single-pass script parser of {@link MigrationScriptParserImpl} with the previous parser, which split the
+ * content into lines with {@link String#split(String, int)} and rebuilt the body line by line.
+ * <p>
+ * Run with {@code -prof gc} to get the allocations per operation ({@code gc.alloc.rate.norm}).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MigrationScriptParserBenchmark {
+
+    private static final String LINE_SEPARATOR = "\n";
+
+    /**
+     * number of body lines, 20 is a small script, 1000 a medium script and 50000 a script of about 4 MB
+     */
+    @Param({"20", "1000", "50000"})
+    int bodyLines;
+
+    private ScriptMigrationContent content;
+    private MigrationScriptParserImpl parser;
+
+    @Setup
+    public void setUp() {
+        final StringBuilder sb = new StringBuilder("""
+                # bulk import
+                POST /_bulk
+                Content-Type: application/x-ndjson
+                Accept: application/json
+
+                """);
+        for (int i = 0; i < bodyLines / 2; i++) {
+            sb.append("{\"index\":{\"_index\":\"index\",\"_id\":\"").append(i).append("\"}}\n")
+                    .append("{\"name\":\"name ").append(i).append("\",\"description\":\"some description of the document ")
+                    .append(i).append("\"}\n");
+        }
+        content = new ScriptMigrationContent(sb.toString());
+        parser = new MigrationScriptParserImpl("V", List.of(".http"), Map.of(), "${", "}", false, LINE_SEPARATOR);
+    }
+
+    @Benchmark
+    public MigrationRequest singlePass() {
+        return parser.parse(List.of(new RawMigrationScript<ScriptMigrationContent>()
+                        .setFileName("V1__bulk.http")
+                        .setContent(content)))
+                .iterator().next()
+                .getMigrationRequest();
+    }
+
+    @Benchmark
+    public MigrationRequest lineSplitting() {
+        // the file name is parsed by the single-pass benchmark, too
+        parser.parse(List.of(new RawMigrationScript<ScriptMigrationContent>()
+                .setFileName("V1__bulk.http")
+                .setContent(content)));
+        return parseBySplittingLines(content.content());
+    }
+
+    private enum ParseState {
+        METHOD_PATH,
+        HEADER,
+        CONTENT
+    }
+
+    /**
+     * the previous implementation of {@code MigrationScriptParserImpl.parseContent}
+     */
+    private static MigrationScriptRequest parseBySplittingLines(String contentReplaced) {
+        MigrationScriptRequest res = new MigrationScriptRequest();
+        StringBuilder body = new StringBuilder();
+
+        final AtomicReference<ParseState> state = new AtomicReference<>(ParseState.METHOD_PATH);
+        for (String line : contentReplaced.split(LINE_SEPARATOR, -1)) {
+            if (!line.trim().startsWith("#") && !line.trim().startsWith("//")) {
+                switch (state.get()) {
+                    case METHOD_PATH -> {
+                        String[] methodAndPath = line.trim().split(" +", 2);
+                        if (methodAndPath.length != 2) {
+                            throw new MigrationException("can't parse method and path: '%s'".formatted(line));
+                        }
+                        res.setHttpMethod(HttpMethod.create(methodAndPath[0]))
+                                .setPath(methodAndPath[1].trim());
+                        state.set(ParseState.HEADER);
+                    }
+                    case HEADER -> {
+                        if (line.trim().isEmpty()) {
+                            state.set(ParseState.CONTENT);
+                        } else {
+                            String[] header = line.trim().split("[:=]", 2);
+                            if (header.length != 2) {
+                                throw new MigrationException("can't parse header: '%s'".formatted(line));
+                            }
+                            res.addHttpHeader(header[0].trim(), header[1].trim());
+                        }
+                    }
+                    case CONTENT -> {
+                        if (!body.isEmpty()) {
+                            body.append(LINE_SEPARATOR);
+                        }
+                        body.append(line);
+                    }
+                }
+            }
+        }
+        return res.setBody(body.toString());
+    }
+}
@@ -0,0 +1,165 @@
+package com.senacor.elasticsearch.evolution.benchmark;
+
+import com.senacor.elasticsearch.evolution.core.api.migration.MigrationVersion;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the {@code int[]} based {@link MigrationVersion} with the previous implementation, which stored the version
+ * parts as {@code List<Integer>} split by a regex.
+ * <p>
+ * {@code parse} creates the versions of all migrations, {@code sortAndLookup} does what
+ * {@code MigrationServiceImpl.getPendingScriptsToBeExecuted} does with the versions of the scripts and the history:
+ * build a {@link TreeMap} by version and look up each history version.
+ * Run with {@code -prof gc} to get the allocations per operation ({@code gc.alloc.rate.norm}).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MigrationVersionBenchmark {
+
+    /**
+     * number of migrations
+     */
+    @Param({"1000", "10000"})
+    int count;
+
+    private List<String> versionStrings;
+    private List<MigrationVersion> versions;
+    private List<MigrationVersion> historyVersions;
+    private List<ListMigrationVersion> listVersions;
+    private List<ListMigrationVersion> listHistoryVersions;
+
+    @Setup
+    public void setUp() {
+        versionStrings = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            // a mix of plain, dotted and underscore separated versions
+            versionStrings.add(switch (i % 3) {
+                case 0 -> Integer.toString(i);
+                case 1 -> (i / 100 + 1) + "." + (i % 100) + ".0";
+                default -> (i / 100 + 1) + "_" + (i % 100) + "_1";
+            });
+        }
+        // shuffled, like versions read concurrently from the filesystem
+        Collections.shuffle(versionStrings, new Random(42));
+        versions = versionStrings.stream().map(MigrationVersion::fromVersion).toList();
+        historyVersions = versionStrings.stream().map(MigrationVersion::fromVersion).toList();
+        listVersions = versionStrings.stream().map(ListMigrationVersion::new).toList();
+        listHistoryVersions = versionStrings.stream().map(ListMigrationVersion::new).toList();
+    }
+
+    @Benchmark
+    public List<MigrationVersion> parse() {
+        final List<MigrationVersion> res = new ArrayList<>(count);
+        for (String version : versionStrings) {
+            res.add(MigrationVersion.fromVersion(version));
+        }
+        return res;
+    }
+
+    @Benchmark
+    public List<ListMigrationVersion> parseList() {
+        final List<ListMigrationVersion> res = new ArrayList<>(count);
+        for (String version : versionStrings) {
+            res.add(new ListMigrationVersion(version));
+        }
+        return res;
+    }
+
+    @Benchmark
+    public int sortAndLookup() {
+        return sortAndLookup(versions, historyVersions);
+    }
+
+    @Benchmark
+    public int sortAndLookupList() {
+        return sortAndLookup(listVersions, listHistoryVersions);
+    }
+
+    private static <T extends Comparable<T>> int sortAndLookup(List<T> versions, List<T> historyVersions) {
+        final TreeMap<T, T> byVersion = new TreeMap<>();
+        for (T version : versions) {
+            byVersion.put(version, version);
+        }
+        int found = 0;
+        for (T version : historyVersions) {
+            if (null != byVersion.get(version)) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * the previous implementation of {@link MigrationVersion}
+     */
+    public static final class ListMigrationVersion implements Comparable<ListMigrationVersion> {
+        private static final Pattern splitPattern = Pattern.compile("\\.(?=\\d)");
+
+        private final List<Integer> versionParts;
+        private final String displayText;
+
+        ListMigrationVersion(String version) {
+            this.versionParts = tokenize(version.replace('_', '.'));
+            this.displayText = String.join(".", versionParts.stream().map(Object::toString).toList());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return this == o || o instanceof ListMigrationVersion other && compareTo(other) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return versionParts.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return displayText;
+        }
+
+        @Override
+        public int compareTo(ListMigrationVersion o) {
+            final List<Integer> parts1 = versionParts;
+            final List<Integer> parts2 = o.versionParts;
+            int largestNumberOfParts = Math.max(parts1.size(), parts2.size());
+            for (int i = 0; i < largestNumberOfParts; i++) {
+                final int compared = getOrZero(parts1, i).compareTo(getOrZero(parts2, i));
+                if (compared != 0) {
+                    return compared;
+                }
+            }
+            return 0;
+        }
+
+        private static Integer getOrZero(List<Integer> elements, int i) {
+            return i < elements.size() ? elements.get(i) : 0;
+        }
+
+        private static List<Integer> tokenize(String str) {
+            List<Integer> parts = new ArrayList<>();
+            for (String part : splitPattern.split(str)) {
+                parts.add(Integer.valueOf(part));
+            }
+            for (int i = parts.size() - 1; i > 0; i--) {
+                if (!parts.get(i).equals(0)) {
+                    break;
+                }
+                parts.remove(i);
+            }
+            return parts;
+        }
+    }
+}
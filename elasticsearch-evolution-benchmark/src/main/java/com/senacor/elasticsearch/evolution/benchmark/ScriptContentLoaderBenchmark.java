@@ -0,0 +1,68 @@
+package com.senacor.elasticsearch.evolution.benchmark;
+
+import com.senacor.elasticsearch.evolution.core.internal.migration.input.ScriptContentLoader;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.ScriptMigrationContent;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares loading a script with {@link ScriptContentLoader} with the previous char-at-a-time read loop followed by a
+ * regex line break normalization.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScriptContentLoaderBenchmark {
+
+    /**
+     * number of bulk lines in the script, a line has about 100 bytes
+     */
+    @Param({"100", "100000"})
+    int lines;
+
+    private byte[] script;
+    private ScriptContentLoader loader;
+
+    @Setup
+    public void setUp() {
+        final StringBuilder sb = new StringBuilder("POST /_bulk\r\nContent-Type: application/x-ndjson\r\n\r\n");
+        for (int i = 0; i < lines; i++) {
+            sb.append("{\"index\":{\"_index\":\"index\",\"_id\":\"").append(i).append("\"}}\r\n")
+                    .append("{\"name\":\"name ").append(i).append("\",\"counter\":").append(i).append("}\r\n");
+        }
+        script = sb.toString().getBytes(StandardCharsets.UTF_8);
+        loader = new ScriptContentLoader(StandardCharsets.UTF_8, "\n", true);
+    }
+
+    @Benchmark
+    public ScriptMigrationContent loader() {
+        return loader.load(script).orElseThrow();
+    }
+
+    @Benchmark
+    public ScriptMigrationContent charAtATimeWithRegex() throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(script), StandardCharsets.UTF_8))) {
+            StringBuilder sb = new StringBuilder();
+            int ch;
+            while ((ch = reader.read()) != -1) {
+                sb.append((char) ch);
+            }
+            String content = sb.toString().replaceAll("\\R", "\n");
+            if (content.endsWith("\n")) {
+                content = content.substring(0, content.length() - 1);
+            }
+            // String.hashCode is computed lazily, the loader computes it while reading
+            content.hashCode();
+            return new ScriptMigrationContent(content);
+        }
+    }
+}
@@ -7,17 +7,21 @@ import com.senacor.elasticsearch.evolution.core.api.ValidateException;
 import com.senacor.elasticsearch.evolution.core.api.config.ElasticsearchEvolutionConfig;
 import com.senacor.elasticsearch.evolution.core.api.config.ElasticsearchEvolutionConfigImpl;
 import com.senacor.elasticsearch.evolution.core.api.migration.HistoryRepository;
+import com.senacor.elasticsearch.evolution.core.api.migration.LockWaitMetrics;
 import com.senacor.elasticsearch.evolution.core.api.migration.MigrationScriptParser;
 import com.senacor.elasticsearch.evolution.core.api.migration.MigrationScriptReader;
 import com.senacor.elasticsearch.evolution.core.api.migration.MigrationService;
 import com.senacor.elasticsearch.evolution.core.internal.migration.execution.HistoryRepositoryImpl;
 import com.senacor.elasticsearch.evolution.core.internal.migration.execution.MigrationScriptProtocolMapper;
 import com.senacor.elasticsearch.evolution.core.internal.migration.execution.MigrationServiceImpl;
+import com.senacor.elasticsearch.evolution.core.internal.migration.execution.MigrationWatcher;
 import com.senacor.elasticsearch.evolution.core.internal.migration.input.MigrationScriptParserImpl;
 import com.senacor.elasticsearch.evolution.core.internal.migration.input.MigrationScriptReaderImpl;
+import com.senacor.elasticsearch.evolution.core.internal.migration.input.ParsedMigrationCache;
 import com.senacor.elasticsearch.evolution.core.internal.model.dbhistory.MigrationScriptProtocol;
 import com.senacor.elasticsearch.evolution.core.internal.model.migration.ParsedMigration;
 import com.senacor.elasticsearch.evolution.core.internal.model.migration.RawMigrationScript;
+import com.senacor.elasticsearch.evolution.core.internal.utils.ParallelMapper;
 import com.senacor.elasticsearch.evolution.rest.abstraction.EvolutionRestClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -105,17 +109,24 @@ public class ElasticsearchEvolution {
     public int migrate() throws MigrationException {
         if (getConfig().isEnabled()) {
             logger.info("start migration...");
+            String fingerprint = null;
+            if (getConfig().isFingerprintCheck()) {
+                fingerprint = migrationScriptReader.fingerprint();
+                if (null != fingerprint && migrationService.isUpToDate(fingerprint)) {
+                    logger.info("migration fingerprint {} is unchanged, skipping migration", fingerprint);
+                    return 0;
+                }
+            }
             logger.info("reading migration scripts...");
             Collection<RawMigrationScript<?>> rawMigrationScripts = migrationScriptReader.read();
-            if (rawMigrationScripts.size() > getConfig().getHistoryMaxQuerySize()) {
-                throw new MigrationException("configured historyMaxQuerySize of '%s' is too low for the number of migration scripts of '%s'".formatted(
-                        getConfig().getHistoryMaxQuerySize(), rawMigrationScripts.size()));
-            }
 
             logger.info("parsing migration scripts...");
             Collection<ParsedMigration<?>> parsedMigrations = migrationScriptParser.parse(rawMigrationScripts);
             logger.info("execute migration scripts...");
             List<MigrationScriptProtocol> executedScripts = migrationService.executePendingScripts(parsedMigrations);
+            if (null != fingerprint) {
+                migrationService.markUpToDate(fingerprint, parsedMigrations);
+            }
             return (int) executedScripts.stream()
                     .filter(MigrationScriptProtocol::isSuccess)
                     .count();
@@ -125,6 +136,28 @@ public class ElasticsearchEvolution {
         }
     }
 
+    /**
+     * <p>Starts the development watch mode. All pending migrations will be applied in order, afterward the
+     * {@code file:} locations are watched for changed migration scripts in a daemon thread. Only changed or added
+     * scripts are read and parsed again and the resulting pending migrations are applied.</p>
+     * <p>Migrations of other locations are read only once. Failed migrations of changed scripts are logged and the
+     * watch mode waits for further changes.</p>
+     *
+     * @return the started watcher, close it to stop watching. Null, if elasticsearch-evolution is not enabled.
+     * @throws MigrationException when the initial migration failed or the locations can't be watched.
+     */
+    public MigrationWatcher watch() throws MigrationException {
+        if (getConfig().isEnabled()) {
+            logger.info("start migration in watch mode...");
+            final MigrationWatcher watcher = new MigrationWatcher(migrationScriptReader, migrationScriptParser, migrationService);
+            watcher.start();
+            return watcher;
+        } else {
+            logger.debug("elasticsearch-evolution is not enabled");
+            return null;
+        }
+    }
+
     /**
      * Validate applied migrations against resolved ones (on the filesystem or classpath)
      * to detect accidental changes that may prevent the schema(s) from being recreated exactly.
@@ -141,10 +174,6 @@ public class ElasticsearchEvolution {
             logger.info("start validate...");
             logger.info("reading migration scripts...");
             Collection<RawMigrationScript<?>> rawMigrationScripts = migrationScriptReader.read();
-            if (rawMigrationScripts.size() > getConfig().getHistoryMaxQuerySize()) {
-                throw new ValidateException("configured historyMaxQuerySize of '%s' is too low for the number of migration scripts of '%s'".formatted(
-                        getConfig().getHistoryMaxQuerySize(), rawMigrationScripts.size()));
-            }
 
             logger.info("parsing migration scripts...");
             Collection<ParsedMigration<?>> parsedMigrations = migrationScriptParser.parse(rawMigrationScripts);
@@ -166,6 +195,14 @@ public class ElasticsearchEvolution {
         }
     }
 
+    /**
+     * @return a snapshot of the cumulative metrics of waiting for the lock of the history index, e.g. to be exported to a
+     * monitoring system.
+     */
+    public LockWaitMetrics getLockWaitMetrics() {
+        return migrationService.getLockWaitMetrics();
+    }
+
     protected ElasticsearchEvolutionConfig getConfig() {
         return config;
     }
@@ -188,7 +225,12 @@ public class ElasticsearchEvolution {
                 getConfig().getPlaceholderPrefix(),
                 getConfig().getPlaceholderSuffix(),
                 getConfig().isPlaceholderReplacement(),
-                getConfig().getLineSeparator()
+                getConfig().getLineSeparator(),
+                new ParallelMapper(getConfig().getReadParallelism(), getConfig().isReadVirtualThreads()),
+                null == getConfig().getParsedMigrationCacheDirectory()
+                        ? null
+                        : new ParsedMigrationCache(getConfig()),
+                getConfig().isReportUnresolvedPlaceholders()
         );
     }
 
@@ -202,14 +244,17 @@ public class ElasticsearchEvolution {
                 getConfig().getHistoryIndex(),
                 new MigrationScriptProtocolMapper(),
                 getConfig().getHistoryMaxQuerySize(),
-                createObjectMapper());
+                createObjectMapper(),
+                getConfig().getHistoryLockMode(),
+                getConfig().getHistoryLockLeaseTimeInMillis(),
+                getConfig().getStream());
     }
 
     protected MigrationService createMigrationService() {
         return new MigrationServiceImpl(
                 createHistoryRepository(),
-                1_000,
-                10_000,
+                getConfig().getLockWaitInitialTimeInMillis(),
+                getConfig().getLockWaitMaxTimeInMillis(),
                 getRestClient(),
                 getConfig());
     }
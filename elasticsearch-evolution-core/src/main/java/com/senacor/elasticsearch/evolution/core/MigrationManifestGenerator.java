@@ -0,0 +1,252 @@
+package com.senacor.elasticsearch.evolution.core;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.senacor.elasticsearch.evolution.core.api.MigrationException;
+import com.senacor.elasticsearch.evolution.core.api.config.ElasticsearchEvolutionConfig;
+import com.senacor.elasticsearch.evolution.core.api.config.ElasticsearchEvolutionConfigImpl;
+import com.senacor.elasticsearch.evolution.core.api.migration.java.JavaMigration;
+import com.senacor.elasticsearch.evolution.core.internal.migration.input.MigrationScriptParserImpl;
+import com.senacor.elasticsearch.evolution.core.internal.migration.input.MigrationScriptReaderImpl;
+import com.senacor.elasticsearch.evolution.core.internal.model.FileNameInfo;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.MigrationManifest;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.RawMigrationScript;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.ScriptMigrationContent;
+import io.github.classgraph.ClassGraph;
+import io.github.classgraph.ClassInfo;
+import io.github.classgraph.ScanResult;
+import lombok.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+/**
+ * Writes a {@link MigrationManifest} for each classpath location into the build output directory, so
+ * {@link MigrationScriptReaderImpl} does not need to scan the classpath at application start.
+ * <p>
+ * Meant to be called at build time after the classes were compiled, e.g. in the maven phase {@code process-classes}
+ * with the exec-maven-plugin:
+ * <pre>
+ * java com.senacor.elasticsearch.evolution.core.MigrationManifestGenerator \
+ *     --esMigrationSuffixes=.http,.json target/classes classpath:es/migration
+ * </pre>
+ */
+public class MigrationManifestGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(MigrationManifestGenerator.class);
+
+    private static final String CLASSPATH_PREFIX = "classpath:";
+    private static final String OPTION_PREFIX = "--";
+    private static final String USAGE = "usage: MigrationManifestGenerator [--config=<properties file>] [--<option>=<value>...] " +
+            "<classesDirectory> [location...], options: encoding, lineSeparator, trimTrailingNewlineInMigrations, " +
+            "esMigrationPrefix, esMigrationSuffixes, locations";
+
+    private final ElasticsearchEvolutionConfig config;
+    private final MigrationScriptReaderImpl reader;
+    private final MigrationScriptParserImpl parser;
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .enable(SerializationFeature.INDENT_OUTPUT);
+
+    public MigrationManifestGenerator(@NonNull ElasticsearchEvolutionConfig config) {
+        this.config = config;
+        this.reader = new MigrationScriptReaderImpl(config);
+        this.parser = new MigrationScriptParserImpl(
+                config.getEsMigrationPrefix(),
+                config.getEsMigrationSuffixes(),
+                config.getPlaceholders(),
+                config.getPlaceholderPrefix(),
+                config.getPlaceholderSuffix(),
+                config.isPlaceholderReplacement(),
+                config.getLineSeparator());
+    }
+
+    /**
+     * Usage: {@code MigrationManifestGenerator [--config=<properties file>] [--<option>=<value>...] <classesDirectory> [location...]}
+     * <p>
+     * The configuration options, which influence the found scripts and their checksums, can be passed as
+     * {@code --<option>=<value>} or in a properties file with {@code --config=<file>}. Options passed directly take
+     * precedence over the properties file:
+     * <ul>
+     *     <li>{@code encoding}</li>
+     *     <li>{@code lineSeparator}, escape sequences like {@code \n} are replaced</li>
+     *     <li>{@code trimTrailingNewlineInMigrations}</li>
+     *     <li>{@code esMigrationPrefix}</li>
+     *     <li>{@code esMigrationSuffixes}, comma separated</li>
+     *     <li>{@code locations}, comma separated, only used if no location is passed after the classes directory</li>
+     * </ul>
+     * They must match the configuration of the application, otherwise the manifest is detected as stale or the
+     * checksums differ. All other configuration options use their defaults.
+     */
+    public static void main(String[] args) throws IOException {
+        final List<Path> manifests = new MigrationManifestGenerator(parseConfig(args)).generate(parseClassesDirectory(args));
+        logger.info("written {} manifests", manifests.size());
+    }
+
+    /**
+     * @param args the arguments of {@link #main(String[])}
+     * @return the configuration of the options and locations passed as arguments
+     * @throws IOException if the properties file can't be read
+     */
+    static ElasticsearchEvolutionConfigImpl parseConfig(String[] args) throws IOException {
+        final Properties options = new Properties();
+        final List<String> positional = new ArrayList<>();
+        final Properties directOptions = new Properties();
+        for (String arg : args) {
+            if (arg.startsWith(OPTION_PREFIX)) {
+                final int separator = arg.indexOf('=');
+                if (separator < 0) {
+                    throw new IllegalArgumentException("option without value: " + arg + ", " + USAGE);
+                }
+                directOptions.setProperty(arg.substring(OPTION_PREFIX.length(), separator), arg.substring(separator + 1));
+            } else {
+                positional.add(arg);
+            }
+        }
+        if (positional.isEmpty()) {
+            throw new IllegalArgumentException(USAGE);
+        }
+        final String propertiesFile = directOptions.getProperty("config");
+        if (null != propertiesFile) {
+            directOptions.remove("config");
+            try (Reader propertiesReader = Files.newBufferedReader(Path.of(propertiesFile), StandardCharsets.UTF_8)) {
+                options.load(propertiesReader);
+            }
+        }
+        directOptions.stringPropertyNames().forEach(name ->
+                options.setProperty(name, "lineSeparator".equals(name)
+                        ? unescape(directOptions.getProperty(name))
+                        : directOptions.getProperty(name)));
+
+        final ElasticsearchEvolutionConfigImpl config = new ElasticsearchEvolutionConfigImpl();
+        for (String name : options.stringPropertyNames()) {
+            final String value = options.getProperty(name);
+            switch (name) {
+                case "encoding" -> config.setEncoding(Charset.forName(value));
+                case "lineSeparator" -> config.setLineSeparator(value);
+                case "trimTrailingNewlineInMigrations" -> config.setTrimTrailingNewlineInMigrations(Boolean.parseBoolean(value));
+                case "esMigrationPrefix" -> config.setEsMigrationPrefix(value);
+                case "esMigrationSuffixes" -> config.setEsMigrationSuffixes(splitList(value));
+                case "locations" -> config.setLocations(splitList(value));
+                default -> throw new IllegalArgumentException("unknown option '" + name + "', " + USAGE);
+            }
+        }
+        if (positional.size() > 1) {
+            config.setLocations(positional.subList(1, positional.size()));
+        }
+        return config;
+    }
+
+    private static Path parseClassesDirectory(String[] args) {
+        return Arrays.stream(args)
+                .filter(arg -> !arg.startsWith(OPTION_PREFIX))
+                .findFirst()
+                .map(Path::of)
+                .orElseThrow(() -> new IllegalArgumentException(USAGE));
+    }
+
+    private static List<String> splitList(String value) {
+        return Arrays.stream(value.split(","))
+                .map(String::trim)
+                .filter(element -> !element.isEmpty())
+                .toList();
+    }
+
+    private static String unescape(String value) {
+        return value.replace("\\r", "\r").replace("\\n", "\n");
+    }
+
+    /**
+     * Writes a manifest for every configured classpath location which exists in the given classes directory.
+     * Other locations are ignored.
+     *
+     * @param classesDirectory build output directory, which will be packaged into the artifact
+     * @return paths of the written manifests
+     * @throws IOException if the classes directory could not be read or the manifest could not be written
+     */
+    public List<Path> generate(@NonNull Path classesDirectory) throws IOException {
+        final List<Path> res = new ArrayList<>();
+        for (String location : config.getLocations()) {
+            if (!location.startsWith(CLASSPATH_PREFIX)) {
+                logger.debug("skipping non classpath location '{}'", location);
+                continue;
+            }
+            String locationWithoutPrefix = location.substring(CLASSPATH_PREFIX.length());
+            if (locationWithoutPrefix.endsWith("/")) {
+                locationWithoutPrefix = locationWithoutPrefix.substring(0, locationWithoutPrefix.length() - 1);
+            }
+            final Path locationDirectory = classesDirectory.resolve(locationWithoutPrefix);
+            if (!Files.isDirectory(locationDirectory)) {
+                logger.info("location '{}' does not exist in '{}', no manifest written", location, classesDirectory);
+                continue;
+            }
+
+            final MigrationManifest manifest = new MigrationManifest(MigrationManifest.FORMAT_VERSION,
+                    readScripts(locationDirectory),
+                    findJavaMigrations(classesDirectory, locationWithoutPrefix.replace('/', '.')));
+            final Path manifestFile = locationDirectory.resolve(MigrationManifest.FILE_NAME);
+            objectMapper.writeValue(manifestFile.toFile(), manifest);
+            logger.info("written manifest for location '{}' with {} scripts and {} JavaMigrations to '{}'",
+                    location, manifest.scripts().size(), manifest.javaMigrations().size(), manifestFile);
+            res.add(manifestFile);
+        }
+        return res;
+    }
+
+    private List<MigrationManifest.Script> readScripts(Path locationDirectory) throws IOException {
+        final List<MigrationManifest.Script> res = new ArrayList<>();
+        try (Stream<Path> files = Files.find(locationDirectory, 10, (pathToCheck, basicFileAttributes) ->
+                !basicFileAttributes.isDirectory()
+                        && basicFileAttributes.size() > 0
+                        && !MigrationManifest.FILE_NAME.equals(pathToCheck.getFileName().toString())
+                        && reader.isValidFilename(pathToCheck.getFileName().toString()))) {
+            for (Path file : files.sorted(Comparator.comparing(Path::toString)).toList()) {
+                final String fileName = file.getFileName().toString();
+                try (BufferedReader bufferedReader = Files.newBufferedReader(file, config.getEncoding())) {
+                    final List<RawMigrationScript<ScriptMigrationContent>> scripts = reader.read(bufferedReader, fileName).toList();
+                    for (RawMigrationScript<ScriptMigrationContent> script : scripts) {
+                        final FileNameInfo fileNameInfo = parser.parseFileNameFromScriptMigration(fileName);
+                        res.add(new MigrationManifest.Script(
+                                locationDirectory.relativize(file).toString().replace('\\', '/'),
+                                fileNameInfo.getVersion().getVersion(),
+                                fileNameInfo.getDescription(),
+                                script.getContent().checksum(),
+                                script.getContent().contentChecksum(),
+                                Files.size(file)));
+                    }
+                } catch (MigrationException e) {
+                    throw new MigrationException("can't create manifest entry for: " + file, e);
+                }
+            }
+        }
+        return res;
+    }
+
+    private List<String> findJavaMigrations(Path classesDirectory, String packageToScan) {
+        try (ScanResult scanResult = new ClassGraph()
+                .overrideClasspath(classesDirectory)
+                .enableClassInfo()
+                .acceptPackages(packageToScan)
+                .scan()) {
+            return scanResult.getClassesImplementing(JavaMigration.class)
+                    .filter(classInfo -> !classInfo.isAbstract())
+                    .filter(classInfo -> !classInfo.isInterface())
+                    .stream()
+                    .map(ClassInfo::getName)
+                    .sorted()
+                    .toList();
+        }
+    }
+}
@@ -28,6 +28,8 @@ public interface ElasticsearchEvolutionConfig {
 
     String getHistoryIndex();
 
+    String getStream();
+
     Map<String, String> getPlaceholders();
 
     String getPlaceholderPrefix();
@@ -36,12 +38,24 @@ public interface ElasticsearchEvolutionConfig {
 
     boolean isPlaceholderReplacement();
 
+    boolean isReportUnresolvedPlaceholders();
+
     String getEsMigrationPrefix();
 
     List<String> getEsMigrationSuffixes();
 
     int getHistoryMaxQuerySize();
 
+    HistoryLockMode getHistoryLockMode();
+
+    int getHistoryLockLeaseTimeInMillis();
+
+    int getLockWaitInitialTimeInMillis();
+
+    int getLockWaitMaxTimeInMillis();
+
+    int getLockWaitTimeoutInMillis();
+
     boolean isValidateOnMigrate();
 
     boolean isTrimTrailingNewlineInMigrations();
@@ -50,6 +64,33 @@ public interface ElasticsearchEvolutionConfig {
 
     boolean isOutOfOrder();
 
+    boolean isFingerprintCheck();
+
+    int getReadParallelism();
+
+    boolean isReadVirtualThreads();
+
+    int getScriptRequestParallelism();
+
+    int getBulkMaxBytes();
+
+    int getBulkMaxDocuments();
+
+    int getBulkParallelism();
+
+    int getStreamBodyThreshold();
+
+    boolean isValidateJsonBodies();
+
+    boolean isShareClasspathScan();
+
+    boolean isLightweightClasspathScan();
+
+    /**
+     * @return directory of the on-disk cache of parsed migration scripts or <code>null</code>, if the cache is disabled (default: null)
+     */
+    String getParsedMigrationCacheDirectory();
+
     /**
      * The manually added Java-based migrations. These are not Java-based migrations discovered through classpath
      * scanning and instantiated by Elasticsearch-Evolution. Instead, these are manually added instances of {@link JavaMigration}.
@@ -78,7 +78,7 @@ public class ElasticsearchEvolutionConfigImpl implements ElasticsearchEvolutionC
     private String esMigrationPrefix = "V";
 
     /**
-     * File name suffix(es) for ES migrations.
+     * File name suffix(es) for ES migrations. NDJSON bulk data migrations are enabled by adding '.ndjson'.
      */
     @Getter
     private List<String> esMigrationSuffixes = new ArrayList<>(
@@ -108,6 +108,13 @@ public class ElasticsearchEvolutionConfigImpl implements ElasticsearchEvolutionC
     @Getter
     private boolean placeholderReplacement = true;
 
+    /**
+     * Whether to log a warning for each migration script, which contains placeholders without value.
+     * Only used if {@link #placeholderReplacement} is enabled.
+     */
+    @Getter
+    private boolean reportUnresolvedPlaceholders = false;
+
     /**
      * Name of the history index that will be used by elasticsearch-evolution.
      */
@@ -115,12 +122,61 @@ public class ElasticsearchEvolutionConfigImpl implements ElasticsearchEvolutionC
     private String historyIndex = "es_evolution";
 
     /**
-     * The maximum query size while validating already executed scripts.
-     * This query size have to be higher than the total count of your migration scripts.
+     * Name of the migration stream, e.g. the owning service. Each stream has its own versions, lock and history in the
+     * history index, so independent streams can migrate concurrently and the order of migrations is only enforced
+     * within a stream. Must consist of lowercase letters, digits and underscores. Null is the default stream, which
+     * contains the history of migrations without stream.
+     */
+    @Getter
+    private String stream = null;
+
+    /**
+     * The page size while reading already executed scripts from the history index. The history is read page by page,
+     * so the total count of your migration scripts is not limited by this size. Must not be greater than the
+     * {@code index.max_result_window} of the history index.
      */
     @Getter
     private int historyMaxQuerySize = 1_000;
 
+    /**
+     * How the history index is locked while migrating, see {@link HistoryLockMode}.
+     * <p>
+     * NOTE: All instances migrating the same history index must use the same mode.
+     */
+    @Getter
+    private HistoryLockMode historyLockMode = HistoryLockMode.UPDATE_BY_QUERY;
+
+    /**
+     * Lease time of the lock in {@link HistoryLockMode#DOCUMENT} mode. While migrating, the lease is renewed every third
+     * of the lease time. If an instance dies while holding the lock, other instances take the lock over after the lease
+     * expired. 0 disables the lease: then the lock never expires and has to be deleted manually.
+     * <p>
+     * NOTE: The clocks of all instances should be synchronized much more precisely than the lease time.
+     */
+    @Getter
+    private int historyLockLeaseTimeInMillis = 60_000;
+
+    /**
+     * Initial time to wait, before checking again whether the locked history index got unlocked. The wait time is
+     * doubled after each check up to {@link #lockWaitMaxTimeInMillis}, a random jitter of up to half the wait time is
+     * subtracted, so concurrently starting instances don't check at the same time.
+     */
+    @Getter
+    private int lockWaitInitialTimeInMillis = 200;
+
+    /**
+     * Maximum time to wait between two checks, whether the locked history index got unlocked.
+     */
+    @Getter
+    private int lockWaitMaxTimeInMillis = 5_000;
+
+    /**
+     * Maximum total time to wait for the lock of the history index. When exceeded, the migration fails with a
+     * {@link com.senacor.elasticsearch.evolution.core.api.MigrationException}. 0 waits without a time limit.
+     */
+    @Getter
+    private int lockWaitTimeoutInMillis = 0;
+
     /**
      * Whether to fail when a previously applied migration script has been modified after it was applied.
      */
@@ -151,6 +207,116 @@ public class ElasticsearchEvolutionConfigImpl implements ElasticsearchEvolutionC
     @Getter
     private boolean outOfOrder = false;
 
+    /**
+     * Whether to skip reading, parsing and validating all migrations when nothing changed since the last successful
+     * migration.
+     * <p>
+     * After each successful migration a fingerprint of all migrations is stored in the history index. The fingerprint
+     * is computed from the file names, sizes and modification times of the migrations and the parsing related
+     * configuration, so it can be computed without reading the content of the migrations. If the stored fingerprint
+     * matches, the migration costs a single GET request.
+     * <p>
+     * NOTE: While the fingerprint matches, {@link #validateOnMigrate} is not executed.
+     */
+    @Getter
+    private boolean fingerprintCheck = false;
+
+    /**
+     * Maximum number of migrations which are read and parsed concurrently.
+     * <p>
+     * 1 means all migrations are read and parsed sequentially on the calling thread.
+     * The order of the migrations and the detection of duplicate versions is independent of this setting.
+     */
+    @Getter
+    private int readParallelism = 1;
+
+    /**
+     * Whether to read and parse migrations on virtual threads instead of platform threads, if {@link #readParallelism}
+     * is greater than 1.
+     * <p>
+     * NOTE: Requires Java 21, otherwise platform threads are used.
+     */
+    @Getter
+    private boolean readVirtualThreads = false;
+
+    /**
+     * Maximum number of concurrently executed requests of a migration script with several requests.
+     * <p>
+     * Only consecutive requests with different targets (the first path segment, e.g. the index) are executed
+     * concurrently, requests with targets like '_bulk' or 'logs-*' are executed alone. After the first failed request
+     * no further request is started. 1 means all requests are executed sequentially on the calling thread.
+     */
+    @Getter
+    private int scriptRequestParallelism = 1;
+
+    /**
+     * Maximum size in bytes of a single '_bulk' request of NDJSON bulk data migrations ('.ndjson' files). The file is
+     * streamed and split into several '_bulk' requests, a document larger than this is sent in a request of its own.
+     */
+    @Getter
+    private int bulkMaxBytes = 5 * 1024 * 1024;
+
+    /**
+     * Maximum number of documents (actions) of a single '_bulk' request of NDJSON bulk data migrations.
+     */
+    @Getter
+    private int bulkMaxDocuments = 1000;
+
+    /**
+     * Maximum number of concurrent '_bulk' requests of a NDJSON bulk data migration. Reading the file blocks while this
+     * many requests are in flight. After the first failed request no further request is started. 1 means all requests
+     * are executed sequentially on the calling thread.
+     */
+    @Getter
+    private int bulkParallelism = 1;
+
+    /**
+     * Migration scripts of this size in bytes or larger are not loaded into memory: the body of the request is streamed
+     * from the script to the HTTP request and placeholders are replaced while streaming. Applies to scripts with a
+     * single request, read from the filesystem, the classpath or a bundle, if the line separator is '\n', '\r\n' or
+     * '\r'. Other scripts are always loaded.
+     */
+    @Getter
+    private int streamBodyThreshold = 10 * 1024 * 1024;
+
+    /**
+     * Whether to check the JSON bodies of all pending migration scripts, before the history index is locked. Bodies
+     * with a JSON content type (e.g. 'application/json', 'application/x-ndjson' or '...+json') are parsed with
+     * {@link #readParallelism} threads and if one of them is invalid, no migration is executed.
+     */
+    @Getter
+    private boolean validateJsonBodies = true;
+
+    /**
+     * Whether to share the classpath scan for migrations with all ElasticsearchEvolution instances in this JVM, which
+     * use the same locations and classloader.
+     * <p>
+     * The first migration scans the classpath once and keeps the scan result in memory, all later migrations reuse it.
+     * Changes of the classpath at runtime are not recognized afterward.
+     */
+    @Getter
+    private boolean shareClasspathScan = false;
+
+    /**
+     * Whether to scan classpath locations in directories and jar files with the built-in lightweight scanner, which
+     * only enumerates the entries of the locations. If disabled, or if a location is provided by a classloader the
+     * built-in scanner doesn't support, the whole classpath is scanned with ClassGraph.
+     */
+    @Getter
+    private boolean lightweightClasspathScan = true;
+
+    /**
+     * Directory of the on-disk cache of parsed migration scripts. If not set, the cache is disabled.
+     * <p>
+     * Parsed scripts are stored by the hash of their content and the placeholders, so scripts which did not change
+     * are neither parsed nor is their placeholder replacement repeated. If size and modification time of a script are
+     * unchanged, the script is not even read. Corrupt or outdated cache entries are ignored and rewritten.
+     * <p>
+     * NOTE: The directory is created, if it does not exist. It can be shared by several applications.
+     */
+    @Getter
+    private String parsedMigrationCacheDirectory;
+
     @Getter
     @NonNull
     private List<JavaMigration> javaMigrations = new ArrayList<>();
@@ -200,7 +366,21 @@ public class ElasticsearchEvolutionConfigImpl implements ElasticsearchEvolutionC
                 });
             }
             requireNotBlank(historyIndex, "historyIndex must not be empty");
+            requireCondition(stream, s -> null == s || s.matches("[a-z0-9_]+"),
+                    "stream '%s' must consist of lowercase letters, digits and underscores", stream);
             requireCondition(historyMaxQuerySize, size -> size > 0, "historyMaxQuerySize value '%s' must be greater than 0", historyMaxQuerySize);
+            requireNonNull(historyLockMode, "historyLockMode must not be null");
+            requireCondition(historyLockLeaseTimeInMillis, lease -> lease >= 0, "historyLockLeaseTimeInMillis value '%s' must not be negative", historyLockLeaseTimeInMillis);
+            requireCondition(lockWaitInitialTimeInMillis, time -> time > 0, "lockWaitInitialTimeInMillis value '%s' must be greater than 0", lockWaitInitialTimeInMillis);
+            requireCondition(lockWaitMaxTimeInMillis, time -> time >= lockWaitInitialTimeInMillis,
+                    "lockWaitMaxTimeInMillis value '%s' must not be less than lockWaitInitialTimeInMillis '%s'", lockWaitMaxTimeInMillis, lockWaitInitialTimeInMillis);
+            requireCondition(lockWaitTimeoutInMillis, timeout -> timeout >= 0, "lockWaitTimeoutInMillis value '%s' must not be negative", lockWaitTimeoutInMillis);
+            requireCondition(readParallelism, parallelism -> parallelism > 0, "readParallelism value '%s' must be greater than 0", readParallelism);
+            requireCondition(scriptRequestParallelism, parallelism -> parallelism > 0, "scriptRequestParallelism value '%s' must be greater than 0", scriptRequestParallelism);
+            requireCondition(bulkMaxBytes, bytes -> bytes > 0, "bulkMaxBytes value '%s' must be greater than 0", bulkMaxBytes);
+            requireCondition(bulkMaxDocuments, documents -> documents > 0, "bulkMaxDocuments value '%s' must be greater than 0", bulkMaxDocuments);
+            requireCondition(bulkParallelism, parallelism -> parallelism > 0, "bulkParallelism value '%s' must be greater than 0", bulkParallelism);
+            requireCondition(streamBodyThreshold, threshold -> threshold > 0, "streamBodyThreshold value '%s' must be greater than 0", streamBodyThreshold);
             final MigrationVersion baseline;
             try {
                 baseline = MigrationVersion.fromVersion(baselineVersion);
@@ -242,6 +422,11 @@ public class ElasticsearchEvolutionConfigImpl implements ElasticsearchEvolutionC
         return this;
     }
 
+    public ElasticsearchEvolutionConfigImpl setStream(String stream) {
+        this.stream = stream;
+        return this;
+    }
+
     public ElasticsearchEvolutionConfigImpl setPlaceholders(Map<String, String> placeholders) {
         this.placeholders = placeholders;
         return this;
@@ -262,6 +447,11 @@ public class ElasticsearchEvolutionConfigImpl implements ElasticsearchEvolutionC
         return this;
     }
 
+    public ElasticsearchEvolutionConfigImpl setReportUnresolvedPlaceholders(boolean reportUnresolvedPlaceholders) {
+        this.reportUnresolvedPlaceholders = reportUnresolvedPlaceholders;
+        return this;
+    }
+
     public ElasticsearchEvolutionConfigImpl setEsMigrationPrefix(String esMigrationPrefix) {
         this.esMigrationPrefix = esMigrationPrefix;
         return this;
@@ -277,6 +467,31 @@ public class ElasticsearchEvolutionConfigImpl implements ElasticsearchEvolutionC
         return this;
     }
 
+    public ElasticsearchEvolutionConfigImpl setHistoryLockMode(HistoryLockMode historyLockMode) {
+        this.historyLockMode = historyLockMode;
+        return this;
+    }
+
+    public ElasticsearchEvolutionConfigImpl setHistoryLockLeaseTimeInMillis(int historyLockLeaseTimeInMillis) {
+        this.historyLockLeaseTimeInMillis = historyLockLeaseTimeInMillis;
+        return this;
+    }
+
+    public ElasticsearchEvolutionConfigImpl setLockWaitInitialTimeInMillis(int lockWaitInitialTimeInMillis) {
+        this.lockWaitInitialTimeInMillis = lockWaitInitialTimeInMillis;
+        return this;
+    }
+
+    public ElasticsearchEvolutionConfigImpl setLockWaitMaxTimeInMillis(int lockWaitMaxTimeInMillis) {
+        this.lockWaitMaxTimeInMillis = lockWaitMaxTimeInMillis;
+        return this;
+    }
+
+    public ElasticsearchEvolutionConfigImpl setLockWaitTimeoutInMillis(int lockWaitTimeoutInMillis) {
+        this.lockWaitTimeoutInMillis = lockWaitTimeoutInMillis;
+        return this;
+    }
+
     public ElasticsearchEvolutionConfigImpl setValidateOnMigrate(boolean validateOnMigrate) {
         this.validateOnMigrate = validateOnMigrate;
         return this;
@@ -297,6 +512,66 @@ public class ElasticsearchEvolutionConfigImpl implements ElasticsearchEvolutionC
         return this;
     }
 
+    public ElasticsearchEvolutionConfigImpl setFingerprintCheck(boolean fingerprintCheck) {
+        this.fingerprintCheck = fingerprintCheck;
+        return this;
+    }
+
+    public ElasticsearchEvolutionConfigImpl setReadParallelism(int readParallelism) {
+        this.readParallelism = readParallelism;
+        return this;
+    }
+
+    public ElasticsearchEvolutionConfigImpl setReadVirtualThreads(boolean readVirtualThreads) {
+        this.readVirtualThreads = readVirtualThreads;
+        return this;
+    }
+
+    public ElasticsearchEvolutionConfigImpl setScriptRequestParallelism(int scriptRequestParallelism) {
+        this.scriptRequestParallelism = scriptRequestParallelism;
+        return this;
+    }
+
+    public ElasticsearchEvolutionConfigImpl setBulkMaxBytes(int bulkMaxBytes) {
+        this.bulkMaxBytes = bulkMaxBytes;
+        return this;
+    }
+
+    public ElasticsearchEvolutionConfigImpl setBulkMaxDocuments(int bulkMaxDocuments) {
+        this.bulkMaxDocuments = bulkMaxDocuments;
+        return this;
+    }
+
+    public ElasticsearchEvolutionConfigImpl setBulkParallelism(int bulkParallelism) {
+        this.bulkParallelism = bulkParallelism;
+        return this;
+    }
+
+    public ElasticsearchEvolutionConfigImpl setStreamBodyThreshold(int streamBodyThreshold) {
+        this.streamBodyThreshold = streamBodyThreshold;
+        return this;
+    }
+
+    public ElasticsearchEvolutionConfigImpl setValidateJsonBodies(boolean validateJsonBodies) {
+        this.validateJsonBodies = validateJsonBodies;
+        return this;
+    }
+
+    public ElasticsearchEvolutionConfigImpl setShareClasspathScan(boolean shareClasspathScan) {
+        this.shareClasspathScan = shareClasspathScan;
+        return this;
+    }
+
+    public ElasticsearchEvolutionConfigImpl setLightweightClasspathScan(boolean lightweightClasspathScan) {
+        this.lightweightClasspathScan = lightweightClasspathScan;
+        return this;
+    }
+
+    public ElasticsearchEvolutionConfigImpl setParsedMigrationCacheDirectory(String parsedMigrationCacheDirectory) {
+        this.parsedMigrationCacheDirectory = parsedMigrationCacheDirectory;
+        return this;
+    }
+
     public ElasticsearchEvolutionConfigImpl setJavaMigrations(@NonNull List<JavaMigration> javaMigrations) {
         this.javaMigrations = javaMigrations;
         return this;
@@ -321,12 +596,31 @@ public class ElasticsearchEvolutionConfigImpl implements ElasticsearchEvolutionC
                 ", placeholderPrefix='" + placeholderPrefix + '\'' +
                 ", placeholderSuffix='" + placeholderSuffix + '\'' +
                 ", placeholderReplacement=" + placeholderReplacement +
+                ", reportUnresolvedPlaceholders=" + reportUnresolvedPlaceholders +
                 ", historyIndex='" + historyIndex + '\'' +
+                ", stream='" + stream + '\'' +
                 ", historyMaxQuerySize=" + historyMaxQuerySize +
+                ", historyLockMode=" + historyLockMode +
+                ", historyLockLeaseTimeInMillis=" + historyLockLeaseTimeInMillis +
+                ", lockWaitInitialTimeInMillis=" + lockWaitInitialTimeInMillis +
+                ", lockWaitMaxTimeInMillis=" + lockWaitMaxTimeInMillis +
+                ", lockWaitTimeoutInMillis=" + lockWaitTimeoutInMillis +
                 ", validateOnMigrate=" + validateOnMigrate +
                 ", trimTrailingNewlineInMigrations=" + trimTrailingNewlineInMigrations +
                 ", baselineVersion='" + baselineVersion + '\'' +
                 ", outOfOrder='" + outOfOrder + '\'' +
+                ", fingerprintCheck=" + fingerprintCheck +
+                ", readParallelism=" + readParallelism +
+                ", readVirtualThreads=" + readVirtualThreads +
+                ", scriptRequestParallelism=" + scriptRequestParallelism +
+                ", bulkMaxBytes=" + bulkMaxBytes +
+                ", bulkMaxDocuments=" + bulkMaxDocuments +
+                ", bulkParallelism=" + bulkParallelism +
+                ", streamBodyThreshold=" + streamBodyThreshold +
+                ", validateJsonBodies=" + validateJsonBodies +
+                ", shareClasspathScan=" + shareClasspathScan +
+                ", lightweightClasspathScan=" + lightweightClasspathScan +
+                ", parsedMigrationCacheDirectory='" + parsedMigrationCacheDirectory + '\'' +
                 ", javaMigrations='" + javaMigrations + '\'' +
                 ", javaMigrationClassProvider='" + javaMigrationClassProvider + '\'' +
                 '}';
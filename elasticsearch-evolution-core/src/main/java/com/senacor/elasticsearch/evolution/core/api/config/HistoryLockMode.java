@@ -0,0 +1,23 @@
+package com.senacor.elasticsearch.evolution.core.api.config;
+
+/**
+ * How the history index is locked while migrating, so only one Elasticsearch-Evolution instance migrates at a time.
+ * <p>
+ * NOTE: All instances migrating the same history index must use the same mode.
+ */
+public enum HistoryLockMode {
+
+    /**
+     * Sets the 'locked' flag of all documents of the history index with '_update_by_query' and counts locked documents
+     * to check the lock. The cost grows with the size of the history and the index is refreshed several times.
+     */
+    UPDATE_BY_QUERY,
+
+    /**
+     * Creates a single lock document with 'op_type=create', so only one instance can acquire the lock. The lock is
+     * checked with a realtime GET and released by deleting the document, if it was not changed since it was written.
+     * The cost is constant and the index is never refreshed. The lock is a lease, which is renewed while migrating and
+     * taken over by other instances after it expired, see 'historyLockLeaseTimeInMillis'.
+     */
+    DOCUMENT
+}
@@ -4,6 +4,7 @@ import com.senacor.elasticsearch.evolution.core.api.MigrationException;
 import com.senacor.elasticsearch.evolution.core.internal.model.dbhistory.MigrationScriptProtocol;
 
 import java.util.NavigableSet;
+import java.util.Optional;
 
 /**
  * @author Andreas Keefer
@@ -18,12 +19,33 @@ public interface HistoryRepository {
 
     /**
      * Put the protocol in the internal Elasticsearch-Evolution history index and use the version as ID.
+     * The repository decides per lock mode, whether the protocol is stored as locked.
      *
      * @param migrationScriptProtocol the protocol to save or update
      * @throws MigrationException in case the operation failed
      */
     void saveOrUpdate(MigrationScriptProtocol migrationScriptProtocol) throws MigrationException;
 
+    /**
+     * Reads the fingerprint of the migrations from the internal Elasticsearch-Evolution history index with a realtime GET.
+     *
+     * @return the stored fingerprint or empty, if there is no fingerprint or no history index
+     * @throws MigrationException in case the operation failed
+     */
+    default Optional<MigrationFingerprint> findFingerprint() throws MigrationException {
+        return Optional.empty();
+    }
+
+    /**
+     * Put the fingerprint of the migrations in the internal Elasticsearch-Evolution history index.
+     *
+     * @param fingerprint the fingerprint to save or update
+     * @throws MigrationException in case the operation failed
+     */
+    default void saveFingerprint(MigrationFingerprint fingerprint) throws MigrationException {
+        // without stored fingerprint, the migration is never skipped
+    }
+
     /**
      * @return true, if the index is locked and Elasticsearch-Evolution has to wait until the lock is released.
      * @throws MigrationException in case the check failed
@@ -37,6 +59,16 @@ public interface HistoryRepository {
      */
     boolean lock();
 
+    /**
+     * Checks, that this instance still holds the lock it acquired with {@link #lock()}. Called before each migration.
+     *
+     * @throws MigrationException if this instance lost the lock, e.g. because its lease expired and another instance
+     *                            took the lock over
+     */
+    default void requireLock() throws MigrationException {
+        // locks without lease can't be lost
+    }
+
     /**
      * This will unlock the index for other Elasticsearch-Evolution instances
      *
@@ -0,0 +1,41 @@
+package com.senacor.elasticsearch.evolution.core.api.migration;
+
+import lombok.Value;
+
+/**
+ * Snapshot of the cumulative metrics of waiting for the lock of the history index, e.g. to be exported to a
+ * monitoring system.
+ */
+@Value
+public class LockWaitMetrics {
+
+    /**
+     * metrics of a migration, which never waited for the lock
+     */
+    public static final LockWaitMetrics EMPTY = new LockWaitMetrics(0, 0, 0, 0, 0);
+
+    /**
+     * number of times the history index was found locked and the migration had to wait
+     */
+    long waits;
+
+    /**
+     * number of checks, whether the history index is locked, while waiting
+     */
+    long polls;
+
+    /**
+     * number of waits, which exceeded the maximum wait time
+     */
+    long timeouts;
+
+    /**
+     * total time spent waiting for the lock
+     */
+    long waitTimeInMillis;
+
+    /**
+     * longest single wait for the lock
+     */
+    long maxWaitTimeInMillis;
+}
@@ -0,0 +1,12 @@
+package com.senacor.elasticsearch.evolution.core.api.migration;
+
+import lombok.NonNull;
+
+/**
+ * Represents the fingerprint of all migrations, stored in the history index after the last successful migration.
+ *
+ * @param fingerprint   the aggregated fingerprint of all migrations
+ * @param latestVersion the highest version of all migrations, nullable if there are no migrations
+ */
+public record MigrationFingerprint(@NonNull String fingerprint, MigrationVersion latestVersion) {
+}
@@ -1,8 +1,14 @@
 package com.senacor.elasticsearch.evolution.core.api.migration;
 
 import com.senacor.elasticsearch.evolution.core.internal.model.migration.RawMigrationScript;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.ScriptMigrationContent;
 
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * @author Andreas Keefer
@@ -14,4 +20,53 @@ public interface MigrationScriptReader {
      * @return List of {@link RawMigrationScript}'s
      */
     List<RawMigrationScript<?>> read();
+
+    /**
+     * Computes a fingerprint of all migrations without reading their content.
+     * The fingerprint changes whenever a migration is added, removed, renamed, moved or the size or modification time of a migration changes.
+     *
+     * @return the fingerprint of all migrations or null, if the reader can't compute a fingerprint. Then the migration
+     * is never skipped by the fingerprint check.
+     */
+    default String fingerprint() {
+        return null;
+    }
+
+    /**
+     * @return the directories of all {@code file:} locations, which can be watched for changed migrations
+     */
+    default List<Path> watchableLocations() {
+        return List.of();
+    }
+
+    /**
+     * Reads the migrations of the given files in one of the {@link #watchableLocations()}. Files which don't exist
+     * (anymore), are empty or are no migration scripts are ignored.
+     * <p>
+     * The default implementation reads all migrations with {@link #read()} and returns the ones, whose
+     * {@link ScriptMigrationContent#source()} is one of the given files. Implementations should override it to read
+     * only the given files.
+     *
+     * @param files absolute paths of files
+     * @return List of {@link RawMigrationScript}'s
+     */
+    default List<RawMigrationScript<?>> read(Collection<Path> files) {
+        final Set<Path> requested = files.stream()
+                .map(file -> file.toAbsolutePath().normalize())
+                .collect(Collectors.toSet());
+        return read().stream()
+                .filter(script -> script.getContent() instanceof ScriptMigrationContent content
+                        && null != content.source()
+                        && isSource(requested, content.source()))
+                .toList();
+    }
+
+    private static boolean isSource(Set<Path> files, String source) {
+        try {
+            return files.contains(Path.of(source).toAbsolutePath().normalize());
+        } catch (InvalidPathException e) {
+            // e.g. a URL of a classpath resource
+            return false;
+        }
+    }
 }
@@ -35,4 +35,34 @@ public interface MigrationService {
      */
     @NonNull
     List<ParsedMigration<?>> getPendingScriptsToBeExecuted(@NonNull Collection<ParsedMigration<?>> migrationScripts) throws MigrationException;
+
+    /**
+     * Checks with a single request whether the given fingerprint equals the fingerprint stored after the last
+     * successful migration.
+     *
+     * @param fingerprint the fingerprint of all migrations, see {@link MigrationScriptReader#fingerprint()}
+     * @return true, if the fingerprints are equal and therefore no migrations are pending
+     */
+    default boolean isUpToDate(@NonNull String fingerprint) {
+        return false;
+    }
+
+    /**
+     * Stores the given fingerprint after all migrations were executed successfully, so following migrations with the
+     * same fingerprint can be skipped.
+     *
+     * @param fingerprint      the fingerprint of all migrations, see {@link MigrationScriptReader#fingerprint()}
+     * @param migrationScripts all parsed migration scripts the fingerprint belongs to.
+     */
+    default void markUpToDate(@NonNull String fingerprint, @NonNull Collection<ParsedMigration<?>> migrationScripts) {
+        // without stored fingerprint, the migration is never skipped
+    }
+
+    /**
+     * @return a snapshot of the cumulative metrics of waiting for the lock of the history index
+     */
+    @NonNull
+    default LockWaitMetrics getLockWaitMetrics() {
+        return LockWaitMetrics.EMPTY;
+    }
 }
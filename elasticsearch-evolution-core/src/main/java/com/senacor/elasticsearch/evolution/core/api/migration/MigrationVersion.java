@@ -17,31 +17,31 @@ package com.senacor.elasticsearch.evolution.core.api.migration;
 
 import com.senacor.elasticsearch.evolution.core.api.MigrationException;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
+import java.util.Arrays;
 
 import static com.senacor.elasticsearch.evolution.core.internal.utils.AssertionUtils.requireNotBlank;
 
 /**
  * A version of a migration.
+ * <p>
+ * The version parts are stored as {@code int[]} without trailing zeros, so comparing versions does not box and the
+ * hash code is computed once.
  */
 public final class MigrationVersion implements Comparable<MigrationVersion> {
-    /**
-     * Compiled pattern for matching proper version format
-     */
-    private static final Pattern splitPattern = Pattern.compile("\\.(?=\\d)");
+
+    private static final int[] NO_PARTS = new int[0];
 
     /**
-     * The individual parts this version string is composed of. Ex. 1.2.3.4.0 -> [1, 2, 3, 4, 0]
+     * The individual parts this version string is composed of, without trailing zeros. Ex. 1.2.3.4.0 -> [1, 2, 3, 4]
      */
-    private final List<Integer> versionParts;
+    private final int[] versionParts;
+
+    private final int hashCode;
 
     /**
-     * The printable text to represent the version.
+     * The printable text to represent the version, created on first access.
      */
-    private final String displayText;
+    private String displayText;
 
     /**
      * Factory for creating a MigrationVersion from a version String
@@ -60,12 +60,8 @@ public final class MigrationVersion implements Comparable<MigrationVersion> {
      * @param version The version in one of the following formats: 6, 6.0, 005, 1.2.3.4, 201004200021, 6_0.
      */
     public MigrationVersion(String version) {
-        String normalizedVersion = requireNotBlank(version, "version must not be blank")
-                .replace('_', '.');
-        this.versionParts = tokenize(normalizedVersion);
-        this.displayText = versionParts.stream()
-                .map(Object::toString)
-                .collect(Collectors.joining("."));
+        this.versionParts = tokenize(requireNotBlank(version, "version must not be blank"));
+        this.hashCode = Arrays.hashCode(versionParts);
     }
 
     /**
@@ -73,14 +69,27 @@ public final class MigrationVersion implements Comparable<MigrationVersion> {
      */
     @Override
     public String toString() {
-        return displayText;
+        return getVersion();
     }
 
     /**
      * @return Numeric version as String
      */
     public String getVersion() {
-        return displayText;
+        // racy single-check: concurrent threads compute the same immutable String
+        String res = displayText;
+        if (null == res) {
+            final StringBuilder sb = new StringBuilder(versionParts.length * 4);
+            for (int i = 0; i < versionParts.length; i++) {
+                if (i > 0) {
+                    sb.append('.');
+                }
+                sb.append(versionParts[i]);
+            }
+            res = sb.toString();
+            displayText = res;
+        }
+        return res;
     }
 
     @Override
@@ -90,12 +99,13 @@ public final class MigrationVersion implements Comparable<MigrationVersion> {
 
         MigrationVersion version1 = (MigrationVersion) o;
 
-        return compareTo(version1) == 0;
+        // trailing zeros are removed, so equal versions have equal parts
+        return hashCode == version1.hashCode && Arrays.equals(versionParts, version1.versionParts);
     }
 
     @Override
     public int hashCode() {
-        return versionParts == null ? 0 : versionParts.hashCode();
+        return hashCode;
     }
 
     /**
@@ -105,7 +115,17 @@ public final class MigrationVersion implements Comparable<MigrationVersion> {
      * @return {@code true} if this version is equal or newer, {@code false} if it is older.
      */
     public boolean isAtLeast(String otherVersion) {
-        return compareTo(MigrationVersion.fromVersion(otherVersion)) >= 0;
+        return isAtLeast(MigrationVersion.fromVersion(otherVersion));
+    }
+
+    /**
+     * Convenience method for quickly checking whether this version is at least as new as this other version.
+     *
+     * @param otherVersion The other version.
+     * @return {@code true} if this version is equal or newer, {@code false} if it is older.
+     */
+    public boolean isAtLeast(MigrationVersion otherVersion) {
+        return compareTo(otherVersion) >= 0;
     }
 
     /**
@@ -135,31 +155,31 @@ public final class MigrationVersion implements Comparable<MigrationVersion> {
      * @return {@code true} if this major version is newer, {@code false} if it is not.
      */
     public boolean isMajorNewerThan(MigrationVersion otherVersion) {
-        return getMajor().compareTo(otherVersion.getMajor()) > 0;
+        return versionParts[0] > otherVersion.versionParts[0];
     }
 
     /**
      * @return The major version.
      */
     public Integer getMajor() {
-        return versionParts.get(0);
+        return versionParts[0];
     }
 
     /**
      * @return The major version as a string.
      */
     public String getMajorAsString() {
-        return versionParts.get(0).toString();
+        return Integer.toString(versionParts[0]);
     }
 
     /**
      * @return The minor version as a string.
      */
     public String getMinorAsString() {
-        if (versionParts.size() == 1) {
+        if (versionParts.length == 1) {
             return "0";
         }
-        return versionParts.get(1).toString();
+        return Integer.toString(versionParts[1]);
     }
 
     @SuppressWarnings("NullableProblems")
@@ -169,11 +189,13 @@ public final class MigrationVersion implements Comparable<MigrationVersion> {
             return 1;
         }
 
-        final List<Integer> parts1 = versionParts;
-        final List<Integer> parts2 = o.versionParts;
-        int largestNumberOfParts = Math.max(parts1.size(), parts2.size());
+        final int[] parts1 = versionParts;
+        final int[] parts2 = o.versionParts;
+        final int largestNumberOfParts = Math.max(parts1.length, parts2.length);
         for (int i = 0; i < largestNumberOfParts; i++) {
-            final int compared = getOrZero(parts1, i).compareTo(getOrZero(parts2, i));
+            final int compared = Integer.compare(
+                    i < parts1.length ? parts1[i] : 0,
+                    i < parts2.length ? parts2[i] : 0);
             if (compared != 0) {
                 return compared;
             }
@@ -181,33 +203,43 @@ public final class MigrationVersion implements Comparable<MigrationVersion> {
         return 0;
     }
 
-    private Integer getOrZero(List<Integer> elements, int i) {
-        return i < elements.size() ? elements.get(i) : 0;
-    }
-
     /**
-     * Splits this string into list of Long
+     * Splits the version at each '.' or '_' followed by a digit and parses the parts without creating substrings.
      *
      * @param str The string to split.
-     * @return The resulting array.
+     * @return The parts without trailing zeros, at least one part.
      */
-    private List<Integer> tokenize(String str) {
-        List<Integer> parts = new ArrayList<>();
+    private static int[] tokenize(String str) {
+        int[] parts = NO_PARTS;
+        int count = 0;
+        int partStart = 0;
         try {
-            for (String part : splitPattern.split(str)) {
-                parts.add(Integer.valueOf(part));
+            for (int i = 0; i <= str.length(); i++) {
+                if (i == str.length() || isSeparator(str, i)) {
+                    if (count == parts.length) {
+                        parts = Arrays.copyOf(parts, Math.max(4, count * 2));
+                    }
+                    parts[count++] = Integer.parseInt(str, partStart, i, 10);
+                    partStart = i + 1;
+                }
             }
         } catch (NumberFormatException e) {
             throw new MigrationException(
                     "Invalid version containing non-numeric characters. Only 0..9 and . are allowed. Invalid version: "
-                            + str);
+                            + str.replace('_', '.'));
         }
-        for (int i = parts.size() - 1; i > 0; i--) {
-            if (!parts.get(i).equals(0)) {
-                break;
-            }
-            parts.remove(i);
+        while (count > 1 && parts[count - 1] == 0) {
+            count--;
+        }
+        return Arrays.copyOf(parts, count);
+    }
+
+    private static boolean isSeparator(String str, int index) {
+        final char c = str.charAt(index);
+        if (c != '.' && c != '_') {
+            return false;
         }
-        return parts;
+        final int next = index + 1;
+        return next < str.length() && str.charAt(next) >= '0' && str.charAt(next) <= '9';
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,38 @@
+package com.senacor.elasticsearch.evolution.core.api.migration.java;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares version, description and checksum of a {@link JavaMigration} without instantiating it.
+ *
+ * <p>Annotated Java-based migrations are instantiated lazily, right before they are executed. Migrations which are
+ * already executed are neither instantiated nor is their class initialized, so expensive fields or static
+ * initializers (clients, caches, lookup tables, ...) are only created if the migration really runs.</p>
+ *
+ * <p>{@link JavaMigration#getMetadata()} and {@link JavaMigration#getChecksum()} of annotated migrations are not
+ * used.</p>
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface JavaMigrationInfo {
+
+    /**
+     * @return The version of the migration, e.g. "1.2"
+     */
+    String version();
+
+    /**
+     * @return The description of the migration
+     */
+    String description();
+
+    /**
+     * @return The checksum of the migration
+     */
+    int checksum() default 0;
+}
@@ -0,0 +1,396 @@
+package com.senacor.elasticsearch.evolution.core.internal.migration.execution;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.senacor.elasticsearch.evolution.core.api.MigrationException;
+import com.senacor.elasticsearch.evolution.core.internal.model.FileNameInfo;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.BulkMigrationRequest;
+import com.senacor.elasticsearch.evolution.rest.abstraction.EvolutionRestClient;
+import com.senacor.elasticsearch.evolution.rest.abstraction.EvolutionRestResponse;
+import com.senacor.elasticsearch.evolution.rest.abstraction.HttpMethod;
+import lombok.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.senacor.elasticsearch.evolution.core.internal.utils.AssertionUtils.requireCondition;
+
+/**
+ * Executes NDJSON bulk data migrations: the file is streamed line by line and split into '_bulk' requests, which are
+ * limited by a maximum size in bytes and a maximum number of documents. Up to {@code parallelism} requests are in
+ * flight at once, reading the file blocks until one of them completes. Only the current requests are kept in memory.
+ * <p>
+ * The response of every request is filtered with {@code filter_path} to the 'errors' flag and the errors of the failed
+ * items, so a successful request returns a constant size response independent of the number of documents. It is
+ * parsed as a token stream to find the items, which failed.
+ */
+final class BulkMigrationExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkMigrationExecutor.class);
+
+    static final String BULK_ENDPOINT = "/_bulk";
+
+    /**
+     * successful items are dropped from the response, only the error of a failed item is returned. It contains the index
+     * of the item.
+     */
+    static final Map<String, String> BULK_URL_PARAMS = Map.of("filter_path", "errors,items.*.error");
+
+    /**
+     * actions, which are followed by a source line
+     */
+    private static final Set<String> ACTIONS_WITH_SOURCE = Set.of("index", "create", "update");
+    private static final String ACTION_DELETE = "delete";
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final EvolutionRestClient<?> restClient;
+    private final Charset encoding;
+    private final int maxBytes;
+    private final int maxDocuments;
+    private final int parallelism;
+
+    BulkMigrationExecutor(@NonNull EvolutionRestClient<?> restClient,
+                          @NonNull Charset encoding,
+                          int maxBytes,
+                          int maxDocuments,
+                          int parallelism) {
+        this.restClient = restClient;
+        this.encoding = encoding;
+        this.maxBytes = requireCondition(maxBytes, bytes -> bytes > 0, "maxBytes value '%s' must be greater than 0", maxBytes);
+        this.maxDocuments = requireCondition(maxDocuments, documents -> documents > 0, "maxDocuments value '%s' must be greater than 0", maxDocuments);
+        this.parallelism = requireCondition(parallelism, p -> p > 0, "parallelism value '%s' must be greater than 0", parallelism);
+    }
+
+    /**
+     * streams the bulk data to '_bulk' requests. No further request is started after the first failed request.
+     *
+     * @return the error of the first failed request or empty, if all requests were successful
+     * @throws IOException        if the file can't be read
+     * @throws MigrationException if the file is no valid bulk request body
+     */
+    Optional<RuntimeException> execute(@NonNull FileNameInfo fileNameInfo, @NonNull BulkMigrationRequest request) throws IOException {
+        final AtomicReference<RuntimeException> error = new AtomicReference<>();
+        final Semaphore inFlight = new Semaphore(parallelism);
+        final ExecutorService executor = parallelism > 1 ? createExecutor() : null;
+        int chunks = 0;
+        try (BufferedReader reader = new BufferedReader(request.content().openReader())) {
+            final Chunk chunk = new Chunk();
+            String line;
+            int lineNumber = 0;
+            while (null == error.get() && null != (line = reader.readLine())) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                final int actionLineNumber = lineNumber;
+                final String action = action(fileNameInfo, line, actionLineNumber);
+                String source = null;
+                if (ACTIONS_WITH_SOURCE.contains(action)) {
+                    do {
+                        source = reader.readLine();
+                        lineNumber++;
+                    } while (null != source && source.isBlank());
+                    if (null == source) {
+                        throw new MigrationException("source line of '%s' action in line %s of '%s' is missing".formatted(
+                                action, actionLineNumber, fileNameInfo.getScriptName()));
+                    }
+                }
+                final int documentBytes = byteLength(line) + 1 + (null == source ? 0 : byteLength(source) + 1);
+                if (chunk.documents > 0
+                        && (chunk.documents >= maxDocuments || chunk.bytes + documentBytes > maxBytes)) {
+                    send(fileNameInfo, chunk.documents, chunk.take(), ++chunks, executor, inFlight, error);
+                }
+                chunk.add(line, source, documentBytes);
+            }
+            if (null == error.get() && chunk.documents > 0) {
+                send(fileNameInfo, chunk.documents, chunk.take(), ++chunks, executor, inFlight, error);
+            }
+        } finally {
+            if (null != executor) {
+                awaitInFlight(inFlight);
+                executor.shutdown();
+            }
+        }
+        logger.debug("executed {} bulk requests of '{}'", chunks, fileNameInfo.getScriptName());
+        return Optional.ofNullable(error.get());
+    }
+
+    private void send(FileNameInfo fileNameInfo,
+                      int documents,
+                      String body,
+                      int chunkNumber,
+                      ExecutorService executor,
+                      Semaphore inFlight,
+                      AtomicReference<RuntimeException> error) {
+        if (null == executor) {
+            executeChunk(fileNameInfo, documents, body, chunkNumber).ifPresent(error::set);
+            return;
+        }
+        // backpressure: reading the file blocks while the maximum number of requests is in flight
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MigrationException("interrupted while waiting for in flight bulk requests", e);
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    if (null == error.get()) {
+                        executeChunk(fileNameInfo, documents, body, chunkNumber).ifPresent(e -> error.compareAndSet(null, e));
+                    }
+                } catch (RuntimeException e) {
+                    error.compareAndSet(null, e);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the error, if the request or one of its items failed
+     */
+    private Optional<RuntimeException> executeChunk(FileNameInfo fileNameInfo, int documents, String body, int chunkNumber) {
+        final EvolutionRestResponse response;
+        final Optional<String> responseBody;
+        try {
+            response = restClient.execute(HttpMethod.POST, BULK_ENDPOINT,
+                    Map.of(EvolutionRestClient.HEADER_NAME_CONTENT_TYPE, "application/x-ndjson; charset=" + encoding),
+                    BULK_URL_PARAMS,
+                    body);
+            responseBody = response.body();
+        } catch (IOException e) {
+            return Optional.of(new MigrationException("bulk request %s of '%s' failed".formatted(
+                    chunkNumber, fileNameInfo.getScriptName()), e));
+        }
+
+        final int statusCode = response.statusCode();
+        if (statusCode < 200 || statusCode >= 300) {
+            return Optional.of(new MigrationException(
+                    "bulk request %s of '%s' failed with HTTP status %s: %s (body=%s)".formatted(
+                            chunkNumber,
+                            fileNameInfo.getScriptName(),
+                            statusCode,
+                            response.asString(),
+                            responseBody)));
+        }
+        if (responseBody.isEmpty()) {
+            return Optional.empty();
+        }
+        try {
+            return itemErrors(responseBody.get(), documents)
+                    .map(itemErrors -> new MigrationException("bulk request %s of '%s' failed: %s".formatted(
+                            chunkNumber, fileNameInfo.getScriptName(), itemErrors)));
+        } catch (IOException e) {
+            return Optional.of(new MigrationException("can't parse response of bulk request %s of '%s'".formatted(
+                    chunkNumber, fileNameInfo.getScriptName()), e));
+        }
+    }
+
+    /**
+     * Parses the '_bulk' response as a token stream. The response is only parsed up to the 'errors' flag, if no item
+     * failed.
+     *
+     * @param documents the number of documents in the request, the filtered response only contains the failed items
+     * @return the number of failed items and the first error or empty, if no item failed
+     */
+    static Optional<String> itemErrors(String responseBody, int documents) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(responseBody)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("bulk response is no JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String fieldName = parser.currentName();
+                final JsonToken value = parser.nextToken();
+                if ("errors".equals(fieldName) && value == JsonToken.VALUE_FALSE) {
+                    return Optional.empty();
+                } else if ("items".equals(fieldName) && value == JsonToken.START_ARRAY) {
+                    return itemErrors(parser, documents);
+                }
+                parser.skipChildren();
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * @param parser positioned at the start of the items array
+     */
+    private static Optional<String> itemErrors(JsonParser parser, int documents) throws IOException {
+        int failed = 0;
+        String firstError = null;
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            // {"<action>": {"error": {...}}}, '_index', '_id' and 'status' are only present in an unfiltered response
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String action = parser.currentName();
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    parser.skipChildren();
+                    continue;
+                }
+                String index = null;
+                String id = null;
+                int status = 0;
+                String errorType = null;
+                String errorReason = null;
+                String errorIndex = null;
+                boolean itemFailed = false;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    final String fieldName = parser.currentName();
+                    final JsonToken value = parser.nextToken();
+                    switch (fieldName) {
+                        case "_index" -> index = parser.getValueAsString();
+                        case "_id" -> id = parser.getValueAsString();
+                        case "status" -> status = parser.getValueAsInt();
+                        case "error" -> {
+                            itemFailed = true;
+                            if (value == JsonToken.START_OBJECT) {
+                                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                                    final String errorField = parser.currentName();
+                                    parser.nextToken();
+                                    if ("type".equals(errorField)) {
+                                        errorType = parser.getValueAsString();
+                                    } else if ("reason".equals(errorField)) {
+                                        errorReason = parser.getValueAsString();
+                                    } else if ("index".equals(errorField)) {
+                                        errorIndex = parser.getValueAsString();
+                                    } else {
+                                        parser.skipChildren();
+                                    }
+                                }
+                            } else {
+                                errorReason = parser.getValueAsString();
+                            }
+                        }
+                        default -> parser.skipChildren();
+                    }
+                }
+                if (itemFailed) {
+                    failed++;
+                    if (null == firstError) {
+                        firstError = action
+                                + (null != id ? " of document '%s'".formatted(id) : "")
+                                + " in index '%s' failed".formatted(null != index ? index : errorIndex)
+                                + (status > 0 ? " with status %s".formatted(status) : "")
+                                + ": %s (%s)".formatted(errorType, errorReason);
+                    }
+                }
+            }
+        }
+        if (failed == 0) {
+            return Optional.empty();
+        }
+        return Optional.of("%s of %s items failed, first error: %s".formatted(failed, documents, firstError));
+    }
+
+    /**
+     * @return the action of the action line, e.g. 'index'
+     * @throws MigrationException if the line is no valid action line
+     */
+    private static String action(FileNameInfo fileNameInfo, String line, int lineNumber) {
+        try (JsonParser parser = JSON_FACTORY.createParser(line)) {
+            if (parser.nextToken() == JsonToken.START_OBJECT && parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String action = parser.currentName();
+                if (ACTIONS_WITH_SOURCE.contains(action) || ACTION_DELETE.equals(action)) {
+                    return action;
+                }
+            }
+        } catch (IOException e) {
+            throw new MigrationException("invalid bulk action in line %s of '%s': %s".formatted(
+                    lineNumber, fileNameInfo.getScriptName(), line), e);
+        }
+        throw new MigrationException("invalid bulk action in line %s of '%s', expected one of index, create, update or delete: %s".formatted(
+                lineNumber, fileNameInfo.getScriptName(), line));
+    }
+
+    private int byteLength(String line) {
+        if (StandardCharsets.UTF_8.equals(encoding)) {
+            return utf8Length(line);
+        }
+        return line.getBytes(encoding).length;
+    }
+
+    static int utf8Length(String line) {
+        int res = 0;
+        for (int i = 0; i < line.length(); i++) {
+            final char c = line.charAt(i);
+            if (c < 0x80) {
+                res++;
+            } else if (c < 0x800) {
+                res += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < line.length() && Character.isLowSurrogate(line.charAt(i + 1))) {
+                res += 4;
+                i++;
+            } else {
+                res += 3;
+            }
+        }
+        return res;
+    }
+
+    private void awaitInFlight(Semaphore inFlight) {
+        try {
+            inFlight.acquire(parallelism);
+            inFlight.release(parallelism);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MigrationException("interrupted while waiting for in flight bulk requests", e);
+        }
+    }
+
+    private ExecutorService createExecutor() {
+        final AtomicInteger threadNumber = new AtomicInteger();
+        return Executors.newFixedThreadPool(parallelism, runnable -> {
+            final Thread thread = new Thread(runnable, "es-evolution-bulk-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * the request body, which is currently filled
+     */
+    private static final class Chunk {
+        private final StringBuilder body = new StringBuilder();
+        private int documents = 0;
+        private int bytes = 0;
+
+        void add(String actionLine, String sourceLine, int documentBytes) {
+            body.append(actionLine).append('\n');
+            if (null != sourceLine) {
+                body.append(sourceLine).append('\n');
+            }
+            documents++;
+            bytes += documentBytes;
+        }
+
+        /**
+         * @return the request body, the chunk is empty afterward
+         */
+        String take() {
+            final String res = body.toString();
+            body.setLength(0);
+            documents = 0;
+            bytes = 0;
+            return res;
+        }
+    }
+}
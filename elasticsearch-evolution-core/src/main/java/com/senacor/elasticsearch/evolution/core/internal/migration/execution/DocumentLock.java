@@ -0,0 +1,349 @@
+package com.senacor.elasticsearch.evolution.core.internal.migration.execution;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.senacor.elasticsearch.evolution.core.api.MigrationException;
+import com.senacor.elasticsearch.evolution.core.api.config.HistoryLockMode;
+import com.senacor.elasticsearch.evolution.core.internal.migration.execution.HistoryRepositoryImpl.GetResponse;
+import com.senacor.elasticsearch.evolution.core.internal.migration.execution.HistoryRepositoryImpl.WriteResponse;
+import com.senacor.elasticsearch.evolution.rest.abstraction.EvolutionRestClient;
+import com.senacor.elasticsearch.evolution.rest.abstraction.EvolutionRestResponse;
+import com.senacor.elasticsearch.evolution.rest.abstraction.HttpMethod;
+import lombok.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static com.senacor.elasticsearch.evolution.rest.abstraction.EvolutionRestClient.APPLICATION_JSON_UTF8;
+import static com.senacor.elasticsearch.evolution.rest.abstraction.EvolutionRestClient.HEADER_NAME_CONTENT_TYPE;
+import static com.senacor.elasticsearch.evolution.rest.abstraction.HttpMethod.*;
+
+/**
+ * The lock of the history index in {@link HistoryLockMode#DOCUMENT} mode: a single lock document, which is created with
+ * 'op_type=create', so only one instance gets the lock. It is checked with a realtime GET and all changes of an
+ * existing lock document are conditional writes ('if_seq_no' and 'if_primary_term'), so an instance only changes the
+ * lock document it has read or written last.
+ * <p>
+ * The lock is a lease: the lock document contains its owner, the acquisition time and the expiry time. While the lock
+ * is held, a heartbeat renews the lease every third of the lease time. If the owner dies, the lease expires and a
+ * waiting instance takes the lock over. The expiry is compared with the local clock, so the clocks of all instances
+ * should be synchronized much more precisely than the lease time.
+ */
+final class DocumentLock {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocumentLock.class);
+    static final String LOCK_OWNER_FIELD_NAME = "lockOwner";
+    static final String LOCK_ACQUIRED_AT_FIELD_NAME = "lockAcquiredAt";
+    static final String LOCK_EXPIRES_AT_FIELD_NAME = "lockExpiresAt";
+
+    private final EvolutionRestClient<?> restClient;
+    private final ObjectMapper objectMapper;
+    private final String historyIndex;
+    private final String lockDocumentId;
+    private final Supplier<Map<String, Object>> lockSource;
+    private final int leaseTimeInMillis;
+    private final Clock clock;
+    private final String owner;
+
+    /**
+     * the last version of the lock document written by this instance or null, if this instance holds no lock
+     */
+    private WriteResponse acquiredLock;
+    private Instant acquiredAt;
+    /**
+     * expiry of the lease of this instance, as of the last successful renewal
+     */
+    private Instant leaseExpiresAt;
+    private boolean lost;
+    private ScheduledExecutorService heartbeat;
+
+    /**
+     * @param lockDocumentId    ID of the lock document in the history index
+     * @param lockSource        creates the source of the lock document, the lease fields are added
+     * @param leaseTimeInMillis time until the lock expires, if it is not renewed. 0 disables the lease: the lock never
+     *                          expires and has no heartbeat.
+     * @param clock             to determine the expiry of leases
+     */
+    DocumentLock(@NonNull EvolutionRestClient<?> restClient,
+                 @NonNull ObjectMapper objectMapper,
+                 @NonNull String historyIndex,
+                 @NonNull String lockDocumentId,
+                 @NonNull Supplier<Map<String, Object>> lockSource,
+                 int leaseTimeInMillis,
+                 @NonNull Clock clock) {
+        this.restClient = restClient;
+        this.objectMapper = objectMapper;
+        this.historyIndex = historyIndex;
+        this.lockDocumentId = lockDocumentId;
+        this.lockSource = lockSource;
+        this.leaseTimeInMillis = leaseTimeInMillis;
+        this.clock = clock;
+        this.owner = createOwner();
+    }
+
+    private static String createOwner() {
+        final String host = Optional.ofNullable(System.getenv("HOSTNAME"))
+                .or(() -> Optional.ofNullable(System.getenv("COMPUTERNAME")))
+                .orElse("unknown-host");
+        return host + "/" + ProcessHandle.current().pid() + "/" + UUID.randomUUID();
+    }
+
+    /**
+     * @return identity of this instance in the lock document: host name, process ID and a random ID
+     */
+    String getOwner() {
+        return owner;
+    }
+
+    /**
+     * @return true, if the lock document exists, is locked and its lease is not expired
+     */
+    boolean isLocked() throws MigrationException {
+        try {
+            final Optional<GetResponse> lockDocument = getLockDocument();
+            if (lockDocument.isEmpty()) {
+                logger.debug("index '{}' is not locked: no lock document found.", historyIndex);
+                return false;
+            }
+            final Map<String, Object> source = lockDocument.get().getSource();
+            if (!Boolean.TRUE.equals(source.get(MigrationScriptProtocolMapper.LOCKED_FIELD_NAME))) {
+                logger.debug("index '{}' is not locked: lock document is not locked.", historyIndex);
+                return false;
+            }
+            if (isExpired(source, clock.instant())) {
+                logger.info("index '{}' is not locked: the lease of owner '{}' expired at {}.",
+                        historyIndex, source.get(LOCK_OWNER_FIELD_NAME), source.get(LOCK_EXPIRES_AT_FIELD_NAME));
+                return false;
+            }
+            logger.debug("index '{}' is locked by owner '{}'.", historyIndex, source.get(LOCK_OWNER_FIELD_NAME));
+            return true;
+        } catch (IOException e) {
+            throw new MigrationException("isLocked check failed!", e);
+        }
+    }
+
+    /**
+     * Creates the lock document or takes over an expired lock document and starts the heartbeat.
+     *
+     * @return true, if this instance got the lock, false if another instance holds it or the request failed
+     */
+    synchronized boolean lock() {
+        try {
+            final Instant now = clock.instant();
+            final EvolutionRestResponse res = restClient.execute(PUT,
+                    "/" + historyIndex + "/_create/" + lockDocumentId,
+                    Map.of(HEADER_NAME_CONTENT_TYPE, APPLICATION_JSON_UTF8),
+                    null,
+                    objectMapper.writeValueAsString(createSource(now, now)));
+            final Optional<String> bodyAsString = res.body();
+            logger.debug("lock res: {} (body={})", res, bodyAsString);
+            if (409 == res.statusCode()) {
+                return takeOverExpiredLock(now);
+            }
+            validateHttpStatusIs2xx(res.statusCode(), "lock");
+            acquired(objectMapper.readValue(bodyAsString.orElse(null), WriteResponse.class), now);
+            return true;
+        } catch (IOException | MigrationException e) {
+            logger.warn("lock failed", e);
+            return false;
+        }
+    }
+
+    private boolean takeOverExpiredLock(Instant now) throws IOException {
+        final Optional<GetResponse> lockDocument = getLockDocument();
+        if (lockDocument.isEmpty()) {
+            logger.debug("index '{}' was unlocked in the meantime.", historyIndex);
+            return false;
+        }
+        final Map<String, Object> source = lockDocument.get().getSource();
+        if (Boolean.TRUE.equals(source.get(MigrationScriptProtocolMapper.LOCKED_FIELD_NAME)) && !isExpired(source, now)) {
+            logger.debug("index '{}' is already locked by owner '{}'.", historyIndex, source.get(LOCK_OWNER_FIELD_NAME));
+            return false;
+        }
+        final EvolutionRestResponse res = conditionalWrite(PUT, versionOf(lockDocument.get()), createSource(now, now));
+        if (409 == res.statusCode() || 404 == res.statusCode()) {
+            logger.debug("index '{}' was locked by another instance in the meantime.", historyIndex);
+            return false;
+        }
+        validateHttpStatusIs2xx(res.statusCode(), "lock.takeOver");
+        logger.warn("took over the lock of index '{}' from owner '{}', whose lease expired at {}.",
+                historyIndex, source.get(LOCK_OWNER_FIELD_NAME), source.get(LOCK_EXPIRES_AT_FIELD_NAME));
+        acquired(objectMapper.readValue(res.body().orElse(null), WriteResponse.class), now);
+        return true;
+    }
+
+    private void acquired(WriteResponse lock, Instant now) {
+        acquiredLock = lock;
+        acquiredAt = now;
+        leaseExpiresAt = leaseTimeInMillis > 0 ? now.plusMillis(leaseTimeInMillis) : null;
+        lost = false;
+        if (leaseTimeInMillis > 0) {
+            final long interval = Math.max(1, leaseTimeInMillis / 3);
+            heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "elasticsearch-evolution-lock-heartbeat");
+                thread.setDaemon(true);
+                return thread;
+            });
+            heartbeat.scheduleWithFixedDelay(this::renew, interval, interval, TimeUnit.MILLISECONDS);
+        }
+        logger.debug("locked index '{}' as owner '{}'.", historyIndex, owner);
+    }
+
+    /**
+     * renews the lease, called by the heartbeat
+     */
+    synchronized void renew() {
+        if (null == acquiredLock) {
+            return;
+        }
+        try {
+            final Instant now = clock.instant();
+            final EvolutionRestResponse res = conditionalWrite(PUT, acquiredLock, createSource(acquiredAt, now));
+            if (409 == res.statusCode() || 404 == res.statusCode()) {
+                logger.error("lost the lock of index '{}': the lock document was deleted or changed by someone else (status {}).",
+                        historyIndex, res.statusCode());
+                lockLost();
+                return;
+            }
+            validateHttpStatusIs2xx(res.statusCode(), "lock.renew");
+            acquiredLock = objectMapper.readValue(res.body().orElse(null), WriteResponse.class);
+            leaseExpiresAt = now.plusMillis(leaseTimeInMillis);
+            logger.debug("renewed the lock of index '{}' until {}.", historyIndex, leaseExpiresAt);
+        } catch (IOException | RuntimeException e) {
+            // the next heartbeat retries, until the lease expired
+            logger.warn("renewing the lock of index '{}' failed, the lease expires at {}.", historyIndex, leaseExpiresAt, e);
+        }
+    }
+
+    private void lockLost() {
+        lost = true;
+        acquiredLock = null;
+        stopHeartbeat();
+    }
+
+    /**
+     * @throws MigrationException if this instance acquired the lock, but lost it in the meantime, e.g. because its
+     *                            lease could not be renewed in time and another instance took the lock over
+     */
+    synchronized void requireLock() throws MigrationException {
+        if (null != acquiredLock && null != leaseExpiresAt && clock.instant().isAfter(leaseExpiresAt)) {
+            logger.error("lost the lock of index '{}': the lease expired at {}.", historyIndex, leaseExpiresAt);
+            lockLost();
+        }
+        if (lost) {
+            throw new MigrationException("lost the lock of the elasticsearch-evolution history index '%s', another instance may migrate concurrently".formatted(historyIndex));
+        }
+    }
+
+    /**
+     * Stops the heartbeat and deletes the lock document, if it was not changed since this instance wrote it.
+     *
+     * @return false, if the request failed
+     */
+    synchronized boolean unlock() {
+        stopHeartbeat();
+        final WriteResponse lock = acquiredLock;
+        if (null == lock) {
+            logger.debug("index '{}' is not locked by this instance, nothing to unlock.", historyIndex);
+            return true;
+        }
+        try {
+            final EvolutionRestResponse res = conditionalWrite(DELETE, lock, null);
+            if (logger.isDebugEnabled()) {
+                logger.debug("unlock res: {} (body={})", res.asString(), res.body());
+            }
+            if (404 == res.statusCode() || 409 == res.statusCode()) {
+                logger.warn("lock document of index '{}' was deleted or changed by someone else, it is not deleted (status {}).",
+                        historyIndex, res.statusCode());
+            } else {
+                validateHttpStatusIs2xx(res.statusCode(), "unlock");
+            }
+            acquiredLock = null;
+            return true;
+        } catch (IOException | MigrationException e) {
+            logger.warn("unlock failed", e);
+            return false;
+        }
+    }
+
+    private void stopHeartbeat() {
+        if (null != heartbeat) {
+            heartbeat.shutdownNow();
+            heartbeat = null;
+        }
+    }
+
+    /**
+     * realtime GET of the lock document
+     */
+    private Optional<GetResponse> getLockDocument() throws IOException {
+        final EvolutionRestResponse res = restClient.execute(GET, "/" + historyIndex + "/_doc/" + lockDocumentId);
+        if (404 == res.statusCode()) {
+            return Optional.empty();
+        }
+        final Optional<String> bodyAsString = res.body();
+        logger.debug("getLockDocument res: {} (body={})", res, bodyAsString);
+        validateHttpStatusIs2xx(res.statusCode(), "isLocked");
+        final GetResponse body = objectMapper.readValue(bodyAsString.orElse(null), GetResponse.class);
+        return body.isFound() && null != body.getSource()
+                ? Optional.of(body)
+                : Optional.empty();
+    }
+
+    private static WriteResponse versionOf(GetResponse lockDocument) {
+        return new WriteResponse(lockDocument.getSeqNo(), lockDocument.getPrimaryTerm());
+    }
+
+    private EvolutionRestResponse conditionalWrite(HttpMethod method,
+                                                   WriteResponse version,
+                                                   Map<String, Object> source) throws IOException {
+        return restClient.execute(method,
+                "/" + historyIndex + "/_doc/" + lockDocumentId,
+                null == source ? null : Map.of(HEADER_NAME_CONTENT_TYPE, APPLICATION_JSON_UTF8),
+                Map.of("if_seq_no", Long.toString(version.getSeqNo()),
+                        "if_primary_term", Long.toString(version.getPrimaryTerm())),
+                null == source ? null : objectMapper.writeValueAsString(source));
+    }
+
+    private Map<String, Object> createSource(Instant acquired, Instant renewed) {
+        final Map<String, Object> source = new HashMap<>(lockSource.get());
+        source.put(LOCK_OWNER_FIELD_NAME, owner);
+        source.put(LOCK_ACQUIRED_AT_FIELD_NAME, acquired.toString());
+        if (leaseTimeInMillis > 0) {
+            source.put(LOCK_EXPIRES_AT_FIELD_NAME, renewed.plusMillis(leaseTimeInMillis).toString());
+        }
+        return source;
+    }
+
+    /**
+     * @return true, if the lock document has a lease, which expired. Lock documents without lease never expire.
+     */
+    static boolean isExpired(Map<String, Object> source, Instant now) {
+        if (!(source.get(LOCK_EXPIRES_AT_FIELD_NAME) instanceof String expiresAt)) {
+            return false;
+        }
+        try {
+            return Instant.parse(expiresAt).isBefore(now);
+        } catch (DateTimeParseException e) {
+            logger.warn("invalid {} '{}' of the lock document, the lock does not expire.", LOCK_EXPIRES_AT_FIELD_NAME, expiresAt);
+            return false;
+        }
+    }
+
+    private static void validateHttpStatusIs2xx(int statusCode, String description) throws MigrationException {
+        if (statusCode < 200 || statusCode > 299) {
+            throw new MigrationException("%s - response status is not OK: %s".formatted(description, statusCode));
+        }
+    }
+}
@@ -4,7 +4,9 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.senacor.elasticsearch.evolution.core.api.MigrationException;
+import com.senacor.elasticsearch.evolution.core.api.config.HistoryLockMode;
 import com.senacor.elasticsearch.evolution.core.api.migration.HistoryRepository;
+import com.senacor.elasticsearch.evolution.core.api.migration.MigrationFingerprint;
 import com.senacor.elasticsearch.evolution.core.api.migration.MigrationVersion;
 import com.senacor.elasticsearch.evolution.core.internal.model.dbhistory.MigrationScriptProtocol;
 import com.senacor.elasticsearch.evolution.rest.abstraction.EvolutionRestClient;
@@ -15,10 +17,11 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.time.Clock;
 import java.time.OffsetDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
 
+import static com.senacor.elasticsearch.evolution.core.internal.utils.AssertionUtils.requireCondition;
 import static com.senacor.elasticsearch.evolution.core.internal.utils.AssertionUtils.requireNotBlank;
 import static com.senacor.elasticsearch.evolution.rest.abstraction.EvolutionRestClient.APPLICATION_JSON_UTF8;
 import static com.senacor.elasticsearch.evolution.rest.abstraction.EvolutionRestClient.HEADER_NAME_CONTENT_TYPE;
@@ -32,80 +35,354 @@ public class HistoryRepositoryImpl implements HistoryRepository {
 
     private static final Logger logger = LoggerFactory.getLogger(HistoryRepositoryImpl.class);
     private static final String INTERNAL_LOCK_VERSION = "0.1";
+    private static final String INTERNAL_FINGERPRINT_VERSION = "0.2";
+    static final String FINGERPRINT_FIELD_NAME = "fingerprint";
+    static final String LATEST_VERSION_FIELD_NAME = "latestVersion";
+    static final String STREAM_FIELD_NAME = "stream";
+    /**
+     * keyword sub field of the stream field in history indices, which mapped the stream dynamically as text
+     */
+    static final String STREAM_KEYWORD_FIELD_NAME = STREAM_FIELD_NAME + ".keyword";
+    static final String STREAM_MAPPING = "{\"properties\":{\"" + STREAM_FIELD_NAME + "\":{\"type\":\"keyword\"}}}";
     private static final MigrationVersion INTERNAL_VERSIONS = MigrationVersion.fromVersion("0");
     static final String INDEX_TYPE_DOC = "_doc";
+    /**
+     * keep alive of a point in time or scroll between two pages
+     */
+    private static final String SEARCH_KEEP_ALIVE = "1m";
 
     private final EvolutionRestClient<?> restClient;
     private final String historyIndex;
     private final MigrationScriptProtocolMapper migrationScriptProtocolMapper;
     private final int querySize;
     private final ObjectMapper objectMapper;
+    /**
+     * the migration stream, whose history is stored in the history index, or null for the default stream
+     */
+    private final String stream;
+    /**
+     * the keyword field, the stream is filtered on, or null if not resolved from the mapping of the history index yet
+     */
+    private volatile String streamFilterField;
+    /**
+     * the lock in {@link HistoryLockMode#DOCUMENT} mode or null in {@link HistoryLockMode#UPDATE_BY_QUERY} mode
+     */
+    private final DocumentLock documentLock;
+    /**
+     * false after opening a point in time was rejected, then the history is paged with scroll
+     */
+    private volatile boolean pointInTimeSupported = true;
 
     public HistoryRepositoryImpl(EvolutionRestClient<?> restClient,
                                  String historyIndex,
                                  MigrationScriptProtocolMapper migrationScriptProtocolMapper,
                                  int querySize,
                                  ObjectMapper objectMapper) {
+        this(restClient, historyIndex, migrationScriptProtocolMapper, querySize, objectMapper, HistoryLockMode.UPDATE_BY_QUERY, 0);
+    }
+
+    /**
+     * @param lockMode                 how the history index is locked
+     * @param lockLeaseTimeInMillis    lease time of the lock in {@link HistoryLockMode#DOCUMENT} mode, 0 if the lock
+     *                                 never expires
+     */
+    public HistoryRepositoryImpl(EvolutionRestClient<?> restClient,
+                                 String historyIndex,
+                                 MigrationScriptProtocolMapper migrationScriptProtocolMapper,
+                                 int querySize,
+                                 ObjectMapper objectMapper,
+                                 HistoryLockMode lockMode,
+                                 int lockLeaseTimeInMillis) {
+        this(restClient, historyIndex, migrationScriptProtocolMapper, querySize, objectMapper, lockMode,
+                lockLeaseTimeInMillis, null);
+    }
+
+    /**
+     * @param lockMode                 how the history index is locked
+     * @param lockLeaseTimeInMillis    lease time of the lock in {@link HistoryLockMode#DOCUMENT} mode, 0 if the lock
+     *                                 never expires
+     * @param stream                   the migration stream with its own versions, lock and history in the history
+     *                                 index, null for the default stream
+     */
+    public HistoryRepositoryImpl(EvolutionRestClient<?> restClient,
+                                 String historyIndex,
+                                 MigrationScriptProtocolMapper migrationScriptProtocolMapper,
+                                 int querySize,
+                                 ObjectMapper objectMapper,
+                                 HistoryLockMode lockMode,
+                                 int lockLeaseTimeInMillis,
+                                 String stream) {
+        this(restClient, historyIndex, migrationScriptProtocolMapper, querySize, objectMapper, lockMode,
+                lockLeaseTimeInMillis, stream, Clock.systemUTC());
+    }
+
+    HistoryRepositoryImpl(EvolutionRestClient<?> restClient,
+                          String historyIndex,
+                          MigrationScriptProtocolMapper migrationScriptProtocolMapper,
+                          int querySize,
+                          ObjectMapper objectMapper,
+                          HistoryLockMode lockMode,
+                          int lockLeaseTimeInMillis,
+                          String stream,
+                          Clock clock) {
         this.restClient = requireNonNull(restClient, "restClient must not be null");
         this.historyIndex = requireNotBlank(historyIndex, "historyIndex must not be blank: %s", historyIndex);
         this.migrationScriptProtocolMapper = requireNonNull(migrationScriptProtocolMapper, "migrationScriptProtocolMapper must not be null");
         this.querySize = querySize;
         this.objectMapper = objectMapper;
+        this.stream = null == stream
+                ? null
+                : requireCondition(stream, HistoryRepositoryImpl::isValidStream,
+                "stream '%s' must consist of lowercase letters, digits and underscores", stream);
+        this.documentLock = HistoryLockMode.DOCUMENT == requireNonNull(lockMode, "lockMode must not be null")
+                ? new DocumentLock(restClient, objectMapper, historyIndex, documentId(INTERNAL_LOCK_VERSION),
+                () -> toSource(createLockProtocol()), lockLeaseTimeInMillis, clock)
+                : null;
     }
 
     @Override
     public NavigableSet<MigrationScriptProtocol> findAll() throws MigrationException {
         try {
-            final EvolutionRestResponse searchResponse = restClient.execute(POST,
-                    "/" + historyIndex + "/_search",
-                    Map.of(HEADER_NAME_CONTENT_TYPE, APPLICATION_JSON_UTF8),
+            final NavigableSet<MigrationScriptProtocol> protocols = new TreeSet<>();
+            final List<Hit> firstPage = searchPage("/" + historyIndex + "/_search",
                     indicesOptions(IndexOptions.lenientExpandOpen()),
-                    "{\"size\":" + querySize + "}");
-            final Optional<String> bodyAsString = searchResponse.body();
-            logger.debug("findAll res: {} (body={})", searchResponse, bodyAsString);
-            validateHttpStatusIs2xx(searchResponse, "findAll");
-
-            final SearchResponse body = objectMapper.readValue(bodyAsString.orElse(null), SearchResponse.class);
-
-            // map and order
-            return body.getHits().getHitList().stream()
-                    .map(Hit::getSource)
-                    .map(migrationScriptProtocolMapper::mapFromMap)
-                    // filter protocols with 0 major version, because they are used internal
-                    .filter(protocol -> protocol.getVersion().isMajorNewerThan(INTERNAL_VERSIONS))
-                    .collect(Collectors.toCollection(TreeSet::new));
+                    "{\"size\":" + querySize + ",\"query\":" + streamQuery() + ",\"sort\":[\"_doc\"]}")
+                    .getHits()
+                    .getHitList();
+            if (firstPage.size() < querySize) {
+                // the whole history fits in one page, so neither a point in time nor a scroll is needed
+                addProtocols(firstPage, protocols);
+                return protocols;
+            }
+            // the first page can not be continued consistently, so the history is read again from the start
+            final String pointInTimeId = pointInTimeSupported ? openPointInTime() : null;
+            if (null != pointInTimeId) {
+                findAllWithPointInTime(pointInTimeId, protocols);
+            } else {
+                findAllWithScroll(protocols);
+            }
+            return protocols;
         } catch (IOException e) {
             throw new MigrationException("findAll failed!", e);
         }
     }
 
-    @Override
-    public void saveOrUpdate(MigrationScriptProtocol migrationScriptProtocol) throws MigrationException {
+    /**
+     * @return the ID of the opened point in time or null, if it could not be opened, e.g. because the index does not
+     * exist or the cluster does not support points in time
+     */
+    private String openPointInTime() throws IOException {
+        final EvolutionRestResponse res = restClient.execute(POST,
+                "/" + historyIndex + "/_pit",
+                null,
+                Map.of("keep_alive", SEARCH_KEEP_ALIVE),
+                null);
+        final int statusCode = res.statusCode();
+        if (isNotStatusCode2xx(statusCode)) {
+            if (400 == statusCode || 405 == statusCode) {
+                // e.g. OpenSearch, which has a different point in time API
+                logger.debug("points in time are not supported, using scroll to find all history entries. Res={}", res.asString());
+                pointInTimeSupported = false;
+            }
+            return null;
+        }
+        return objectMapper.readTree(res.body().orElseThrow(() -> new IllegalStateException("point in time response body must be present")))
+                .path("id")
+                .asText(null);
+    }
+
+    /**
+     * pages with search_after through a point in time, so the pages are consistent without a scroll context
+     */
+    private void findAllWithPointInTime(String pointInTimeId, Collection<MigrationScriptProtocol> protocols) throws IOException {
+        String id = pointInTimeId;
         try {
-            final String id = requireNonNull(migrationScriptProtocol.getVersion(), "migrationScriptProtocol.version must not be null").getVersion();
-            final Map<String, Object> source = migrationScriptProtocolMapper.mapToMap(migrationScriptProtocol);
-            final EvolutionRestResponse res = restClient.execute(PUT,
-                    "/" + historyIndex + "/_doc/" + id,
+            String searchAfter = null;
+            while (true) {
+                final SearchResponse page = searchPage("/_search", null, "{\"size\":" + querySize +
+                        ",\"query\":" + streamQuery() +
+                        ",\"pit\":{\"id\":" + objectMapper.writeValueAsString(id) + ",\"keep_alive\":\"" + SEARCH_KEEP_ALIVE + "\"}" +
+                        ",\"sort\":[{\"_shard_doc\":\"asc\"}]" +
+                        ",\"track_total_hits\":false" +
+                        (null == searchAfter ? "" : ",\"search_after\":" + searchAfter) +
+                        "}");
+                if (null != page.getPitId()) {
+                    id = page.getPitId();
+                }
+                final List<Hit> hits = page.getHits().getHitList();
+                addProtocols(hits, protocols);
+                if (hits.size() < querySize) {
+                    return;
+                }
+                searchAfter = objectMapper.writeValueAsString(hits.get(hits.size() - 1).getSort());
+            }
+        } finally {
+            release("/_pit", "{\"id\":" + objectMapper.writeValueAsString(id) + "}");
+        }
+    }
+
+    /**
+     * pages with scroll, which is supported by all Elasticsearch and OpenSearch versions
+     */
+    private void findAllWithScroll(Collection<MigrationScriptProtocol> protocols) throws IOException {
+        final Map<String, String> urlParams = new HashMap<>(indicesOptions(IndexOptions.lenientExpandOpen()));
+        urlParams.put("scroll", SEARCH_KEEP_ALIVE);
+        SearchResponse page = searchPage("/" + historyIndex + "/_search", urlParams,
+                "{\"size\":" + querySize + ",\"query\":" + streamQuery() + ",\"sort\":[\"_doc\"]}");
+        String scrollId = page.getScrollId();
+        try {
+            while (true) {
+                final List<Hit> hits = page.getHits().getHitList();
+                addProtocols(hits, protocols);
+                if (hits.size() < querySize || null == scrollId) {
+                    return;
+                }
+                page = searchPage("/_search/scroll", null,
+                        "{\"scroll\":\"" + SEARCH_KEEP_ALIVE + "\",\"scroll_id\":" + objectMapper.writeValueAsString(scrollId) + "}");
+                if (null != page.getScrollId()) {
+                    scrollId = page.getScrollId();
+                }
+            }
+        } finally {
+            if (null != scrollId) {
+                release("/_search/scroll", "{\"scroll_id\":" + objectMapper.writeValueAsString(scrollId) + "}");
+            }
+        }
+    }
+
+    /**
+     * each page is decoded on its own, so only the protocols and a single page are kept in memory
+     */
+    private SearchResponse searchPage(String path, Map<String, String> urlParams, String body) throws IOException {
+        final EvolutionRestResponse searchResponse = restClient.execute(POST,
+                path,
+                Map.of(HEADER_NAME_CONTENT_TYPE, APPLICATION_JSON_UTF8),
+                urlParams,
+                body);
+        final Optional<String> bodyAsString = searchResponse.body();
+        logger.debug("findAll res: {} (body={})", searchResponse, bodyAsString);
+        validateHttpStatusIs2xx(searchResponse, "findAll");
+
+        return objectMapper.readValue(bodyAsString.orElse(null), SearchResponse.class);
+    }
+
+    private void addProtocols(List<Hit> hits, Collection<MigrationScriptProtocol> protocols) {
+        hits.stream()
+                .map(Hit::getSource)
+                .map(migrationScriptProtocolMapper::mapFromMap)
+                // filter protocols with 0 major version, because they are used internal
+                .filter(protocol -> protocol.getVersion().isMajorNewerThan(INTERNAL_VERSIONS))
+                .forEach(protocols::add);
+    }
+
+    /**
+     * releases the resources of a point in time or scroll, which expire anyway after the keep alive
+     */
+    private void release(String path, String body) {
+        try {
+            final EvolutionRestResponse res = restClient.execute(DELETE,
+                    path,
                     Map.of(HEADER_NAME_CONTENT_TYPE, APPLICATION_JSON_UTF8),
                     null,
-                    objectMapper.writeValueAsString(source));
+                    body);
+            if (hasNotStatusCode2xx(res)) {
+                logger.debug("releasing {} failed: {}", path, res.asString());
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.debug("releasing {} failed", path, e);
+        }
+    }
 
-            if (logger.isDebugEnabled()) {
-                logger.debug("saveOrUpdate res: {} (body={})", res.asString(), res.body());
+    @Override
+    public void saveOrUpdate(MigrationScriptProtocol migrationScriptProtocol) throws MigrationException {
+        try {
+            final String id = requireNonNull(migrationScriptProtocol.getVersion(), "migrationScriptProtocol.version must not be null").getVersion();
+            final Map<String, Object> source = toSource(migrationScriptProtocol);
+            if (null != documentLock) {
+                // the lock document is the only lock, otherwise the entry stays locked for UPDATE_BY_QUERY mode, after
+                // the lock document was deleted
+                source.put(MigrationScriptProtocolMapper.LOCKED_FIELD_NAME, false);
             }
-            validateHttpStatusIs2xx(res, "saveOrUpdate");
+            putDocument(documentId(id), source, "saveOrUpdate");
         } catch (IOException e) {
             throw new MigrationException("saveOrUpdate of '%s' failed!".formatted(migrationScriptProtocol), e);
         }
     }
 
+    private void putDocument(String id, Map<String, Object> source, String debugContext) throws IOException {
+        final EvolutionRestResponse res = restClient.execute(PUT,
+                "/" + historyIndex + "/_doc/" + id,
+                Map.of(HEADER_NAME_CONTENT_TYPE, APPLICATION_JSON_UTF8),
+                null,
+                objectMapper.writeValueAsString(source));
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("{} res: {} (body={})", debugContext, res.asString(), res.body());
+        }
+        validateHttpStatusIs2xx(res, debugContext);
+    }
+
+    @Override
+    public Optional<MigrationFingerprint> findFingerprint() throws MigrationException {
+        try {
+            // a GET by ID is realtime, so no refresh is needed
+            final EvolutionRestResponse res = restClient.execute(GET,
+                    "/" + historyIndex + "/_doc/" + documentId(INTERNAL_FINGERPRINT_VERSION));
+            if (404 == res.statusCode()) {
+                logger.debug("no fingerprint found in index '{}'", historyIndex);
+                return Optional.empty();
+            }
+            final Optional<String> bodyAsString = res.body();
+            logger.debug("findFingerprint res: {} (body={})", res, bodyAsString);
+            validateHttpStatusIs2xx(res, "findFingerprint");
+
+            final GetResponse body = objectMapper.readValue(bodyAsString.orElse(null), GetResponse.class);
+            if (!body.isFound() || null == body.getSource()
+                    || !(body.getSource().get(FINGERPRINT_FIELD_NAME) instanceof String fingerprint)) {
+                return Optional.empty();
+            }
+            final MigrationVersion latestVersion = body.getSource().get(LATEST_VERSION_FIELD_NAME) instanceof String version
+                    ? MigrationVersion.fromVersion(version)
+                    : null;
+            return Optional.of(new MigrationFingerprint(fingerprint, latestVersion));
+        } catch (IOException e) {
+            throw new MigrationException("findFingerprint failed!", e);
+        }
+    }
+
+    @Override
+    public void saveFingerprint(MigrationFingerprint fingerprint) throws MigrationException {
+        try {
+            final Map<String, Object> source = toSource(new MigrationScriptProtocol()
+                    .setVersion(INTERNAL_FINGERPRINT_VERSION)
+                    .setScriptName("-")
+                    .setDescription("fingerprint entry")
+                    .setExecutionRuntimeInMillis(0)
+                    .setSuccess(true)
+                    .setChecksum(0)
+                    .setExecutionTimestamp(OffsetDateTime.now())
+                    .setIndexName(historyIndex)
+                    // must not be locked, otherwise the index would be locked for all other Elasticsearch-Evolution instances
+                    .setLocked(false));
+            source.put(FINGERPRINT_FIELD_NAME, fingerprint.fingerprint());
+            source.put(LATEST_VERSION_FIELD_NAME, null == fingerprint.latestVersion()
+                    ? null
+                    : fingerprint.latestVersion().getVersion());
+            putDocument(documentId(INTERNAL_FINGERPRINT_VERSION), source, "saveFingerprint");
+        } catch (IOException e) {
+            throw new MigrationException("saveFingerprint of '%s' failed!".formatted(fingerprint), e);
+        }
+    }
+
     @Override
     public boolean isLocked() throws MigrationException {
+        if (null != documentLock) {
+            return documentLock.isLocked();
+        }
         try {
             refresh(historyIndex);
 
-            final String countQuery = "{\"query\":{\"term\":{\"" + MigrationScriptProtocolMapper.LOCKED_FIELD_NAME + "\":{\"value\":true}}}}";
-            final long count = executeCountRequest(Optional.of(countQuery));
+            final long count = executeCountRequest(streamQuery("{\"term\":{\"" + MigrationScriptProtocolMapper.LOCKED_FIELD_NAME + "\":{\"value\":true}}}"));
 
             if (count == 0L) {
                 logger.debug("index '{}' is not locked: no locked documents in index.", historyIndex);
@@ -119,14 +396,12 @@ public class HistoryRepositoryImpl implements HistoryRepository {
         }
     }
 
-    private long executeCountRequest(Optional<String> countQuery) throws IOException {
+    private long executeCountRequest(String query) throws IOException {
         final EvolutionRestResponse countResponse = restClient.execute(POST,
                 "/" + historyIndex + "/_count",
-                countQuery.isPresent()
-                        ? Map.of(HEADER_NAME_CONTENT_TYPE, APPLICATION_JSON_UTF8)
-                        : null,
+                Map.of(HEADER_NAME_CONTENT_TYPE, APPLICATION_JSON_UTF8),
                 indicesOptions(IndexOptions.lenientExpandOpen()),
-                countQuery.orElse(null));
+                "{\"query\":" + query + "}");
 
         validateHttpStatusIs2xx(countResponse, "isLocked");
 
@@ -136,19 +411,19 @@ public class HistoryRepositoryImpl implements HistoryRepository {
 
     @Override
     public boolean lock() {
+        if (null != documentLock) {
+            if (!documentLock.lock()) {
+                return false;
+            }
+            // protocols are written without refresh and the lock is checked with a realtime GET, so the protocols of
+            // the previous lock holder are made searchable before the history is read with findAll
+            refresh(historyIndex);
+            return true;
+        }
         try {
-            final long countAll = executeCountRequest(Optional.empty());
+            final long countAll = executeCountRequest(streamQuery());
             if (countAll == 0L) {
-                saveOrUpdate(new MigrationScriptProtocol()
-                        .setVersion(INTERNAL_LOCK_VERSION)
-                        .setScriptName("-")
-                        .setDescription("lock entry")
-                        .setExecutionRuntimeInMillis(0)
-                        .setSuccess(true)
-                        .setChecksum(0)
-                        .setExecutionTimestamp(OffsetDateTime.now())
-                        .setIndexName(historyIndex)
-                        .setLocked(true));
+                saveOrUpdate(createLockProtocol());
             } else {
                 executeLockRequest(true, "lock");
             }
@@ -159,8 +434,31 @@ public class HistoryRepositoryImpl implements HistoryRepository {
         }
     }
 
+    private MigrationScriptProtocol createLockProtocol() {
+        return new MigrationScriptProtocol()
+                .setVersion(INTERNAL_LOCK_VERSION)
+                .setScriptName("-")
+                .setDescription("lock entry")
+                .setExecutionRuntimeInMillis(0)
+                .setSuccess(true)
+                .setChecksum(0)
+                .setExecutionTimestamp(OffsetDateTime.now())
+                .setIndexName(historyIndex)
+                .setLocked(true);
+    }
+
+    @Override
+    public void requireLock() throws MigrationException {
+        if (null != documentLock) {
+            documentLock.requireLock();
+        }
+    }
+
     @Override
     public boolean unlock() {
+        if (null != documentLock) {
+            return documentLock.unlock();
+        }
         try {
             refresh(historyIndex);
 
@@ -171,7 +469,7 @@ public class HistoryRepositoryImpl implements HistoryRepository {
                     "\"source\":\"ctx.op = \\\"delete\\\"\"," +
                     "\"lang\":\"painless\"}," +
                     "\"size\":1000," +
-                    "\"query\":{\"term\":{\"" + MigrationScriptProtocolMapper.VERSION_FIELD_NAME + "\":{\"value\":\"" + INTERNAL_LOCK_VERSION + "\"}}}}";
+                    "\"query\":" + streamQuery("{\"term\":{\"" + MigrationScriptProtocolMapper.VERSION_FIELD_NAME + "\":{\"value\":\"" + INTERNAL_LOCK_VERSION + "\"}}}") + "}";
 
             final EvolutionRestResponse deleteInternalLockRes = restClient.execute(POST,
                     "/" + historyIndex + "/_update_by_query",
@@ -201,7 +499,7 @@ public class HistoryRepositoryImpl implements HistoryRepository {
                 "\"params\":{\"lock\":" + lock + "}" +
                 "}," +
                 "\"size\":1000," +
-                "\"query\":{\"term\":{\"" + MigrationScriptProtocolMapper.LOCKED_FIELD_NAME + "\":{\"value\":" + !lock + "}}}}";
+                "\"query\":" + streamQuery("{\"term\":{\"" + MigrationScriptProtocolMapper.LOCKED_FIELD_NAME + "\":{\"value\":" + !lock + "}}}") + "}";
 
         final EvolutionRestResponse updateByQueryResponse = restClient.execute(POST,
                 "/" + historyIndex + "/_update_by_query",
@@ -221,6 +519,10 @@ public class HistoryRepositoryImpl implements HistoryRepository {
             boolean exists = 200 == existsRes.statusCode();
             if (exists) {
                 logger.debug("Elasticsearch-Evolution history index '{}' already exists.", historyIndex);
+                if (null != stream) {
+                    // before the first document of the stream is written, so the stream is not mapped dynamically
+                    streamFilterField = resolveStreamFilterField(true);
+                }
                 return false;
             }
 
@@ -228,19 +530,128 @@ public class HistoryRepositoryImpl implements HistoryRepository {
                 logger.debug("Elasticsearch-Evolution history index '{}' does not yet exists. Res={}", historyIndex, existsRes.asString());
             }
 
-            // create index
-            EvolutionRestResponse createRes = restClient.execute(PUT, "/" + historyIndex);
+            // create index, the stream is mapped explicitly, so term queries do not depend on dynamic mapping
+            EvolutionRestResponse createRes = restClient.execute(PUT, "/" + historyIndex,
+                    Map.of(HEADER_NAME_CONTENT_TYPE, APPLICATION_JSON_UTF8),
+                    null,
+                    "{\"mappings\":" + STREAM_MAPPING + "}");
             if (hasNotStatusCode2xx(createRes)) {
                 throw new IllegalStateException("Could not create Elasticsearch-Evolution history index '" + historyIndex +
                         "'. Create res=" + createRes.asString() + " (body=" + createRes.body() + ")");
             }
             logger.debug("created Elasticsearch-Evolution history index '{}'", historyIndex);
+            streamFilterField = STREAM_FIELD_NAME;
             return true;
         } catch (IOException e) {
             throw new MigrationException("createIndexIfAbsent failed!", e);
         }
     }
 
+    static boolean isValidStream(String stream) {
+        return !stream.isEmpty() && stream.chars().allMatch(c -> (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '_');
+    }
+
+    /**
+     * @return the ID of the document with the given version in the history of the stream
+     */
+    private String documentId(String version) {
+        return null == stream ? version : stream + ":" + version;
+    }
+
+    private Map<String, Object> toSource(MigrationScriptProtocol migrationScriptProtocol) {
+        final Map<String, Object> source = migrationScriptProtocolMapper.mapToMap(migrationScriptProtocol);
+        if (null != stream) {
+            source.put(STREAM_FIELD_NAME, stream);
+        }
+        return source;
+    }
+
+    /**
+     * @param clauses query clauses, all of them must match
+     * @return a query, which matches only documents of the stream and the given clauses. Documents without stream
+     * belong to the default stream.
+     */
+    private String streamQuery(String... clauses) throws IOException {
+        final String streamFilter = null == stream
+                ? "{\"bool\":{\"must_not\":{\"exists\":{\"field\":\"" + STREAM_FIELD_NAME + "\"}}}}"
+                : "{\"term\":{\"" + streamFilterField() + "\":{\"value\":\"" + stream + "\"}}}";
+        final StringJoiner filters = new StringJoiner(",", "{\"bool\":{\"filter\":[", "]}}");
+        Arrays.stream(clauses).forEach(filters::add);
+        filters.add(streamFilter);
+        return filters.toString();
+    }
+
+    /**
+     * Resolves the keyword field of the stream from the mapping of the history index on first use: the stream field
+     * itself, if it is mapped as keyword, or its 'keyword' sub field, if it was mapped dynamically as text. Reading
+     * never changes the mapping: as long as the history index or the stream field does not exist, there is no
+     * document of the stream and the stream field is used without resolving it.
+     *
+     * @return the field, the stream is filtered on with a term query
+     * @throws MigrationException if the stream field is mapped without keyword
+     */
+    private String streamFilterField() throws IOException {
+        String res = streamFilterField;
+        if (null == res) {
+            res = resolveStreamFilterField(false);
+            if (null == res) {
+                return STREAM_FIELD_NAME;
+            }
+            streamFilterField = res;
+        }
+        return res;
+    }
+
+    /**
+     * @param mapMissingField whether to add the stream field as keyword to the mapping of the existing history index,
+     *                        if it is not mapped yet. Must only be true before the first document of the stream is
+     *                        written, e.g. in {@link #createIndexIfAbsent()}.
+     * @return the field, the stream is filtered on, or null if the history index or the (not added) stream field does
+     * not exist
+     * @throws MigrationException if the stream field is mapped without keyword
+     */
+    private String resolveStreamFilterField(boolean mapMissingField) throws IOException {
+        final EvolutionRestResponse mappingRes = restClient.execute(GET, "/" + historyIndex + "/_mapping/field/" + STREAM_FIELD_NAME);
+        if (404 == mappingRes.statusCode()) {
+            logger.debug("history index '{}' does not exist, the mapping of field '{}' is not resolved", historyIndex, STREAM_FIELD_NAME);
+            return null;
+        }
+        validateHttpStatusIs2xx(mappingRes, "get mapping of field '" + STREAM_FIELD_NAME + "'");
+        // {"<index>":{"mappings":{"stream":{"full_name":"stream","mapping":{"stream":{"type":"keyword"}}}}}}
+        final JsonNode mappingResBody = objectMapper.readTree(mappingRes.body().orElseThrow(() -> new IllegalStateException("mapping response body must be present")));
+        JsonNode mapping = null;
+        for (JsonNode index : mappingResBody) {
+            final JsonNode fieldMapping = index.path("mappings").path(STREAM_FIELD_NAME).path("mapping").path(STREAM_FIELD_NAME);
+            if (!fieldMapping.isMissingNode()) {
+                mapping = fieldMapping;
+                break;
+            }
+        }
+
+        if (null == mapping) {
+            if (!mapMissingField) {
+                return null;
+            }
+            final EvolutionRestResponse putMappingRes = restClient.execute(PUT, "/" + historyIndex + "/_mapping",
+                    Map.of(HEADER_NAME_CONTENT_TYPE, APPLICATION_JSON_UTF8),
+                    null,
+                    STREAM_MAPPING);
+            validateHttpStatusIs2xx(putMappingRes, "put mapping of field '" + STREAM_FIELD_NAME + "'");
+            logger.debug("mapped field '{}' of history index '{}' as keyword", STREAM_FIELD_NAME, historyIndex);
+            return STREAM_FIELD_NAME;
+        }
+        if ("keyword".equals(mapping.path("type").asText())) {
+            return STREAM_FIELD_NAME;
+        }
+        if ("keyword".equals(mapping.path("fields").path("keyword").path("type").asText())) {
+            logger.debug("field '{}' of history index '{}' is mapped as '{}', filtering on '{}'",
+                    STREAM_FIELD_NAME, historyIndex, mapping.path("type").asText(), STREAM_KEYWORD_FIELD_NAME);
+            return STREAM_KEYWORD_FIELD_NAME;
+        }
+        throw new MigrationException("field '%s' of history index '%s' is mapped as '%s' without keyword sub field, but streams require a keyword mapping".formatted(
+                STREAM_FIELD_NAME, historyIndex, mapping.path("type").asText()));
+    }
+
     private boolean hasNotStatusCode2xx(EvolutionRestResponse response) {
         return isNotStatusCode2xx(response.statusCode());
     }
@@ -355,6 +766,10 @@ public class HistoryRepositoryImpl implements HistoryRepository {
         @JsonProperty("timed_out")
         boolean timedOut;
         Hits hits;
+        @JsonProperty("pit_id")
+        String pitId;
+        @JsonProperty("_scroll_id")
+        String scrollId;
     }
 
     @Value
@@ -377,11 +792,31 @@ public class HistoryRepositoryImpl implements HistoryRepository {
         String relation;
     }
 
+    @Value
+    static class GetResponse {
+        boolean found;
+        @JsonProperty("_seq_no")
+        long seqNo;
+        @JsonProperty("_primary_term")
+        long primaryTerm;
+        @JsonProperty("_source")
+        Map<String, Object> source;
+    }
+
+    @Value
+    static class WriteResponse {
+        @JsonProperty("_seq_no")
+        long seqNo;
+        @JsonProperty("_primary_term")
+        long primaryTerm;
+    }
+
     @Value
     static class Hit {
         @JsonProperty("_id")
         String id;
         @JsonProperty("_source")
         Map<String, Object> source;
+        List<Object> sort;
     }
 }
\ No newline at end of file
@@ -0,0 +1,151 @@
+package com.senacor.elasticsearch.evolution.core.internal.migration.execution;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.json.JsonReadFeature;
+import com.senacor.elasticsearch.evolution.core.api.MigrationException;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.MigrationRequest;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.MigrationScriptRequest;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.MigrationScriptRequests;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.ParsedMigration;
+import com.senacor.elasticsearch.evolution.core.internal.utils.ParallelMapper;
+import com.senacor.elasticsearch.evolution.rest.abstraction.EvolutionRestClient;
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Checks the JSON bodies of migration scripts before they are executed. Only the syntax is checked: the bodies are
+ * read as a token stream, like Elasticsearch does, comments are allowed. Bodies with other content types, NDJSON bulk
+ * data migrations and Java migrations are not checked.
+ * <p>
+ * A body may contain several JSON values separated by whitespace, e.g. a '_bulk' request sent as 'application/json'.
+ */
+final class JsonBodyValidator {
+
+    private static final JsonFactory JSON_FACTORY = JsonFactory.builder()
+            .enable(JsonReadFeature.ALLOW_JAVA_COMMENTS)
+            .build();
+
+    private final EvolutionRestClient<?> restClient;
+    private final String defaultContentType;
+    private final ParallelMapper parallelMapper;
+
+    /**
+     * @param restClient         to determine the content type of the requests
+     * @param defaultContentType content type of requests without content type header
+     * @param parallelMapper     to check several migrations concurrently
+     */
+    JsonBodyValidator(@NonNull EvolutionRestClient<?> restClient,
+                      @NonNull String defaultContentType,
+                      @NonNull ParallelMapper parallelMapper) {
+        this.restClient = restClient;
+        this.defaultContentType = defaultContentType;
+        this.parallelMapper = parallelMapper;
+    }
+
+    /**
+     * Loads and parses the given migrations and checks their JSON bodies.
+     *
+     * @throws MigrationException if a migration can't be parsed or if at least one JSON body is invalid, then the
+     *                            message contains all invalid bodies
+     */
+    void validate(@NonNull List<ParsedMigration<?>> migrations) throws MigrationException {
+        final List<String> errors = parallelMapper.map(migrations, this::validate)
+                .stream()
+                .flatMap(List::stream)
+                .toList();
+        if (!errors.isEmpty()) {
+            throw new MigrationException("%s invalid JSON bodies found, no migration was executed:%n%s".formatted(
+                    errors.size(), String.join(System.lineSeparator(), errors)));
+        }
+    }
+
+    /**
+     * @return the errors of all invalid JSON bodies of the migration
+     */
+    private List<String> validate(ParsedMigration<?> migration) {
+        final MigrationRequest migrationRequest = migration.getMigrationRequest();
+        final List<MigrationScriptRequest> requests;
+        if (migrationRequest instanceof MigrationScriptRequest request) {
+            requests = List.of(request);
+        } else if (migrationRequest instanceof MigrationScriptRequests several) {
+            requests = several.requests();
+        } else {
+            return List.of();
+        }
+        final List<String> errors = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            final MigrationScriptRequest request = requests.get(i);
+            final String requestName = requests.size() > 1
+                    ? "request %s (%s %s)".formatted(i + 1, request.getHttpMethod(), request.getPath())
+                    : "%s %s".formatted(request.getHttpMethod(), request.getPath());
+            validate(request).ifPresent(error -> errors.add("- %s, %s: %s".formatted(
+                    migration.getFileNameInfo().getScriptName(), requestName, error)));
+        }
+        return errors;
+    }
+
+    /**
+     * @return the error, if the body has a JSON content type and is invalid
+     */
+    Optional<String> validate(MigrationScriptRequest request) {
+        final boolean streamed = null != request.getStreamedBody();
+        if (!streamed && (null == request.getBody() || request.getBody().trim().isEmpty())) {
+            return Optional.empty();
+        }
+        if (!isJson(restClient.getContentType(request.getHttpHeader()).orElse(defaultContentType))) {
+            return Optional.empty();
+        }
+        try {
+            if (streamed) {
+                try (Reader reader = request.getStreamedBody().open();
+                     JsonParser parser = JSON_FACTORY.createParser(reader)) {
+                    return validate(parser);
+                }
+            }
+            try (JsonParser parser = JSON_FACTORY.createParser(request.getBody())) {
+                return validate(parser);
+            }
+        } catch (IOException e) {
+            throw new MigrationException("can't read body of request %s %s".formatted(
+                    request.getHttpMethod(), request.getPath()), e);
+        }
+    }
+
+    private static Optional<String> validate(JsonParser parser) throws IOException {
+        try {
+            while (null != parser.nextToken()) {
+                // reading all tokens checks the syntax
+            }
+            return Optional.empty();
+        } catch (JsonProcessingException e) {
+            final JsonLocation location = e.getLocation();
+            return Optional.of(null == location
+                    ? e.getOriginalMessage()
+                    : "%s (line %s, column %s)".formatted(e.getOriginalMessage(), location.getLineNr(), location.getColumnNr()));
+        }
+    }
+
+    /**
+     * @param contentType the content type, e.g. 'application/json; charset=UTF-8'
+     * @return whether the content type is JSON or NDJSON
+     */
+    static boolean isJson(String contentType) {
+        final int parametersStart = contentType.indexOf(';');
+        final String mimeType = (parametersStart < 0 ? contentType : contentType.substring(0, parametersStart))
+                .trim()
+                .toLowerCase(Locale.ROOT);
+        return mimeType.equals("application/json")
+                || mimeType.equals("application/x-ndjson")
+                || mimeType.endsWith("+json")
+                || mimeType.endsWith("+x-ndjson");
+    }
+}
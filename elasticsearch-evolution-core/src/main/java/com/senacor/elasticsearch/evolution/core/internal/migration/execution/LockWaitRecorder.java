@@ -0,0 +1,50 @@
+package com.senacor.elasticsearch.evolution.core.internal.migration.execution;
+
+import com.senacor.elasticsearch.evolution.core.api.migration.LockWaitMetrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records the waits for the lock of the history index. Only read-only {@link LockWaitMetrics} snapshots leave the
+ * migration service.
+ * <p>
+ * Thread safe.
+ */
+class LockWaitRecorder {
+
+    private final LongAdder waits = new LongAdder();
+    private final LongAdder polls = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder waitTimeInMillis = new LongAdder();
+    private final AtomicLong maxWaitTimeInMillis = new AtomicLong();
+
+    /**
+     * records a wait for the lock
+     *
+     * @param polls            number of checks, whether the history index is locked
+     * @param waitTimeInMillis time spent waiting
+     * @param timedOut         whether the wait exceeded the maximum wait time
+     */
+    void record(int polls, long waitTimeInMillis, boolean timedOut) {
+        this.waits.increment();
+        this.polls.add(polls);
+        if (timedOut) {
+            this.timeouts.increment();
+        }
+        this.waitTimeInMillis.add(waitTimeInMillis);
+        this.maxWaitTimeInMillis.accumulateAndGet(waitTimeInMillis, Math::max);
+    }
+
+    /**
+     * @return the metrics recorded so far
+     */
+    LockWaitMetrics snapshot() {
+        return new LockWaitMetrics(
+                waits.sum(),
+                polls.sum(),
+                timeouts.sum(),
+                waitTimeInMillis.sum(),
+                maxWaitTimeInMillis.get());
+    }
+}
@@ -15,6 +15,8 @@ public class MigrationScriptProtocolMapper {
 
     public static final String LOCKED_FIELD_NAME = "locked";
     public static final String CHECKSUM_FIELD_NAME = "checksum";
+    public static final String CONTENT_CHECKSUM_FIELD_NAME = "contentChecksum";
+    public static final String CHECKSUM_ALGORITHM_FIELD_NAME = "checksumAlgorithm";
     public static final String DESCRIPTION_FIELD_NAME = "description";
     public static final String EXECUTION_RUNTIME_IN_MILLIS_FIELD_NAME = "executionRuntimeInMillis";
     public static final String EXECUTION_TIMESTAMP_FIELD_NAME = "executionTimestamp";
@@ -24,9 +26,11 @@ public class MigrationScriptProtocolMapper {
     public static final String SCRIPT_NAME_FIELD_NAME = "scriptName";
 
     public Map<String, Object> mapToMap(MigrationScriptProtocol migrationScriptProtocol) {
-        HashMap<String, Object> res = new HashMap<>(10);
+        HashMap<String, Object> res = new HashMap<>(12);
         res.put(LOCKED_FIELD_NAME, migrationScriptProtocol.isLocked());
         res.put(CHECKSUM_FIELD_NAME, migrationScriptProtocol.getChecksum());
+        res.put(CONTENT_CHECKSUM_FIELD_NAME, migrationScriptProtocol.getContentChecksum());
+        res.put(CHECKSUM_ALGORITHM_FIELD_NAME, migrationScriptProtocol.getChecksumAlgorithm());
         res.put(DESCRIPTION_FIELD_NAME, migrationScriptProtocol.getDescription());
         res.put(EXECUTION_RUNTIME_IN_MILLIS_FIELD_NAME, migrationScriptProtocol.getExecutionRuntimeInMillis());
         res.put(EXECUTION_TIMESTAMP_FIELD_NAME, null == migrationScriptProtocol.getExecutionTimestamp()
@@ -49,6 +53,13 @@ public class MigrationScriptProtocolMapper {
         Optional.ofNullable(mapData.get(CHECKSUM_FIELD_NAME))
                 .ifPresent(data -> protocol.setChecksum((Integer) data));
 
+        // small values are deserialized as Integer
+        Optional.ofNullable(mapData.get(CONTENT_CHECKSUM_FIELD_NAME))
+                .ifPresent(data -> protocol.setContentChecksum(((Number) data).longValue()));
+
+        Optional.ofNullable(mapData.get(CHECKSUM_ALGORITHM_FIELD_NAME))
+                .ifPresent(data -> protocol.setChecksumAlgorithm((String) data));
+
         Optional.ofNullable(mapData.get(DESCRIPTION_FIELD_NAME))
                 .ifPresent(data -> protocol.setDescription((String) data));
 
@@ -3,14 +3,21 @@ package com.senacor.elasticsearch.evolution.core.internal.migration.execution;
 import com.senacor.elasticsearch.evolution.core.api.MigrationException;
 import com.senacor.elasticsearch.evolution.core.api.config.ElasticsearchEvolutionConfig;
 import com.senacor.elasticsearch.evolution.core.api.migration.HistoryRepository;
+import com.senacor.elasticsearch.evolution.core.api.migration.LockWaitMetrics;
+import com.senacor.elasticsearch.evolution.core.api.migration.MigrationFingerprint;
 import com.senacor.elasticsearch.evolution.core.api.migration.MigrationService;
 import com.senacor.elasticsearch.evolution.core.api.migration.MigrationVersion;
 import com.senacor.elasticsearch.evolution.core.api.migration.java.Context;
 import com.senacor.elasticsearch.evolution.core.internal.model.dbhistory.MigrationScriptProtocol;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.BulkMigrationRequest;
 import com.senacor.elasticsearch.evolution.core.internal.model.migration.JavaMigrationRequestContent;
 import com.senacor.elasticsearch.evolution.core.internal.model.migration.MigrationScriptRequest;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.MigrationScriptRequests;
 import com.senacor.elasticsearch.evolution.core.internal.model.migration.ParsedMigration;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.ScriptMigrationContent;
+import com.senacor.elasticsearch.evolution.core.internal.utils.ParallelMapper;
 import com.senacor.elasticsearch.evolution.core.internal.utils.RandomUtils;
+import com.senacor.elasticsearch.evolution.core.internal.utils.ReaderInputStream;
 import com.senacor.elasticsearch.evolution.rest.abstraction.EvolutionRestClient;
 import com.senacor.elasticsearch.evolution.rest.abstraction.EvolutionRestResponse;
 import lombok.AccessLevel;
@@ -20,6 +27,8 @@ import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.charset.Charset;
 import java.time.OffsetDateTime;
 import java.util.*;
@@ -39,15 +48,27 @@ public class MigrationServiceImpl implements MigrationService {
     private final HistoryRepository historyRepository;
     private final int waitUntilUnlockedMinTimeInMillis;
     private final int waitUntilUnlockedMaxTimeInMillis;
+    private final int waitUntilUnlockedTimeoutInMillis;
+    private final LockWaitRecorder lockWaitRecorder = new LockWaitRecorder();
     private final EvolutionRestClient<?> restClient;
     private final String defaultContentType;
     private final Charset encoding;
     private final boolean validateOnMigrate;
     private final ElasticsearchEvolutionConfig config;
     private final boolean outOfOrder;
+    /**
+     * executes the requests of scripts with several requests
+     */
+    private final ParallelMapper requestMapper;
+    private final BulkMigrationExecutor bulkMigrationExecutor;
+    private final JsonBodyValidator jsonBodyValidator;
 
-    private final String baselineVersion;
+    private final MigrationVersion baselineVersion;
 
+    /**
+     * @param waitUntilUnlockedMinTimeInMillis initial time to wait for the lock, doubled after each check
+     * @param waitUntilUnlockedMaxTimeInMillis maximum time to wait between two checks of the lock
+     */
     public MigrationServiceImpl(HistoryRepository historyRepository,
                                 int waitUntilUnlockedMinTimeInMillis,
                                 int waitUntilUnlockedMaxTimeInMillis,
@@ -64,15 +85,33 @@ public class MigrationServiceImpl implements MigrationService {
                 "waitUntilUnlockedMinTimeInMillis (%s) must not be negative and must not be greater than waitUntilUnlockedMaxTimeInMillis (%s)",
                 waitUntilUnlockedMinTimeInMillis, waitUntilUnlockedMaxTimeInMillis);
         this.waitUntilUnlockedMaxTimeInMillis = waitUntilUnlockedMaxTimeInMillis;
-        this.baselineVersion = config.getBaselineVersion();
+        this.waitUntilUnlockedTimeoutInMillis = requireCondition(config.getLockWaitTimeoutInMillis(), timeout -> timeout >= 0,
+                "lockWaitTimeoutInMillis (%s) must not be negative", config.getLockWaitTimeoutInMillis());
+        this.baselineVersion = MigrationVersion.fromVersion(config.getBaselineVersion());
         this.outOfOrder = config.isOutOfOrder();
+        this.requestMapper = config.getScriptRequestParallelism() > 1
+                ? new ParallelMapper(config.getScriptRequestParallelism(), false)
+                : ParallelMapper.SEQUENTIAL;
+        this.bulkMigrationExecutor = new BulkMigrationExecutor(restClient, encoding,
+                config.getBulkMaxBytes(), config.getBulkMaxDocuments(), config.getBulkParallelism());
+        this.jsonBodyValidator = config.isValidateJsonBodies()
+                ? new JsonBodyValidator(restClient, defaultContentType,
+                new ParallelMapper(config.getReadParallelism(), config.isReadVirtualThreads()))
+                : null;
     }
 
     @Override
     @NonNull
     public List<MigrationScriptProtocol> executePendingScripts(@NonNull Collection<ParsedMigration<?>> migrationScripts)
             throws MigrationException {
-        if (!getPendingScriptsToBeExecuted(migrationScripts).isEmpty()) {
+        final List<ParsedMigration<?>> pendingScripts = getPendingScriptsToBeExecuted(migrationScripts);
+        if (!pendingScripts.isEmpty()) {
+            // load and parse the content of the pending migrations only, invalid migrations fail before locking
+            if (null != jsonBodyValidator) {
+                jsonBodyValidator.validate(pendingScripts);
+            } else {
+                pendingScripts.forEach(ParsedMigration::getMigrationRequest);
+            }
             return executePendingScriptsWithLock(migrationScripts);
         } else {
             return new ArrayList<>();
@@ -84,19 +123,31 @@ public class MigrationServiceImpl implements MigrationService {
         final List<MigrationScriptProtocol> executedScripts = new ArrayList<>();
         try {
             historyRepository.createIndexIfAbsent();
-            waitUntilUnlocked();
+            // the maximum wait time applies to the whole lock acquisition
+            final long waitStartNanos = System.nanoTime();
+            waitUntilUnlockedSince(waitStartNanos);
             // set a logical index lock
-            if (!historyRepository.lock()) {
-                throw new MigrationException("could not lock the elasticsearch-evolution history index");
+            while (!historyRepository.lock()) {
+                // another instance may have acquired the lock in the meantime
+                if (!historyRepository.isLocked()) {
+                    throw new MigrationException("could not lock the elasticsearch-evolution history index");
+                }
+                waitUntilUnlockedSince(waitStartNanos);
             }
 
             // get scripts which needs to be executed
-            List<ParsedMigration<?>> scriptsToExecute = getPendingScriptsToBeExecuted(migrationScripts);
+            final List<MigrationScriptProtocol> legacyProtocols = new ArrayList<>();
+            List<ParsedMigration<?>> scriptsToExecute = getPendingScriptsToBeExecuted(migrationScripts, legacyProtocols);
+            upgradeLegacyChecksums(legacyProtocols);
 
             // now execute scripts and write protocols to history index
             for (ParsedMigration<?> script : scriptsToExecute) {
+                // don't migrate concurrently with an instance, which took over the lock
+                historyRepository.requireLock();
                 // execute scripts
                 ExecutionResult res = executeMigration(script);
+                // the parsed request is not needed anymore, its body can be garbage collected
+                script.releaseMigrationRequest();
                 MigrationScriptProtocol executedScriptProtocol = res.getProtocol();
                 logger.info("executed migration {}", executedScriptProtocol);
                 executedScripts.add(executedScriptProtocol);
@@ -115,6 +166,22 @@ public class MigrationServiceImpl implements MigrationService {
         return executedScripts;
     }
 
+    /**
+     * Adds the content checksum to validated history entries, which only have the legacy checksum. Must be called
+     * while the history index is locked.
+     */
+    private void upgradeLegacyChecksums(List<MigrationScriptProtocol> legacyProtocols) {
+        for (MigrationScriptProtocol protocol : legacyProtocols) {
+            try {
+                historyRepository.saveOrUpdate(protocol.setLocked(true));
+                logger.debug("upgraded checksum of history entry {}", protocol);
+            } catch (MigrationException e) {
+                // the legacy checksum is still valid, so the upgrade is retried with the next migration
+                logger.warn("could not upgrade the checksum of history entry {}", protocol, e);
+            }
+        }
+    }
+
     /**
      * executes the given migrations and returns a protocol ready to save in the history index
      *
@@ -128,39 +195,14 @@ public class MigrationServiceImpl implements MigrationService {
         Optional<RuntimeException> error = Optional.empty();
         try {
             if (migrationToExecute.getMigrationRequest() instanceof MigrationScriptRequest migrationScriptRequest) {
-                Map<String, String> headers = new HashMap<>(migrationScriptRequest.getHttpHeader());
-                if (null != migrationScriptRequest.getBody()
-                        && !migrationScriptRequest.getBody().trim().isEmpty()) {
-                    String contentType = restClient.getContentType(migrationScriptRequest.getHttpHeader())
-                            .orElse(defaultContentType);
-                    if (!contentType.contains("charset=")) {
-                        logger.debug("no charset is defined for {}, setting to configured encoding {}", migrationToExecute.getFileNameInfo(), encoding);
-                        contentType += "; charset=" + encoding;
-                    }
-                    // remove any existing content-type header (ignore case)
-                    headers.entrySet()
-                            .removeIf(entry -> EvolutionRestClient.HEADER_NAME_CONTENT_TYPE.equalsIgnoreCase(entry.getKey()));
-                    headers.put(EvolutionRestClient.HEADER_NAME_CONTENT_TYPE, contentType);
-                }
-                EvolutionRestResponse response = restClient.execute(
-                        migrationScriptRequest.getHttpMethod(),
-                        migrationScriptRequest.getPath(),
-                        headers,
-                        null,
-                        migrationScriptRequest.getBody()
-                );
-
-                int statusCode = response.statusCode();
-                if (statusCode >= 200 && statusCode < 300) {
-                    success = true;
-                } else {
-                    error = Optional.of(new MigrationException(
-                            "execution of script '%s' failed with HTTP status %s: %s (body=%s)".formatted(
-                                    migrationToExecute.getFileNameInfo(),
-                                    statusCode,
-                                    response.asString(),
-                                    response.body())));
-                }
+                error = executeRequest(migrationToExecute, migrationScriptRequest);
+                success = error.isEmpty();
+            } else if (migrationToExecute.getMigrationRequest() instanceof MigrationScriptRequests migrationScriptRequests) {
+                error = executeRequests(migrationToExecute, migrationScriptRequests.requests());
+                success = error.isEmpty();
+            } else if (migrationToExecute.getMigrationRequest() instanceof BulkMigrationRequest bulkMigrationRequest) {
+                error = bulkMigrationExecutor.execute(migrationToExecute.getFileNameInfo(), bulkMigrationRequest);
+                success = error.isEmpty();
             } else if (migrationToExecute.getMigrationRequest() instanceof JavaMigrationRequestContent javaMigrationRequest) {
                 javaMigrationRequest.javaMigration().migrate(Context.of(config, restClient));
                 success = true;
@@ -180,14 +222,163 @@ public class MigrationServiceImpl implements MigrationService {
                         .setScriptName(migrationToExecute.getFileNameInfo().getScriptName())
                         .setDescription(migrationToExecute.getFileNameInfo().getDescription())
                         .setChecksum(migrationToExecute.getChecksum())
+                        .setContentChecksum(migrationToExecute.getContentChecksum())
+                        .setChecksumAlgorithm(null == migrationToExecute.getContentChecksum()
+                                ? null
+                                : ScriptMigrationContent.CONTENT_CHECKSUM_ALGORITHM)
                         .setExecutionTimestamp(OffsetDateTime.now())
                         .setLocked(true),
                 error);
     }
 
+    /**
+     * executes the requests of a script in order. Consecutive requests with different targets are executed
+     * concurrently, if configured. No further request is started after the first failed request.
+     *
+     * @return the error of the first failed request or empty, if all requests were successful
+     */
+    private Optional<RuntimeException> executeRequests(ParsedMigration<?> migration, List<MigrationScriptRequest> requests) {
+        final List<List<MigrationScriptRequest>> groups = requestMapper == ParallelMapper.SEQUENTIAL
+                ? List.of(requests)
+                : independentGroups(requests);
+        try {
+            for (List<MigrationScriptRequest> group : groups) {
+                requestMapper.map(group, request -> {
+                    try {
+                        executeRequest(migration, request).ifPresent(error -> {
+                            throw error;
+                        });
+                        return request;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        } catch (MigrationException e) {
+            return Optional.of(e);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Splits the requests into groups of consecutive requests with different targets (the first path segment), which
+     * don't depend on each other. Requests without a single target, like '_bulk', 'index-a,index-b' or 'logs-*', are
+     * put in a group of their own.
+     */
+    static List<List<MigrationScriptRequest>> independentGroups(List<MigrationScriptRequest> requests) {
+        final List<List<MigrationScriptRequest>> res = new ArrayList<>();
+        List<MigrationScriptRequest> group = new ArrayList<>();
+        final Set<String> targets = new HashSet<>();
+        for (MigrationScriptRequest request : requests) {
+            final String target = target(request.getPath());
+            if (null == target || !targets.add(target)) {
+                if (!group.isEmpty()) {
+                    res.add(group);
+                    group = new ArrayList<>();
+                    targets.clear();
+                }
+                if (null == target) {
+                    res.add(List.of(request));
+                    continue;
+                }
+                targets.add(target);
+            }
+            group.add(request);
+        }
+        if (!group.isEmpty()) {
+            res.add(group);
+        }
+        return res;
+    }
+
+    /**
+     * @return the first path segment, if it is a single index, alias or data stream, otherwise null
+     */
+    private static String target(String path) {
+        if (null == path) {
+            return null;
+        }
+        int start = 0;
+        while (start < path.length() && path.charAt(start) == '/') {
+            start++;
+        }
+        int end = start;
+        while (end < path.length() && path.charAt(end) != '/' && path.charAt(end) != '?') {
+            end++;
+        }
+        final String target = path.substring(start, end);
+        if (target.isEmpty() || target.startsWith("_") || target.contains(",") || target.contains("*")) {
+            return null;
+        }
+        return target;
+    }
+
+    /**
+     * executes a single request of a script
+     *
+     * @return the error, if the request failed with a not successful HTTP status
+     */
+    private Optional<RuntimeException> executeRequest(ParsedMigration<?> migration,
+                                                      MigrationScriptRequest migrationScriptRequest) throws IOException {
+        Map<String, String> headers = new HashMap<>(migrationScriptRequest.getHttpHeader());
+        final ScriptMigrationContent.ReaderOpener streamedBody = migrationScriptRequest.getStreamedBody();
+        if (null != streamedBody
+                || (null != migrationScriptRequest.getBody() && !migrationScriptRequest.getBody().trim().isEmpty())) {
+            String contentType = restClient.getContentType(migrationScriptRequest.getHttpHeader())
+                    .orElse(defaultContentType);
+            if (!contentType.contains("charset=")) {
+                logger.debug("no charset is defined for {}, setting to configured encoding {}", migration.getFileNameInfo(), encoding);
+                contentType += "; charset=" + encoding;
+            }
+            // remove any existing content-type header (ignore case)
+            headers.entrySet()
+                    .removeIf(entry -> EvolutionRestClient.HEADER_NAME_CONTENT_TYPE.equalsIgnoreCase(entry.getKey()));
+            headers.put(EvolutionRestClient.HEADER_NAME_CONTENT_TYPE, contentType);
+        }
+        final EvolutionRestResponse response;
+        if (null != streamedBody) {
+            // the body of large scripts is encoded while it is sent
+            final Charset charset = restClient.getCharset(headers);
+            response = restClient.executeStreaming(
+                    migrationScriptRequest.getHttpMethod(),
+                    migrationScriptRequest.getPath(),
+                    headers,
+                    null,
+                    () -> new ReaderInputStream(streamedBody.open(), charset));
+        } else {
+            response = restClient.execute(
+                    migrationScriptRequest.getHttpMethod(),
+                    migrationScriptRequest.getPath(),
+                    headers,
+                    null,
+                    migrationScriptRequest.getBody()
+            );
+        }
+
+        int statusCode = response.statusCode();
+        if (statusCode >= 200 && statusCode < 300) {
+            return Optional.empty();
+        }
+        return Optional.of(new MigrationException(
+                "execution of script '%s' failed with HTTP status %s: %s (body=%s)".formatted(
+                        migration.getFileNameInfo(),
+                        statusCode,
+                        response.asString(),
+                        response.body())));
+    }
+
     @Override
     @NonNull
     public List<ParsedMigration<?>> getPendingScriptsToBeExecuted(@NonNull Collection<ParsedMigration<?>> migrationScripts) throws MigrationException {
+        return getPendingScriptsToBeExecuted(migrationScripts, null);
+    }
+
+    /**
+     * @param legacyProtocols collects validated history entries without content checksum, which can be upgraded, or
+     *                        null if nothing should be collected
+     */
+    private List<ParsedMigration<?>> getPendingScriptsToBeExecuted(Collection<ParsedMigration<?>> migrationScripts,
+                                                                   List<MigrationScriptProtocol> legacyProtocols) {
         if (migrationScripts.isEmpty()) {
             return new ArrayList<>();
         }
@@ -220,7 +411,7 @@ public class MigrationServiceImpl implements MigrationService {
                             Already executed history version {} is not present in migration files\
                             """, protocol.getVersion());
                 } else {
-                    validateOnMigrateIfEnabled(protocol, parsedMigration);
+                    validateOnMigrateIfEnabled(protocol, parsedMigration, legacyProtocols);
 
                     if (protocol.isSuccess()) {
                         res.remove(parsedMigration);
@@ -252,7 +443,7 @@ public class MigrationServiceImpl implements MigrationService {
                             """).formatted(
                             i, protocol.getVersion(), parsedMigration.getFileNameInfo().getVersion()));
                 }
-                validateOnMigrateIfEnabled(protocol, parsedMigration);
+                validateOnMigrateIfEnabled(protocol, parsedMigration, legacyProtocols);
 
                 if (protocol.isSuccess()) {
                     res.remove(parsedMigration);
@@ -263,10 +454,74 @@ public class MigrationServiceImpl implements MigrationService {
         return res;
     }
 
+    @Override
+    public boolean isUpToDate(@NonNull String fingerprint) {
+        try {
+            return historyRepository.findFingerprint()
+                    .map(MigrationFingerprint::fingerprint)
+                    .filter(fingerprint::equals)
+                    .isPresent();
+        } catch (MigrationException e) {
+            // the fingerprint is just an optimization, so fall back to the full migration
+            logger.warn("could not read the migration fingerprint, falling back to full migration", e);
+            return false;
+        }
+    }
+
+    @Override
+    public void markUpToDate(@NonNull String fingerprint, @NonNull Collection<ParsedMigration<?>> migrationScripts) {
+        final Optional<MigrationVersion> latestVersion = migrationScripts.stream()
+                .map(script -> script.getFileNameInfo().getVersion())
+                .filter(version -> version.isAtLeast(baselineVersion))
+                .max(Comparator.naturalOrder());
+        if (latestVersion.isEmpty()) {
+            return;
+        }
+        try {
+            final Optional<MigrationFingerprint> stored = historyRepository.findFingerprint();
+            if (stored.isPresent()
+                    && null != stored.get().latestVersion()
+                    && stored.get().latestVersion().compareTo(latestVersion.get()) > 0) {
+                // an instance with newer migrations already stored its fingerprint, don't roll it back
+                logger.debug("stored fingerprint {} belongs to newer migrations, not updating it", stored.get());
+                return;
+            }
+            historyRepository.createIndexIfAbsent();
+            historyRepository.saveFingerprint(new MigrationFingerprint(fingerprint, latestVersion.get()));
+        } catch (MigrationException e) {
+            logger.warn("could not store the migration fingerprint, next migration will not be skipped", e);
+        }
+    }
+
+    @Override
+    @NonNull
+    public LockWaitMetrics getLockWaitMetrics() {
+        return lockWaitRecorder.snapshot();
+    }
+
     private void validateOnMigrateIfEnabled(MigrationScriptProtocol protocol,
-                                            ParsedMigration<?> parsedMigration) {
+                                            ParsedMigration<?> parsedMigration,
+                                            List<MigrationScriptProtocol> legacyProtocols) {
         // failed scripts can be edited and retried, but successfully executed scripts may not be modified afterward
-        if (validateOnMigrate && protocol.isSuccess() && protocol.getChecksum() != parsedMigration.getChecksum()) {
+        if (!validateOnMigrate || !protocol.isSuccess()) {
+            return;
+        }
+        final Long contentChecksum = parsedMigration.getContentChecksum();
+        final boolean valid;
+        if (ScriptMigrationContent.CONTENT_CHECKSUM_ALGORITHM.equals(protocol.getChecksumAlgorithm())
+                && null != protocol.getContentChecksum()
+                && null != contentChecksum) {
+            valid = protocol.getContentChecksum().equals(contentChecksum);
+        } else {
+            // legacy entry or unknown algorithm
+            valid = protocol.getChecksum() == parsedMigration.getChecksum();
+            if (valid && null != contentChecksum && null == protocol.getChecksumAlgorithm() && null != legacyProtocols) {
+                legacyProtocols.add(protocol
+                        .setContentChecksum(contentChecksum)
+                        .setChecksumAlgorithm(ScriptMigrationContent.CONTENT_CHECKSUM_ALGORITHM));
+            }
+        }
+        if (!valid) {
             throw new MigrationException((
                     """
                     The logged execution for the migration version %s (%s) \
@@ -280,16 +535,66 @@ public class MigrationServiceImpl implements MigrationService {
     /**
      * wait until the elasticsearch-evolution history index is unlocked
      */
-    void waitUntilUnlocked() {
-        while (historyRepository.isLocked()) {
-            try {
-                int waitTime = RandomUtils.getRandomInt(waitUntilUnlockedMinTimeInMillis, waitUntilUnlockedMaxTimeInMillis);
+    void waitUntilUnlocked() throws MigrationException {
+        waitUntilUnlockedSince(System.nanoTime());
+    }
+
+    /**
+     * wait until the elasticsearch-evolution history index is unlocked. The wait time between two checks grows
+     * exponentially from waitUntilUnlockedMinTimeInMillis up to waitUntilUnlockedMaxTimeInMillis with a random jitter.
+     *
+     * @param waitStartNanos {@link System#nanoTime()} when waiting for the lock started, the timeout is relative to it
+     * @throws MigrationException if the timeout is exceeded or the thread is interrupted
+     */
+    private void waitUntilUnlockedSince(long waitStartNanos) throws MigrationException {
+        if (!historyRepository.isLocked()) {
+            return;
+        }
+        final long start = System.nanoTime();
+        int polls = 1;
+        boolean timedOut = false;
+        try {
+            for (int attempt = 0; ; attempt++) {
+                final long waitTime = nextWaitTimeInMillis(attempt, waitStartNanos);
+                if (waitTime < 0) {
+                    timedOut = true;
+                    throw new MigrationException("the elasticsearch-evolution history index is still locked after waiting %sms (lockWaitTimeoutInMillis)".formatted(
+                            waitUntilUnlockedTimeoutInMillis));
+                }
                 logger.info("Elasticsearch-Evolution history index is locked, waiting {}ms until retry...", waitTime);
-                Thread.sleep(waitTime);
-            } catch (InterruptedException e) {
-                logger.warn("waitUntilUnlocked was interrupted!", e);
+                try {
+                    Thread.sleep(waitTime);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new MigrationException("waiting for the elasticsearch-evolution history index lock was interrupted", e);
+                }
+                polls++;
+                if (!historyRepository.isLocked()) {
+                    return;
+                }
             }
+        } finally {
+            lockWaitRecorder.record(polls, (System.nanoTime() - start) / 1_000_000, timedOut);
+        }
+    }
+
+    /**
+     * @return the time to wait before the next check, at most the remaining time until the timeout. -1 if the timeout
+     * is exceeded.
+     */
+    private long nextWaitTimeInMillis(int attempt, long waitStartNanos) {
+        // equal jitter: keep at least half of the exponential wait time and randomize the other half
+        final int backoff = (int) Math.min(waitUntilUnlockedMaxTimeInMillis,
+                (long) waitUntilUnlockedMinTimeInMillis << Math.min(attempt, 30));
+        final long waitTime = RandomUtils.getRandomInt(backoff - backoff / 2, backoff);
+        if (waitUntilUnlockedTimeoutInMillis == 0) {
+            return waitTime;
+        }
+        final long remaining = waitUntilUnlockedTimeoutInMillis - (System.nanoTime() - waitStartNanos) / 1_000_000;
+        if (remaining <= 0) {
+            return -1;
         }
+        return Math.min(waitTime, remaining);
     }
 
     @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
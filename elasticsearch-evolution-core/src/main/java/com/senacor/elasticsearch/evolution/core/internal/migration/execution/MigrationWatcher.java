@@ -0,0 +1,282 @@
+package com.senacor.elasticsearch.evolution.core.internal.migration.execution;
+
+import com.senacor.elasticsearch.evolution.core.api.MigrationException;
+import com.senacor.elasticsearch.evolution.core.api.migration.MigrationScriptParser;
+import com.senacor.elasticsearch.evolution.core.api.migration.MigrationScriptReader;
+import com.senacor.elasticsearch.evolution.core.api.migration.MigrationService;
+import com.senacor.elasticsearch.evolution.core.internal.model.dbhistory.MigrationScriptProtocol;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.ParsedMigration;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.RawMigrationScript;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.ScriptMigrationContent;
+import lombok.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Development watch mode: keeps the migrations in memory and watches the {@code file:} locations with a
+ * {@link WatchService}. Only changed or added migration scripts are read and parsed again, then the pending migrations
+ * are executed.
+ * <p>
+ * Migrations of other locations are read once at start.
+ */
+public final class MigrationWatcher implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MigrationWatcher.class);
+
+    /**
+     * time to wait for further changes before migrating, editors often write a file in several steps
+     */
+    static final long DEBOUNCE_MILLIS = 50;
+
+    private final MigrationScriptReader migrationScriptReader;
+    private final MigrationScriptParser migrationScriptParser;
+    private final MigrationService migrationService;
+
+    private List<Path> locations = List.of();
+    private List<ParsedMigration<?>> otherMigrations = List.of();
+    private final Map<Path, WatchedMigration> fileMigrations = new LinkedHashMap<>();
+    private WatchService watchService;
+    private Thread thread;
+
+    public MigrationWatcher(@NonNull MigrationScriptReader migrationScriptReader,
+                            @NonNull MigrationScriptParser migrationScriptParser,
+                            @NonNull MigrationService migrationService) {
+        this.migrationScriptReader = migrationScriptReader;
+        this.migrationScriptParser = migrationScriptParser;
+        this.migrationService = migrationService;
+    }
+
+    /**
+     * Reads all migrations, executes the pending ones and starts watching the {@code file:} locations in a daemon
+     * thread.
+     *
+     * @return The number of successfully applied migrations.
+     * @throws MigrationException when the migration failed or the locations can't be watched.
+     */
+    public synchronized int start() throws MigrationException {
+        if (null != watchService) {
+            throw new IllegalStateException("watcher is already started");
+        }
+        locations = migrationScriptReader.watchableLocations();
+        final List<RawMigrationScript<?>> rawMigrationScripts = migrationScriptReader.read();
+        final List<ParsedMigration<?>> parsedMigrations = List.copyOf(migrationScriptParser.parse(rawMigrationScripts));
+        final List<ParsedMigration<?>> others = new ArrayList<>();
+        for (int i = 0; i < rawMigrationScripts.size(); i++) {
+            final ParsedMigration<?> parsedMigration = parsedMigrations.get(i);
+            watchedFile(rawMigrationScripts.get(i)).ifPresentOrElse(
+                    watched -> fileMigrations.put(watched.file(), watched.withParsed(parsedMigration)),
+                    () -> others.add(parsedMigration));
+        }
+        otherMigrations = List.copyOf(others);
+
+        final int executed = migrate();
+
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            for (Path location : locations) {
+                register(location);
+            }
+        } catch (IOException e) {
+            close();
+            throw new MigrationException("couldn't watch locations " + locations, e);
+        }
+        thread = new Thread(this::watch, "elasticsearch-evolution-watch");
+        thread.setDaemon(true);
+        thread.start();
+        logger.info("watching locations {} for changed migrations...", locations);
+        return executed;
+    }
+
+    /**
+     * Stops watching.
+     */
+    @Override
+    public synchronized void close() {
+        if (null != watchService) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                logger.warn("couldn't close watch service", e);
+            }
+        }
+        if (null != thread) {
+            thread.interrupt();
+        }
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                final Set<Path> changed = new LinkedHashSet<>();
+                collect(watchService.take(), changed);
+                WatchKey key;
+                while (null != (key = watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS))) {
+                    collect(key, changed);
+                }
+                try {
+                    migrateChanges(changed);
+                } catch (RuntimeException e) {
+                    logger.error("migration of changed migration scripts failed, waiting for further changes...", e);
+                }
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            logger.info("stopped watching locations {}", locations);
+        }
+    }
+
+    private void collect(WatchKey key, Set<Path> changed) {
+        final Path directory = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // events are lost, so everything must be checked
+                changed.add(directory);
+            } else {
+                final Path path = directory.resolve((Path) event.context());
+                if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+                    try {
+                        register(path);
+                    } catch (IOException e) {
+                        logger.warn("couldn't watch directory '{}'", path, e);
+                    }
+                }
+                changed.add(path);
+            }
+        }
+        key.reset();
+    }
+
+    private void register(Path directory) throws IOException {
+        try (Stream<Path> directories = Files.walk(directory)) {
+            for (Path subDirectory : (Iterable<Path>) directories.filter(Files::isDirectory)::iterator) {
+                subDirectory.register(watchService,
+                        StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE,
+                        StandardWatchEventKinds.ENTRY_MODIFY);
+            }
+        }
+    }
+
+    /**
+     * Reads and parses the changed files (or all files of changed directories) again and executes the pending
+     * migrations, if a migration was added, changed or removed.
+     *
+     * @param changed changed files and directories
+     * @return The number of successfully applied migrations.
+     * @throws MigrationException when the migration failed.
+     */
+    synchronized int migrateChanges(Collection<Path> changed) throws MigrationException {
+        final Set<Path> files = new LinkedHashSet<>();
+        boolean modified = false;
+        for (Path path : changed) {
+            final Path absolutePath = path.toAbsolutePath().normalize();
+            // deleted files and files of deleted directories
+            modified |= fileMigrations.keySet().removeIf(file -> file.startsWith(absolutePath) && !Files.isRegularFile(file));
+            if (Files.isDirectory(absolutePath)) {
+                try (Stream<Path> directoryFiles = Files.walk(absolutePath)) {
+                    directoryFiles.filter(Files::isRegularFile).forEach(files::add);
+                } catch (IOException e) {
+                    logger.warn("couldn't read directory '{}'", absolutePath, e);
+                }
+            } else {
+                files.add(absolutePath);
+            }
+        }
+
+        final Map<Path, WatchedMigration> read = new HashMap<>();
+        for (RawMigrationScript<?> rawMigrationScript : migrationScriptReader.read(files)) {
+            watchedFile(rawMigrationScript).ifPresent(watched -> {
+                final WatchedMigration existing = fileMigrations.get(watched.file());
+                // unchanged size and modification time, e.g. only the file attributes changed
+                read.put(watched.file(), null != existing && null != existing.sourceStamp() && existing.sourceStamp().equals(watched.sourceStamp())
+                        ? existing
+                        : watched);
+            });
+        }
+        // files which are no migrations (anymore), e.g. renamed or emptied
+        for (Path file : files) {
+            if (!read.containsKey(file) && null != fileMigrations.remove(file)) {
+                modified = true;
+            }
+        }
+        final List<WatchedMigration> toParse = read.values().stream()
+                .filter(watched -> null == watched.parsedMigration())
+                .toList();
+        if (!toParse.isEmpty()) {
+            final List<ParsedMigration<?>> parsed = List.copyOf(migrationScriptParser.parse(toParse.stream()
+                    .<RawMigrationScript<?>>map(WatchedMigration::rawMigrationScript)
+                    .toList()));
+            for (int i = 0; i < toParse.size(); i++) {
+                fileMigrations.put(toParse.get(i).file(), toParse.get(i).withParsed(parsed.get(i)));
+            }
+            modified = true;
+        }
+
+        if (!modified) {
+            logger.debug("no migration script changed in {}", changed);
+            return 0;
+        }
+        logger.info("{} migration scripts changed, execute migration scripts...", toParse.size());
+        return migrate();
+    }
+
+    private int migrate() {
+        final List<ParsedMigration<?>> migrations = new ArrayList<>(otherMigrations.size() + fileMigrations.size());
+        migrations.addAll(otherMigrations);
+        fileMigrations.values().forEach(watched -> migrations.add(watched.parsedMigration()));
+        final List<MigrationScriptProtocol> executedScripts = migrationService.executePendingScripts(migrations);
+        return (int) executedScripts.stream()
+                .filter(MigrationScriptProtocol::isSuccess)
+                .count();
+    }
+
+    /**
+     * @return the migration, if it was read from a file in one of the watched locations
+     */
+    private Optional<WatchedMigration> watchedFile(RawMigrationScript<?> rawMigrationScript) {
+        if (rawMigrationScript.getContent() instanceof ScriptMigrationContent content && null != content.source()) {
+            try {
+                final Path file = Path.of(content.source()).normalize();
+                if (file.isAbsolute() && locations.stream().anyMatch(file::startsWith)) {
+                    return Optional.of(new WatchedMigration(file, content.sourceStamp(), rawMigrationScript, null));
+                }
+            } catch (InvalidPathException e) {
+                // e.g. a URL of a classpath resource
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * @param parsedMigration the parsed migration or null, if not parsed yet
+     */
+    private record WatchedMigration(Path file,
+                                    String sourceStamp,
+                                    RawMigrationScript<?> rawMigrationScript,
+                                    ParsedMigration<?> parsedMigration) {
+        WatchedMigration withParsed(ParsedMigration<?> parsed) {
+            return new WatchedMigration(file, sourceStamp, rawMigrationScript, parsed);
+        }
+    }
+}
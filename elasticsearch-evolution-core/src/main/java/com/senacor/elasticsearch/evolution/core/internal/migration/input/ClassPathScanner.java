@@ -0,0 +1,96 @@
+package com.senacor.elasticsearch.evolution.core.internal.migration.input;
+
+import io.github.classgraph.ClassGraph;
+import io.github.classgraph.ScanResult;
+import lombok.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Scans the classpath for migrations with a single ClassGraph scan covering all locations.
+ * <p>
+ * ClassGraph scans on its own worker pool. Shared scans are cached and reused by all
+ * {@link MigrationScriptReaderImpl} instances in this JVM.
+ * <p>
+ * Shared scans live until they are removed with {@link #clearSharedScans()} or {@link #clearSharedScans(ClassLoader)}.
+ * A shared scan references its classloader, so applications which are redeployed within the same JVM (e.g. in an
+ * application server) must clear the scans of their classloader on undeploy, otherwise the classloader can not be
+ * garbage collected.
+ */
+public final class ClassPathScanner {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClassPathScanner.class);
+
+    private static final Map<ScanKey, ScanResult> SHARED_SCANS = new ConcurrentHashMap<>();
+
+    private ClassPathScanner() {
+    }
+
+    /**
+     * Scans the given paths and their sub paths once.
+     *
+     * @param classLoader classloader to scan, is part of the key of shared scans
+     * @param paths       paths to scan, e.g. {@code es/migration/}
+     * @param withClasses whether to scan for classes, too, otherwise only resources are scanned
+     * @param shared      whether the scan should be cached and shared. Shared scans must not be closed by the caller,
+     *                    not shared scans must be closed by the caller.
+     * @return the scan result
+     */
+    static ScanResult scan(@NonNull ClassLoader classLoader,
+                           @NonNull SortedSet<String> paths,
+                           boolean withClasses,
+                           boolean shared) {
+        if (!shared) {
+            return doScan(classLoader, paths, withClasses);
+        }
+        return SHARED_SCANS.computeIfAbsent(new ScanKey(classLoader, new TreeSet<>(paths), withClasses),
+                key -> doScan(key.classLoader(), key.paths(), key.withClasses()));
+    }
+
+    /**
+     * Closes and removes all shared scans, e.g. after the classpath has changed.
+     */
+    public static void clearSharedScans() {
+        SHARED_SCANS.keySet().forEach(ClassPathScanner::closeSharedScan);
+    }
+
+    /**
+     * Closes and removes the shared scans of the given classloader, e.g. when the application using it is undeployed.
+     *
+     * @param classLoader the classloader, whose scans are removed
+     */
+    public static void clearSharedScans(@NonNull ClassLoader classLoader) {
+        SHARED_SCANS.keySet().stream()
+                .filter(key -> key.classLoader() == classLoader)
+                .forEach(ClassPathScanner::closeSharedScan);
+    }
+
+    private static void closeSharedScan(ScanKey key) {
+        final ScanResult scanResult = SHARED_SCANS.remove(key);
+        if (null != scanResult) {
+            scanResult.close();
+        }
+    }
+
+    private static ScanResult doScan(ClassLoader classLoader, SortedSet<String> paths, boolean withClasses) {
+        logger.debug("scanning classpath paths {} of {} (withClasses={})...", paths, classLoader, withClasses);
+        final ClassGraph classGraph = new ClassGraph()
+                // the classloader and its parents are scanned, like they are used to load the migrations afterward
+                .overrideClassLoaders(classLoader)
+                .acceptPaths(paths.toArray(new String[0]));
+        if (withClasses) {
+            classGraph.enableClassInfo()
+                    .enableMethodInfo()
+                    .enableAnnotationInfo();
+        }
+        return classGraph.scan();
+    }
+
+    private record ScanKey(ClassLoader classLoader, SortedSet<String> paths, boolean withClasses) {
+    }
+}
@@ -0,0 +1,204 @@
+package com.senacor.elasticsearch.evolution.core.internal.migration.input;
+
+import lombok.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.JarURLConnection;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Scans a single classpath location without ClassGraph.
+ * <p>
+ * The location is resolved with {@link ClassLoader#getResources(String)} and the entries of the resulting directories
+ * and jar files are enumerated directly. Nothing is read but the entries of the location itself, so this is much
+ * cheaper than a ClassGraph scan. Classloaders returning other URLs, e.g. of application servers or OSGi containers,
+ * are not supported and the caller has to fall back to ClassGraph.
+ */
+final class LightweightClassPathScanner {
+
+    private static final Logger logger = LoggerFactory.getLogger(LightweightClassPathScanner.class);
+
+    private static final String CLASS_FILE_SUFFIX = ".class";
+
+    private LightweightClassPathScanner() {
+    }
+
+    /**
+     * Scans the given location and its sub paths.
+     *
+     * @param classLoader     classloader to resolve the location with
+     * @param location        location path ending with '/', e.g. {@code es/migration/}
+     * @param isValidFilename filter for the file names of script resources, other resources are not returned
+     * @param withClasses     whether to return the class files of the location, too
+     * @return the entries of the location or empty, if the location can't be scanned without ClassGraph
+     * @throws IOException if a directory or jar file of the location can't be read
+     */
+    static Optional<LocationScan> scan(@NonNull ClassLoader classLoader,
+                                       @NonNull String location,
+                                       @NonNull Predicate<String> isValidFilename,
+                                       boolean withClasses) throws IOException {
+        final List<URL> roots = Collections.list(classLoader.getResources(location));
+        if (roots.isEmpty()) {
+            // e.g. jar files without directory entries, only a full scan can tell
+            logger.debug("classpath location '{}' not found, can't scan it without ClassGraph", location);
+            return Optional.empty();
+        }
+        final LocationScan res = new LocationScan(new ArrayList<>(), new ArrayList<>());
+        for (URL root : roots) {
+            if (!scanRoot(root, res, isValidFilename, withClasses)) {
+                logger.debug("classpath location '{}' in {} is not supported, can't scan it without ClassGraph", location, root);
+                return Optional.empty();
+            }
+        }
+        return Optional.of(res);
+    }
+
+    /**
+     * Scans a single directory or jar file entry of a location, e.g. to compare it with a build-time manifest.
+     *
+     * @param root            URL of the location in a directory or jar file, ending with '/'
+     * @param isValidFilename filter for the file names of script resources, other resources are not returned
+     * @return the script resources of the root or empty, if the root can't be scanned without ClassGraph
+     * @throws IOException if the directory or jar file can't be read
+     */
+    static Optional<List<Entry>> scanResources(@NonNull URL root,
+                                               @NonNull Predicate<String> isValidFilename) throws IOException {
+        final LocationScan res = new LocationScan(new ArrayList<>(), new ArrayList<>());
+        return scanRoot(root, res, isValidFilename, false)
+                ? Optional.of(res.resources())
+                : Optional.empty();
+    }
+
+    private static boolean scanRoot(URL root,
+                                    LocationScan res,
+                                    Predicate<String> isValidFilename,
+                                    boolean withClasses) throws IOException {
+        return switch (root.getProtocol()) {
+            case "file" -> scanDirectory(root, res, isValidFilename, withClasses);
+            case "jar" -> scanJarFile(root, res, isValidFilename, withClasses);
+            default -> false;
+        };
+    }
+
+    private static boolean scanDirectory(URL root,
+                                         LocationScan res,
+                                         Predicate<String> isValidFilename,
+                                         boolean withClasses) throws IOException {
+        final Path directory;
+        try {
+            directory = Path.of(root.toURI());
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return false;
+        }
+        if (!Files.isDirectory(directory)) {
+            return false;
+        }
+        Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                final String relativePath = directory.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+                add(root, relativePath, file, attributes.size(), attributes.lastModifiedTime().toMillis(), -1,
+                        res, isValidFilename, withClasses);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return true;
+    }
+
+    private static boolean scanJarFile(URL root,
+                                       LocationScan res,
+                                       Predicate<String> isValidFilename,
+                                       boolean withClasses) throws IOException {
+        final URLConnection connection = root.openConnection();
+        if (!(connection instanceof JarURLConnection jarConnection)) {
+            return false;
+        }
+        // a private, not the classloaders cached jar file, so it can be closed
+        jarConnection.setUseCaches(false);
+        final String entryPrefix = null == jarConnection.getEntryName() ? "" : jarConnection.getEntryName();
+        try (JarFile jarFile = jarConnection.getJarFile()) {
+            final Enumeration<JarEntry> entries = jarFile.entries();
+            while (entries.hasMoreElements()) {
+                final JarEntry entry = entries.nextElement();
+                if (!entry.isDirectory() && entry.getName().startsWith(entryPrefix)) {
+                    add(root, entry.getName().substring(entryPrefix.length()), null, entry.getSize(), entry.getTime(), entry.getCrc(),
+                            res, isValidFilename, withClasses);
+                }
+            }
+        }
+        return true;
+    }
+
+    private static void add(URL root,
+                            String relativePath,
+                            Path file,
+                            long length,
+                            long lastModified,
+                            long crc,
+                            LocationScan res,
+                            Predicate<String> isValidFilename,
+                            boolean withClasses) throws IOException {
+        final String fileName = relativePath.substring(relativePath.lastIndexOf('/') + 1);
+        if (withClasses && fileName.endsWith(CLASS_FILE_SUFFIX)) {
+            // module-info and package-info are no classes
+            if (!fileName.contains("-")) {
+                res.classes().add(new Entry(relativePath, fileName, resolve(root, relativePath), file, length, lastModified, crc));
+            }
+        } else if (length != 0 && isValidFilename.test(fileName)) {
+            res.resources().add(new Entry(relativePath, fileName, resolve(root, relativePath), file, length, lastModified, crc));
+        }
+    }
+
+    private static URL resolve(URL root, String relativePath) throws IOException {
+        try {
+            return new URL(root, new URI(null, null, relativePath, null).getRawPath());
+        } catch (URISyntaxException e) {
+            throw new IOException("invalid classpath entry %s in %s".formatted(relativePath, root), e);
+        }
+    }
+
+    /**
+     * @param resources script resources with a valid file name and content
+     * @param classes   class files, if requested
+     */
+    record LocationScan(List<Entry> resources, List<Entry> classes) {
+    }
+
+    /**
+     * @param relativePath path relative to the location, separated by '/'
+     * @param fileName     file name without path
+     * @param url          URL to read the entry from
+     * @param file         the file, if the entry is in a directory, otherwise null
+     * @param length       size in bytes, -1 if unknown
+     * @param lastModified modification time in milliseconds since the epoch, -1 if unknown
+     * @param crc          CRC-32 of the content of a jar entry, -1 if unknown or the entry is in a directory
+     */
+    record Entry(String relativePath, String fileName, URL url, Path file, long length, long lastModified, long crc) {
+
+        /**
+         * @return the fully qualified name of a class file entry
+         */
+        String className(String location) {
+            final String path = location + relativePath;
+            return path.substring(0, path.length() - CLASS_FILE_SUFFIX.length()).replace('/', '.');
+        }
+    }
+}
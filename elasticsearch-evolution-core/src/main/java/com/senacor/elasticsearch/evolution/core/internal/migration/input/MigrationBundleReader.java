@@ -0,0 +1,415 @@
+package com.senacor.elasticsearch.evolution.core.internal.migration.input;
+
+import com.senacor.elasticsearch.evolution.core.api.MigrationException;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.ContentChecksums;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.ScriptMigrationContent;
+import lombok.NonNull;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Reads migration scripts from a compressed bundle ({@code .zip}, {@code .jar}, {@code .tar}, {@code .tar.gz} or
+ * {@code .tgz}) without extracting it.
+ * <p>
+ * The bundle is streamed once, entries with an invalid file name are skipped without reading them and the checksums
+ * of all other entries are computed while streaming. The raw bytes of small entries are kept, so their content can be
+ * decoded later if it is needed. Large entries are not kept, their content is streamed from the bundle again on
+ * demand.
+ */
+final class MigrationBundleReader {
+
+    /**
+     * entries up to this size are kept in memory while streaming the bundle
+     */
+    static final int KEEP_THRESHOLD = (int) ScriptContentLoader.MEMORY_MAP_THRESHOLD;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ScriptContentLoader contentLoader;
+    private final Predicate<String> isValidFilename;
+
+    /**
+     * @param contentLoader   computes the checksums and loads the content of the entries
+     * @param isValidFilename filter for the file names of the entries, other entries are skipped
+     */
+    MigrationBundleReader(@NonNull ScriptContentLoader contentLoader, @NonNull Predicate<String> isValidFilename) {
+        this.contentLoader = contentLoader;
+        this.isValidFilename = isValidFilename;
+    }
+
+    /**
+     * Streams the bundle once and computes the checksums of all not empty entries with a valid file name.
+     *
+     * @param bundle the bundle file
+     * @return the entries in the order of the bundle
+     * @throws IOException if the bundle can't be read
+     */
+    List<BundleEntry> read(@NonNull Path bundle) throws IOException {
+        final List<BundleEntry> res = new ArrayList<>();
+        try (EntryStream entries = open(bundle)) {
+            String path;
+            for (int index = 0; null != (path = entries.next()); index++) {
+                final String fileName = path.substring(path.lastIndexOf('/') + 1);
+                if (!isValidFilename.test(fileName)) {
+                    continue;
+                }
+                final InputStream content = entries.content();
+                final byte[] head = content.readNBytes(KEEP_THRESHOLD + 1);
+                final Optional<ContentChecksums> checksums;
+                final byte[] bytes;
+                final long size;
+                if (head.length <= KEEP_THRESHOLD) {
+                    checksums = contentLoader.checksums(head);
+                    bytes = head;
+                    size = head.length;
+                } else {
+                    final long[] restSize = new long[1];
+                    // SequenceInputStream closes exhausted streams, but the bundle must stay open
+                    final InputStream rest = new FilterInputStream(content) {
+                        @Override
+                        public int read(byte[] b, int off, int len) throws IOException {
+                            final int read = super.read(b, off, len);
+                            restSize[0] += Math.max(0, read);
+                            return read;
+                        }
+
+                        @Override
+                        public void close() {
+                        }
+                    };
+                    checksums = contentLoader.checksums(new SequenceInputStream(new ByteArrayInputStream(head), rest));
+                    bytes = null;
+                    size = head.length + restSize[0];
+                }
+                if (checksums.isPresent()) {
+                    res.add(new BundleEntry(index, path, fileName, checksums.get(), bytes, size));
+                }
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Loads the content of an entry. The content of large entries is streamed from the bundle again.
+     *
+     * @param bundle the bundle file, the entry was read from
+     * @param entry  the entry
+     * @return the content or empty, if the entry is empty
+     * @throws IOException if the bundle can't be read
+     */
+    Optional<ScriptMigrationContent> load(@NonNull Path bundle, @NonNull BundleEntry entry) throws IOException {
+        if (null != entry.bytes()) {
+            return contentLoader.load(entry.bytes());
+        }
+        try (EntryStream entries = open(bundle)) {
+            for (int index = 0; null != entries.next(); index++) {
+                if (index == entry.index()) {
+                    return contentLoader.load(entries.content());
+                }
+            }
+        }
+        throw new IOException("entry %s not found in bundle %s".formatted(entry.path(), bundle));
+    }
+
+    /**
+     * Opens the raw content of an entry without loading it. The content of large entries is streamed from the bundle,
+     * closing the returned stream closes the bundle.
+     *
+     * @param bundle the bundle file, the entry was read from
+     * @param entry  the entry
+     * @return the raw content of the entry, must be closed by the caller
+     * @throws IOException if the bundle can't be read
+     */
+    InputStream openEntry(@NonNull Path bundle, @NonNull BundleEntry entry) throws IOException {
+        if (null != entry.bytes()) {
+            return new ByteArrayInputStream(entry.bytes());
+        }
+        final EntryStream entries = open(bundle);
+        try {
+            for (int index = 0; null != entries.next(); index++) {
+                if (index == entry.index()) {
+                    return new FilterInputStream(entries.content()) {
+                        @Override
+                        public void close() throws IOException {
+                            entries.close();
+                        }
+                    };
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            entries.close();
+            throw e;
+        }
+        entries.close();
+        throw new IOException("entry %s not found in bundle %s".formatted(entry.path(), bundle));
+    }
+
+    private static EntryStream open(Path bundle) throws IOException {
+        final String name = bundle.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".zip") || name.endsWith(".jar")) {
+            return new ZipEntryStream(new ZipInputStream(new BufferedInputStream(Files.newInputStream(bundle), BUFFER_SIZE)));
+        } else if (name.endsWith(".tar.gz") || name.endsWith(".tgz")) {
+            return new TarEntryStream(new GZIPInputStream(Files.newInputStream(bundle), BUFFER_SIZE));
+        } else if (name.endsWith(".tar")) {
+            return new TarEntryStream(new BufferedInputStream(Files.newInputStream(bundle), BUFFER_SIZE));
+        }
+        throw new MigrationException("unsupported bundle format: %s, supported are .zip, .jar, .tar, .tar.gz and .tgz".formatted(bundle));
+    }
+
+    /**
+     * @param index     index of the entry among the regular file entries of the bundle
+     * @param path      path of the entry in the bundle
+     * @param fileName  file name of the entry without path
+     * @param checksums checksums of the content
+     * @param bytes     raw bytes of the entry or null, if the entry is too large to be kept
+     * @param size      size of the entry in bytes
+     */
+    record BundleEntry(int index, String path, String fileName, ContentChecksums checksums, byte[] bytes, long size) {
+    }
+
+    /**
+     * sequential access to the regular file entries of a bundle
+     */
+    private interface EntryStream extends Closeable {
+        /**
+         * skips the rest of the current entry and moves to the next regular file entry
+         *
+         * @return the path of the next entry or null, if there are no more entries
+         */
+        String next() throws IOException;
+
+        /**
+         * @return the content of the current entry, must not be closed
+         */
+        InputStream content();
+    }
+
+    private static final class ZipEntryStream implements EntryStream {
+        private final ZipInputStream in;
+
+        ZipEntryStream(ZipInputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public String next() throws IOException {
+            ZipEntry entry;
+            while (null != (entry = in.getNextEntry())) {
+                if (!entry.isDirectory()) {
+                    return entry.getName();
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public InputStream content() {
+            return in;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * Minimal reader of POSIX (ustar, pax) and GNU tar archives, only regular files are returned.
+     */
+    private static final class TarEntryStream extends InputStream implements EntryStream {
+        private static final int BLOCK_SIZE = 512;
+
+        private final InputStream in;
+        private final byte[] header = new byte[BLOCK_SIZE];
+        private long remaining = 0;
+        private long padding = 0;
+
+        TarEntryStream(InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public String next() throws IOException {
+            String longPath = null;
+            while (true) {
+                in.skipNBytes(remaining + padding);
+                remaining = 0;
+                padding = 0;
+                final int read = in.readNBytes(header, 0, BLOCK_SIZE);
+                if (read == 0 || isZeroBlock()) {
+                    return null;
+                } else if (read < BLOCK_SIZE) {
+                    throw new EOFException("truncated tar header");
+                }
+                final long size = parseSize();
+                remaining = size;
+                padding = (BLOCK_SIZE - size % BLOCK_SIZE) % BLOCK_SIZE;
+                final byte type = header[156];
+                if (type == 'L') {
+                    // GNU long name of the next entry
+                    longPath = parseString(readData(size), 0, (int) size);
+                } else if (type == 'x') {
+                    // pax extended header of the next entry
+                    final String paxPath = parsePaxPath(readData(size));
+                    if (null != paxPath) {
+                        longPath = paxPath;
+                    }
+                } else if (type == '0' || type == 0 || type == '7') {
+                    return null != longPath ? longPath : parsePath();
+                } else {
+                    // directories, links, global pax headers, ...
+                    longPath = null;
+                }
+            }
+        }
+
+        @Override
+        public InputStream content() {
+            return this;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            final int res = in.read();
+            if (res == -1) {
+                throw new EOFException("truncated tar entry");
+            }
+            remaining--;
+            return res;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            final int read = in.read(b, off, (int) Math.min(len, remaining));
+            if (read == -1) {
+                throw new EOFException("truncated tar entry");
+            }
+            remaining -= read;
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        private byte[] readData(long size) throws IOException {
+            if (size > Integer.MAX_VALUE - BLOCK_SIZE) {
+                throw new IOException("tar header too large: " + size);
+            }
+            final byte[] data = in.readNBytes((int) size);
+            if (data.length < size) {
+                throw new EOFException("truncated tar header");
+            }
+            remaining = 0;
+            return data;
+        }
+
+        private boolean isZeroBlock() {
+            for (byte b : header) {
+                if (b != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private String parsePath() {
+            final String name = parseString(header, 0, 100);
+            // ustar splits long paths into prefix and name
+            if ("ustar".equals(parseString(header, 257, 5))) {
+                final String prefix = parseString(header, 345, 155);
+                if (!prefix.isEmpty()) {
+                    return prefix + "/" + name;
+                }
+            }
+            return name;
+        }
+
+        private long parseSize() throws IOException {
+            if ((header[124] & 0x80) != 0) {
+                // GNU base-256 encoding of large sizes
+                long res = 0;
+                for (int i = 125; i < 136; i++) {
+                    res = (res << 8) | (header[i] & 0xFF);
+                }
+                return res;
+            }
+            long res = 0;
+            for (int i = 124; i < 136; i++) {
+                final byte b = header[i];
+                if (b == 0 || b == ' ') {
+                    if (res > 0) {
+                        break;
+                    }
+                } else if (b >= '0' && b <= '7') {
+                    res = (res << 3) | (b - '0');
+                } else {
+                    throw new IOException("invalid tar header, size is not octal");
+                }
+            }
+            return res;
+        }
+
+        /**
+         * @return the path of the records {@code "<length> <key>=<value>\n"} or null, if there is none
+         */
+        private static String parsePaxPath(byte[] data) throws IOException {
+            int pos = 0;
+            while (pos < data.length) {
+                int space = pos;
+                while (space < data.length && data[space] != ' ') {
+                    space++;
+                }
+                final int length;
+                try {
+                    length = Integer.parseInt(new String(data, pos, space - pos, StandardCharsets.US_ASCII));
+                } catch (NumberFormatException e) {
+                    throw new IOException("invalid pax header", e);
+                }
+                if (length <= 0 || pos + length > data.length) {
+                    throw new IOException("invalid pax header");
+                }
+                // without the trailing newline
+                final String record = new String(data, space + 1, pos + length - space - 2, StandardCharsets.UTF_8);
+                if (record.startsWith("path=")) {
+                    return record.substring("path=".length());
+                }
+                pos += length;
+            }
+            return null;
+        }
+
+        private static String parseString(byte[] bytes, int offset, int maxLength) {
+            int end = offset;
+            while (end < offset + maxLength && bytes[end] != 0) {
+                end++;
+            }
+            return new String(bytes, offset, end - offset, StandardCharsets.UTF_8);
+        }
+    }
+}
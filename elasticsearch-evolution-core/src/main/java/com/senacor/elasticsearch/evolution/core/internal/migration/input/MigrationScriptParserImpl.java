@@ -3,17 +3,20 @@ package com.senacor.elasticsearch.evolution.core.internal.migration.input;
 import com.senacor.elasticsearch.evolution.core.api.MigrationException;
 import com.senacor.elasticsearch.evolution.core.api.migration.MigrationScriptParser;
 import com.senacor.elasticsearch.evolution.core.api.migration.MigrationVersion;
-import com.senacor.elasticsearch.evolution.core.api.migration.java.JavaMigration;
+import com.senacor.elasticsearch.evolution.core.api.migration.java.JavaMigrationMetadata;
 import com.senacor.elasticsearch.evolution.core.internal.model.FileNameInfo;
 import com.senacor.elasticsearch.evolution.core.internal.model.migration.*;
+import com.senacor.elasticsearch.evolution.core.internal.utils.Interner;
+import com.senacor.elasticsearch.evolution.core.internal.utils.ParallelMapper;
 import com.senacor.elasticsearch.evolution.rest.abstraction.HttpMethod;
 import lombok.NonNull;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicReference;
-import java.util.stream.Collectors;
+import java.util.Optional;
 
 import static com.senacor.elasticsearch.evolution.core.internal.utils.AssertionUtils.requireCondition;
 import static com.senacor.elasticsearch.evolution.core.internal.utils.AssertionUtils.requireNotBlank;
@@ -28,16 +31,21 @@ public class MigrationScriptParserImpl implements MigrationScriptParser {
 
     private static final String VERSION_DESCRIPTION_SEPARATOR = "__";
 
+    private static final HttpMethod[] HTTP_METHODS = HttpMethod.values();
+
     private final String esMigrationPrefix;
     private final List<String> esMigrationSuffixes;
-    private final Map<String, String> placeholders;
-    private final String placeholderPrefix;
-    private final String placeholderSuffix;
-    private final boolean placeholderReplacement;
+    private final PlaceholderReplacer placeholderReplacer;
     private final String lineSeparator;
+    private final ParallelMapper parallelMapper;
+    private final ParsedMigrationCache cache;
+    /**
+     * shares HTTP headers, which occur in many migrations
+     */
+    private final Interner interner = new Interner();
 
     /**
-     * create Parser
+     * create Parser, which parses all migrations sequentially
      */
     public MigrationScriptParserImpl(String esMigrationPrefix,
                                      List<String> esMigrationSuffixes,
@@ -46,32 +54,94 @@ public class MigrationScriptParserImpl implements MigrationScriptParser {
                                      String placeholderSuffix,
                                      boolean placeholderReplacement,
                                      String lineSeparator) {
+        this(esMigrationPrefix, esMigrationSuffixes, placeholders, placeholderPrefix, placeholderSuffix,
+                placeholderReplacement, lineSeparator, ParallelMapper.SEQUENTIAL);
+    }
+
+    /**
+     * create Parser
+     *
+     * @param parallelMapper used to parse the migrations concurrently
+     */
+    public MigrationScriptParserImpl(String esMigrationPrefix,
+                                     List<String> esMigrationSuffixes,
+                                     Map<String, String> placeholders,
+                                     String placeholderPrefix,
+                                     String placeholderSuffix,
+                                     boolean placeholderReplacement,
+                                     String lineSeparator,
+                                     @NonNull ParallelMapper parallelMapper) {
+        this(esMigrationPrefix, esMigrationSuffixes, placeholders, placeholderPrefix, placeholderSuffix,
+                placeholderReplacement, lineSeparator, parallelMapper, null, false);
+    }
+
+    /**
+     * create Parser
+     *
+     * @param parallelMapper               used to parse the migrations concurrently
+     * @param cache                        on-disk cache of parsed migration scripts, null to always parse scripts
+     * @param reportUnresolvedPlaceholders whether to log a warning for placeholders without value
+     */
+    public MigrationScriptParserImpl(String esMigrationPrefix,
+                                     List<String> esMigrationSuffixes,
+                                     Map<String, String> placeholders,
+                                     String placeholderPrefix,
+                                     String placeholderSuffix,
+                                     boolean placeholderReplacement,
+                                     String lineSeparator,
+                                     @NonNull ParallelMapper parallelMapper,
+                                     ParsedMigrationCache cache,
+                                     boolean reportUnresolvedPlaceholders) {
+        this.parallelMapper = parallelMapper;
+        this.cache = cache;
         this.esMigrationPrefix = esMigrationPrefix;
         this.esMigrationSuffixes = esMigrationSuffixes;
-        this.placeholders = placeholders;
-        this.placeholderPrefix = placeholderPrefix;
-        this.placeholderSuffix = placeholderSuffix;
-        this.placeholderReplacement = placeholderReplacement;
+        this.placeholderReplacer = placeholderReplacement
+                ? new PlaceholderReplacer(placeholders, placeholderPrefix, placeholderSuffix, reportUnresolvedPlaceholders)
+                : null;
         this.lineSeparator = lineSeparator;
     }
 
+    /**
+     * Parses the file names of all migrations. The content of script migrations is loaded and parsed lazily, when the
+     * migration request is accessed, which is only the case for migrations which will be executed.
+     */
     @Override
     public Collection<ParsedMigration<?>> parse(Collection<RawMigrationScript<?>> rawMigrationScripts) {
         requireNonNull(rawMigrationScripts, "rawMigrationScripts must not be null");
-        return rawMigrationScripts.stream()
-                .map(this::parse)
-                .collect(Collectors.toUnmodifiableList());
+        return List.copyOf(parallelMapper.map(List.copyOf(rawMigrationScripts), this::parseLazily));
     }
 
     ParsedMigration<?> parse(RawMigrationScript<?> rawMigrationScript) {
-        if (rawMigrationScript.getContent() instanceof ScriptMigrationContent scriptMigrationContent) {
-            return new ParsedMigration<>()
+        final ParsedMigration<?> res = parseLazily(rawMigrationScript);
+        res.getMigrationRequest();
+        return res;
+    }
+
+    private ParsedMigration<?> parseLazily(RawMigrationScript<?> rawMigrationScript) {
+        if (rawMigrationScript.getContent() instanceof ScriptMigrationContent scriptMigrationContent
+                && BulkMigrationRequest.isBulkMigration(rawMigrationScript.getFileName())) {
+            // bulk data is streamed on execution, it is neither parsed nor cached and placeholders are not replaced
+            return new ParsedMigration<MigrationRequest>()
                     .setFileNameInfo(parseFileNameFromScriptMigration(rawMigrationScript.getFileName()))
-                    .setChecksum(rawMigrationScript.getContent().checksum())
-                    .setMigrationRequest(parseContent(scriptMigrationContent));
+                    .setLazyChecksum(scriptMigrationContent::checksum)
+                    .setLazyContentChecksum(scriptMigrationContent::contentChecksum)
+                    .setMigrationRequest(new BulkMigrationRequest(scriptMigrationContent));
+        } else if (rawMigrationScript.getContent() instanceof ScriptMigrationContent scriptMigrationContent) {
+            // the checksums are always computed from the content, the cache only avoids parsing it again
+            return new ParsedMigration<MigrationRequest>()
+                    .setFileNameInfo(parseFileNameFromScriptMigration(rawMigrationScript.getFileName()))
+                    .setLazyChecksum(scriptMigrationContent::checksum)
+                    .setLazyContentChecksum(scriptMigrationContent::contentChecksum)
+                    .setLazyMigrationRequest(() -> compact(scriptMigrationContent,
+                            parseStreamed(rawMigrationScript.getFileName(), scriptMigrationContent)
+                                    .orElseGet(() -> null == cache
+                                            ? parseContent(rawMigrationScript.getFileName(), scriptMigrationContent)
+                                            : cache.request(scriptMigrationContent,
+                                            content -> parseContent(rawMigrationScript.getFileName(), content)))));
         } else if (rawMigrationScript.getContent() instanceof JavaMigrationRequestContent javaMigrationRequestContent) {
             return new ParsedMigration<>()
-                    .setFileNameInfo(parseFileNameFromJavaMigration(rawMigrationScript.getFileName(), javaMigrationRequestContent.javaMigration()))
+                    .setFileNameInfo(parseFileNameFromJavaMigration(rawMigrationScript.getFileName(), javaMigrationRequestContent.metadata()))
                     .setChecksum(rawMigrationScript.getContent().checksum())
                     .setMigrationRequest(javaMigrationRequestContent);
         }
@@ -79,74 +149,256 @@ public class MigrationScriptParserImpl implements MigrationScriptParser {
         throw new IllegalStateException("Unsupported migration content type: '%s'".formatted(rawMigrationScript.getContent().getClass().getName()));
     }
 
-    private MigrationScriptRequest parseContent(ScriptMigrationContent scriptMigrationContent) {
-        String contentReplaced = placeholderReplacement
-                ? replaceParams(scriptMigrationContent.content())
+    /**
+     * Shares equal HTTP headers of all parsed requests and releases the raw content of the script, which is loaded
+     * again, if the request is parsed again after it was released.
+     *
+     * @return the given request
+     */
+    private MigrationRequest compact(ScriptMigrationContent scriptMigrationContent, MigrationRequest request) {
+        if (request instanceof MigrationScriptRequest migrationScriptRequest) {
+            shareHttpHeader(migrationScriptRequest);
+        } else if (request instanceof MigrationScriptRequests migrationScriptRequests) {
+            migrationScriptRequests.requests().forEach(this::shareHttpHeader);
+        }
+        scriptMigrationContent.release();
+        return request;
+    }
+
+    private void shareHttpHeader(MigrationScriptRequest request) {
+        request.setSharedHttpHeader(interner.intern(request.getHttpHeader()));
+    }
+
+    /**
+     * Large scripts are not loaded, the body is streamed from the script, when the request is executed. Streamed
+     * requests are not cached.
+     *
+     * @return the request with a streamed body or empty, if the script is not large or can't be streamed
+     */
+    private Optional<MigrationRequest> parseStreamed(String fileName, ScriptMigrationContent scriptMigrationContent) {
+        if (!scriptMigrationContent.isStreamable()
+                || !StreamedScriptParser.isSupported(lineSeparator)
+                || (null != placeholderReplacer && !placeholderReplacer.isStreamable())) {
+            return Optional.empty();
+        }
+        try {
+            return new StreamedScriptParser(fileName, scriptMigrationContent, placeholderReplacer, lineSeparator)
+                    .parse()
+                    .map(MigrationRequest.class::cast);
+        } catch (IOException e) {
+            throw new MigrationException("can't read migration script: " + fileName, e);
+        }
+    }
+
+    /**
+     * Parses the content in a single pass over its characters. Lines are separated by the line separator, lines
+     * starting with '#' or '//' are comments and are ignored everywhere, even in the body. The body is sliced out of
+     * the content, it is only copied piecewise if comments must be removed from it.
+     * <p>
+     * A script may contain several requests in Kibana console style: every line after the first request, which starts
+     * with an upper case HTTP method followed by a space (e.g. 'PUT /my_index'), starts the next request. Trailing
+     * whitespace is removed from the bodies of all requests but the last one.
+     *
+     * @return a {@link MigrationScriptRequest} or {@link MigrationScriptRequests}, if the script contains several requests
+     */
+    private MigrationRequest parseContent(String fileName, ScriptMigrationContent scriptMigrationContent) {
+        final String content = null != placeholderReplacer
+                ? placeholderReplacer.replace(fileName, scriptMigrationContent.content())
                 : scriptMigrationContent.content();
+        // the previous requests, only if the script contains several requests
+        List<MigrationScriptRequest> requests = null;
         MigrationScriptRequest res = new MigrationScriptRequest();
+        final int separatorLength = lineSeparator.length();
 
-        final AtomicReference<ParseState> state = new AtomicReference<>(ParseState.METHOD_PATH);
-        for (String line : contentReplaced.split(lineSeparator, -1)) {
-            if (!line.trim().startsWith("#") && !line.trim().startsWith("//")) {
-                switch (state.get()) {
+        ParseState state = ParseState.METHOD_PATH;
+        // the current body part without comments, starts with the first not empty body line
+        int bodyStart = -1;
+        int bodyEnd = -1;
+        // previous body parts, only needed if comments are removed from the body
+        StringBuilder body = null;
+        int lineStart = 0;
+        while (true) {
+            final int separatorIndex = separatorLength == 0 ? -1 : content.indexOf(lineSeparator, lineStart);
+            final int lineEnd = separatorIndex < 0 ? content.length() : separatorIndex;
+            final int trimmedStart = trimStart(content, lineStart, lineEnd);
+            final int trimmedEnd = trimEnd(content, trimmedStart, lineEnd);
+            if (!isComment(content, trimmedStart, trimmedEnd)) {
+                if (state != ParseState.METHOD_PATH && isMethodLine(content, lineStart, trimmedStart, trimmedEnd)) {
+                    final String previousBody = body(content, bodyStart, bodyEnd, body);
+                    if (null != previousBody) {
+                        res.setBody(previousBody.stripTrailing());
+                    }
+                    if (null == requests) {
+                        requests = new ArrayList<>();
+                    }
+                    requests.add(res);
+                    res = new MigrationScriptRequest();
+                    bodyStart = -1;
+                    bodyEnd = -1;
+                    body = null;
+                    state = ParseState.METHOD_PATH;
+                }
+                switch (state) {
                     case METHOD_PATH -> {
-                        parseMethodWithPath(res, line);
-                        state.set(ParseState.HEADER);
+                        parseMethodWithPath(res, content, lineStart, lineEnd, trimmedStart, trimmedEnd);
+                        state = ParseState.HEADER;
                     }
                     case HEADER -> {
-                        if (line.trim().isEmpty()) {
-                            state.set(ParseState.CONTENT);
+                        if (trimmedStart == trimmedEnd) {
+                            state = ParseState.CONTENT;
                         } else {
-                            parseHeader(res, line);
+                            parseHeader(res, content, lineStart, lineEnd, trimmedStart, trimmedEnd);
                         }
                     }
                     case CONTENT -> {
-                        if (!res.isBodyEmpty()) {
-                            res.addToBody(lineSeparator);
+                        if (bodyStart < 0) {
+                            // empty lines at the beginning of the body are ignored
+                            if (lineStart < lineEnd) {
+                                bodyStart = lineStart;
+                                bodyEnd = lineEnd;
+                            }
+                        } else if (bodyEnd + separatorLength == lineStart) {
+                            bodyEnd = lineEnd;
+                        } else {
+                            // comments were removed between the current body part and this line
+                            if (null == body) {
+                                body = new StringBuilder();
+                            }
+                            body.append(content, bodyStart, bodyEnd).append(lineSeparator);
+                            bodyStart = lineStart;
+                            bodyEnd = lineEnd;
                         }
-                        res.addToBody(line);
                     }
                     default -> throw new UnsupportedOperationException("state '" + state + "' not supported");
                 }
             }
+            if (separatorIndex < 0) {
+                break;
+            }
+            lineStart = separatorIndex + separatorLength;
         }
-        return res;
+
+        final String lastBody = body(content, bodyStart, bodyEnd, body);
+        if (null != lastBody) {
+            res.setBody(lastBody);
+        }
+        if (null == requests) {
+            return res;
+        }
+        requests.add(res);
+        return new MigrationScriptRequests(requests);
+    }
+
+    /**
+     * @return the body of the current request or null, if it has no body
+     */
+    private static String body(String content, int bodyStart, int bodyEnd, StringBuilder body) {
+        if (bodyStart < 0) {
+            return null;
+        }
+        return null == body
+                ? content.substring(bodyStart, bodyEnd)
+                : body.append(content, bodyStart, bodyEnd).toString();
+    }
+
+    /**
+     * @return whether the line starts with an upper case HTTP method followed by a space, without indentation
+     */
+    static boolean isMethodLine(String content, int lineStart, int trimmedStart, int trimmedEnd) {
+        if (lineStart != trimmedStart) {
+            return false;
+        }
+        for (HttpMethod method : HTTP_METHODS) {
+            final int methodEnd = trimmedStart + method.name().length();
+            if (methodEnd < trimmedEnd
+                    && content.charAt(methodEnd) == ' '
+                    && content.startsWith(method.name(), trimmedStart)) {
+                return true;
+            }
+        }
+        return false;
     }
 
-    private void parseHeader(MigrationScriptRequest res, String line) {
-        String[] header = line.trim().split("[:=]", 2);
-        if (header.length != 2) {
+    static void parseHeader(MigrationScriptRequest res, String content, int lineStart, int lineEnd,
+                            int trimmedStart, int trimmedEnd) {
+        int separatorIndex = -1;
+        for (int i = trimmedStart; i < trimmedEnd; i++) {
+            final char c = content.charAt(i);
+            if (c == ':' || c == '=') {
+                separatorIndex = i;
+                break;
+            }
+        }
+        if (separatorIndex < 0) {
             throw new MigrationException(
                     "can't parse header: '%s'. Header must be separated by ':' and should look like this: 'Content-Type: application/json'".formatted(
-                    line));
+                    content.substring(lineStart, lineEnd)));
         }
-        res.addHttpHeader(header[0].trim(), header[1].trim());
+        res.addHttpHeader(trimmed(content, trimmedStart, separatorIndex),
+                trimmed(content, separatorIndex + 1, trimmedEnd));
     }
 
-    private void parseMethodWithPath(MigrationScriptRequest res, String line) {
-        String[] methodAndPath = line.trim().split(" +", 2);
-        if (methodAndPath.length != 2) {
+    static void parseMethodWithPath(MigrationScriptRequest res, String content, int lineStart, int lineEnd,
+                                    int trimmedStart, int trimmedEnd) {
+        final int spaceIndex = content.indexOf(' ', trimmedStart);
+        if (spaceIndex < 0 || spaceIndex >= trimmedEnd) {
             throw new MigrationException(
                     "can't parse method and path: '%s'. Method and path must be separated by space and should look like this: 'PUT /my_index'".formatted(
-                    line));
+                    content.substring(lineStart, lineEnd)));
+        }
+        int pathStart = spaceIndex;
+        while (content.charAt(pathStart) == ' ') {
+            pathStart++;
         }
-        res.setHttpMethod(HttpMethod.create(methodAndPath[0]))
-                .setPath(methodAndPath[1].trim());
+        res.setHttpMethod(HttpMethod.create(content.substring(trimmedStart, spaceIndex)))
+                .setPath(trimmed(content, pathStart, trimmedEnd));
     }
 
-    FileNameInfo parseFileNameFromScriptMigration(String fileName) {
+    static boolean isComment(String content, int trimmedStart, int trimmedEnd) {
+        return trimmedStart < trimmedEnd
+                && (content.charAt(trimmedStart) == '#'
+                || (content.charAt(trimmedStart) == '/' && trimmedStart + 1 < trimmedEnd && content.charAt(trimmedStart + 1) == '/'));
+    }
+
+    /**
+     * @return the range like {@link String#trim()}
+     */
+    private static String trimmed(String content, int start, int end) {
+        final int trimmedStart = trimStart(content, start, end);
+        return content.substring(trimmedStart, trimEnd(content, trimmedStart, end));
+    }
+
+    static int trimStart(String content, int start, int end) {
+        while (start < end && content.charAt(start) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    static int trimEnd(String content, int start, int end) {
+        while (end > start && content.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * @return version and description from the file name of a migration script
+     * @throws MigrationException if the file name is invalid
+     */
+    public FileNameInfo parseFileNameFromScriptMigration(String fileName) {
         return parseFileName(fileName,
                 esMigrationPrefix,
                 VERSION_DESCRIPTION_SEPARATOR,
-                esMigrationSuffixes);
+                BulkMigrationRequest.isBulkMigration(fileName) ? List.of(BulkMigrationRequest.FILE_SUFFIX) : esMigrationSuffixes);
     }
 
     private FileNameInfo parseFileNameFromJavaMigration(String fileName,
-                                                        @NonNull JavaMigration javaMigration) {
-        if (javaMigration.getMetadata() != null) {
-            // Use version and description from JavaMigration implementation
-            final MigrationVersion version = requireMajorVersionIsGreaterThan0(javaMigration.getMetadata().version(), fileName);
-            final String description = requireNotBlank(javaMigration.getMetadata().description(),
+                                                        JavaMigrationMetadata metadata) {
+        if (metadata != null) {
+            // Use version and description from JavaMigration implementation or its JavaMigrationInfo annotation
+            final MigrationVersion version = requireMajorVersionIsGreaterThan0(metadata.version(), fileName);
+            final String description = requireNotBlank(metadata.description(),
                     "defined description in JavaMigration file '%s' must not be blank", fileName);
             return new FileNameInfoImpl(version, description, fileName);
         }
@@ -159,10 +411,7 @@ public class MigrationScriptParserImpl implements MigrationScriptParser {
     }
 
     String replaceParams(String template) {
-        return placeholders.entrySet().stream()
-                .reduce(template,
-                        (s, e) -> s.replace(placeholderPrefix + e.getKey() + placeholderSuffix, e.getValue()),
-                        (s, s2) -> s);
+        return placeholderReplacer.replace(null, template);
     }
 
     /**
@@ -197,13 +446,16 @@ public class MigrationScriptParserImpl implements MigrationScriptParser {
                         + prefix + "1.2" + separator + description + suffixes.get(0) + ")");
 
         MigrationVersion migrationVersion = requireMajorVersionIsGreaterThan0(MigrationVersion.fromVersion(version), migrationName);
-        return new FileNameInfoImpl(migrationVersion, description, migrationName);
+        // the description is derived from the migration name on access, so it is not kept for every migration
+        final int descriptionStart = prefix.length() + separatorPos + separator.length();
+        return FileNameInfoImpl.withDescriptionFromScriptName(migrationVersion, migrationName,
+                descriptionStart, prefix.length() + cleanMigrationName.length());
     }
 
     private static MigrationVersion requireMajorVersionIsGreaterThan0(MigrationVersion migrationVersion,
                                                                       String migrationName) {
         return requireCondition(migrationVersion,
-                vers -> vers.isMajorNewerThan("0"),
+                vers -> vers.getMajor() > 0,
                 "used version '%s' in migration file '%s' is not allowed. Major version must be greater than 0",
                 migrationVersion, migrationName);
     }
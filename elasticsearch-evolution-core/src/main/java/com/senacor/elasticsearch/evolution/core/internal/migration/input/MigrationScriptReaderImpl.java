@@ -1,34 +1,63 @@
 package com.senacor.elasticsearch.evolution.core.internal.migration.input;
 
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.senacor.elasticsearch.evolution.core.api.MigrationException;
 import com.senacor.elasticsearch.evolution.core.api.config.ElasticsearchEvolutionConfig;
 import com.senacor.elasticsearch.evolution.core.api.migration.MigrationScriptReader;
+import com.senacor.elasticsearch.evolution.core.api.migration.MigrationVersion;
 import com.senacor.elasticsearch.evolution.core.api.migration.java.ClassProvider;
 import com.senacor.elasticsearch.evolution.core.api.migration.java.JavaMigration;
+import com.senacor.elasticsearch.evolution.core.api.migration.java.JavaMigrationInfo;
+import com.senacor.elasticsearch.evolution.core.api.migration.java.JavaMigrationMetadata;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.BulkMigrationRequest;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.ContentChecksums;
 import com.senacor.elasticsearch.evolution.core.internal.model.migration.JavaMigrationRequestContent;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.MigrationManifest;
 import com.senacor.elasticsearch.evolution.core.internal.model.migration.RawMigrationScript;
 import com.senacor.elasticsearch.evolution.core.internal.model.migration.ScriptMigrationContent;
+import com.senacor.elasticsearch.evolution.core.internal.utils.ParallelMapper;
 import io.github.classgraph.*;
 import lombok.NonNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
 import java.net.URI;
+import java.net.JarURLConnection;
 import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+import java.util.jar.JarEntry;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.zip.CRC32;
 
 /**
  * @author Andreas Keefer
@@ -39,6 +68,10 @@ public class MigrationScriptReaderImpl implements MigrationScriptReader {
 
     private static final String CLASSPATH_PREFIX = "classpath:";
     private static final String FILE_PREFIX = "file:";
+    private static final String BUNDLE_PREFIX = "bundle:";
+    private static final int MAX_FILE_LOCATION_DEPTH = 10;
+    private static final ObjectMapper MANIFEST_MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
 
     private final List<String> locations;
     private final Charset encoding;
@@ -48,15 +81,22 @@ public class MigrationScriptReaderImpl implements MigrationScriptReader {
     private final boolean trimTrailingNewlineInMigrations;
     @NonNull
     private final ElasticsearchEvolutionConfig config;
+    private final ParallelMapper parallelMapper;
+    private final ClassPathScanHolder classPathScan = new ClassPathScanHolder();
+    private final ScriptContentLoader contentLoader;
+    private final MigrationBundleReader bundleReader;
 
     public MigrationScriptReaderImpl(@NonNull ElasticsearchEvolutionConfig config) {
         this.config = config;
+        this.parallelMapper = new ParallelMapper(config.getReadParallelism(), config.isReadVirtualThreads());
         this.locations = config.getLocations();
         this.encoding = config.getEncoding();
         this.esMigrationPrefix = config.getEsMigrationPrefix();
         this.esMigrationSuffixes = config.getEsMigrationSuffixes();
         this.lineSeparator = config.getLineSeparator();
         this.trimTrailingNewlineInMigrations = config.isTrimTrailingNewlineInMigrations();
+        this.contentLoader = new ScriptContentLoader(encoding, lineSeparator, trimTrailingNewlineInMigrations);
+        this.bundleReader = new MigrationBundleReader(contentLoader, this::isValidFilename);
     }
 
     /**
@@ -71,21 +111,213 @@ public class MigrationScriptReaderImpl implements MigrationScriptReader {
      */
     @Override
     public List<RawMigrationScript<?>> read() {
-        final Stream<RawMigrationScript<?>> rarMigrationsFromLocations = this.locations.stream()
-                .flatMap(location -> {
-                    try {
-                        return readFromLocation(location);
-                    } catch (URISyntaxException | IOException e) {
-                        throw new MigrationException(
-                                "couldn't read migrations from %s".formatted(location), e);
-                    }
-                });
+        final List<RawMigrationScript<?>> rawMigrationsFromLocations;
+        classPathScan.acquire();
+        try {
+            rawMigrationsFromLocations = parallelMapper.map(this.locations, location -> {
+                        try {
+                            return readFromLocation(location).collect(Collectors.toList());
+                        } catch (URISyntaxException | IOException e) {
+                            throw new MigrationException(
+                                    "couldn't read migrations from %s".formatted(location), e);
+                        }
+                    }).stream()
+                    .flatMap(List::stream)
+                    .toList();
+        } finally {
+            classPathScan.release();
+        }
         final Stream<RawMigrationScript<?>> rarMigrationsFromCustomJavaMigrationsClassProvider = readFromCustomJavaMigrationsClassProvider(config.getJavaMigrationClassProvider());
         final Stream<RawMigrationScript<?>> additionalRawJavaMigrations = config.getJavaMigrations().stream()
                 .map(this::createRawMigrationScript);
-        return Stream.concat(Stream.concat(rarMigrationsFromLocations, rarMigrationsFromCustomJavaMigrationsClassProvider), additionalRawJavaMigrations)
-                .distinct()
-                .toList();
+        return distinct(Stream.concat(Stream.concat(rawMigrationsFromLocations.stream(), rarMigrationsFromCustomJavaMigrationsClassProvider), additionalRawJavaMigrations)
+                .toList());
+    }
+
+    /**
+     * Removes duplicate migrations, e.g. found in overlapping locations. Only migrations with the same file name can
+     * be equal. Scripts are compared by their checksums, which are computed while streaming, so the contents of lazily
+     * loaded scripts are not loaded.
+     */
+    private static List<RawMigrationScript<?>> distinct(List<RawMigrationScript<?>> rawMigrationScripts) {
+        final Map<String, List<RawMigrationScript<?>>> byFileName = new HashMap<>();
+        final List<RawMigrationScript<?>> res = new ArrayList<>(rawMigrationScripts.size());
+        for (RawMigrationScript<?> rawMigrationScript : rawMigrationScripts) {
+            final List<RawMigrationScript<?>> sameFileName = byFileName.computeIfAbsent(rawMigrationScript.getFileName(), fileName -> new ArrayList<>(1));
+            if (sameFileName.stream().noneMatch(other -> isDuplicate(rawMigrationScript, other))) {
+                sameFileName.add(rawMigrationScript);
+                res.add(rawMigrationScript);
+            }
+        }
+        return res;
+    }
+
+    private static boolean isDuplicate(RawMigrationScript<?> rawMigrationScript, RawMigrationScript<?> other) {
+        if (rawMigrationScript.getContent() instanceof ScriptMigrationContent content
+                && other.getContent() instanceof ScriptMigrationContent otherContent) {
+            return content.hasSameContent(otherContent);
+        }
+        return rawMigrationScript.equals(other);
+    }
+
+    /**
+     * Computes a fingerprint of all migrations from the specified locations, the custom JavaMigrations ClassProvider
+     * and the additional JavaMigration instances from the config.
+     * <p>
+     * Only paths, sizes and modification times are taken into account, the migrations are neither loaded nor
+     * instantiated. Jars are often built with a constant modification time, so the CRC or a checksum of the content is
+     * used for jar entries instead. Config options that influence parsing are part of the fingerprint, too.
+     *
+     * @return hex encoded SHA-256 fingerprint
+     */
+    @Override
+    public String fingerprint() {
+        final TreeSet<String> entries = new TreeSet<>();
+        classPathScan.acquire();
+        try {
+            for (String location : this.locations) {
+                try {
+                    fingerprintLocation(location, entries);
+                } catch (URISyntaxException | IOException e) {
+                    throw new MigrationException(
+                            "couldn't read migrations from %s".formatted(location), e);
+                }
+            }
+        } finally {
+            classPathScan.release();
+        }
+        final ClassProvider<JavaMigration> customJavaMigrationsClassProvider = config.getJavaMigrationClassProvider();
+        if (null != customJavaMigrationsClassProvider) {
+            customJavaMigrationsClassProvider.apply(config)
+                    .forEach(javaMigrationClass -> entries.add("provided:" + javaMigrationClass.getName()));
+        }
+        config.getJavaMigrations()
+                .forEach(javaMigration -> entries.add("instance:" + javaMigration.getClass().getName() + ":" + javaMigration.getChecksum()));
+        entries.add("config:" + encoding + ":" + lineSeparator + ":" + trimTrailingNewlineInMigrations
+                + ":" + config.getBaselineVersion() + ":" + config.isOutOfOrder()
+                + ":" + config.isPlaceholderReplacement() + ":" + config.getPlaceholderPrefix()
+                + ":" + config.getPlaceholderSuffix() + ":" + new TreeMap<>(config.getPlaceholders()));
+
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            entries.forEach(entry -> {
+                digest.update(entry.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '\n');
+            });
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new MigrationException("couldn't compute fingerprint of migrations", e);
+        }
+    }
+
+    private void fingerprintLocation(String location, TreeSet<String> entries) throws URISyntaxException, IOException {
+        if (location.startsWith(CLASSPATH_PREFIX)) {
+            fingerprintClassPath(location, entries);
+        } else if (location.startsWith(FILE_PREFIX)) {
+            final Path path = Paths.get(location.substring(FILE_PREFIX.length()));
+            try (Stream<Path> files = Files.find(path, MAX_FILE_LOCATION_DEPTH, (pathToCheck, basicFileAttributes) ->
+                    !basicFileAttributes.isDirectory()
+                            && basicFileAttributes.size() > 0
+                            && isValidFilename(pathToCheck.getFileName().toString()))) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    final String relativePath = path.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+                    entries.add("file:" + location + ":" + relativePath + ":" + Files.size(file) + ":" + Files.getLastModifiedTime(file).toMillis());
+                }
+            }
+        } else if (location.startsWith(BUNDLE_PREFIX)) {
+            final Path bundle = Paths.get(location.substring(BUNDLE_PREFIX.length()));
+            entries.add("bundle:" + bundle + ":" + Files.size(bundle) + ":" + Files.getLastModifiedTime(bundle).toMillis());
+        } else {
+            // let readFromLocation fail with the usual message
+            readFromLocation(location);
+        }
+    }
+
+    private void fingerprintClassPath(String location, TreeSet<String> entries) throws IOException {
+        if (!location.endsWith("/")) {
+            location = location + "/";
+        }
+        final String locationWithoutPrefix = location.substring(CLASSPATH_PREFIX.length());
+
+        final List<URL> manifestUrls = findManifests(locationWithoutPrefix);
+        if (!manifestUrls.isEmpty()) {
+            for (URL manifestUrl : manifestUrls) {
+                final MigrationManifest manifest = readManifest(manifestUrl);
+                manifest.scripts().forEach(script -> entries.add("manifest:" + script.path() + ":" + script.checksum()));
+                if (null == config.getJavaMigrationClassProvider()) {
+                    for (String className : manifest.javaMigrations()) {
+                        final URL classUrl = getClassLoader().getResource(className.replace('.', '/') + ".class");
+                        if (null == classUrl) {
+                            entries.add("class:" + className);
+                        } else {
+                            entries.add("class:" + className + ":" + urlStamp(classUrl));
+                        }
+                    }
+                }
+            }
+            return;
+        }
+
+        final Optional<LightweightClassPathScanner.LocationScan> lightweightScan = lightweightScan(locationWithoutPrefix);
+        if (lightweightScan.isPresent()) {
+            lightweightScan.get().resources()
+                    .forEach(entry -> entries.add("classpath:" + locationWithoutPrefix + entry.relativePath() + ":" + entryStamp(entry)));
+            // JavaMigrations can't be told apart from other classes without loading them
+            lightweightScan.get().classes()
+                    .forEach(entry -> entries.add("class:" + entry.className(locationWithoutPrefix) + ":" + entryStamp(entry)));
+            return;
+        }
+
+        classPathScan.acquire();
+        try {
+            final ScanResult scanResult = classPathScan.get();
+            for (Resource resource : findResources(scanResult, locationWithoutPrefix)) {
+                entries.add("classpath:" + resource.getPath() + ":" + resourceStamp(resource));
+            }
+
+            if (null == config.getJavaMigrationClassProvider()) {
+                for (ClassInfo classInfo : findJavaMigrationClasses(scanResult, locationWithoutPrefix)) {
+                    entries.add("class:" + classInfo.getName() + ":" + resourceStamp(classInfo.getResource()));
+                }
+            }
+        } finally {
+            classPathScan.release();
+        }
+    }
+
+    /**
+     * @return size and CRC of a jar entry, size and modification time of a file
+     */
+    private static String entryStamp(LightweightClassPathScanner.Entry entry) {
+        return entry.length() + ":" + (entry.crc() >= 0 ? "crc" + Long.toHexString(entry.crc()) : entry.lastModified());
+    }
+
+    /**
+     * @return size and content checksum of a jar entry, size and modification time of a file
+     */
+    private static String resourceStamp(Resource resource) throws IOException {
+        if ("file".equals(resource.getURL().getProtocol())) {
+            return resource.getLength() + ":" + resource.getLastModified();
+        }
+        final CRC32 crc = new CRC32();
+        try (resource) {
+            crc.update(resource.load());
+        }
+        return resource.getLength() + ":crc" + Long.toHexString(crc.getValue());
+    }
+
+    /**
+     * @return size and CRC of a jar entry, size and modification time of any other URL
+     */
+    private static String urlStamp(URL url) throws IOException {
+        final URLConnection connection = url.openConnection();
+        if (connection instanceof JarURLConnection jarConnection) {
+            final JarEntry entry = jarConnection.getJarEntry();
+            if (entry.getCrc() >= 0) {
+                return entry.getSize() + ":crc" + Long.toHexString(entry.getCrc());
+            }
+        }
+        return connection.getContentLengthLong() + ":" + connection.getLastModified();
     }
 
     private Stream<RawMigrationScript<?>> readFromCustomJavaMigrationsClassProvider(ClassProvider<JavaMigration> customJavaMigrationsClassProvider) {
@@ -95,6 +327,11 @@ public class MigrationScriptReaderImpl implements MigrationScriptReader {
         return customJavaMigrationsClassProvider.apply(config).stream()
                 .map(javaMigrationClass -> {
                     logger.debug("reading JavaMigration '{}' from custom JavaMigrations ClassProvider...", javaMigrationClass.getName());
+                    final JavaMigrationInfo javaMigrationInfo = javaMigrationClass.getAnnotation(JavaMigrationInfo.class);
+                    if (null != javaMigrationInfo) {
+                        return createLazyRawMigrationScript(javaMigrationClass.getName(), javaMigrationInfo,
+                                () -> instantiateJavaMigration(javaMigrationClass));
+                    }
                     try {
                         final JavaMigration javaMigrationInstance = javaMigrationClass.getDeclaredConstructor().newInstance();
                         return createRawMigrationScript(javaMigrationInstance);
@@ -106,7 +343,8 @@ public class MigrationScriptReaderImpl implements MigrationScriptReader {
     }
 
     /**
-     * Reads migration scripts from a specific location
+     * Reads migration scripts from a specific location. Locations are read concurrently and the migrations of a
+     * location are read concurrently, too, so this method must be thread safe.
      *
      * @param location path where to look for migration scripts
      * @return a list of {@link RawMigrationScript}
@@ -114,43 +352,158 @@ public class MigrationScriptReaderImpl implements MigrationScriptReader {
      * @throws IOException        if an I/O error is thrown when accessing the files at the location(s).
      */
     protected Stream<RawMigrationScript<?>> readFromLocation(String location) throws URISyntaxException, IOException {
+        classPathScan.acquire();
+        try {
+            final List<PendingMigration> pendingMigrations = new ArrayList<>();
+            findInLocation(location, pendingMigrations);
+            return readPending(pendingMigrations).stream();
+        } finally {
+            classPathScan.release();
+        }
+    }
+
+    /**
+     * reads all found migrations concurrently, the result has the same order as the found migrations
+     */
+    private List<RawMigrationScript<?>> readPending(List<PendingMigration> pendingMigrations) {
+        return parallelMapper.map(pendingMigrations, PendingMigration::read).stream()
+                .flatMap(List::stream)
+                .toList();
+    }
+
+    private void findInLocation(String location, List<PendingMigration> pendingMigrations) throws URISyntaxException, IOException {
         if (location.startsWith(CLASSPATH_PREFIX)) {
-            return readScriptsFromClassPath(location);
+            findInClassPath(location, pendingMigrations);
         } else if (location.startsWith(FILE_PREFIX)) {
-            return readScriptsFromFilesystem(location);
+            findInFilesystem(location, pendingMigrations);
+        } else if (location.startsWith(BUNDLE_PREFIX)) {
+            findInBundle(location, pendingMigrations);
         } else {
             throw new MigrationException(("""
                     could not read location path %s, \
-                    should look like this: %ses/migration or this: %s/home/scripts/migration\
+                    should look like this: %ses/migration or this: %s/home/scripts/migration \
+                    or this: %s/home/scripts/migrations.tar.gz\
                     """).formatted(
-                    location, CLASSPATH_PREFIX, FILE_PREFIX));
+                    location, CLASSPATH_PREFIX, FILE_PREFIX, BUNDLE_PREFIX));
+        }
+    }
+
+    /**
+     * Streams the bundle once to compute the checksums, the content is only decoded if it is needed.
+     */
+    private void findInBundle(String location, List<PendingMigration> pendingMigrations) throws IOException {
+        final Path bundle = Paths.get(location.substring(BUNDLE_PREFIX.length()));
+        final List<MigrationBundleReader.BundleEntry> bundleEntries = bundleReader.read(bundle);
+        final String bundleStamp = fileStamp(bundle);
+        for (MigrationBundleReader.BundleEntry entry : bundleEntries) {
+            pendingMigrations.add(() -> List.of(lazyRawMigrationScript(entry.fileName(),
+                    BUNDLE_PREFIX + bundle + "!/" + entry.path(), bundleStamp, entry.size(),
+                    entry.checksums().checksum(), entry.checksums().contentChecksum(),
+                    () -> readScriptFromBundle(bundle, entry), () -> Optional.of(entry.checksums()),
+                    () -> new InputStreamReader(bundleReader.openEntry(bundle, entry), encoding))));
         }
     }
 
-    private Stream<RawMigrationScript<?>> readScriptsFromFilesystem(String location) throws IOException {
+    private Optional<ScriptMigrationContent> readScriptFromBundle(Path bundle, MigrationBundleReader.BundleEntry entry) {
+        logger.debug("reading migration script '{}' from bundle '{}'...", entry.path(), bundle);
+        try {
+            return bundleReader.load(bundle, entry);
+        } catch (IOException e) {
+            throw new MigrationException("can't read script from bundle %s: %s".formatted(bundle, entry.path()), e);
+        }
+    }
+
+    private void findInFilesystem(String location, List<PendingMigration> pendingMigrations) throws IOException {
         String locationWithoutPrefix = location.substring(FILE_PREFIX.length());
         URI uri = Paths.get(locationWithoutPrefix).toUri();
         logger.debug("URI of location '{}' = '{}'", location, uri);
         if (uri == null) {
-            return Stream.empty();
+            return;
         }
         Path path = Paths.get(uri);
-        return Files.find(path, 10, (pathToCheck, basicFileAttributes) ->
-                        !basicFileAttributes.isDirectory()
-                                && basicFileAttributes.size() > 0
-                                && isValidFilename(pathToCheck.getFileName().toString()))
-                .flatMap(file -> {
-                    logger.debug("reading migration script '{}' from filesystem...", file);
-                    String filename = file.getFileName().toString();
-                    try (BufferedReader reader = Files.newBufferedReader(file, this.encoding)) {
-                        return read(reader, filename);
-                    } catch (IOException e) {
-                        throw new MigrationException("can't read script from filesystem: " + file.getFileName(), e);
-                    }
-                });
+        try (Stream<Path> files = Files.find(path, MAX_FILE_LOCATION_DEPTH, (pathToCheck, basicFileAttributes) ->
+                !basicFileAttributes.isDirectory()
+                        && basicFileAttributes.size() > 0
+                        && isValidFilename(pathToCheck.getFileName().toString()))) {
+            files.forEach(file -> pendingMigrations.add(() -> List.of(fileRawMigrationScript(file))));
+        }
+    }
+
+    private RawMigrationScript<ScriptMigrationContent> fileRawMigrationScript(Path file) {
+        final BasicFileAttributes attributes = fileAttributes(file);
+        return lazyRawMigrationScript(file.getFileName().toString(), file.toString(), fileStamp(attributes), attributes.size(), null, null,
+                () -> readScriptFromFilesystem(file), () -> readChecksumsFromFilesystem(file),
+                () -> Files.newBufferedReader(file, encoding));
     }
 
-    private Stream<RawMigrationScript<?>> readScriptsFromClassPath(String location) {
+    @Override
+    public List<Path> watchableLocations() {
+        return this.locations.stream()
+                .filter(location -> location.startsWith(FILE_PREFIX))
+                .map(location -> Paths.get(location.substring(FILE_PREFIX.length())).toAbsolutePath().normalize())
+                .distinct()
+                .toList();
+    }
+
+    @Override
+    public List<RawMigrationScript<?>> read(Collection<Path> files) {
+        final List<Path> watchableLocations = watchableLocations();
+        final List<RawMigrationScript<?>> res = new ArrayList<>(files.size());
+        for (Path file : files) {
+            final Path absoluteFile = file.toAbsolutePath().normalize();
+            final boolean inLocation = watchableLocations.stream()
+                    .anyMatch(location -> absoluteFile.startsWith(location)
+                            && location.relativize(absoluteFile).getNameCount() <= MAX_FILE_LOCATION_DEPTH);
+            try {
+                if (inLocation
+                        && isValidFilename(absoluteFile.getFileName().toString())
+                        && Files.isRegularFile(absoluteFile)
+                        && Files.size(absoluteFile) > 0) {
+                    res.add(fileRawMigrationScript(absoluteFile));
+                }
+            } catch (IOException | MigrationException e) {
+                // deleted in the meantime
+                logger.debug("ignoring migration script '{}', it can't be read: {}", absoluteFile, e.toString());
+            }
+        }
+        return res;
+    }
+
+    private static String fileStamp(Path file) {
+        return fileStamp(fileAttributes(file));
+    }
+
+    private static String fileStamp(BasicFileAttributes attributes) {
+        return attributes.size() + ":" + attributes.lastModifiedTime();
+    }
+
+    private static BasicFileAttributes fileAttributes(Path file) {
+        try {
+            return Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (IOException e) {
+            throw new MigrationException("can't read script from filesystem: " + file.getFileName(), e);
+        }
+    }
+
+    private Optional<ScriptMigrationContent> readScriptFromFilesystem(Path file) {
+        logger.debug("reading migration script '{}' from filesystem...", file);
+        try {
+            return contentLoader.load(file);
+        } catch (IOException e) {
+            throw new MigrationException("can't read script from filesystem: " + file.getFileName(), e);
+        }
+    }
+
+    private Optional<ContentChecksums> readChecksumsFromFilesystem(Path file) {
+        logger.debug("computing checksums of migration script '{}' from filesystem...", file);
+        try {
+            return contentLoader.checksums(file);
+        } catch (IOException e) {
+            throw new MigrationException("can't read script from filesystem: " + file.getFileName(), e);
+        }
+    }
+
+    private void findInClassPath(String location, List<PendingMigration> pendingMigrations) throws IOException {
         if (!location.endsWith("/")) {
             // fixes https://github.com/senacor/elasticsearch-evolution/issues/36
             // otherwise e.g. "...location_some_suffix" will also be found when search for "...location".
@@ -159,54 +512,360 @@ public class MigrationScriptReaderImpl implements MigrationScriptReader {
 
         final String locationWithoutPrefix = location.substring(CLASSPATH_PREFIX.length());
 
-        List<RawMigrationScript<?>> res = new ArrayList<>();
-        // scan for script resources
-        try (ScanResult scanResult = new ClassGraph()
-                .acceptPaths(locationWithoutPrefix)
-                .scan();
-             ResourceList resourceList = scanResult.getAllResources()) {
-
-            resourceList.filter(resource -> isValidFilename(Paths.get(resource.getPath()).getFileName().toString()))
-                    .forEach(resource -> {
-                        logger.debug("reading migration script '{}' from classpath...", resource);
-                        try (BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(resource.load()), encoding))) {
-                            Path p = Paths.get(resource.getPath());
-                            res.addAll(read(bufferedReader, p.getFileName().toString()).toList());
-                        } catch (IOException e) {
-                            throw new MigrationException("can't read script from classpath: " + resource, e);
+        final List<URL> manifestUrls = findManifests(locationWithoutPrefix);
+        if (!manifestUrls.isEmpty()) {
+            // a build-time manifest avoids the expensive classpath scans
+            for (URL manifestUrl : manifestUrls) {
+                findInManifest(manifestUrl, pendingMigrations);
+            }
+            return;
+        }
+
+        final Optional<LightweightClassPathScanner.LocationScan> lightweightScan = lightweightScan(locationWithoutPrefix);
+        if (lightweightScan.isPresent()) {
+            findInLightweightScan(lightweightScan.get(), locationWithoutPrefix, pendingMigrations);
+            return;
+        }
+
+        // one scan for script resources and JavaMigrations of all locations
+        final ScanResult scanResult = classPathScan.get();
+        final ClassLoader classLoader = getClassLoader();
+        findResources(scanResult, locationWithoutPrefix)
+                .forEach(resource -> {
+                    final String fileName = Paths.get(resource.getPath()).getFileName().toString();
+                    final String path = resource.getPath();
+                    final URI uri = resource.getURI();
+                    // entries of (reproducible built) jar files may change without changing size and modification time
+                    final String sourceStamp = "file".equals(uri.getScheme())
+                            ? resource.getLength() + ":" + resource.getLastModified()
+                            : null;
+                    pendingMigrations.add(() -> List.of(lazyRawMigrationScript(fileName, uri.toString(), sourceStamp, resource.getLength(), null, null,
+                            () -> readScriptFromUrl(findClassPathUrl(classLoader, path, uri)),
+                            () -> readChecksumsFromUrl(findClassPathUrl(classLoader, path, uri)),
+                            () -> new InputStreamReader(findClassPathUrl(classLoader, path, uri).openStream(), encoding))));
+                });
+
+        if (null == config.getJavaMigrationClassProvider()) {
+            findJavaMigrationClasses(scanResult, locationWithoutPrefix)
+                    .forEach(classInfo -> pendingMigrations.add(() -> {
+                        logger.debug("reading JavaMigration '{}' ...", classInfo.getName());
+                        MethodInfo constructorInfo = findPublicNoArgsConstructor(classInfo)
+                                .orElseThrow(() -> new MigrationException("JavaMigration " + classInfo.getName() + " does not have a public no-args constructor!"));
+                        final AnnotationInfo annotationInfo = classInfo.getAnnotationInfo(JavaMigrationInfo.class);
+                        if (null != annotationInfo) {
+                            // only the annotation is loaded, the migration class is loaded when it is executed
+                            return List.of(createLazyRawMigrationScript(classInfo.getName(),
+                                    (JavaMigrationInfo) annotationInfo.loadClassAndInstantiate(),
+                                    () -> instantiateJavaMigration(classLoader, classInfo.getName())));
                         }
-                    });
+                        final Constructor<?> constructor = constructorInfo.loadClassAndGetConstructor();
+                        final JavaMigration javaMigrationInstance;
+                        try {
+                            javaMigrationInstance = (JavaMigration) constructor.newInstance();
+                        } catch (Exception e) {
+                            throw new MigrationException("Couldn't create instance of JavaMigration: " + classInfo.getName(), e);
+                        }
+                        return List.of(createRawMigrationScript(javaMigrationInstance));
+                    }));
+        }
+    }
+
+    /**
+     * @param locationWithoutPrefix location path ending with '/'
+     * @return the entries of the location or empty, if the location must be scanned with ClassGraph
+     */
+    private Optional<LightweightClassPathScanner.LocationScan> lightweightScan(String locationWithoutPrefix) throws IOException {
+        if (!config.isLightweightClasspathScan()) {
+            return Optional.empty();
+        }
+        return LightweightClassPathScanner.scan(getClassLoader(), locationWithoutPrefix, this::isValidFilename,
+                null == config.getJavaMigrationClassProvider());
+    }
+
+    private void findInLightweightScan(LightweightClassPathScanner.LocationScan scan,
+                                       String locationWithoutPrefix,
+                                       List<PendingMigration> pendingMigrations) {
+        for (LightweightClassPathScanner.Entry entry : scan.resources()) {
+            final String source = entry.url().toString();
+            if (null != entry.file()) {
+                final Path file = entry.file();
+                pendingMigrations.add(() -> List.of(lazyRawMigrationScript(entry.fileName(), source,
+                        entry.length() + ":" + entry.lastModified(), entry.length(), null, null,
+                        () -> readScriptFromFilesystem(file), () -> readChecksumsFromFilesystem(file),
+                        () -> Files.newBufferedReader(file, encoding))));
+            } else {
+                // entries of (reproducible built) jar files may change without changing size and modification time
+                pendingMigrations.add(() -> List.of(lazyRawMigrationScript(entry.fileName(), source, null, entry.length(), null, null,
+                        () -> readScriptFromUrl(entry.url()), () -> readChecksumsFromUrl(entry.url()),
+                        () -> new InputStreamReader(entry.url().openStream(), encoding))));
+            }
+        }
+
+        final ClassLoader classLoader = getClassLoader();
+        for (LightweightClassPathScanner.Entry entry : scan.classes()) {
+            final String className = entry.className(locationWithoutPrefix);
+            pendingMigrations.add(() -> {
+                final Class<?> candidate;
+                try {
+                    // loads the class without initializing it, to check whether it is a JavaMigration
+                    candidate = Class.forName(className, false, classLoader);
+                } catch (ClassNotFoundException | LinkageError e) {
+                    logger.warn("ignoring class '{}' in migration location, it couldn't be loaded: {}", className, e.toString());
+                    return List.of();
+                }
+                if (!JavaMigration.class.isAssignableFrom(candidate)
+                        || candidate.isInterface()
+                        || Modifier.isAbstract(candidate.getModifiers())) {
+                    return List.of();
+                }
+                logger.debug("reading JavaMigration '{}' ...", className);
+                return List.of(readJavaMigration(classLoader, candidate));
+            });
         }
+    }
+
+    /**
+     * @param locationWithoutPrefix location path ending with '/'
+     * @return migration script resources of the location (including sub paths)
+     */
+    private ResourceList findResources(ScanResult scanResult, String locationWithoutPrefix) {
+        return scanResult.getAllResources()
+                .filter(resource -> resource.getPath().startsWith(locationWithoutPrefix))
+                .filter(resource -> resource.getLength() != 0)
+                .filter(resource -> isValidFilename(Paths.get(resource.getPath()).getFileName().toString()));
+    }
 
+    /**
+     * @param locationWithoutPrefix location path ending with '/'
+     * @return instantiable JavaMigration classes of the location package (including sub packages)
+     */
+    private ClassInfoList findJavaMigrationClasses(ScanResult scanResult, String locationWithoutPrefix) {
+        final String packagePrefix = locationWithoutPrefix.replace('/', '.');
+        return scanResult.getClassesImplementing(JavaMigration.class)
+                .filter(classInfo -> classInfo.getName().startsWith(packagePrefix))
+                .filter(classInfo -> !classInfo.isAbstract())
+                .filter(classInfo -> !classInfo.isInterface());
+    }
+
+    /**
+     * @return all classpath locations (ending with '/' and without prefix) which have no build-time manifest
+     */
+    private SortedSet<String> classPathLocationsToScan() {
+        final SortedSet<String> res = new TreeSet<>();
+        for (String location : this.locations) {
+            if (location.startsWith(CLASSPATH_PREFIX)) {
+                String locationWithoutPrefix = location.substring(CLASSPATH_PREFIX.length());
+                if (!locationWithoutPrefix.endsWith("/")) {
+                    locationWithoutPrefix = locationWithoutPrefix + "/";
+                }
+                try {
+                    if (findManifests(locationWithoutPrefix).isEmpty()) {
+                        res.add(locationWithoutPrefix);
+                    }
+                } catch (IOException e) {
+                    throw new MigrationException("couldn't read migrations from %s".formatted(location), e);
+                }
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Finds the URL of a resource found by the classpath scan. The scan result may already be closed, so the resource
+     * is loaded with the classloader. If there are several resources with the same path, the one with the scanned URI
+     * is used.
+     */
+    private static URL findClassPathUrl(ClassLoader classLoader, String path, URI uri) {
+        try {
+            final List<URL> urls = Collections.list(classLoader.getResources(path));
+            return urls.size() == 1
+                    ? urls.get(0)
+                    : urls.stream()
+                    .filter(candidate -> candidate.toString().equals(uri.toString()))
+                    .findFirst()
+                    .orElse(uri.toURL());
+        } catch (IOException e) {
+            throw new MigrationException("can't read script from classpath: " + uri, e);
+        }
+    }
+
+    private Optional<ScriptMigrationContent> readScriptFromUrl(URL url) {
+        logger.debug("reading migration script '{}' from classpath...", url);
+        try (InputStream inputStream = url.openStream()) {
+            return contentLoader.load(inputStream);
+        } catch (IOException e) {
+            throw new MigrationException("can't read script from classpath: " + url, e);
+        }
+    }
+
+    private Optional<ContentChecksums> readChecksumsFromUrl(URL url) {
+        logger.debug("computing checksums of migration script '{}' from classpath...", url);
+        try (InputStream inputStream = url.openStream()) {
+            return contentLoader.checksums(inputStream);
+        } catch (IOException e) {
+            throw new MigrationException("can't read script from classpath: " + url, e);
+        }
+    }
+
+    /**
+     * @param sourceStamp     size and modification time of the script, if reliably known, otherwise null
+     * @param sourceLength    size of the script in bytes or -1, if unknown. The body of large scripts is streamed.
+     * @param checksum        checksum of the script, if already known, otherwise null
+     * @param contentChecksum content checksum of the script, if already known, otherwise null
+     * @param loader          loads the content, called only if the content is needed
+     * @param checksumLoader  computes the checksums without keeping the content, called only if just the checksums
+     *                        are needed
+     * @param readerOpener    opens a reader of the raw content to stream it, e.g. for bulk data migrations
+     */
+    private RawMigrationScript<ScriptMigrationContent> lazyRawMigrationScript(String fileName,
+                                                                              String source,
+                                                                              String sourceStamp,
+                                                                              long sourceLength,
+                                                                              Integer checksum,
+                                                                              Long contentChecksum,
+                                                                              Supplier<Optional<ScriptMigrationContent>> loader,
+                                                                              Supplier<Optional<ContentChecksums>> checksumLoader,
+                                                                              ScriptMigrationContent.ReaderOpener readerOpener) {
+        // the script was not empty, when it was found
+        final Supplier<MigrationException> emptyScript = () -> new MigrationException("migration script is empty: " + source);
+        final ScriptMigrationContent.ReaderOpener contentReaderOpener = sourceLength >= config.getStreamBodyThreshold()
+                && !BulkMigrationRequest.isBulkMigration(fileName)
+                ? () -> contentLoader.normalizing(readerOpener.open())
+                : null;
+        return new RawMigrationScript<ScriptMigrationContent>()
+                .setFileName(fileName)
+                .setContent(ScriptMigrationContent.lazy(source, () -> loader.get().orElseThrow(emptyScript))
+                        .sourceStamp(sourceStamp)
+                        .checksum(checksum)
+                        .contentChecksum(contentChecksum)
+                        .checksumLoader(() -> checksumLoader.get().orElseThrow(emptyScript))
+                        .readerOpener(readerOpener)
+                        .contentReaderOpener(contentReaderOpener)
+                        .build());
+    }
+
+    private List<URL> findManifests(String locationWithoutPrefix) throws IOException {
+        return Collections.list(getClassLoader().getResources(locationWithoutPrefix + MigrationManifest.FILE_NAME));
+    }
+
+    private void findInManifest(URL manifestUrl, List<PendingMigration> pendingMigrations) throws IOException {
+        logger.debug("reading migrations from manifest '{}'...", manifestUrl);
+        final MigrationManifest manifest = readManifest(manifestUrl);
+        for (MigrationManifest.Script script : manifest.scripts()) {
+            // resolve relative to the manifest, so the script is read from the same directory or jar file
+            final URL scriptUrl = new URL(manifestUrl, script.path());
+            final String fileName = script.path().substring(script.path().lastIndexOf('/') + 1);
+            // the checksums of the manifest are not used, so the history is validated against the actual content
+            pendingMigrations.add(() -> List.of(lazyRawMigrationScript(fileName, scriptUrl.toString(), null, -1,
+                    null, null,
+                    () -> readScriptFromUrl(scriptUrl), () -> readChecksumsFromUrl(scriptUrl),
+                    () -> new InputStreamReader(scriptUrl.openStream(), encoding))));
+        }
         if (null == config.getJavaMigrationClassProvider()) {
-            // scan for JavaMigrations
-            String packageToScan = locationWithoutPrefix
-                    .substring(0, locationWithoutPrefix.length() - 1)
-                    .replace('/', '.');
-            try (ScanResult scanResult = new ClassGraph()
-                    .enableClassInfo()
-                    .enableMethodInfo()
-                    .acceptPackages(packageToScan)
-                    .scan()) {
-                scanResult.getClassesImplementing(JavaMigration.class)
-                        .filter(classInfo -> !classInfo.isAbstract())
-                        .filter(classInfo -> !classInfo.isInterface())
-                        .forEach(classInfo -> {
-                            logger.debug("reading JavaMigration '{}' ...", classInfo.getName());
-                            MethodInfo constructorInfo = findPublicNoArgsConstructor(classInfo)
-                                    .orElseThrow(() -> new MigrationException("JavaMigration " + classInfo.getName() + " does not have a public no-args constructor!"));
-                            final Constructor<?> constructor = constructorInfo.loadClassAndGetConstructor();
-                            final JavaMigration javaMigrationInstance;
-                            try {
-                                javaMigrationInstance = (JavaMigration) constructor.newInstance();
-                            } catch (Exception e) {
-                                throw new MigrationException("Couldn't create instance of JavaMigration: " + classInfo.getName(), e);
-                            }
-                            res.add(createRawMigrationScript(javaMigrationInstance));
-                        });
+            for (String className : manifest.javaMigrations()) {
+                pendingMigrations.add(() -> {
+                    logger.debug("reading JavaMigration '{}' from manifest...", className);
+                    final ClassLoader classLoader = getClassLoader();
+                    // loads the class without initializing it, to read the annotation
+                    return List.of(readJavaMigration(classLoader, loadClass(classLoader, className, false)));
+                });
             }
         }
-        return res.stream();
+    }
+
+    private MigrationManifest readManifest(URL manifestUrl) throws IOException {
+        final MigrationManifest manifest;
+        try (InputStream in = manifestUrl.openStream()) {
+            manifest = MANIFEST_MAPPER.readValue(in, MigrationManifest.class);
+        }
+        if (manifest.formatVersion() > MigrationManifest.FORMAT_VERSION) {
+            throw new MigrationException("unsupported format version %s of manifest %s".formatted(manifest.formatVersion(), manifestUrl));
+        }
+        requireUpToDate(manifestUrl, manifest);
+        return manifest;
+    }
+
+    /**
+     * Compares the scripts of the manifest with the scripts actually present next to it, so a manifest which was not
+     * regenerated after scripts were added, removed or changed does not silently skip migrations.
+     *
+     * @throws MigrationException if the manifest is stale
+     */
+    private void requireUpToDate(URL manifestUrl, MigrationManifest manifest) throws IOException {
+        final String manifestPath = manifestUrl.toString();
+        final URL root = new URL(manifestPath.substring(0, manifestPath.length() - MigrationManifest.FILE_NAME.length()));
+        final Optional<List<LightweightClassPathScanner.Entry>> resources = LightweightClassPathScanner.scanResources(root,
+                fileName -> !MigrationManifest.FILE_NAME.equals(fileName) && isValidFilename(fileName));
+        if (resources.isEmpty()) {
+            logger.debug("can't list the scripts next to manifest '{}', not checking whether it is up to date", manifestUrl);
+            return;
+        }
+        final Map<String, Long> sizes = resources.get().stream()
+                .collect(Collectors.toMap(LightweightClassPathScanner.Entry::relativePath,
+                        LightweightClassPathScanner.Entry::length, (first, second) -> first, TreeMap::new));
+        final SortedSet<String> notInManifest = new TreeSet<>(sizes.keySet());
+        final SortedSet<String> notFound = new TreeSet<>();
+        final SortedSet<String> changed = new TreeSet<>();
+        for (MigrationManifest.Script script : manifest.scripts()) {
+            notInManifest.remove(script.path());
+            final Long size = sizes.get(script.path());
+            if (null == size) {
+                notFound.add(script.path());
+            } else if (null != script.size() && size >= 0 && !size.equals(script.size())) {
+                changed.add(script.path());
+            }
+        }
+        if (!notInManifest.isEmpty() || !notFound.isEmpty() || !changed.isEmpty()) {
+            throw new MigrationException(("manifest %s is stale, regenerate it or delete it to scan the location: " +
+                    "scripts not in the manifest=%s, scripts not found=%s, changed scripts=%s")
+                    .formatted(manifestUrl, notInManifest, notFound, changed));
+        }
+    }
+
+    /**
+     * @param javaMigrationClass the not yet initialized JavaMigration class
+     */
+    private RawMigrationScript<JavaMigrationRequestContent> readJavaMigration(ClassLoader classLoader, Class<?> javaMigrationClass) {
+        final String className = javaMigrationClass.getName();
+        final JavaMigrationInfo javaMigrationInfo = javaMigrationClass.getAnnotation(JavaMigrationInfo.class);
+        if (null != javaMigrationInfo) {
+            return createLazyRawMigrationScript(className, javaMigrationInfo,
+                    () -> instantiateJavaMigration(classLoader, className));
+        }
+        return createRawMigrationScript(instantiateJavaMigration(classLoader, className));
+    }
+
+    private static Class<?> loadClass(ClassLoader classLoader, String className, boolean initialize) {
+        try {
+            return Class.forName(className, initialize, classLoader);
+        } catch (ClassNotFoundException | LinkageError e) {
+            throw new MigrationException("Couldn't load JavaMigration: " + className, e);
+        }
+    }
+
+    private static JavaMigration instantiateJavaMigration(ClassLoader classLoader, String className) {
+        return instantiateJavaMigration(loadClass(classLoader, className, true));
+    }
+
+    private static JavaMigration instantiateJavaMigration(Class<?> javaMigrationClass) {
+        final Constructor<?> constructor;
+        try {
+            constructor = javaMigrationClass.getConstructor();
+        } catch (NoSuchMethodException e) {
+            throw new MigrationException("JavaMigration " + javaMigrationClass.getName() + " does not have a public no-args constructor!", e);
+        }
+        try {
+            return (JavaMigration) constructor.newInstance();
+        } catch (Exception e) {
+            throw new MigrationException("Couldn't create instance of JavaMigration: " + javaMigrationClass.getName(), e);
+        }
+    }
+
+    private static ClassLoader getClassLoader() {
+        final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        return null != contextClassLoader
+                ? contextClassLoader
+                : MigrationScriptReaderImpl.class.getClassLoader();
     }
 
     private RawMigrationScript<JavaMigrationRequestContent> createRawMigrationScript(JavaMigration javaMigrationInstance) {
@@ -221,6 +880,25 @@ public class MigrationScriptReaderImpl implements MigrationScriptReader {
                 .setContent(new JavaMigrationRequestContent(javaMigrationInstance));
     }
 
+    /**
+     * Creates a migration, which is instantiated right before it is executed. Version, description and checksum are
+     * taken from the {@link JavaMigrationInfo} annotation.
+     */
+    private static RawMigrationScript<JavaMigrationRequestContent> createLazyRawMigrationScript(String className,
+                                                                                              JavaMigrationInfo javaMigrationInfo,
+                                                                                              Supplier<JavaMigration> factory) {
+        final JavaMigrationMetadata metadata;
+        try {
+            metadata = new JavaMigrationMetadata(MigrationVersion.fromVersion(javaMigrationInfo.version()),
+                    javaMigrationInfo.description());
+        } catch (RuntimeException e) {
+            throw new MigrationException("JavaMigration " + className + " has invalid @JavaMigrationInfo: " + e.getMessage(), e);
+        }
+        return new RawMigrationScript<JavaMigrationRequestContent>()
+                .setFileName(className.substring(Math.max(className.lastIndexOf('.'), className.lastIndexOf('$')) + 1))
+                .setContent(JavaMigrationRequestContent.lazy(className, metadata, javaMigrationInfo.checksum(), factory));
+    }
+
     private Optional<MethodInfo> findPublicNoArgsConstructor(ClassInfo classInfo) {
         return classInfo.getDeclaredConstructorInfo()
                 .filter(ClassMemberInfo::isPublic)
@@ -229,24 +907,13 @@ public class MigrationScriptReaderImpl implements MigrationScriptReader {
                 .findFirst();
     }
 
-    Stream<RawMigrationScript<ScriptMigrationContent>> read(BufferedReader reader, String filename) throws IOException {
-        StringBuilder sb = new StringBuilder();
-        int ch;
-        while ((ch = reader.read()) != -1) {
-            sb.append((char) ch);
-        }
-        // use static line separator ('\n' per default) to get predictable and system independent checksum later
-        String content = sb.toString().replaceAll("\\R", lineSeparator);
-
-        if (content.isEmpty()) {
-            return Stream.empty();
-        }
-
-        if (trimTrailingNewlineInMigrations && content.endsWith(lineSeparator)) {
-            content = content.substring(0, content.length() - lineSeparator.length());
-        }
-
-        return Stream.of(new RawMigrationScript<ScriptMigrationContent>().setFileName(filename).setContent(new ScriptMigrationContent(content)));
+    /**
+     * reads the migration scripts of a single file like they are read from the locations
+     */
+    public Stream<RawMigrationScript<ScriptMigrationContent>> read(BufferedReader reader, String filename) throws IOException {
+        // uses the static line separator ('\n' per default) to get predictable and system independent checksum later
+        return contentLoader.load(reader).stream()
+                .map(content -> new RawMigrationScript<ScriptMigrationContent>().setFileName(filename).setContent(content));
     }
 
     private boolean hasValidSuffix(String path) {
@@ -255,8 +922,55 @@ public class MigrationScriptReaderImpl implements MigrationScriptReader {
                 .anyMatch(suffix -> path.toLowerCase().endsWith(suffix.toLowerCase()));
     }
 
-    private boolean isValidFilename(String fileName) {
+    /**
+     * NDJSON bulk data migrations are only found, if their suffix is configured, so existing NDJSON files next to the
+     * migration scripts are not executed.
+     *
+     * @return whether the file name matches the configured prefix and suffixes of migration scripts
+     */
+    public boolean isValidFilename(String fileName) {
         return hasValidSuffix(fileName)
                 && fileName.startsWith(this.esMigrationPrefix);
     }
+
+    /**
+     * reads a found migration, must be thread safe
+     */
+    @FunctionalInterface
+    private interface PendingMigration {
+        List<RawMigrationScript<?>> read();
+    }
+
+    /**
+     * The classpath scan of the current run. It is created with the first classpath location to read and reused by
+     * all other locations, until the last user has released it.
+     */
+    private final class ClassPathScanHolder {
+        private int users = 0;
+        private ScanResult scanResult;
+
+        synchronized void acquire() {
+            users++;
+        }
+
+        synchronized ScanResult get() {
+            if (null == scanResult) {
+                scanResult = ClassPathScanner.scan(getClassLoader(),
+                        classPathLocationsToScan(),
+                        null == config.getJavaMigrationClassProvider(),
+                        config.isShareClasspathScan());
+            }
+            return scanResult;
+        }
+
+        synchronized void release() {
+            users--;
+            if (users == 0 && null != scanResult) {
+                if (!config.isShareClasspathScan()) {
+                    scanResult.close();
+                }
+                scanResult = null;
+            }
+        }
+    }
 }
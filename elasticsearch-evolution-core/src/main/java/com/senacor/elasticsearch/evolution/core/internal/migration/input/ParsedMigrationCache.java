@@ -0,0 +1,254 @@
+package com.senacor.elasticsearch.evolution.core.internal.migration.input;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.senacor.elasticsearch.evolution.core.api.config.ElasticsearchEvolutionConfig;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.MigrationRequest;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.MigrationScriptRequest;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.MigrationScriptRequests;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.ScriptMigrationContent;
+import com.senacor.elasticsearch.evolution.rest.abstraction.HttpMethod;
+import lombok.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * On-disk cache of parsed migration scripts.
+ * <p>
+ * Parsed scripts are stored content-addressed in {@code entries/}: the key is the SHA-256 hash of the script content
+ * and of the parsing related configuration (placeholders, line separator, ...). Additionally, {@code sources/} maps
+ * the source of a script (e.g. the file path) together with its stamp (size and modification time) to the content
+ * hash, so unchanged scripts are not even read to be parsed.
+ * <p>
+ * The checksums of the scripts are not cached. Size and modification time are not reliable enough to validate the
+ * history against, so the checksums are always computed from the content.
+ * <p>
+ * Files are written atomically. Unreadable, corrupt or not matching files are ignored and rewritten, failing writes
+ * are only logged, so the cache never fails a migration.
+ * <p>
+ * Instances are thread safe.
+ */
+public final class ParsedMigrationCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParsedMigrationCache.class);
+
+    static final int FORMAT_VERSION = 4;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final Path entriesDirectory;
+    private final Path sourcesDirectory;
+    /**
+     * hash of the config options, which influence loading of the content
+     */
+    private final String loaderSettingsHash;
+    /**
+     * hash of the config options, which influence parsing of the content
+     */
+    private final String parserSettingsHash;
+
+    /**
+     * @param config config with a {@link ElasticsearchEvolutionConfig#getParsedMigrationCacheDirectory()}
+     */
+    public ParsedMigrationCache(@NonNull ElasticsearchEvolutionConfig config) {
+        final Path directory = Paths.get(Objects.requireNonNull(config.getParsedMigrationCacheDirectory(),
+                "parsedMigrationCacheDirectory must not be null"));
+        this.entriesDirectory = directory.resolve("entries");
+        this.sourcesDirectory = directory.resolve("sources");
+        this.loaderSettingsHash = sha256(FORMAT_VERSION + "\n" + config.getEncoding() + "\n" + config.getLineSeparator()
+                + "\n" + config.isTrimTrailingNewlineInMigrations());
+        this.parserSettingsHash = sha256(FORMAT_VERSION + "\n" + config.getLineSeparator()
+                + "\n" + config.isPlaceholderReplacement()
+                + (config.isPlaceholderReplacement()
+                ? "\n" + config.getPlaceholderPrefix() + "\n" + config.getPlaceholderSuffix() + "\n" + new TreeMap<>(config.getPlaceholders())
+                : ""));
+    }
+
+    /**
+     * @param parser parses the content, if there is no cached request for it
+     * @return the cached or parsed request. The content is not read, if the source of the content is unchanged and
+     * the request was already cached.
+     */
+    public MigrationRequest request(@NonNull ScriptMigrationContent content,
+                                   @NonNull Function<ScriptMigrationContent, MigrationRequest> parser) {
+        final Optional<MigrationRequest> cachedBySource = findSource(content)
+                .flatMap(source -> findEntry(source.contentHash()));
+        if (cachedBySource.isPresent()) {
+            return cachedBySource.get();
+        }
+
+        final String contentHash = sha256(content.content());
+        final MigrationRequest res = findEntry(contentHash).orElseGet(() -> {
+            final MigrationRequest parsed = parser.apply(content);
+            write(entryFile(contentHash), CacheEntry.of(contentHash, parserSettingsHash, parsed));
+            return parsed;
+        });
+        if (null != content.sourceStamp()) {
+            write(sourceFile(content), new SourceEntry(FORMAT_VERSION, loaderSettingsHash, content.source(),
+                    content.sourceStamp(), contentHash));
+        }
+        return res;
+    }
+
+    private Optional<SourceEntry> findSource(ScriptMigrationContent content) {
+        if (null == content.sourceStamp()) {
+            return Optional.empty();
+        }
+        return read(sourceFile(content), SourceEntry.class)
+                .filter(source -> source.formatVersion() == FORMAT_VERSION
+                        && loaderSettingsHash.equals(source.loaderSettingsHash())
+                        && content.source().equals(source.source())
+                        && content.sourceStamp().equals(source.sourceStamp())
+                        && null != source.contentHash());
+    }
+
+    private Optional<MigrationRequest> findEntry(String contentHash) {
+        final Path file = entryFile(contentHash);
+        return read(file, CacheEntry.class)
+                .filter(entry -> entry.formatVersion() == FORMAT_VERSION
+                        && contentHash.equals(entry.contentHash())
+                        && parserSettingsHash.equals(entry.parserSettingsHash()))
+                .flatMap(entry -> {
+                    try {
+                        return Optional.of(entry.toRequest());
+                    } catch (RuntimeException e) {
+                        logger.warn("ignoring corrupt parsed migration cache file '{}': {}", file, e.toString());
+                        return Optional.empty();
+                    }
+                });
+    }
+
+    private Path sourceFile(ScriptMigrationContent content) {
+        return sourcesDirectory.resolve(sha256(loaderSettingsHash + "\n" + content.source()) + ".json");
+    }
+
+    private Path entryFile(String contentHash) {
+        return entriesDirectory.resolve(sha256(contentHash + "\n" + parserSettingsHash) + ".json");
+    }
+
+    private static <T> Optional<T> read(Path file, Class<T> type) {
+        if (!Files.isRegularFile(file)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.ofNullable(MAPPER.readValue(file.toFile(), type));
+        } catch (IOException | RuntimeException e) {
+            logger.warn("ignoring corrupt parsed migration cache file '{}': {}", file, e.toString());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * writes to a temporary file first and moves it afterward, so concurrent readers never see partially written files
+     */
+    private static void write(Path file, Object value) {
+        try {
+            Files.createDirectories(file.getParent());
+            final Path tempFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            try {
+                MAPPER.writeValue(tempFile.toFile(), value);
+                try {
+                    Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                // only exists, if moving failed
+                Files.deleteIfExists(tempFile);
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warn("couldn't write parsed migration cache file '{}': {}", file, e.toString());
+        }
+    }
+
+    private static String sha256(String value) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
+    /**
+     * maps a source with its stamp to the hash of its content
+     */
+    record SourceEntry(int formatVersion,
+                       String loaderSettingsHash,
+                       String source,
+                       String sourceStamp,
+                       String contentHash) {
+    }
+
+    /**
+     * the parsed requests of a content
+     */
+    record CacheEntry(int formatVersion,
+                      String contentHash,
+                      String parserSettingsHash,
+                      List<RequestEntry> requests) {
+
+        static CacheEntry of(String contentHash, String parserSettingsHash, MigrationRequest request) {
+            final List<MigrationScriptRequest> requests;
+            if (request instanceof MigrationScriptRequests migrationScriptRequests) {
+                requests = migrationScriptRequests.requests();
+            } else if (request instanceof MigrationScriptRequest migrationScriptRequest) {
+                requests = List.of(migrationScriptRequest);
+            } else {
+                throw new IllegalArgumentException("migration request of type '%s' can't be cached".formatted(request.getClass()));
+            }
+            return new CacheEntry(FORMAT_VERSION, contentHash, parserSettingsHash, requests.stream()
+                    .map(RequestEntry::of)
+                    .toList());
+        }
+
+        MigrationRequest toRequest() {
+            if (requests.size() == 1) {
+                return requests.get(0).toRequest();
+            }
+            return new MigrationScriptRequests(requests.stream()
+                    .map(RequestEntry::toRequest)
+                    .toList());
+        }
+    }
+
+    /**
+     * a single parsed request
+     */
+    record RequestEntry(String httpMethod,
+                        String path,
+                        Map<String, String> httpHeader,
+                        String body) {
+
+        static RequestEntry of(MigrationScriptRequest request) {
+            return new RequestEntry(request.getHttpMethod().name(), request.getPath(), request.getHttpHeader(), request.getBody());
+        }
+
+        MigrationScriptRequest toRequest() {
+            return new MigrationScriptRequest()
+                    .setHttpMethod(HttpMethod.valueOf(httpMethod))
+                    .setPath(path)
+                    .setHttpHeader(null == httpHeader ? new HashMap<>() : new HashMap<>(httpHeader))
+                    .setBody(null == body ? "" : body);
+        }
+    }
+}
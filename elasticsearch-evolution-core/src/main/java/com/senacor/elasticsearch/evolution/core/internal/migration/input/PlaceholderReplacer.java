@@ -0,0 +1,331 @@
+package com.senacor.elasticsearch.evolution.core.internal.migration.input;
+
+import lombok.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.WeakHashMap;
+
+import static com.senacor.elasticsearch.evolution.core.internal.utils.AssertionUtils.requireNotBlank;
+
+/**
+ * Replaces placeholders like {@code ${name}} in migration scripts.
+ * <p>
+ * A script is scanned once for placeholder tokens ({@code placeholderPrefix} + name + {@code placeholderSuffix}), the
+ * result is a compiled template, which resolves the tokens by a hash lookup. So the script is copied once, independent
+ * of the number of placeholders. Compiled templates are cached per script content as long as the content is in use.
+ * <p>
+ * Large scripts are not loaded, their placeholders are replaced while reading with {@link #replacing(String, Reader)}.
+ * <p>
+ * Instances are thread safe.
+ */
+public final class PlaceholderReplacer {
+
+    private static final Logger logger = LoggerFactory.getLogger(PlaceholderReplacer.class);
+
+    /**
+     * names of unresolved placeholders are reported up to this length in streamed scripts
+     */
+    private static final int MIN_STREAMED_NAME_LENGTH = 256;
+
+    private final Map<String, String> placeholders;
+    private final String placeholderPrefix;
+    private final String placeholderSuffix;
+    private final boolean reportUnresolved;
+    /**
+     * tokens with longer names can't be resolved, so streamed scripts buffer at most this many characters of a name
+     */
+    private final int maxStreamedNameLength;
+    /**
+     * weak keys, so templates of scripts, which are not used anymore, are removed
+     */
+    private final Map<String, Template> templates = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * @param placeholders      placeholder names and their values, may be null if there are no placeholders
+     * @param placeholderPrefix prefix of placeholders, e.g. {@code ${}
+     * @param placeholderSuffix suffix of placeholders, e.g. {@code }}
+     * @param reportUnresolved  whether to log a warning for placeholders without value
+     */
+    public PlaceholderReplacer(Map<String, String> placeholders,
+                               String placeholderPrefix,
+                               String placeholderSuffix,
+                               boolean reportUnresolved) {
+        this.placeholders = null == placeholders ? Map.of() : new HashMap<>(placeholders);
+        this.placeholderPrefix = requireNotBlank(placeholderPrefix, "placeholderPrefix must not be empty");
+        this.placeholderSuffix = requireNotBlank(placeholderSuffix, "placeholderSuffix must not be empty");
+        this.reportUnresolved = reportUnresolved;
+        this.maxStreamedNameLength = Math.max(MIN_STREAMED_NAME_LENGTH, this.placeholders.keySet().stream()
+                .mapToInt(String::length)
+                .max()
+                .orElse(0));
+    }
+
+    /**
+     * @param scriptName name of the script, used to report unresolved placeholders
+     * @param content    content of the script
+     * @return content with all placeholders replaced by their values. Placeholders without value are kept.
+     */
+    public String replace(String scriptName, @NonNull String content) {
+        if (placeholders.isEmpty() && !reportUnresolved) {
+            return content;
+        }
+        Template template = templates.get(content);
+        if (null == template) {
+            // compiled outside the lock, so scripts can be compiled concurrently
+            template = compile(content);
+            templates.put(content, template);
+        }
+        if (template.placeholderCount() == 0) {
+            return content;
+        }
+
+        final StringBuilder res = new StringBuilder(content.length());
+        Set<String> unresolved = null;
+        int literalStart = 0;
+        for (int i = 0; i < template.placeholderCount(); i++) {
+            final int tokenStart = template.tokenStarts[i];
+            final int tokenEnd = template.tokenEnds[i];
+            final String value = placeholders.get(template.names[i]);
+            res.append(content, literalStart, tokenStart);
+            if (null != value) {
+                res.append(value);
+            } else {
+                res.append(content, tokenStart, tokenEnd);
+                if (reportUnresolved) {
+                    if (null == unresolved) {
+                        unresolved = new TreeSet<>();
+                    }
+                    unresolved.add(template.names[i]);
+                }
+            }
+            literalStart = tokenEnd;
+        }
+        res.append(content, literalStart, content.length());
+
+        if (null != unresolved) {
+            logger.warn("migration script '{}' contains unresolved placeholders: {}", scriptName, unresolved);
+        }
+        return res.toString();
+    }
+
+    /**
+     * @return whether placeholders can be replaced in streamed scripts, which are parsed line by line. This is not the
+     * case, if a value contains a line break.
+     */
+    public boolean isStreamable() {
+        return placeholders.values().stream()
+                .filter(Objects::nonNull)
+                .noneMatch(value -> value.chars().anyMatch(PlaceholderReplacer::isLineBreak));
+    }
+
+    private static boolean isLineBreak(int c) {
+        return c == '\r' || c == '\n' || c == '\u000B' || c == '\f' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    /**
+     * Wraps a reader of a script, so the placeholders are replaced while reading like {@link #replace(String, String)}.
+     * Only the name of the current placeholder token is buffered. Tokens with names longer than any placeholder name
+     * (at least {@value #MIN_STREAMED_NAME_LENGTH} characters) are kept and not reported.
+     *
+     * @param scriptName name of the script to report unresolved placeholders at the end of the script or null, if
+     *                   they should not be reported
+     * @param reader     reader of the script, it is closed when the returned reader is closed
+     * @return reader of the script with all placeholders replaced by their values
+     */
+    public Reader replacing(String scriptName, @NonNull Reader reader) {
+        if (placeholders.isEmpty() && !reportUnresolved) {
+            return reader;
+        }
+        return new ReplacingReader(scriptName, reader);
+    }
+
+    /**
+     * finds all placeholder tokens. Placeholder names can't contain the prefix, so a token starts at the last prefix
+     * before a suffix.
+     */
+    private Template compile(String content) {
+        final List<Integer> tokenStarts = new ArrayList<>();
+        final List<Integer> tokenEnds = new ArrayList<>();
+        final List<String> names = new ArrayList<>();
+        int prefixIndex = content.indexOf(placeholderPrefix);
+        while (prefixIndex >= 0) {
+            final int nameStart = prefixIndex + placeholderPrefix.length();
+            final int suffixIndex = content.indexOf(placeholderSuffix, nameStart);
+            if (suffixIndex < 0) {
+                // no suffix after this prefix, so there is no suffix after any later prefix, too
+                break;
+            }
+            final int prefixInNameIndex = content.indexOf(placeholderPrefix, nameStart);
+            if (prefixInNameIndex >= 0 && prefixInNameIndex + placeholderPrefix.length() <= suffixIndex) {
+                // the name would contain the prefix, so the token starts at a later prefix
+                prefixIndex = content.indexOf(placeholderPrefix, prefixIndex + 1);
+                continue;
+            }
+            tokenStarts.add(prefixIndex);
+            tokenEnds.add(suffixIndex + placeholderSuffix.length());
+            names.add(content.substring(nameStart, suffixIndex));
+            prefixIndex = content.indexOf(placeholderPrefix, suffixIndex + placeholderSuffix.length());
+        }
+        return new Template(
+                tokenStarts.stream().mapToInt(Integer::intValue).toArray(),
+                tokenEnds.stream().mapToInt(Integer::intValue).toArray(),
+                names.toArray(new String[0]));
+    }
+
+    /**
+     * Replaces the tokens while reading. Like {@link #compile(String)}, a token starts at the last prefix before a
+     * suffix.
+     */
+    private final class ReplacingReader extends Reader {
+        private final String scriptName;
+        private final Reader reader;
+        private final char[] buffer = new char[8 * 1024];
+        /**
+         * replaced characters, which are not read yet
+         */
+        private final StringBuilder out = new StringBuilder();
+        private int outPosition = 0;
+        /**
+         * the last characters, which may be the start of a prefix
+         */
+        private final StringBuilder prefixCandidate = new StringBuilder();
+        /**
+         * the characters after the prefix of the current token or null, if not in a token
+         */
+        private StringBuilder name = null;
+        private final Set<String> unresolved = new TreeSet<>();
+        private boolean endOfInput = false;
+
+        ReplacingReader(String scriptName, Reader reader) {
+            this.scriptName = scriptName;
+            this.reader = reader;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (outPosition == out.length()) {
+                out.setLength(0);
+                outPosition = 0;
+                if (endOfInput) {
+                    return -1;
+                }
+                final int read = reader.read(buffer, 0, buffer.length);
+                if (read < 0) {
+                    endOfInput();
+                } else {
+                    for (int i = 0; i < read; i++) {
+                        append(buffer[i]);
+                    }
+                }
+            }
+            final int read = Math.min(len, out.length() - outPosition);
+            out.getChars(outPosition, outPosition + read, cbuf, off);
+            outPosition += read;
+            return read;
+        }
+
+        private void append(char c) {
+            if (null != name) {
+                name.append(c);
+                if (endsWith(name, placeholderSuffix)) {
+                    final String placeholderName = name.substring(0, name.length() - placeholderSuffix.length());
+                    final String value = placeholders.get(placeholderName);
+                    if (null != value) {
+                        out.append(value);
+                    } else {
+                        out.append(placeholderPrefix).append(placeholderName).append(placeholderSuffix);
+                        if (reportUnresolved) {
+                            unresolved.add(placeholderName);
+                        }
+                    }
+                    name = null;
+                } else if (endsWith(name, placeholderPrefix)) {
+                    // the name would contain the prefix, so the token starts at this prefix
+                    out.append(placeholderPrefix).append(name, 0, name.length() - placeholderPrefix.length());
+                    name.setLength(0);
+                } else if (name.length() > maxStreamedNameLength + placeholderSuffix.length()) {
+                    out.append(placeholderPrefix).append(name);
+                    name = null;
+                }
+                return;
+            }
+            prefixCandidate.append(c);
+            while (!startsPrefix(prefixCandidate)) {
+                out.append(prefixCandidate.charAt(0));
+                prefixCandidate.deleteCharAt(0);
+            }
+            if (prefixCandidate.length() == placeholderPrefix.length()) {
+                prefixCandidate.setLength(0);
+                name = new StringBuilder();
+            }
+        }
+
+        private boolean startsPrefix(StringBuilder chars) {
+            for (int i = 0; i < chars.length(); i++) {
+                if (chars.charAt(i) != placeholderPrefix.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static boolean endsWith(StringBuilder chars, String suffix) {
+            final int start = chars.length() - suffix.length();
+            if (start < 0) {
+                return false;
+            }
+            for (int i = 0; i < suffix.length(); i++) {
+                if (chars.charAt(start + i) != suffix.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void endOfInput() {
+            endOfInput = true;
+            if (null != name) {
+                out.append(placeholderPrefix).append(name);
+                name = null;
+            }
+            out.append(prefixCandidate);
+            prefixCandidate.setLength(0);
+            if (null != scriptName && !unresolved.isEmpty()) {
+                logger.warn("migration script '{}' contains unresolved placeholders: {}", scriptName, unresolved);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    /**
+     * Positions of the placeholder tokens in a script. Does not reference the script, so it can be cached with weak
+     * keys.
+     *
+     * @param tokenStarts start index of each token (inclusive)
+     * @param tokenEnds   end index of each token (exclusive)
+     * @param names       placeholder name of each token
+     */
+    private record Template(int[] tokenStarts, int[] tokenEnds, String[] names) {
+        int placeholderCount() {
+            return names.length;
+        }
+    }
+}
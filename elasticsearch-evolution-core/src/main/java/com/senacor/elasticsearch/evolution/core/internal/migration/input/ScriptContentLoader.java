@@ -0,0 +1,466 @@
+package com.senacor.elasticsearch.evolution.core.internal.migration.input;
+
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.ContentChecksums;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.ScriptMigrationContent;
+import com.senacor.elasticsearch.evolution.core.internal.utils.XxHash64;
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+
+/**
+ * Loads the content of migration scripts in a single pass.
+ * <p>
+ * Bytes are read in bulk and decoded with a reusable {@link CharsetDecoder}. While decoding, all line breaks
+ * (like the regex {@code \R}) are replaced with the configured line separator, the trailing line separator is trimmed
+ * (if enabled) and the checksums ({@link String#hashCode()} and {@link ScriptMigrationContent#contentChecksum()}) of
+ * the resulting content are computed. The checksums can be computed without keeping the content, too.
+ * <p>
+ * Large contents can be streamed with {@link #normalizing(Reader)}, which replaces the line breaks the same way.
+ * <p>
+ * Instances are thread safe.
+ */
+public final class ScriptContentLoader {
+
+    /**
+     * files of this size or larger are memory mapped instead of read into the heap
+     */
+    static final long MEMORY_MAP_THRESHOLD = 1024L * 1024L;
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    /**
+     * multiplicative inverse of 31 modulo 2^32, reverts the last step of {@link String#hashCode()}
+     */
+    private static final int INVERSE_OF_31 = 0xBDEF7BDF;
+
+    private final String lineSeparator;
+    private final boolean trimTrailingNewline;
+    private final ThreadLocal<CharsetDecoder> decoder;
+
+    /**
+     * @param encoding            encoding of the scripts
+     * @param lineSeparator       replacement for all line breaks
+     * @param trimTrailingNewline whether to remove the line separator at the end of the content
+     */
+    public ScriptContentLoader(@NonNull Charset encoding, @NonNull String lineSeparator, boolean trimTrailingNewline) {
+        this.lineSeparator = lineSeparator;
+        this.trimTrailingNewline = trimTrailingNewline;
+        // like InputStreamReader, malformed input is replaced and does not fail
+        this.decoder = ThreadLocal.withInitial(() -> encoding.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE));
+    }
+
+    /**
+     * Loads a script from the filesystem. Large files are memory mapped.
+     *
+     * @return the content or empty, if the file is empty
+     */
+    public Optional<ScriptMigrationContent> load(@NonNull Path file) throws IOException {
+        return read(file, true).build();
+    }
+
+    /**
+     * Computes the checksums of a script from the filesystem without keeping its content.
+     *
+     * @return the checksums or empty, if the file is empty
+     */
+    public Optional<ContentChecksums> checksums(@NonNull Path file) throws IOException {
+        return read(file, false).buildChecksums();
+    }
+
+    private ContentBuilder read(Path file, boolean keepContent) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size >= MEMORY_MAP_THRESHOLD) {
+                return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, size), keepContent);
+            }
+            final ByteBuffer bytes = ByteBuffer.allocate((int) size);
+            while (bytes.hasRemaining() && channel.read(bytes) != -1) {
+                // read until the buffer is full or the end of the file is reached
+            }
+            return read(bytes.flip(), keepContent);
+        }
+    }
+
+    /**
+     * @return the content or empty, if there are no bytes
+     */
+    public Optional<ScriptMigrationContent> load(@NonNull byte[] bytes) {
+        return read(ByteBuffer.wrap(bytes), true).build();
+    }
+
+    /**
+     * Computes the checksums of a script without keeping its content.
+     *
+     * @return the checksums or empty, if there are no bytes
+     */
+    public Optional<ContentChecksums> checksums(@NonNull byte[] bytes) {
+        return read(ByteBuffer.wrap(bytes), false).buildChecksums();
+    }
+
+    /**
+     * Loads a script from a stream, the stream is not closed.
+     *
+     * @return the content or empty, if the stream is empty
+     */
+    public Optional<ScriptMigrationContent> load(@NonNull InputStream inputStream) throws IOException {
+        return read(inputStream, true).build();
+    }
+
+    /**
+     * Computes the checksums of a script from a stream without keeping its content, the stream is not closed.
+     *
+     * @return the checksums or empty, if the stream is empty
+     */
+    public Optional<ContentChecksums> checksums(@NonNull InputStream inputStream) throws IOException {
+        return read(inputStream, false).buildChecksums();
+    }
+
+    private ContentBuilder read(InputStream inputStream, boolean keepContent) throws IOException {
+        final CharsetDecoder charsetDecoder = decoder.get().reset();
+        final ContentBuilder content = new ContentBuilder(BUFFER_SIZE, keepContent);
+        final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        final ByteBuffer bytes = ByteBuffer.wrap(buffer);
+        int read;
+        while ((read = inputStream.read(buffer, bytes.position(), bytes.remaining())) != -1) {
+            bytes.position(bytes.position() + read);
+            bytes.flip();
+            decode(charsetDecoder, bytes, false, chars, content);
+            // keeps incomplete multi byte characters for the next read
+            bytes.compact();
+        }
+        bytes.flip();
+        decode(charsetDecoder, bytes, true, chars, content);
+        return content;
+    }
+
+    /**
+     * Loads a script from already decoded characters, the reader is not closed.
+     *
+     * @return the content or empty, if the reader is empty
+     */
+    public Optional<ScriptMigrationContent> load(@NonNull Reader reader) throws IOException {
+        final ContentBuilder content = new ContentBuilder(BUFFER_SIZE, true);
+        final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+        while (reader.read(chars) != -1) {
+            content.append(chars.flip());
+            chars.clear();
+        }
+        return content.build();
+    }
+
+    /**
+     * Wraps a reader of the raw content, so the content is read like the loaded content: line breaks are replaced
+     * and the trailing line separator is trimmed (if enabled). Neither the content nor its checksums are kept.
+     *
+     * @param reader reader of the raw content, it is closed when the returned reader is closed
+     * @return reader of the content
+     */
+    public Reader normalizing(@NonNull Reader reader) {
+        return new NormalizingReader(reader);
+    }
+
+    private ContentBuilder read(ByteBuffer bytes, boolean keepContent) {
+        final CharsetDecoder charsetDecoder = decoder.get().reset();
+        final ContentBuilder content = new ContentBuilder((int) (bytes.remaining() * charsetDecoder.averageCharsPerByte()), keepContent);
+        decode(charsetDecoder, bytes, true, CharBuffer.allocate(BUFFER_SIZE), content);
+        return content;
+    }
+
+    private static void decode(CharsetDecoder charsetDecoder, ByteBuffer bytes, boolean endOfInput, CharBuffer chars, ContentBuilder content) {
+        CoderResult result;
+        do {
+            result = charsetDecoder.decode(bytes, chars, endOfInput);
+            content.append(chars.flip());
+            chars.clear();
+        } while (result.isOverflow());
+        throwIfError(result);
+        if (endOfInput) {
+            do {
+                result = charsetDecoder.flush(chars);
+                content.append(chars.flip());
+                chars.clear();
+            } while (result.isOverflow());
+            throwIfError(result);
+        }
+    }
+
+    private static void throwIfError(CoderResult result) {
+        if (result.isError()) {
+            try {
+                result.throwException();
+            } catch (CharacterCodingException e) {
+                // can't happen, malformed input and unmappable characters are replaced
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * Replaces the line breaks while reading. A line break is written when the next character is read, so the
+     * trailing line break can be trimmed at the end of the input.
+     */
+    private final class NormalizingReader extends Reader {
+        private final Reader reader;
+        private final char[] buffer = new char[BUFFER_SIZE];
+        private int position = 0;
+        private int limit = 0;
+        private boolean endOfInput = false;
+        private boolean afterCarriageReturn = false;
+        /**
+         * whether a line break was read, which is not written yet
+         */
+        private boolean pendingLineBreak = false;
+        /**
+         * index of the next character of the line separator to write or -1, if no line separator is written
+         */
+        private int separatorIndex = -1;
+
+        NormalizingReader(Reader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            int read = 0;
+            while (read < len) {
+                if (separatorIndex >= 0) {
+                    cbuf[off + read++] = lineSeparator.charAt(separatorIndex++);
+                    if (separatorIndex == lineSeparator.length()) {
+                        separatorIndex = -1;
+                    }
+                } else if (position < limit) {
+                    final char c = buffer[position++];
+                    if (afterCarriageReturn) {
+                        afterCarriageReturn = false;
+                        if (c == '\n') {
+                            // "\r\n" is a single line break
+                            continue;
+                        }
+                    }
+                    switch (c) {
+                        case '\r', '\n', '\u000B', '\f', '\u0085', '\u2028', '\u2029' -> {
+                            afterCarriageReturn = c == '\r';
+                            if (pendingLineBreak) {
+                                writeLineSeparator();
+                            }
+                            pendingLineBreak = true;
+                        }
+                        default -> {
+                            if (pendingLineBreak) {
+                                pendingLineBreak = false;
+                                writeLineSeparator();
+                                // the character is written after the line separator
+                                position--;
+                            } else {
+                                cbuf[off + read++] = c;
+                            }
+                        }
+                    }
+                } else if (read > 0 || endOfInput) {
+                    break;
+                } else {
+                    final int filled = reader.read(buffer, 0, buffer.length);
+                    position = 0;
+                    limit = Math.max(0, filled);
+                    if (filled < 0) {
+                        endOfInput = true;
+                        if (pendingLineBreak && !trimTrailingNewline) {
+                            writeLineSeparator();
+                        }
+                        pendingLineBreak = false;
+                    }
+                }
+            }
+            return read == 0 && endOfInput ? -1 : read;
+        }
+
+        private void writeLineSeparator() {
+            if (!lineSeparator.isEmpty()) {
+                separatorIndex = 0;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    /**
+     * Collects the normalized content and computes its checksums at the same time.
+     * <p>
+     * The content checksum is computed over the UTF-8 bytes of the content. The last characters are hashed with a
+     * delay of the line separator length, because a trailing line separator may be trimmed at the end.
+     */
+    private final class ContentBuilder {
+        private final StringBuilder content;
+        private int length = 0;
+        private int checksum = 0;
+        private boolean afterCarriageReturn = false;
+        private final XxHash64 contentChecksum = new XxHash64();
+        private final byte[] utf8 = new byte[BUFFER_SIZE];
+        private int utf8Size = 0;
+        private char highSurrogate = 0;
+        /**
+         * the last characters, which are not hashed yet
+         */
+        private final char[] tail = new char[lineSeparator.length()];
+        private int tailSize = 0;
+
+        /**
+         * @param keepContent whether to keep the content or to compute the checksums only
+         */
+        ContentBuilder(int expectedLength, boolean keepContent) {
+            this.content = keepContent ? new StringBuilder(Math.max(16, expectedLength)) : null;
+        }
+
+        void append(CharBuffer chars) {
+            while (chars.hasRemaining()) {
+                final char c = chars.get();
+                if (afterCarriageReturn) {
+                    afterCarriageReturn = false;
+                    if (c == '\n') {
+                        // "\r\n" is a single line break
+                        continue;
+                    }
+                }
+                switch (c) {
+                    case '\r' -> {
+                        afterCarriageReturn = true;
+                        appendLineSeparator();
+                    }
+                    case '\n', '\u000B', '\f', '\u0085', '\u2028', '\u2029' -> appendLineSeparator();
+                    default -> appendChar(c);
+                }
+            }
+        }
+
+        private void appendLineSeparator() {
+            for (int i = 0; i < lineSeparator.length(); i++) {
+                appendChar(lineSeparator.charAt(i));
+            }
+        }
+
+        private void appendChar(char c) {
+            if (null != content) {
+                content.append(c);
+            }
+            length++;
+            checksum = 31 * checksum + c;
+            if (tail.length == 0) {
+                hashChar(c);
+                return;
+            }
+            if (tailSize == tail.length) {
+                hashChar(tail[0]);
+                System.arraycopy(tail, 1, tail, 0, tailSize - 1);
+                tailSize--;
+            }
+            tail[tailSize++] = c;
+        }
+
+        /**
+         * encodes the character as UTF-8 like {@link String#getBytes(java.nio.charset.Charset)}, so unpaired
+         * surrogates are encoded as '?'
+         */
+        private void hashChar(char c) {
+            if (0 != highSurrogate) {
+                final char high = highSurrogate;
+                highSurrogate = 0;
+                if (Character.isLowSurrogate(c)) {
+                    final int codePoint = Character.toCodePoint(high, c);
+                    hashByte(0xF0 | (codePoint >> 18));
+                    hashByte(0x80 | ((codePoint >> 12) & 0x3F));
+                    hashByte(0x80 | ((codePoint >> 6) & 0x3F));
+                    hashByte(0x80 | (codePoint & 0x3F));
+                    return;
+                }
+                hashByte('?');
+            }
+            if (c < 0x80) {
+                hashByte(c);
+            } else if (c < 0x800) {
+                hashByte(0xC0 | (c >> 6));
+                hashByte(0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c)) {
+                highSurrogate = c;
+            } else if (Character.isLowSurrogate(c)) {
+                hashByte('?');
+            } else {
+                hashByte(0xE0 | (c >> 12));
+                hashByte(0x80 | ((c >> 6) & 0x3F));
+                hashByte(0x80 | (c & 0x3F));
+            }
+        }
+
+        private void hashByte(int b) {
+            if (utf8Size == utf8.length) {
+                contentChecksum.update(utf8, 0, utf8Size);
+                utf8Size = 0;
+            }
+            utf8[utf8Size++] = (byte) b;
+        }
+
+        Optional<ScriptMigrationContent> build() {
+            return buildChecksums()
+                    .map(checksums -> new ScriptMigrationContent(content.toString(), checksums.checksum(), checksums.contentChecksum()));
+        }
+
+        Optional<ContentChecksums> buildChecksums() {
+            if (length == 0) {
+                return Optional.empty();
+            }
+            if (trimTrailingNewline && endsWithLineSeparator()) {
+                for (int i = tailSize - 1; i >= 0; i--) {
+                    checksum = (checksum - tail[i]) * INVERSE_OF_31;
+                }
+                if (null != content) {
+                    content.setLength(content.length() - lineSeparator.length());
+                }
+            } else {
+                for (int i = 0; i < tailSize; i++) {
+                    hashChar(tail[i]);
+                }
+            }
+            tailSize = 0;
+            if (0 != highSurrogate) {
+                highSurrogate = 0;
+                hashByte('?');
+            }
+            contentChecksum.update(utf8, 0, utf8Size);
+            utf8Size = 0;
+            return Optional.of(new ContentChecksums(checksum, contentChecksum.getValue()));
+        }
+
+        private boolean endsWithLineSeparator() {
+            if (tail.length == 0 || tailSize < tail.length) {
+                return false;
+            }
+            for (int i = 0; i < tail.length; i++) {
+                if (tail[i] != lineSeparator.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,394 @@
+package com.senacor.elasticsearch.evolution.core.internal.migration.input;
+
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.MigrationScriptRequest;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.ScriptMigrationContent;
+import com.senacor.elasticsearch.evolution.rest.abstraction.HttpMethod;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.senacor.elasticsearch.evolution.core.internal.migration.input.MigrationScriptParserImpl.*;
+
+/**
+ * Parses large migration scripts without loading them. The script is read once to parse the method, the path and the
+ * headers, the body is read again from the script, when it is sent. The rules are the same as in
+ * {@link MigrationScriptParserImpl}, but the script is read line by line: only the start of each line is buffered to
+ * detect comments and further requests.
+ * <p>
+ * Scripts with several requests are not streamed.
+ */
+final class StreamedScriptParser {
+
+    private static final Set<String> SUPPORTED_LINE_SEPARATORS = Set.of("\n", "\r\n", "\r");
+
+    /**
+     * the start of a line is buffered until it contains a non whitespace character at this index, then it is known
+     * whether the line starts with an HTTP method followed by a space
+     */
+    private static final int METHOD_LINE_HEAD_LENGTH = Arrays.stream(HttpMethod.values())
+            .mapToInt(method -> method.name().length() + 1)
+            .max()
+            .orElse(0);
+
+    private final String fileName;
+    private final ScriptMigrationContent content;
+    private final PlaceholderReplacer placeholderReplacer;
+    private final String lineSeparator;
+
+    /**
+     * @param placeholderReplacer replaces the placeholders or null, if placeholders are not replaced
+     */
+    StreamedScriptParser(String fileName,
+                         ScriptMigrationContent content,
+                         PlaceholderReplacer placeholderReplacer,
+                         String lineSeparator) {
+        this.fileName = fileName;
+        this.content = content;
+        this.placeholderReplacer = placeholderReplacer;
+        this.lineSeparator = lineSeparator;
+    }
+
+    /**
+     * @return whether scripts with this line separator can be streamed
+     */
+    static boolean isSupported(String lineSeparator) {
+        return SUPPORTED_LINE_SEPARATORS.contains(lineSeparator);
+    }
+
+    /**
+     * Reads the script once to parse the request without its body.
+     *
+     * @return the request with a streamed body or empty, if the script can't be streamed, because it contains several
+     * requests or it has no body
+     * @throws IOException if the script can't be read
+     */
+    Optional<MigrationScriptRequest> parse() throws IOException {
+        final MigrationScriptRequest res = new MigrationScriptRequest();
+        try (Lines lines = open(fileName)) {
+            final boolean hasBody = parseHead(lines, res);
+            boolean blankBody = true;
+            while (hasBody && lines.next()) {
+                final String head = lines.head();
+                final int trimmedStart = trimStart(head, 0, head.length());
+                final int trimmedEnd = trimEnd(head, trimmedStart, head.length());
+                if (isComment(head, trimmedStart, trimmedEnd)) {
+                    continue;
+                }
+                if (isMethodLine(head, 0, trimmedStart, trimmedEnd)) {
+                    return Optional.empty();
+                }
+                if (blankBody) {
+                    blankBody = trimmedStart == trimmedEnd && lines.isRestBlank();
+                }
+            }
+            if (!hasBody || blankBody) {
+                return Optional.empty();
+            }
+        }
+        return Optional.of(res.setStreamedBody(() -> new BodyReader(open(null))));
+    }
+
+    /**
+     * @param scriptName name of the script to report unresolved placeholders or null, to not report them
+     */
+    private Lines open(String scriptName) throws IOException {
+        final Reader reader = content.openContentReader();
+        return new Lines(null != placeholderReplacer
+                ? placeholderReplacer.replacing(scriptName, reader)
+                : reader);
+    }
+
+    /**
+     * parses the method line and the headers
+     *
+     * @param res request to set the method, the path and the headers, or null to skip them
+     * @return whether the headers are followed by a body
+     */
+    private static boolean parseHead(Lines lines, MigrationScriptRequest res) throws IOException {
+        boolean methodLine = true;
+        while (lines.next()) {
+            final String head = lines.head();
+            final int headStart = trimStart(head, 0, head.length());
+            if (isComment(head, headStart, trimEnd(head, headStart, head.length()))) {
+                continue;
+            }
+            final String line = head + lines.rest();
+            final int trimmedStart = trimStart(line, 0, line.length());
+            final int trimmedEnd = trimEnd(line, trimmedStart, line.length());
+            if (methodLine) {
+                if (null != res) {
+                    parseMethodWithPath(res, line, 0, line.length(), trimmedStart, trimmedEnd);
+                }
+                methodLine = false;
+            } else if (trimmedStart == trimmedEnd) {
+                return true;
+            } else if (isMethodLine(line, 0, trimmedStart, trimmedEnd)) {
+                // a further request without body, which is parsed like the whole script without streaming
+                return false;
+            } else if (null != res) {
+                parseHeader(res, line, 0, line.length(), trimmedStart, trimmedEnd);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads the body: comment lines and empty lines at the beginning are removed, the remaining lines are joined with
+     * the line separator.
+     */
+    private final class BodyReader extends Reader {
+        private final Lines lines;
+        private boolean headSkipped = false;
+        private boolean bodyStarted = false;
+        private boolean endOfBody = false;
+        /**
+         * index of the next character of the line separator to read or -1, if no line separator is read
+         */
+        private int separatorIndex = -1;
+        /**
+         * index of the next character of the line head to read or -1, if no line head is read
+         */
+        private int headIndex = -1;
+        private boolean readingRest = false;
+
+        BodyReader(Lines lines) {
+            this.lines = lines;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            if (!headSkipped) {
+                headSkipped = true;
+                endOfBody = !parseHead(lines, null);
+            }
+            if (len == 0) {
+                return 0;
+            }
+            int read = 0;
+            while (read < len && !endOfBody) {
+                if (separatorIndex >= 0) {
+                    cbuf[off + read++] = lineSeparator.charAt(separatorIndex++);
+                    if (separatorIndex == lineSeparator.length()) {
+                        separatorIndex = -1;
+                        headIndex = 0;
+                    }
+                } else if (headIndex >= 0) {
+                    final String head = lines.head();
+                    final int count = Math.min(len - read, head.length() - headIndex);
+                    head.getChars(headIndex, headIndex + count, cbuf, off + read);
+                    read += count;
+                    headIndex += count;
+                    if (headIndex == head.length()) {
+                        headIndex = -1;
+                        readingRest = !lines.isLineEnded();
+                    }
+                } else if (readingRest) {
+                    final int count = lines.readRest(cbuf, off + read, len - read);
+                    if (count < 0) {
+                        readingRest = false;
+                    } else {
+                        read += count;
+                    }
+                } else {
+                    nextLine();
+                }
+            }
+            return read == 0 && endOfBody ? -1 : read;
+        }
+
+        private void nextLine() throws IOException {
+            while (lines.next()) {
+                final String head = lines.head();
+                final int trimmedStart = trimStart(head, 0, head.length());
+                if (isComment(head, trimmedStart, trimEnd(head, trimmedStart, head.length()))) {
+                    continue;
+                }
+                if (!bodyStarted && head.isEmpty() && lines.isLineEnded()) {
+                    // empty lines at the beginning of the body are ignored
+                    continue;
+                }
+                if (bodyStarted) {
+                    separatorIndex = 0;
+                } else {
+                    bodyStarted = true;
+                    headIndex = 0;
+                }
+                return;
+            }
+            endOfBody = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            lines.close();
+        }
+    }
+
+    /**
+     * Reads the content line by line. Of each line only the head is buffered, the rest of the line can be read in
+     * chunks.
+     */
+    private final class Lines implements Closeable {
+        private final Reader reader;
+        private final char[] buffer = new char[8 * 1024];
+        private int position = 0;
+        private int limit = 0;
+        private boolean endOfInput = false;
+        private final StringBuilder head = new StringBuilder();
+        private String currentHead = null;
+        private boolean lineEnded = true;
+        private boolean lastLine = false;
+
+        Lines(Reader reader) {
+            this.reader = reader;
+        }
+
+        /**
+         * moves to the next line and buffers its head
+         *
+         * @return false, if there are no more lines
+         */
+        boolean next() throws IOException {
+            if (lastLine) {
+                return false;
+            }
+            if (!lineEnded) {
+                skipRest();
+                if (lastLine) {
+                    return false;
+                }
+            }
+            head.setLength(0);
+            lineEnded = false;
+            int firstNonWhitespace = -1;
+            while (true) {
+                final int c = readLineChar();
+                if (c < 0) {
+                    break;
+                }
+                head.append((char) c);
+                if (c > ' ') {
+                    if (firstNonWhitespace < 0) {
+                        firstNonWhitespace = head.length() - 1;
+                    }
+                    if (head.length() - 1 >= Math.max(METHOD_LINE_HEAD_LENGTH, firstNonWhitespace + 1)) {
+                        break;
+                    }
+                }
+            }
+            currentHead = head.toString();
+            return true;
+        }
+
+        /**
+         * @return the start of the current line, which is enough to detect comments and HTTP methods
+         */
+        String head() {
+            return currentHead;
+        }
+
+        /**
+         * @return whether the head contains the whole line
+         */
+        boolean isLineEnded() {
+            return lineEnded;
+        }
+
+        /**
+         * @return the rest of the current line after the head
+         */
+        String rest() throws IOException {
+            final StringBuilder rest = new StringBuilder();
+            int c;
+            while ((c = readLineChar()) >= 0) {
+                rest.append((char) c);
+            }
+            return rest.toString();
+        }
+
+        /**
+         * @return whether the rest of the current line after the head contains whitespace only
+         */
+        boolean isRestBlank() throws IOException {
+            int c;
+            while ((c = readLineChar()) >= 0) {
+                if (c > ' ') {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * reads the rest of the current line after the head
+         *
+         * @return the number of characters read or -1 at the end of the line
+         */
+        int readRest(char[] cbuf, int off, int len) throws IOException {
+            int read = 0;
+            int c;
+            while (read < len && (read == 0 || position < limit) && (c = readLineChar()) >= 0) {
+                cbuf[off + read++] = (char) c;
+            }
+            return read == 0 ? -1 : read;
+        }
+
+        private void skipRest() throws IOException {
+            while (readLineChar() >= 0) {
+                // skip
+            }
+        }
+
+        /**
+         * @return the next character of the current line or -1 at the end of the line
+         */
+        private int readLineChar() throws IOException {
+            if (lineEnded) {
+                return -1;
+            }
+            final int c = readChar();
+            if (c < 0) {
+                lineEnded = true;
+                lastLine = true;
+                return -1;
+            }
+            if (c == lineSeparator.charAt(0)) {
+                // the content is normalized, so the rest of the line separator follows
+                for (int i = 1; i < lineSeparator.length(); i++) {
+                    readChar();
+                }
+                lineEnded = true;
+                return -1;
+            }
+            return c;
+        }
+
+        private int readChar() throws IOException {
+            if (position == limit) {
+                if (endOfInput) {
+                    return -1;
+                }
+                final int read = reader.read(buffer, 0, buffer.length);
+                if (read < 0) {
+                    endOfInput = true;
+                    return -1;
+                }
+                position = 0;
+                limit = read;
+                if (read == 0) {
+                    return readChar();
+                }
+            }
+            return buffer[position++];
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+}
@@ -49,6 +49,21 @@ public class MigrationScriptProtocol implements FileNameInfo, Comparable<Migrati
     @Getter
     private int checksum;
 
+    /**
+     * The 64-bit checksum of the raw migration script, computed with {@link #checksumAlgorithm}.
+     * nullable: in case of legacy entries or JavaMigrations
+     */
+    @Getter
+    private Long contentChecksum;
+
+    /**
+     * The algorithm of the {@link #contentChecksum}, see
+     * {@link com.senacor.elasticsearch.evolution.core.internal.model.migration.ScriptMigrationContent#CONTENT_CHECKSUM_ALGORITHM}.
+     * nullable: in case of legacy entries or JavaMigrations
+     */
+    @Getter
+    private String checksumAlgorithm;
+
     /**
      * The timestamp when this migration was applied/executed.
      * not-null
@@ -107,6 +122,16 @@ public class MigrationScriptProtocol implements FileNameInfo, Comparable<Migrati
         return this;
     }
 
+    public MigrationScriptProtocol setContentChecksum(Long contentChecksum) {
+        this.contentChecksum = contentChecksum;
+        return this;
+    }
+
+    public MigrationScriptProtocol setChecksumAlgorithm(String checksumAlgorithm) {
+        this.checksumAlgorithm = checksumAlgorithm;
+        return this;
+    }
+
     public MigrationScriptProtocol setExecutionTimestamp(@NonNull OffsetDateTime executionTimestamp) {
         this.executionTimestamp = executionTimestamp;
         return this;
@@ -160,6 +185,8 @@ public class MigrationScriptProtocol implements FileNameInfo, Comparable<Migrati
                 ", description='" + description + '\'' +
                 ", scriptName='" + scriptName + '\'' +
                 ", checksum=" + checksum +
+                ", contentChecksum=" + contentChecksum +
+                ", checksumAlgorithm='" + checksumAlgorithm + '\'' +
                 ", executionTimestamp=" + executionTimestamp +
                 ", executionRuntimeInMillis=" + executionRuntimeInMillis +
                 ", success=" + success +
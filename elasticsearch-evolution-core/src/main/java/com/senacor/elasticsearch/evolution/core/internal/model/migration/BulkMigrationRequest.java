@@ -0,0 +1,44 @@
+package com.senacor.elasticsearch.evolution.core.internal.model.migration;
+
+import lombok.NonNull;
+
+/**
+ * An NDJSON bulk data migration: the content of the file is a {@code _bulk} request body (action and source lines),
+ * which is streamed and split into several {@code _bulk} requests on execution. The content is never parsed as a
+ * whole.
+ */
+public final class BulkMigrationRequest implements MigrationRequest {
+
+    /**
+     * file suffix of bulk data migrations
+     */
+    public static final String FILE_SUFFIX = ".ndjson";
+
+    private final ScriptMigrationContent content;
+
+    /**
+     * @param content content of the file, usually not loaded
+     */
+    public BulkMigrationRequest(@NonNull ScriptMigrationContent content) {
+        this.content = content;
+    }
+
+    /**
+     * @return content of the file, use {@link ScriptMigrationContent#openReader()} to stream it
+     */
+    public ScriptMigrationContent content() {
+        return content;
+    }
+
+    /**
+     * @return whether the file is a bulk data migration
+     */
+    public static boolean isBulkMigration(@NonNull String fileName) {
+        return fileName.regionMatches(true, fileName.length() - FILE_SUFFIX.length(), FILE_SUFFIX, 0, FILE_SUFFIX.length());
+    }
+
+    @Override
+    public String toString() {
+        return "BulkMigrationRequest[source=" + content.source() + "]";
+    }
+}
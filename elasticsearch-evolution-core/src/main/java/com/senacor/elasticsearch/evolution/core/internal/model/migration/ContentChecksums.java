@@ -0,0 +1,10 @@
+package com.senacor.elasticsearch.evolution.core.internal.model.migration;
+
+/**
+ * Checksums of a migration script content, determined without keeping the content.
+ *
+ * @param checksum        legacy checksum, {@link String#hashCode()} of the content
+ * @param contentChecksum checksum of the content computed with {@link ScriptMigrationContent#CONTENT_CHECKSUM_ALGORITHM}
+ */
+public record ContentChecksums(int checksum, long contentChecksum) {
+}
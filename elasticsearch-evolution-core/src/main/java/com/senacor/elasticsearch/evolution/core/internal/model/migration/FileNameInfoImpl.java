@@ -2,37 +2,109 @@ package com.senacor.elasticsearch.evolution.core.internal.model.migration;
 
 import com.senacor.elasticsearch.evolution.core.api.migration.MigrationVersion;
 import com.senacor.elasticsearch.evolution.core.internal.model.FileNameInfo;
+import lombok.Getter;
 import lombok.NonNull;
-import lombok.Value;
 
+import java.util.Objects;
+
+import static com.senacor.elasticsearch.evolution.core.internal.utils.AssertionUtils.requireCondition;
 import static com.senacor.elasticsearch.evolution.core.internal.utils.AssertionUtils.requireNotEmpty;
 
 /**
  * @author Andreas Keefer
  */
-@Value
-public class FileNameInfoImpl implements FileNameInfo {
+public final class FileNameInfoImpl implements FileNameInfo {
 
     @NonNull
-    MigrationVersion version;
+    @Getter
+    private final MigrationVersion version;
 
     /**
-     * migration description
+     * migration description or null, if it is derived from the {@link #scriptName}
      */
-    @NonNull
-    String description;
+    private final String description;
+
+    /**
+     * range of the description in the {@link #scriptName}, if the description is derived from it
+     */
+    private final int descriptionStart;
+    private final int descriptionEnd;
 
     /**
      * The name of the script to execute for this migration, relative to the configured location.
      */
     @NonNull
-    String scriptName;
+    @Getter
+    private final String scriptName;
 
     public FileNameInfoImpl(@NonNull MigrationVersion version,
                             String description,
                             String scriptName) {
         this.version = version;
         this.description = requireNotEmpty(description, "description must not be empty");
+        this.descriptionStart = -1;
+        this.descriptionEnd = -1;
         this.scriptName = requireNotEmpty(scriptName, "scriptName must not be empty");
     }
+
+    private FileNameInfoImpl(MigrationVersion version,
+                             String scriptName,
+                             int descriptionStart,
+                             int descriptionEnd) {
+        this.version = version;
+        this.description = null;
+        this.descriptionStart = descriptionStart;
+        this.descriptionEnd = descriptionEnd;
+        this.scriptName = scriptName;
+    }
+
+    /**
+     * Creates a file name info, whose description is not kept, but derived from the script name on access: the given
+     * range of the script name with underscores replaced by spaces. This saves memory, if many migrations are kept.
+     *
+     * @param descriptionStart start index of the description in the script name (inclusive)
+     * @param descriptionEnd   end index of the description in the script name (exclusive)
+     */
+    public static FileNameInfoImpl withDescriptionFromScriptName(@NonNull MigrationVersion version,
+                                                                 String scriptName,
+                                                                 int descriptionStart,
+                                                                 int descriptionEnd) {
+        requireNotEmpty(scriptName, "scriptName must not be empty");
+        requireCondition(descriptionStart, start -> start >= 0 && start < descriptionEnd && descriptionEnd <= scriptName.length(),
+                "description must not be empty");
+        return new FileNameInfoImpl(version, scriptName, descriptionStart, descriptionEnd);
+    }
+
+    /**
+     * @return migration description
+     */
+    @Override
+    public String getDescription() {
+        return null != description
+                ? description
+                : scriptName.substring(descriptionStart, descriptionEnd).replace('_', ' ');
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof FileNameInfoImpl that)) {
+            return false;
+        }
+        return version.equals(that.version)
+                && scriptName.equals(that.scriptName)
+                && getDescription().equals(that.getDescription());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(version, getDescription(), scriptName);
+    }
+
+    @Override
+    public String toString() {
+        return "FileNameInfoImpl(version=" + version + ", description=" + getDescription() + ", scriptName=" + scriptName + ")";
+    }
 }
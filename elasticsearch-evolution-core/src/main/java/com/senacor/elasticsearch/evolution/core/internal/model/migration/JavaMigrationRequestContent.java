@@ -1,11 +1,120 @@
 package com.senacor.elasticsearch.evolution.core.internal.model.migration;
 
 import com.senacor.elasticsearch.evolution.core.api.migration.java.JavaMigration;
+import com.senacor.elasticsearch.evolution.core.api.migration.java.JavaMigrationMetadata;
 import lombok.NonNull;
 
-public record JavaMigrationRequestContent(@NonNull JavaMigration javaMigration) implements MigrationRequest, MigrationContent {
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * A {@link JavaMigration}, which is either already instantiated or is instantiated lazily on first access.
+ *
+ * @author Andreas Keefer
+ */
+public final class JavaMigrationRequestContent implements MigrationRequest, MigrationContent {
+
+    private final String className;
+    private final JavaMigrationMetadata lazyMetadata;
+    private final int lazyChecksum;
+    private Supplier<JavaMigration> factory;
+    private JavaMigration javaMigration;
+
+    /**
+     * @param javaMigration the instantiated migration
+     */
+    public JavaMigrationRequestContent(@NonNull JavaMigration javaMigration) {
+        this.className = javaMigration.getClass().getName();
+        this.javaMigration = javaMigration;
+        this.lazyMetadata = null;
+        this.lazyChecksum = 0;
+    }
+
+    private JavaMigrationRequestContent(String className, JavaMigrationMetadata metadata, int checksum, Supplier<JavaMigration> factory) {
+        this.className = className;
+        this.lazyMetadata = metadata;
+        this.lazyChecksum = checksum;
+        this.factory = factory;
+    }
+
+    /**
+     * @param className class name of the migration
+     * @param metadata  version and description of the migration
+     * @param checksum  checksum of the migration
+     * @param factory   instantiates the migration, called at most once
+     * @return a migration, which is instantiated on first access of {@link #javaMigration()}
+     */
+    public static JavaMigrationRequestContent lazy(@NonNull String className,
+                                                   @NonNull JavaMigrationMetadata metadata,
+                                                   int checksum,
+                                                   @NonNull Supplier<JavaMigration> factory) {
+        return new JavaMigrationRequestContent(className, metadata, checksum, factory);
+    }
+
+    /**
+     * @return the migration, instantiates it if not instantiated yet
+     */
+    public synchronized JavaMigration javaMigration() {
+        if (null == javaMigration) {
+            javaMigration = factory.get();
+            factory = null;
+        }
+        return javaMigration;
+    }
+
+    /**
+     * @return class name of the migration
+     */
+    public String className() {
+        return className;
+    }
+
+    /**
+     * @return version and description of the migration or <code>null</code> if they should be retrieved from the class
+     * name. Does not instantiate lazy migrations.
+     */
+    public JavaMigrationMetadata metadata() {
+        return isLazy() ? lazyMetadata : javaMigration.getMetadata();
+    }
+
     @Override
     public int checksum() {
-        return javaMigration.getChecksum();
+        return isLazy() ? lazyChecksum : javaMigration.getChecksum();
+    }
+
+    /**
+     * @return whether the migration is already instantiated
+     */
+    public synchronized boolean isInstantiated() {
+        return null != javaMigration;
+    }
+
+    private boolean isLazy() {
+        return null != lazyMetadata;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof JavaMigrationRequestContent that) || isLazy() != that.isLazy()) {
+            return false;
+        }
+        return isLazy()
+                ? className.equals(that.className) && lazyMetadata.equals(that.lazyMetadata) && lazyChecksum == that.lazyChecksum
+                : javaMigration.equals(that.javaMigration);
+    }
+
+    @Override
+    public int hashCode() {
+        return isLazy()
+                ? Objects.hash(className, lazyMetadata, lazyChecksum)
+                : javaMigration.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "JavaMigrationRequestContent[className=" + className + ", instantiated=" + isInstantiated() + "]";
     }
 }
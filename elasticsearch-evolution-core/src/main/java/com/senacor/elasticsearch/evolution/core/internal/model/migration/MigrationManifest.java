@@ -0,0 +1,49 @@
+package com.senacor.elasticsearch.evolution.core.internal.model.migration;
+
+import java.util.List;
+
+/**
+ * Build-time manifest of all migrations in a classpath location. When present, the migrations are loaded from the
+ * manifest instead of scanning the classpath.
+ *
+ * @param formatVersion  version of the manifest format, see {@link #FORMAT_VERSION}
+ * @param scripts        all migration scripts of the location
+ * @param javaMigrations fully qualified class names of all JavaMigrations in the package of the location
+ */
+public record MigrationManifest(int formatVersion,
+                                List<Script> scripts,
+                                List<String> javaMigrations) {
+
+    /**
+     * file name of the manifest, placed directly in the location directory
+     */
+    public static final String FILE_NAME = "elasticsearch-evolution-manifest.json";
+
+    public static final int FORMAT_VERSION = 1;
+
+    public MigrationManifest {
+        scripts = null == scripts ? List.of() : List.copyOf(scripts);
+        javaMigrations = null == javaMigrations ? List.of() : List.copyOf(javaMigrations);
+    }
+
+    /**
+     * The checksums are only part of the fingerprint of the migrations. The checksums validated against the history
+     * are always computed from the content of the script.
+     *
+     * @param path            path of the script relative to the location directory, separated by '/'
+     * @param version         version of the migration
+     * @param description     description of the migration
+     * @param checksum        checksum of the migration content
+     * @param contentChecksum {@link ScriptMigrationContent#contentChecksum()} of the migration content, null in
+     *                        manifests generated by older versions
+     * @param size            size of the script in bytes, to detect a stale manifest. null in manifests generated by
+     *                        older versions
+     */
+    public record Script(String path,
+                         String version,
+                         String description,
+                         int checksum,
+                         Long contentChecksum,
+                         Long size) {
+    }
+}
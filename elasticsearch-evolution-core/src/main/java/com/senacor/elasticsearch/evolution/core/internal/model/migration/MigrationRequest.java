@@ -1,4 +1,4 @@
 package com.senacor.elasticsearch.evolution.core.internal.model.migration;
 
-public sealed interface MigrationRequest permits MigrationScriptRequest, JavaMigrationRequestContent {
+public sealed interface MigrationRequest permits MigrationScriptRequest, MigrationScriptRequests, BulkMigrationRequest, JavaMigrationRequestContent {
 }
@@ -2,6 +2,7 @@ package com.senacor.elasticsearch.evolution.core.internal.model.migration;
 
 import com.senacor.elasticsearch.evolution.rest.abstraction.HttpMethod;
 import lombok.Getter;
+import lombok.NonNull;
 import lombok.ToString;
 
 import java.util.HashMap;
@@ -35,13 +36,28 @@ public final class MigrationScriptRequest implements MigrationRequest {
      * May be empty.
      */
     @Getter
-    private Map<String, String> httpHeader = new HashMap<>();
+    private Map<String, String> httpHeader = Map.of();
+
+    /**
+     * whether {@link #httpHeader} is unmodifiable and may be shared with other requests, it is copied on the first
+     * {@link #addHttpHeader(String, String)}
+     */
+    @ToString.Exclude
+    private boolean sharedHttpHeader = true;
 
     /**
      * HTTP body to send.
-     * nullable.
+     * non-null, may be empty.
      */
-    private StringBuilder body = new StringBuilder();
+    @Getter
+    private String body = "";
+
+    /**
+     * Opens the HTTP body to send, if the body of a large script is streamed instead of being kept in {@link #body}.
+     * nullable
+     */
+    @Getter
+    private ScriptMigrationContent.ReaderOpener streamedBody;
 
     public MigrationScriptRequest setHttpMethod(HttpMethod httpMethod) {
         this.httpMethod = httpMethod;
@@ -55,31 +71,46 @@ public final class MigrationScriptRequest implements MigrationRequest {
 
     public MigrationScriptRequest setHttpHeader(Map<String, String> httpHeader) {
         this.httpHeader = httpHeader;
+        this.sharedHttpHeader = false;
+        return this;
+    }
+
+    /**
+     * @param httpHeader unmodifiable headers, which may be shared with other requests
+     */
+    public MigrationScriptRequest setSharedHttpHeader(@NonNull Map<String, String> httpHeader) {
+        this.httpHeader = httpHeader;
+        this.sharedHttpHeader = true;
         return this;
     }
 
     public MigrationScriptRequest addHttpHeader(String header, String value) {
+        if (sharedHttpHeader) {
+            this.httpHeader = new HashMap<>(this.httpHeader);
+            this.sharedHttpHeader = false;
+        }
         this.httpHeader.put(header, value);
         return this;
     }
 
-    public String getBody() {
-        return body.toString();
+    public MigrationScriptRequest setBody(@NonNull String body) {
+        this.body = body;
+        return this;
     }
 
-    public MigrationScriptRequest setBody(String body) {
-        this.body = new StringBuilder(body);
+    public MigrationScriptRequest setStreamedBody(ScriptMigrationContent.ReaderOpener streamedBody) {
+        this.streamedBody = streamedBody;
         return this;
     }
 
-    public MigrationScriptRequest addToBody(String bodyPart) {
-        this.body.append(bodyPart);
+    public MigrationScriptRequest addToBody(@NonNull String bodyPart) {
+        this.body = this.body.concat(bodyPart);
         return this;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(httpMethod, path, httpHeader, body);
+        return Objects.hash(httpMethod, path, httpHeader, body, streamedBody);
     }
 
     @Override
@@ -94,10 +125,11 @@ public final class MigrationScriptRequest implements MigrationRequest {
         return Objects.equals(this.httpMethod, other.httpMethod)
                 && Objects.equals(this.path, other.path)
                 && Objects.equals(this.httpHeader, other.httpHeader)
-                && Objects.equals(this.body.toString(), other.body.toString());
+                && Objects.equals(this.body, other.body)
+                && Objects.equals(this.streamedBody, other.streamedBody);
     }
 
     public boolean isBodyEmpty() {
-        return body.isEmpty();
+        return body.isEmpty() && null == streamedBody;
     }
 }
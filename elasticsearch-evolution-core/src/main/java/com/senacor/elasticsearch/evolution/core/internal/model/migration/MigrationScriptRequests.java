@@ -0,0 +1,19 @@
+package com.senacor.elasticsearch.evolution.core.internal.model.migration;
+
+import java.util.List;
+
+import static com.senacor.elasticsearch.evolution.core.internal.utils.AssertionUtils.requireCondition;
+
+/**
+ * Represents the HTTP requests of a migration script with several requests. The requests are executed in order and
+ * the script is recorded as a single history entry.
+ *
+ * @param requests the requests in the order of the script, at least 2
+ */
+public record MigrationScriptRequests(List<MigrationScriptRequest> requests) implements MigrationRequest {
+
+    public MigrationScriptRequests {
+        requests = List.copyOf(requireCondition(requests, list -> list.size() > 1,
+                "a script with several requests must have at least 2 requests, but has %s", requests.size()));
+    }
+}
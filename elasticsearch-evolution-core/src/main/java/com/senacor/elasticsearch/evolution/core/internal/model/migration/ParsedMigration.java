@@ -5,8 +5,16 @@ import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.ToString;
 
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
 /**
  * Parsed MigrationScript
+ * <p>
+ * The checksum and the migration request may be determined lazily, so the content of migrations, which are not
+ * executed, does not need to be loaded and parsed. Lazily determined migration requests can be released after the
+ * migration was executed.
  *
  * @author Andreas Keefer
  */
@@ -25,28 +33,116 @@ public class ParsedMigration<T extends MigrationRequest> {
      * the checksum of the raw migration script
      * non-null
      */
-    @Getter
     private int checksum;
 
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private IntSupplier lazyChecksum;
+
+    /**
+     * the 64-bit checksum of the raw migration script, see {@link ScriptMigrationContent#contentChecksum()}
+     * nullable: null for JavaMigrations
+     */
+    @EqualsAndHashCode.Exclude
+    private Long contentChecksum;
+
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private LongSupplier lazyContentChecksum;
+
     /**
      * Represents the HTTP request from the migration script or a Java Migration
      * non-null
      */
-    @Getter
     private T migrationRequest;
 
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private Supplier<T> lazyMigrationRequest;
+
     public ParsedMigration<T> setFileNameInfo(FileNameInfo fileNameInfo) {
         this.fileNameInfo = fileNameInfo;
         return this;
     }
 
-    public ParsedMigration<T> setChecksum(int checksum) {
+    public synchronized int getChecksum() {
+        if (null != lazyChecksum) {
+            checksum = lazyChecksum.getAsInt();
+            lazyChecksum = null;
+        }
+        return checksum;
+    }
+
+    public synchronized ParsedMigration<T> setChecksum(int checksum) {
         this.checksum = checksum;
+        this.lazyChecksum = null;
+        return this;
+    }
+
+    /**
+     * @param lazyChecksum determines the checksum on first access
+     */
+    public synchronized ParsedMigration<T> setLazyChecksum(IntSupplier lazyChecksum) {
+        this.lazyChecksum = lazyChecksum;
         return this;
     }
 
-    public ParsedMigration<T> setMigrationRequest(T migrationScriptRequest) {
+    /**
+     * @return the checksum computed with {@link ScriptMigrationContent#CONTENT_CHECKSUM_ALGORITHM} or null, if there
+     * is none (e.g. for JavaMigrations)
+     */
+    public synchronized Long getContentChecksum() {
+        if (null != lazyContentChecksum) {
+            contentChecksum = lazyContentChecksum.getAsLong();
+            lazyContentChecksum = null;
+        }
+        return contentChecksum;
+    }
+
+    public synchronized ParsedMigration<T> setContentChecksum(Long contentChecksum) {
+        this.contentChecksum = contentChecksum;
+        this.lazyContentChecksum = null;
+        return this;
+    }
+
+    /**
+     * @param lazyContentChecksum determines the content checksum on first access
+     */
+    public synchronized ParsedMigration<T> setLazyContentChecksum(LongSupplier lazyContentChecksum) {
+        this.lazyContentChecksum = lazyContentChecksum;
+        return this;
+    }
+
+    public synchronized T getMigrationRequest() {
+        if (null == migrationRequest && null != lazyMigrationRequest) {
+            // the lazy migration request is kept to determine the request again after it was released
+            migrationRequest = lazyMigrationRequest.get();
+        }
+        return migrationRequest;
+    }
+
+    /**
+     * Drops a lazily determined migration request, e.g. the parsed body of an executed script, so it can be garbage
+     * collected. The request is determined again on next access. Requests, which were not determined lazily, are kept.
+     */
+    public synchronized void releaseMigrationRequest() {
+        if (null != lazyMigrationRequest) {
+            migrationRequest = null;
+        }
+    }
+
+    public synchronized ParsedMigration<T> setMigrationRequest(T migrationScriptRequest) {
         this.migrationRequest = migrationScriptRequest;
+        this.lazyMigrationRequest = null;
+        return this;
+    }
+
+    /**
+     * @param lazyMigrationRequest determines the migration request on first access, e.g. parses the script content
+     */
+    public synchronized ParsedMigration<T> setLazyMigrationRequest(Supplier<T> lazyMigrationRequest) {
+        this.lazyMigrationRequest = lazyMigrationRequest;
+        this.migrationRequest = null;
         return this;
     }
 }
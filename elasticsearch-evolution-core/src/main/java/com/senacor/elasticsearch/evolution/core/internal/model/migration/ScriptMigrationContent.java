@@ -1,11 +1,349 @@
 package com.senacor.elasticsearch.evolution.core.internal.model.migration;
 
+import com.senacor.elasticsearch.evolution.core.internal.utils.XxHash64;
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Objects;
+import java.util.function.Supplier;
+
 /**
- * @param content raw content of the migration file
+ * Content of a migration script, which is either already loaded or is loaded lazily on first access.
+ * <p>
+ * Lazy contents keep the loaded content once {@link #content()} was called, until it is {@link #release() released}.
+ * {@link #checksum()} alone does not keep the content, so validating the checksums of already executed migrations does
+ * not hold all scripts in memory.
+ * <p>
+ * Besides the legacy {@link #checksum()} ({@link String#hashCode()} of the content), there is a 64-bit
+ * {@link #contentChecksum()} computed with {@link #CONTENT_CHECKSUM_ALGORITHM}. Both are computed while the content is
+ * read, lazy contents may compute them with a separate loader, which does not materialize the content at all.
+ *
+ * @author Andreas Keefer
  */
-public record ScriptMigrationContent(String content) implements MigrationContent {
+public final class ScriptMigrationContent implements MigrationContent {
+
+    /**
+     * algorithm of the {@link #contentChecksum()}: XXH64 (seed 0) of the UTF-8 bytes of the content
+     */
+    public static final String CONTENT_CHECKSUM_ALGORITHM = "XXH64";
+
+    private final String source;
+    private final String sourceStamp;
+    private Supplier<ScriptMigrationContent> loader;
+    private Supplier<ContentChecksums> checksumLoader;
+    private final ReaderOpener readerOpener;
+    private final ReaderOpener contentReaderOpener;
+    private String content;
+    private Integer checksum;
+    private Long contentChecksum;
+
+    /**
+     * @param content raw content of the migration file
+     */
+    public ScriptMigrationContent(@NonNull String content) {
+        this(content, content.hashCode());
+    }
+
+    /**
+     * @param content  raw content of the migration file
+     * @param checksum checksum of the content, must be equal to {@code content.hashCode()}
+     */
+    public ScriptMigrationContent(@NonNull String content, int checksum) {
+        this.source = null;
+        this.sourceStamp = null;
+        this.readerOpener = null;
+        this.contentReaderOpener = null;
+        this.content = content;
+        this.checksum = checksum;
+    }
+
+    /**
+     * @param content         raw content of the migration file
+     * @param checksum        checksum of the content, must be equal to {@code content.hashCode()}
+     * @param contentChecksum checksum of the content computed with {@link #CONTENT_CHECKSUM_ALGORITHM}
+     */
+    public ScriptMigrationContent(@NonNull String content, int checksum, long contentChecksum) {
+        this(content, checksum);
+        this.contentChecksum = contentChecksum;
+    }
+
+    private ScriptMigrationContent(LazyBuilder builder) {
+        this.source = builder.source;
+        this.sourceStamp = builder.sourceStamp;
+        this.checksum = builder.checksum;
+        this.contentChecksum = builder.contentChecksum;
+        this.loader = builder.loader;
+        this.checksumLoader = builder.checksumLoader;
+        this.readerOpener = builder.readerOpener;
+        this.contentReaderOpener = builder.contentReaderOpener;
+    }
+
+    /**
+     * @param source where the content is loaded from, e.g. the file path
+     * @param loader loads the content on first access and again after {@link #release()}
+     * @return builder of a content which is loaded on first access
+     */
+    public static LazyBuilder lazy(@NonNull String source,
+                                   @NonNull Supplier<ScriptMigrationContent> loader) {
+        return new LazyBuilder(source, loader);
+    }
+
+    /**
+     * @return where the content is loaded from or null, if the content was not loaded lazily
+     */
+    public String source() {
+        return source;
+    }
+
+    /**
+     * @return stamp of the source, which changes whenever the source changes, or null if unknown
+     */
+    public String sourceStamp() {
+        return sourceStamp;
+    }
+
+    /**
+     * @return raw content of the migration file, loads the content if not loaded yet
+     */
+    public synchronized String content() {
+        if (null == content) {
+            final ScriptMigrationContent loaded = loader.get();
+            content = loaded.content;
+            checksum = loaded.checksum;
+            if (null != loaded.contentChecksum) {
+                contentChecksum = loaded.contentChecksum;
+            }
+            // the loader is kept to load the content again after it was released
+            checksumLoader = null;
+        }
+        return content;
+    }
+
+    @Override
+    public synchronized int checksum() {
+        if (null == checksum) {
+            loadChecksums();
+        }
+        return checksum;
+    }
+
+    /**
+     * @return checksum of the content computed with {@link #CONTENT_CHECKSUM_ALGORITHM}
+     */
+    public synchronized long contentChecksum() {
+        if (null == contentChecksum) {
+            if (null != content) {
+                contentChecksum = XxHash64.hash(content);
+            } else {
+                loadChecksums();
+            }
+        }
+        return contentChecksum;
+    }
+
+    /**
+     * the content is not kept, it is only needed if the migration will be executed
+     */
+    private void loadChecksums() {
+        final ContentChecksums loaded;
+        if (null != checksumLoader) {
+            loaded = checksumLoader.get();
+        } else {
+            final ScriptMigrationContent loadedContent = loader.get();
+            loaded = new ContentChecksums(loadedContent.checksum(), loadedContent.contentChecksum());
+        }
+        if (null == checksum) {
+            checksum = loaded.checksum();
+        }
+        if (null == contentChecksum) {
+            contentChecksum = loaded.contentChecksum();
+        }
+    }
+
+    /**
+     * Opens a reader of the content without keeping the content, e.g. to stream large data files. The raw content is
+     * read, line breaks are not replaced. If the content is already loaded or there is no reader opener, the loaded
+     * content is read.
+     *
+     * @return reader of the content, must be closed by the caller
+     * @throws IOException if the source can't be read
+     */
+    public Reader openReader() throws IOException {
+        final ReaderOpener opener;
+        synchronized (this) {
+            opener = null == content ? readerOpener : null;
+        }
+        return null != opener
+                ? opener.open()
+                : new StringReader(content());
+    }
+
+    /**
+     * @return whether the content is large and not loaded yet, so it should be streamed with
+     * {@link #openContentReader()} instead of being loaded
+     */
+    public synchronized boolean isStreamable() {
+        return null == content && null != contentReaderOpener;
+    }
+
+    /**
+     * Opens a reader of the content without keeping the content. Unlike {@link #openReader()}, the content is read
+     * like {@link #content()}, so line breaks are replaced. If the content is already loaded or is not streamable, the
+     * loaded content is read.
+     *
+     * @return reader of the content, must be closed by the caller
+     * @throws IOException if the source can't be read
+     */
+    public Reader openContentReader() throws IOException {
+        final ReaderOpener opener;
+        synchronized (this) {
+            opener = null == content ? contentReaderOpener : null;
+        }
+        return null != opener
+                ? opener.open()
+                : new StringReader(content());
+    }
+
+    /**
+     * @return whether the content is already loaded
+     */
+    public synchronized boolean isLoaded() {
+        return null != content;
+    }
+
+    /**
+     * Drops the loaded content, e.g. after it was parsed, if it can be loaded again. The checksums are kept.
+     *
+     * @return whether the content was released
+     */
+    public synchronized boolean release() {
+        if (null == content || null == loader) {
+            return false;
+        }
+        if (null == contentChecksum) {
+            contentChecksum = XxHash64.hash(content);
+        }
+        content = null;
+        return true;
+    }
+
+    /**
+     * Compares the checksums instead of the contents, so neither content needs to be loaded, if its checksums can be
+     * computed while streaming.
+     *
+     * @return whether both contents have the same {@link #checksum()} and {@link #contentChecksum()}
+     */
+    public boolean hasSameContent(@NonNull ScriptMigrationContent other) {
+        return this == other
+                || (checksum() == other.checksum() && contentChecksum() == other.contentChecksum());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ScriptMigrationContent that)) {
+            return false;
+        }
+        return content().equals(that.content());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(content());
+    }
+
+    /**
+     * builds a {@link ScriptMigrationContent}, which is loaded on first access
+     */
+    public static final class LazyBuilder {
+
+        private final String source;
+        private final Supplier<ScriptMigrationContent> loader;
+        private String sourceStamp;
+        private Integer checksum;
+        private Long contentChecksum;
+        private Supplier<ContentChecksums> checksumLoader;
+        private ReaderOpener readerOpener;
+        private ReaderOpener contentReaderOpener;
+
+        private LazyBuilder(String source, Supplier<ScriptMigrationContent> loader) {
+            this.source = source;
+            this.loader = loader;
+        }
+
+        /**
+         * @param sourceStamp changes whenever the source changes (e.g. size and modification time of the file) or
+         *                    null, if there is no reliable stamp
+         */
+        public LazyBuilder sourceStamp(String sourceStamp) {
+            this.sourceStamp = sourceStamp;
+            return this;
+        }
+
+        /**
+         * @param checksum {@link #checksum()}, if already known, otherwise null
+         */
+        public LazyBuilder checksum(Integer checksum) {
+            this.checksum = checksum;
+            return this;
+        }
+
+        /**
+         * @param contentChecksum {@link #contentChecksum()}, if already known, otherwise null
+         */
+        public LazyBuilder contentChecksum(Long contentChecksum) {
+            this.contentChecksum = contentChecksum;
+            return this;
+        }
+
+        /**
+         * @param checksumLoader computes the checksums without keeping the content, called at most once if only the
+         *                       checksums are needed. If null, the loader is used.
+         */
+        public LazyBuilder checksumLoader(Supplier<ContentChecksums> checksumLoader) {
+            this.checksumLoader = checksumLoader;
+            return this;
+        }
+
+        /**
+         * @param readerOpener opens a reader of the raw content for {@link #openReader()}. If null, the content is
+         *                     loaded.
+         */
+        public LazyBuilder readerOpener(ReaderOpener readerOpener) {
+            this.readerOpener = readerOpener;
+            return this;
+        }
+
+        /**
+         * @param contentReaderOpener opens a reader of the content for {@link #openContentReader()}, if the content is
+         *                            large and should be streamed, otherwise null
+         */
+        public LazyBuilder contentReaderOpener(ReaderOpener contentReaderOpener) {
+            this.contentReaderOpener = contentReaderOpener;
+            return this;
+        }
+
+        public ScriptMigrationContent build() {
+            return new ScriptMigrationContent(this);
+        }
+    }
+
+    /**
+     * opens a reader of the content of the source
+     */
+    @FunctionalInterface
+    public interface ReaderOpener {
+        Reader open() throws IOException;
+    }
+
     @Override
-    public int checksum() {
-        return content.hashCode();
+    public String toString() {
+        return isLoaded()
+                ? "ScriptMigrationContent[content=" + content + "]"
+                : "ScriptMigrationContent[source=" + source + "]";
     }
 }
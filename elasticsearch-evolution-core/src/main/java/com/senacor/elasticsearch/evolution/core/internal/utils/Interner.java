@@ -0,0 +1,44 @@
+package com.senacor.elasticsearch.evolution.core.internal.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Returns a canonical instance for equal values, so values, which occur in many migrations (e.g. HTTP headers), are kept only once in memory. Unlike {@link String#intern()}, the values are only kept as long as
+ * the interner is referenced.
+ * <p>
+ * Thread safe.
+ */
+public final class Interner {
+
+    private final Map<String, String> strings = new ConcurrentHashMap<>();
+    private final Map<Map<String, String>, Map<String, String>> maps = new ConcurrentHashMap<>();
+
+    /**
+     * @return the canonical instance of the given string or null, if the given string is null
+     */
+    public String intern(String value) {
+        if (null == value) {
+            return null;
+        }
+        final String existing = strings.putIfAbsent(value, value);
+        return null != existing ? existing : value;
+    }
+
+    /**
+     * @return an unmodifiable canonical instance of the given map (see {@link Map#copyOf(Map)}), keys and values are
+     * interned as well
+     */
+    public Map<String, String> intern(Map<String, String> map) {
+        final Map<String, String> existing = maps.get(map);
+        if (null != existing) {
+            return existing;
+        }
+        final Map<String, String> interned = new HashMap<>(map.size() * 2);
+        map.forEach((key, value) -> interned.put(intern(key), intern(value)));
+        final Map<String, String> canonical = Map.copyOf(interned);
+        final Map<String, String> raced = maps.putIfAbsent(canonical, canonical);
+        return null != raced ? raced : canonical;
+    }
+}
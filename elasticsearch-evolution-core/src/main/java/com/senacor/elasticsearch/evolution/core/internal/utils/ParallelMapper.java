@@ -0,0 +1,120 @@
+package com.senacor.elasticsearch.evolution.core.internal.utils;
+
+import com.senacor.elasticsearch.evolution.core.api.MigrationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static com.senacor.elasticsearch.evolution.core.internal.utils.AssertionUtils.requireCondition;
+
+/**
+ * Maps a list of elements with a bounded number of concurrent tasks. The result has always the same order as the
+ * input, independent of the execution order.
+ */
+public class ParallelMapper {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParallelMapper.class);
+
+    /**
+     * maps all elements on the calling thread
+     */
+    public static final ParallelMapper SEQUENTIAL = new ParallelMapper(1, false);
+
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    private final int parallelism;
+    private final boolean virtualThreads;
+
+    /**
+     * @param parallelism    maximum number of concurrently mapped elements, 1 means all elements are mapped on the calling thread
+     * @param virtualThreads whether to use virtual threads instead of platform threads. Requires Java 21, otherwise
+     *                       platform threads are used.
+     */
+    public ParallelMapper(int parallelism, boolean virtualThreads) {
+        this.parallelism = requireCondition(parallelism, p -> p > 0, "parallelism must be greater than 0: %s", parallelism);
+        this.virtualThreads = virtualThreads;
+    }
+
+    /**
+     * Maps all elements, at most {@code parallelism} elements at the same time.
+     * <p>
+     * If the mapping of an element fails, the mapping of the remaining elements is cancelled and the
+     * {@link RuntimeException} of the first failed element (in input order) is rethrown unchanged.
+     *
+     * @param elements elements to map
+     * @param mapper   mapping function, must be thread safe
+     * @return mapped elements in the same order as the input
+     */
+    public <T, R> List<R> map(List<T> elements, Function<? super T, ? extends R> mapper) {
+        if (parallelism == 1 || elements.size() <= 1) {
+            final List<R> res = new ArrayList<>(elements.size());
+            for (T element : elements) {
+                res.add(mapper.apply(element));
+            }
+            return res;
+        }
+
+        final ExecutorService executor = createExecutor(Math.min(parallelism, elements.size()));
+        // bounds the number of concurrent tasks, virtual thread executors are unbounded
+        final Semaphore permits = new Semaphore(parallelism);
+        final List<Future<R>> futures = new ArrayList<>(elements.size());
+        try {
+            for (T element : elements) {
+                futures.add(executor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        return mapper.apply(element);
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+            final List<R> res = new ArrayList<>(elements.size());
+            for (Future<R> future : futures) {
+                res.add(future.get());
+            }
+            return res;
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new MigrationException("parallel execution failed", e.getCause());
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new MigrationException("parallel execution was interrupted", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private ExecutorService createExecutor(int threads) {
+        if (virtualThreads) {
+            try {
+                // Executors.newVirtualThreadPerTaskExecutor() is only available since Java 21
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                logger.warn("virtual threads are not supported by this JVM, using platform threads instead");
+            }
+        }
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            final Thread thread = new Thread(runnable, "es-evolution-worker-" + THREAD_COUNTER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public String toString() {
+        return "ParallelMapper{parallelism=" + parallelism + ", virtualThreads=" + virtualThreads + '}';
+    }
+}
@@ -0,0 +1,105 @@
+package com.senacor.elasticsearch.evolution.core.internal.utils;
+
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Encodes the characters of a reader while reading, the counterpart of {@link java.io.InputStreamReader}. Like
+ * {@link String#getBytes(Charset)}, malformed input and unmappable characters are replaced.
+ */
+public final class ReaderInputStream extends InputStream {
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final Reader reader;
+    private final CharsetEncoder encoder;
+    private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE).flip();
+    private final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE).flip();
+    private boolean endOfInput = false;
+    private boolean encoded = false;
+    private boolean flushed = false;
+
+    /**
+     * @param reader   the reader, it is closed when this stream is closed
+     * @param encoding encoding of the bytes
+     */
+    public ReaderInputStream(@NonNull Reader reader, @NonNull Charset encoding) {
+        this.reader = reader;
+        this.encoder = encoding.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    @Override
+    public int read() throws IOException {
+        final byte[] b = new byte[1];
+        return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (!bytes.hasRemaining()) {
+            if (flushed) {
+                return -1;
+            }
+            encode();
+        }
+        final int read = Math.min(len, bytes.remaining());
+        bytes.get(b, off, read);
+        return read;
+    }
+
+    /**
+     * encodes the next characters into the empty byte buffer
+     */
+    private void encode() throws IOException {
+        bytes.clear();
+        if (!endOfInput) {
+            // keeps not encoded characters, e.g. an incomplete surrogate pair
+            chars.compact();
+            final int read = chars.hasRemaining() ? reader.read(chars) : 0;
+            endOfInput = read < 0;
+            chars.flip();
+        }
+        if (!encoded) {
+            final CoderResult result = encoder.encode(chars, bytes, endOfInput);
+            throwIfError(result);
+            encoded = endOfInput && result.isUnderflow();
+        }
+        if (encoded) {
+            final CoderResult result = encoder.flush(bytes);
+            throwIfError(result);
+            flushed = result.isUnderflow();
+        }
+        bytes.flip();
+    }
+
+    private static void throwIfError(CoderResult result) {
+        if (result.isError()) {
+            try {
+                result.throwException();
+            } catch (CharacterCodingException e) {
+                // can't happen, malformed input and unmappable characters are replaced
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,132 @@
+package com.senacor.elasticsearch.evolution.core.internal.utils;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streaming implementation of the 64-bit xxHash (XXH64) with seed 0.
+ * <p>
+ * The input is hashed in stripes of 32 bytes, so the hash can be computed while the input is read, without keeping the
+ * input. The result is equal to the reference implementation, e.g. {@code xxhsum -H1}.
+ * <p>
+ * Instances are not thread safe.
+ */
+public final class XxHash64 {
+
+    private static final long PRIME_1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME_2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME_3 = 0x165667B19E3779F9L;
+    private static final long PRIME_4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME_5 = 0x27D4EB2F165667C5L;
+
+    private static final int STRIPE_LENGTH = 32;
+
+    private static final VarHandle LONG_LE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INT_LE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private long v1 = PRIME_1 + PRIME_2;
+    private long v2 = PRIME_2;
+    private long v3 = 0;
+    private long v4 = -PRIME_1;
+    private long totalLength = 0;
+    /**
+     * bytes, which do not fill a complete stripe yet
+     */
+    private final byte[] buffer = new byte[STRIPE_LENGTH];
+    private int bufferSize = 0;
+
+    /**
+     * @return XXH64 of the UTF-8 bytes of the value
+     */
+    public static long hash(String value) {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        return new XxHash64().update(bytes, 0, bytes.length).getValue();
+    }
+
+    /**
+     * adds the bytes to the hash
+     */
+    public XxHash64 update(byte[] bytes, int offset, int length) {
+        totalLength += length;
+        final int end = offset + length;
+        if (bufferSize > 0) {
+            final int copied = Math.min(STRIPE_LENGTH - bufferSize, length);
+            System.arraycopy(bytes, offset, buffer, bufferSize, copied);
+            bufferSize += copied;
+            offset += copied;
+            if (bufferSize < STRIPE_LENGTH) {
+                return this;
+            }
+            consumeStripe(buffer, 0);
+            bufferSize = 0;
+        }
+        while (offset <= end - STRIPE_LENGTH) {
+            consumeStripe(bytes, offset);
+            offset += STRIPE_LENGTH;
+        }
+        System.arraycopy(bytes, offset, buffer, 0, end - offset);
+        bufferSize = end - offset;
+        return this;
+    }
+
+    /**
+     * @return the hash of all bytes added so far, more bytes may be added afterward
+     */
+    public long getValue() {
+        long hash;
+        if (totalLength >= STRIPE_LENGTH) {
+            hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            hash = mergeRound(hash, v1);
+            hash = mergeRound(hash, v2);
+            hash = mergeRound(hash, v3);
+            hash = mergeRound(hash, v4);
+        } else {
+            hash = PRIME_5;
+        }
+        hash += totalLength;
+
+        int offset = 0;
+        while (offset <= bufferSize - Long.BYTES) {
+            hash ^= round(0, (long) LONG_LE.get(buffer, offset));
+            hash = Long.rotateLeft(hash, 27) * PRIME_1 + PRIME_4;
+            offset += Long.BYTES;
+        }
+        if (offset <= bufferSize - Integer.BYTES) {
+            hash ^= Integer.toUnsignedLong((int) INT_LE.get(buffer, offset)) * PRIME_1;
+            hash = Long.rotateLeft(hash, 23) * PRIME_2 + PRIME_3;
+            offset += Integer.BYTES;
+        }
+        while (offset < bufferSize) {
+            hash ^= (buffer[offset] & 0xFFL) * PRIME_5;
+            hash = Long.rotateLeft(hash, 11) * PRIME_1;
+            offset++;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= PRIME_2;
+        hash ^= hash >>> 29;
+        hash *= PRIME_3;
+        hash ^= hash >>> 32;
+        return hash;
+    }
+
+    private void consumeStripe(byte[] bytes, int offset) {
+        v1 = round(v1, (long) LONG_LE.get(bytes, offset));
+        v2 = round(v2, (long) LONG_LE.get(bytes, offset + 8));
+        v3 = round(v3, (long) LONG_LE.get(bytes, offset + 16));
+        v4 = round(v4, (long) LONG_LE.get(bytes, offset + 24));
+    }
+
+    private static long round(long accumulator, long input) {
+        accumulator += input * PRIME_2;
+        accumulator = Long.rotateLeft(accumulator, 31);
+        return accumulator * PRIME_1;
+    }
+
+    private static long mergeRound(long hash, long accumulator) {
+        hash ^= round(0, accumulator);
+        return hash * PRIME_1 + PRIME_4;
+    }
+}
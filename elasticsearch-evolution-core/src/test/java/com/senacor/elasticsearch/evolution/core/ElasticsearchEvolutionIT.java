@@ -6,6 +6,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.senacor.elasticsearch.evolution.core.api.MigrationException;
 import com.senacor.elasticsearch.evolution.core.api.ValidateException;
 import com.senacor.elasticsearch.evolution.core.api.config.ElasticsearchEvolutionConfigImpl;
+import com.senacor.elasticsearch.evolution.core.api.config.HistoryLockMode;
 import com.senacor.elasticsearch.evolution.core.api.migration.HistoryRepository;
 import com.senacor.elasticsearch.evolution.core.internal.migration.execution.HistoryRepositoryImpl;
 import com.senacor.elasticsearch.evolution.core.internal.migration.execution.MigrationScriptProtocolMapper;
@@ -149,6 +150,69 @@ class ElasticsearchEvolutionIT {
                 .isEqualTo(3);
     }
 
+    @ParameterizedTest(name = "{0}")
+    @ArgumentsSource(ElasticsearchArgumentsProvider.class)
+    void migrate_documentLock_backToBackWithoutRefresh(String versionInfo, EsUtils esUtils) {
+        // the fingerprint would skip the second migration without reading the history
+        ElasticsearchEvolutionConfigImpl elasticsearchEvolutionConfig = ElasticsearchEvolution.configure()
+                .setLocations(singletonList("classpath:es/ElasticsearchEvolutionTest/migrate_OK"))
+                .setHistoryLockMode(HistoryLockMode.DOCUMENT)
+                .setFingerprintCheck(false);
+        historyRepository = new HistoryRepositoryImpl(esUtils.getEvolutionRestClient(), elasticsearchEvolutionConfig.getHistoryIndex(), new MigrationScriptProtocolMapper(), 1000, objectMapper);
+
+        assertThat(elasticsearchEvolutionConfig.load(esUtils.getEvolutionRestClient()).migrate())
+                .as("# of successful executed scripts of first instance")
+                .isEqualTo(10);
+        assertThat(elasticsearchEvolutionConfig.load(esUtils.getEvolutionRestClient()).migrate())
+                .as("# of successful executed scripts of second instance")
+                .isZero();
+
+        esUtils.refreshIndices();
+        assertThat(historyRepository.findAll())
+                .as("# of historyIndex entries and all are successful")
+                .hasSize(10)
+                .allMatch(MigrationScriptProtocol::isSuccess);
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @ArgumentsSource(ElasticsearchArgumentsProvider.class)
+    void migrate_stream_withoutHistoryIndex(String versionInfo, EsUtils esUtils) throws IOException {
+        ElasticsearchEvolutionConfigImpl elasticsearchEvolutionConfig = ElasticsearchEvolution.configure()
+                .setLocations(singletonList("classpath:es/ElasticsearchEvolutionTest/migrate_OK"))
+                .setStream("orders");
+        String historyIndex = elasticsearchEvolutionConfig.getHistoryIndex();
+        historyRepository = new HistoryRepositoryImpl(esUtils.getEvolutionRestClient(), historyIndex, new MigrationScriptProtocolMapper(), 1000, objectMapper,
+                HistoryLockMode.UPDATE_BY_QUERY, 0, "orders");
+        HistoryRepository defaultStreamHistoryRepository = new HistoryRepositoryImpl(esUtils.getEvolutionRestClient(), historyIndex, new MigrationScriptProtocolMapper(), 1000, objectMapper);
+        ElasticsearchEvolution underTest = elasticsearchEvolutionConfig.load(esUtils.getEvolutionRestClient());
+
+        assertThatThrownBy(underTest::validate)
+                .isInstanceOf(ValidateException.class)
+                .hasMessageStartingWith("There are pending migrations to be executed: ");
+        assertThat(esUtils.getEvolutionRestClient().execute(HttpMethod.HEAD, "/" + historyIndex).statusCode())
+                .as("history index is not created by validate")
+                .isEqualTo(404);
+
+        assertThat(underTest.migrate())
+                .as("# of successful executed scripts ")
+                .isEqualTo(10);
+        esUtils.refreshIndices();
+
+        assertSoftly(softly -> {
+            softly.assertThat(historyRepository.findAll())
+                    .as("# of historyIndex entries of the stream and all are successful")
+                    .hasSize(10)
+                    .allMatch(MigrationScriptProtocol::isSuccess);
+            softly.assertThat(defaultStreamHistoryRepository.findAll())
+                    .as("# of historyIndex entries of the default stream")
+                    .isEmpty();
+        });
+        assertThat(esUtils.getEvolutionRestClient().execute(HttpMethod.GET, "/" + historyIndex + "/_mapping/field/stream").body())
+                .hasValueSatisfying(mapping -> assertThat(mapping).contains("\"type\":\"keyword\""));
+        assertThatCode(underTest::validate)
+                .doesNotThrowAnyException();
+    }
+
     @ParameterizedTest(name = "{0}")
     @ArgumentsSource(ElasticsearchArgumentsProvider.class)
     void migrate_failed_then_fixed_script_and_re_execute(String versionInfo, EsUtils esUtils) {
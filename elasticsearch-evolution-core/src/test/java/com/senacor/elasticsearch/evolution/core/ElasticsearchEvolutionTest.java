@@ -3,6 +3,7 @@ package com.senacor.elasticsearch.evolution.core;
 import com.senacor.elasticsearch.evolution.core.api.MigrationException;
 import com.senacor.elasticsearch.evolution.core.api.ValidateException;
 import com.senacor.elasticsearch.evolution.core.api.config.ElasticsearchEvolutionConfig;
+import com.senacor.elasticsearch.evolution.core.api.migration.MigrationScriptReader;
 import com.senacor.elasticsearch.evolution.core.api.migration.MigrationService;
 import com.senacor.elasticsearch.evolution.core.api.migration.MigrationVersion;
 import com.senacor.elasticsearch.evolution.core.internal.model.migration.FileNameInfoImpl;
@@ -33,25 +34,6 @@ class ElasticsearchEvolutionTest {
     @Nested
     class MigrateShould {
 
-        @Test
-        void throw_MigrationException_when_historyMaxQuerySizeTooLow() {
-            String indexName = "es_evolution";
-            int historyMaxQuerySize = 6;
-            ElasticsearchEvolution underTest = ElasticsearchEvolution.configure()
-                    .setLocations(singletonList("classpath:es/ElasticsearchEvolutionTest/migrate_OK"))
-                    .setHistoryIndex(indexName)
-                    .setHistoryMaxQuerySize(historyMaxQuerySize)
-                    .load(evolutionRestClient);
-
-            assertThatThrownBy(underTest::migrate)
-                    .isInstanceOf(MigrationException.class)
-                    .hasMessage("configured historyMaxQuerySize of '%s' is too low for the number of migration scripts of '%s'", historyMaxQuerySize, 10);
-
-            InOrder order = inOrder(evolutionRestClient);
-            order.verify(evolutionRestClient).info();
-            order.verifyNoMoreInteractions();
-        }
-
         @Test
         void do_nothing_on_empty_location() {
             ElasticsearchEvolution underTest = ElasticsearchEvolution.configure()
@@ -72,6 +54,88 @@ class ElasticsearchEvolutionTest {
                     .doesNotThrowAnyException();
         }
 
+        @Test
+        void skip_reading_when_fingerprint_is_up_to_date(@Mock MigrationScriptReader migrationScriptReader,
+                                                         @Mock MigrationService migrationService) {
+            final ElasticsearchEvolutionConfig config = ElasticsearchEvolution.configure()
+                    .setFingerprintCheck(true);
+            final ElasticsearchEvolution underTest = new ElasticsearchEvolution(config, evolutionRestClient) {
+                @Override
+                protected MigrationScriptReader createMigrationScriptReader() {
+                    return migrationScriptReader;
+                }
+
+                @Override
+                protected MigrationService createMigrationService() {
+                    return migrationService;
+                }
+            };
+            when(migrationScriptReader.fingerprint()).thenReturn("abc");
+            when(migrationService.isUpToDate("abc")).thenReturn(true);
+
+            assertThat(underTest.migrate()).isZero();
+
+            verify(migrationScriptReader, never()).read();
+            verify(migrationService, never()).executePendingScripts(anyCollection());
+        }
+
+        @Test
+        void store_fingerprint_after_successful_migration(@Mock MigrationScriptReader migrationScriptReader,
+                                                          @Mock MigrationService migrationService) {
+            final ElasticsearchEvolutionConfig config = ElasticsearchEvolution.configure()
+                    .setFingerprintCheck(true);
+            final ElasticsearchEvolution underTest = new ElasticsearchEvolution(config, evolutionRestClient) {
+                @Override
+                protected MigrationScriptReader createMigrationScriptReader() {
+                    return migrationScriptReader;
+                }
+
+                @Override
+                protected MigrationService createMigrationService() {
+                    return migrationService;
+                }
+            };
+            when(migrationScriptReader.fingerprint()).thenReturn("abc");
+            when(migrationService.isUpToDate("abc")).thenReturn(false);
+            when(migrationScriptReader.read()).thenReturn(List.of());
+            when(migrationService.executePendingScripts(anyCollection())).thenReturn(List.of());
+
+            assertThat(underTest.migrate()).isZero();
+
+            InOrder order = inOrder(migrationScriptReader, migrationService);
+            order.verify(migrationScriptReader).fingerprint();
+            order.verify(migrationService).isUpToDate("abc");
+            order.verify(migrationScriptReader).read();
+            order.verify(migrationService).executePendingScripts(anyCollection());
+            order.verify(migrationService).markUpToDate(eq("abc"), anyCollection());
+        }
+
+        @Test
+        void migrate_when_reader_has_no_fingerprint(@Mock MigrationService migrationService) {
+            final ElasticsearchEvolutionConfig config = ElasticsearchEvolution.configure()
+                    .setFingerprintCheck(true);
+            // custom reader, which implements only the required methods
+            final MigrationScriptReader migrationScriptReader = List::of;
+            final ElasticsearchEvolution underTest = new ElasticsearchEvolution(config, evolutionRestClient) {
+                @Override
+                protected MigrationScriptReader createMigrationScriptReader() {
+                    return migrationScriptReader;
+                }
+
+                @Override
+                protected MigrationService createMigrationService() {
+                    return migrationService;
+                }
+            };
+            when(migrationService.executePendingScripts(anyCollection())).thenReturn(List.of());
+
+            assertThat(underTest.migrate()).isZero();
+
+            verify(migrationService).executePendingScripts(anyCollection());
+            verify(migrationService, never()).isUpToDate(anyString());
+            verify(migrationService, never()).markUpToDate(anyString(), anyCollection());
+        }
+
         @Test
         void return_zero_when_elasticsearchEvolution_IsNotEnabled() {
             int migrations = ElasticsearchEvolution.configure()
@@ -89,25 +153,6 @@ class ElasticsearchEvolutionTest {
     @Nested
     class ValidateShould {
 
-        @Test
-        void throw_ValidateException_when_historyMaxQuerySizeTooLow() {
-            String indexName = "es_evolution";
-            int historyMaxQuerySize = 6;
-            ElasticsearchEvolution underTest = ElasticsearchEvolution.configure()
-                    .setLocations(singletonList("classpath:es/ElasticsearchEvolutionTest/migrate_OK"))
-                    .setHistoryIndex(indexName)
-                    .setHistoryMaxQuerySize(historyMaxQuerySize)
-                    .load(evolutionRestClient);
-
-            assertThatThrownBy(underTest::validate)
-                    .isInstanceOf(ValidateException.class)
-                    .hasMessage("configured historyMaxQuerySize of '%s' is too low for the number of migration scripts of '%s'", historyMaxQuerySize, 10);
-
-            InOrder order = inOrder(evolutionRestClient);
-            order.verify(evolutionRestClient).info();
-            order.verifyNoMoreInteractions();
-        }
-
         @Test
         void beValid_on_empty_location() {
             ElasticsearchEvolution underTest = ElasticsearchEvolution.configure()
@@ -0,0 +1,193 @@
+package com.senacor.elasticsearch.evolution.core;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.senacor.elasticsearch.evolution.core.api.MigrationException;
+import com.senacor.elasticsearch.evolution.core.api.config.ElasticsearchEvolutionConfigImpl;
+import com.senacor.elasticsearch.evolution.core.internal.migration.input.MigrationScriptReaderImpl;
+import com.senacor.elasticsearch.evolution.core.internal.migration.input.testjavamigrations.direct.V1_2__Valid_Filename;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.MigrationManifest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+class MigrationManifestGeneratorTest {
+
+    private static final String JAVA_MIGRATION_PACKAGE_PATH = "com/senacor/elasticsearch/evolution/core/internal/migration/input/testjavamigrations/direct";
+
+    @TempDir
+    Path classesDirectory;
+
+    @Test
+    void generate_writesScriptsAndJavaMigrations() throws IOException, URISyntaxException {
+        final Path location = prepareLocation();
+
+        final List<Path> manifests = new MigrationManifestGenerator(new ElasticsearchEvolutionConfigImpl()
+                .setLocations(singletonList("classpath:" + JAVA_MIGRATION_PACKAGE_PATH)))
+                .generate(classesDirectory);
+
+        assertThat(manifests).containsExactly(location.resolve(MigrationManifest.FILE_NAME));
+        final MigrationManifest manifest = new ObjectMapper().readValue(manifests.get(0).toFile(), MigrationManifest.class);
+        assertThat(manifest.formatVersion()).isEqualTo(MigrationManifest.FORMAT_VERSION);
+        assertThat(manifest.scripts())
+                .extracting(MigrationManifest.Script::path, MigrationManifest.Script::version, MigrationManifest.Script::description, MigrationManifest.Script::checksum, MigrationManifest.Script::size)
+                .containsExactly(
+                        tuple("V1_0__first.http", "1", "first", "PUT /first".hashCode(), 10L),
+                        tuple("sub/V1_1__second.http", "1.1", "second", "PUT /second".hashCode(), 11L));
+        assertThat(manifest.javaMigrations()).containsExactly(V1_2__Valid_Filename.class.getName());
+    }
+
+    @Test
+    void generate_ignoresMissingAndNonClasspathLocations() throws IOException {
+        final List<Path> manifests = new MigrationManifestGenerator(new ElasticsearchEvolutionConfigImpl()
+                .setLocations(List.of("classpath:does/not/exist", "file:" + classesDirectory)))
+                .generate(classesDirectory);
+
+        assertThat(manifests).isEmpty();
+    }
+
+    @Test
+    void readerReturnsSameMigrationsFromManifestAsFromScanning() throws IOException, URISyntaxException {
+        prepareLocation();
+        final ElasticsearchEvolutionConfigImpl config = new ElasticsearchEvolutionConfigImpl()
+                .setLocations(singletonList("classpath:" + JAVA_MIGRATION_PACKAGE_PATH));
+
+        final List<String> scanned = readWithClassesDirectory(config);
+        new MigrationManifestGenerator(config).generate(classesDirectory);
+        final List<String> fromManifest = readWithClassesDirectory(config);
+
+        assertThat(fromManifest)
+                .containsExactlyInAnyOrderElementsOf(scanned)
+                .contains("V1_0__first.http:" + "PUT /first".hashCode(),
+                        "V1_1__second.http:" + "PUT /second".hashCode());
+    }
+
+    @Test
+    void readerComputesChecksumsFromContentNotFromManifest() throws IOException, URISyntaxException {
+        prepareLocation();
+        final ElasticsearchEvolutionConfigImpl config = new ElasticsearchEvolutionConfigImpl()
+                .setLocations(singletonList("classpath:" + JAVA_MIGRATION_PACKAGE_PATH));
+        new MigrationManifestGenerator(config).generate(classesDirectory);
+        // same size, so the manifest is not detected as stale
+        Files.writeString(classesDirectory.resolve(JAVA_MIGRATION_PACKAGE_PATH).resolve("V1_0__first.http"), "PUT /fir5t");
+
+        assertThat(readWithClassesDirectory(config))
+                .contains("V1_0__first.http:" + "PUT /fir5t".hashCode())
+                .doesNotContain("V1_0__first.http:" + "PUT /first".hashCode());
+    }
+
+    @Test
+    void readerFailsWhenScriptIsNotInManifest() throws IOException, URISyntaxException {
+        prepareLocation();
+        final ElasticsearchEvolutionConfigImpl config = new ElasticsearchEvolutionConfigImpl()
+                .setLocations(singletonList("classpath:" + JAVA_MIGRATION_PACKAGE_PATH));
+        new MigrationManifestGenerator(config).generate(classesDirectory);
+        Files.writeString(classesDirectory.resolve(JAVA_MIGRATION_PACKAGE_PATH).resolve("V9__not_in_manifest.http"), "PUT /new");
+
+        assertThatThrownBy(() -> readWithClassesDirectory(config))
+                .isInstanceOf(MigrationException.class)
+                .hasMessageContaining("is stale")
+                .hasMessageContaining("scripts not in the manifest=[V9__not_in_manifest.http]");
+    }
+
+    @Test
+    void readerFailsWhenScriptWasRemovedOrChanged() throws IOException, URISyntaxException {
+        final Path location = prepareLocation();
+        final ElasticsearchEvolutionConfigImpl config = new ElasticsearchEvolutionConfigImpl()
+                .setLocations(singletonList("classpath:" + JAVA_MIGRATION_PACKAGE_PATH));
+        new MigrationManifestGenerator(config).generate(classesDirectory);
+        Files.delete(location.resolve("sub/V1_1__second.http"));
+        Files.writeString(location.resolve("V1_0__first.http"), "PUT /first_changed");
+
+        assertThatThrownBy(() -> readWithClassesDirectory(config))
+                .isInstanceOf(MigrationException.class)
+                .hasMessageContaining("scripts not found=[sub/V1_1__second.http]")
+                .hasMessageContaining("changed scripts=[V1_0__first.http]");
+    }
+
+    @Test
+    void parseConfig_readsOptionsAndLocations() throws IOException {
+        final ElasticsearchEvolutionConfigImpl config = MigrationManifestGenerator.parseConfig(new String[]{
+                "--encoding=ISO-8859-1",
+                "--lineSeparator=\\r\\n",
+                "--trimTrailingNewlineInMigrations=true",
+                "--esMigrationPrefix=M",
+                "--esMigrationSuffixes=.http, .json",
+                "target/classes",
+                "classpath:a", "classpath:b"});
+
+        assertThat(config.getEncoding()).isEqualTo(StandardCharsets.ISO_8859_1);
+        assertThat(config.getLineSeparator()).isEqualTo("\r\n");
+        assertThat(config.isTrimTrailingNewlineInMigrations()).isTrue();
+        assertThat(config.getEsMigrationPrefix()).isEqualTo("M");
+        assertThat(config.getEsMigrationSuffixes()).containsExactly(".http", ".json");
+        assertThat(config.getLocations()).containsExactly("classpath:a", "classpath:b");
+    }
+
+    @Test
+    void parseConfig_optionsOverridePropertiesFile(@TempDir Path tempDir) throws IOException {
+        final Path propertiesFile = tempDir.resolve("evolution.properties");
+        Files.writeString(propertiesFile, """
+                esMigrationPrefix=P
+                esMigrationSuffixes=.json
+                lineSeparator=\\r\\n
+                locations=classpath:from_properties
+                """);
+
+        final ElasticsearchEvolutionConfigImpl config = MigrationManifestGenerator.parseConfig(new String[]{
+                "--config=" + propertiesFile, "--esMigrationPrefix=O", "target/classes"});
+
+        assertThat(config.getEsMigrationPrefix()).isEqualTo("O");
+        assertThat(config.getEsMigrationSuffixes()).containsExactly(".json");
+        assertThat(config.getLineSeparator()).isEqualTo("\r\n");
+        assertThat(config.getLocations()).containsExactly("classpath:from_properties");
+    }
+
+    @Test
+    void parseConfig_rejectsUnknownOptionsAndMissingClassesDirectory() {
+        assertThatThrownBy(() -> MigrationManifestGenerator.parseConfig(new String[]{"--placeholders=x", "target/classes"}))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageStartingWith("unknown option 'placeholders'");
+        assertThatThrownBy(() -> MigrationManifestGenerator.parseConfig(new String[]{"--esMigrationPrefix=V"}))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageStartingWith("usage: MigrationManifestGenerator");
+    }
+
+    private Path prepareLocation() throws IOException, URISyntaxException {
+        final Path location = Files.createDirectories(classesDirectory.resolve(JAVA_MIGRATION_PACKAGE_PATH));
+        Files.writeString(location.resolve("V1_0__first.http"), "PUT /first");
+        Files.createDirectories(location.resolve("sub"));
+        Files.writeString(location.resolve("sub/V1_1__second.http"), "PUT /second");
+        final URL javaMigrationClass = V1_2__Valid_Filename.class.getResource(V1_2__Valid_Filename.class.getSimpleName() + ".class");
+        Files.copy(Path.of(javaMigrationClass.toURI()), location.resolve(V1_2__Valid_Filename.class.getSimpleName() + ".class"));
+        return location;
+    }
+
+    /**
+     * reads the migrations with a classloader, which additionally contains the classes directory
+     */
+    private List<String> readWithClassesDirectory(ElasticsearchEvolutionConfigImpl config) throws IOException {
+        final ClassLoader originalClassLoader = Thread.currentThread().getContextClassLoader();
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{classesDirectory.toUri().toURL()}, originalClassLoader)) {
+            Thread.currentThread().setContextClassLoader(classLoader);
+            return new MigrationScriptReaderImpl(config).read().stream()
+                    .filter(script -> !script.getFileName().equals(V1_2__Valid_Filename.class.getSimpleName()))
+                    .map(script -> script.getFileName() + ":" + script.getContent().checksum())
+                    .toList();
+        } finally {
+            Thread.currentThread().setContextClassLoader(originalClassLoader);
+        }
+    }
+}
@@ -165,6 +165,107 @@ class ElasticsearchEvolutionConfigTest {
                     .hasMessage("historyMaxQuerySize value '0' must be greater than 0");
         }
 
+        @Test
+        void readParallelism_must_be_greater_than_0() {
+            final ElasticsearchEvolutionConfigImpl config = new ElasticsearchEvolutionConfigImpl()
+                    .setReadParallelism(0);
+
+            assertThatThrownBy(config::validate)
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessage("readParallelism value '0' must be greater than 0");
+        }
+
+        @Test
+        void scriptRequestParallelism_must_be_greater_than_0() {
+            final ElasticsearchEvolutionConfigImpl config = new ElasticsearchEvolutionConfigImpl()
+                    .setScriptRequestParallelism(0);
+
+            assertThatThrownBy(config::validate)
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessage("scriptRequestParallelism value '0' must be greater than 0");
+        }
+
+        @Test
+        void bulkMaxBytes_must_be_greater_than_0() {
+            final ElasticsearchEvolutionConfigImpl config = new ElasticsearchEvolutionConfigImpl()
+                    .setBulkMaxBytes(0);
+
+            assertThatThrownBy(config::validate)
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessage("bulkMaxBytes value '0' must be greater than 0");
+        }
+
+        @Test
+        void bulkMaxDocuments_must_be_greater_than_0() {
+            final ElasticsearchEvolutionConfigImpl config = new ElasticsearchEvolutionConfigImpl()
+                    .setBulkMaxDocuments(0);
+
+            assertThatThrownBy(config::validate)
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessage("bulkMaxDocuments value '0' must be greater than 0");
+        }
+
+        @Test
+        void bulkParallelism_must_be_greater_than_0() {
+            final ElasticsearchEvolutionConfigImpl config = new ElasticsearchEvolutionConfigImpl()
+                    .setBulkParallelism(0);
+
+            assertThatThrownBy(config::validate)
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessage("bulkParallelism value '0' must be greater than 0");
+        }
+
+        @Test
+        void streamBodyThreshold_must_be_greater_than_0() {
+            final ElasticsearchEvolutionConfigImpl config = new ElasticsearchEvolutionConfigImpl()
+                    .setStreamBodyThreshold(0);
+
+            assertThatThrownBy(config::validate)
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessage("streamBodyThreshold value '0' must be greater than 0");
+        }
+
+        @Test
+        void historyLockMode_must_not_be_null() {
+            final ElasticsearchEvolutionConfigImpl config = new ElasticsearchEvolutionConfigImpl()
+                    .setHistoryLockMode(null);
+
+            assertThatThrownBy(config::validate)
+                    .isInstanceOf(NullPointerException.class)
+                    .hasMessage("historyLockMode must not be null");
+        }
+
+        @Test
+        void stream_must_be_a_single_token() {
+            final ElasticsearchEvolutionConfigImpl config = new ElasticsearchEvolutionConfigImpl()
+                    .setStream("orders-service");
+
+            assertThatThrownBy(config::validate)
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessage("stream 'orders-service' must consist of lowercase letters, digits and underscores");
+        }
+
+        @Test
+        void lockWaitMaxTimeInMillis_must_not_be_less_than_lockWaitInitialTimeInMillis() {
+            final ElasticsearchEvolutionConfigImpl config = new ElasticsearchEvolutionConfigImpl()
+                    .setLockWaitInitialTimeInMillis(1000)
+                    .setLockWaitMaxTimeInMillis(999);
+
+            assertThatThrownBy(config::validate)
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessage("lockWaitMaxTimeInMillis value '999' must not be less than lockWaitInitialTimeInMillis '1000'");
+        }
+
+        @Test
+        void lockWaitTimeoutInMillis_must_not_be_negative() {
+            final ElasticsearchEvolutionConfigImpl config = new ElasticsearchEvolutionConfigImpl()
+                    .setLockWaitTimeoutInMillis(-1);
+
+            assertThatThrownBy(config::validate)
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessage("lockWaitTimeoutInMillis value '-1' must not be negative");
+        }
+
         @Test
         void baselineVersion_must_be_at_least_1() {
             final ElasticsearchEvolutionConfigImpl config = new ElasticsearchEvolutionConfigImpl()
@@ -0,0 +1,254 @@
+package com.senacor.elasticsearch.evolution.core.internal.migration.execution;
+
+import com.senacor.elasticsearch.evolution.core.api.MigrationException;
+import com.senacor.elasticsearch.evolution.core.api.migration.MigrationVersion;
+import com.senacor.elasticsearch.evolution.core.internal.model.FileNameInfo;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.BulkMigrationRequest;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.FileNameInfoImpl;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.ScriptMigrationContent;
+import com.senacor.elasticsearch.evolution.rest.abstraction.EvolutionRestClient;
+import com.senacor.elasticsearch.evolution.rest.abstraction.EvolutionRestResponse;
+import com.senacor.elasticsearch.evolution.rest.abstraction.HttpMethod;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BulkMigrationExecutorTest {
+
+    private static final String SUCCESS = "{\"took\":1,\"errors\":false,\"items\":[{\"index\":{\"_index\":\"my_index\",\"_id\":\"1\",\"status\":201}}]}";
+    private static final FileNameInfo FILE_NAME_INFO = new FileNameInfoImpl(MigrationVersion.fromVersion("1"), "data", "V1__data.ndjson");
+
+    @Mock
+    private EvolutionRestClient<?> restClient;
+
+    @Nested
+    class execute {
+
+        @Test
+        void splitsByMaxDocuments() throws IOException {
+            final List<String> bodies = respondWith(SUCCESS);
+            final BulkMigrationExecutor underTest = new BulkMigrationExecutor(restClient, StandardCharsets.UTF_8, 1000, 2, 1);
+
+            final Optional<RuntimeException> res = underTest.execute(FILE_NAME_INFO, bulk("""
+                    {"index":{"_index":"my_index","_id":"1"}}
+                    {"field":"1"}
+                    {"delete":{"_index":"my_index","_id":"2"}}
+
+                    {"create":{"_index":"my_index","_id":"3"}}
+                    {"field":"3"}
+                    """));
+
+            assertThat(res).isEmpty();
+            assertThat(bodies).containsExactly("""
+                    {"index":{"_index":"my_index","_id":"1"}}
+                    {"field":"1"}
+                    {"delete":{"_index":"my_index","_id":"2"}}
+                    """, """
+                    {"create":{"_index":"my_index","_id":"3"}}
+                    {"field":"3"}
+                    """);
+            verify(restClient, times(2)).execute(eq(HttpMethod.POST), eq("/_bulk"),
+                    eq(Map.of(EvolutionRestClient.HEADER_NAME_CONTENT_TYPE, "application/x-ndjson; charset=UTF-8")),
+                    eq(Map.of("filter_path", "errors,items.*.error")), anyString());
+        }
+
+        @Test
+        void splitsByMaxBytes_largerDocumentIsSentAlone() throws IOException {
+            final List<String> bodies = respondWith(SUCCESS);
+            final String small = "{\"index\":{}}\n{\"f\":\"ä\"}\n";
+            final String large = "{\"index\":{}}\n{\"f\":\"" + "x".repeat(100) + "\"}\n";
+            // 'ä' is encoded with 2 bytes
+            final int smallBytes = small.length() + 1;
+            final BulkMigrationExecutor underTest = new BulkMigrationExecutor(restClient, StandardCharsets.UTF_8, 2 * smallBytes, 1000, 1);
+
+            final Optional<RuntimeException> res = underTest.execute(FILE_NAME_INFO, bulk(small + small + small + large + small));
+
+            assertThat(res).isEmpty();
+            assertThat(bodies).containsExactly(small + small, small, large, small);
+        }
+
+        @Test
+        void withoutTrailingNewline() throws IOException {
+            final List<String> bodies = respondWith(SUCCESS);
+            final BulkMigrationExecutor underTest = new BulkMigrationExecutor(restClient, StandardCharsets.UTF_8, 1000, 1000, 1);
+
+            underTest.execute(FILE_NAME_INFO, bulk("{\"update\":{\"_id\":\"1\"}}\r\n{\"doc\":{}}"));
+
+            assertThat(bodies).containsExactly("{\"update\":{\"_id\":\"1\"}}\n{\"doc\":{}}\n");
+        }
+
+        @Test
+        void invalidAction() {
+            final BulkMigrationExecutor underTest = new BulkMigrationExecutor(restClient, StandardCharsets.UTF_8, 1000, 1000, 1);
+
+            assertThatThrownBy(() -> underTest.execute(FILE_NAME_INFO, bulk("""
+                    {"delete":{"_id":"1"}}
+                    {"field":"1"}
+                    """)))
+                    .isInstanceOf(MigrationException.class)
+                    .hasMessage("invalid bulk action in line 2 of 'V1__data.ndjson', expected one of index, create, update or delete: {\"field\":\"1\"}");
+            verifyNoInteractions(restClient);
+        }
+
+        @Test
+        void missingSourceLine() {
+            final BulkMigrationExecutor underTest = new BulkMigrationExecutor(restClient, StandardCharsets.UTF_8, 1000, 1000, 1);
+
+            assertThatThrownBy(() -> underTest.execute(FILE_NAME_INFO, bulk("{\"index\":{\"_id\":\"1\"}}\n\n")))
+                    .isInstanceOf(MigrationException.class)
+                    .hasMessage("source line of 'index' action in line 1 of 'V1__data.ndjson' is missing");
+        }
+
+        @Test
+        void failedItems_stopsAfterFailedRequest() throws IOException {
+            final List<String> bodies = respondWith("""
+                    {"took":1,"errors":true,"items":[
+                      {"index":{"_index":"my_index","_id":"1","status":201,"result":"created"}},
+                      {"create":{"_index":"my_index","_id":"2","status":409,"error":{"type":"version_conflict_engine_exception","reason":"document already exists","index":"my_index"}}},
+                      {"update":{"_index":"my_index","_id":"3","status":404,"error":{"type":"document_missing_exception","reason":"document missing"}}}
+                    ]}""");
+            final BulkMigrationExecutor underTest = new BulkMigrationExecutor(restClient, StandardCharsets.UTF_8, 1000, 3, 1);
+
+            final Optional<RuntimeException> res = underTest.execute(FILE_NAME_INFO, bulk("{\"delete\":{}}\n".repeat(6)));
+
+            assertThat(res).containsInstanceOf(MigrationException.class);
+            assertThat(res.get()).hasMessage("bulk request 1 of 'V1__data.ndjson' failed: 2 of 3 items failed, first error: "
+                    + "create of document '2' in index 'my_index' failed with status 409: version_conflict_engine_exception (document already exists)");
+            assertThat(bodies).hasSize(1);
+        }
+
+        @Test
+        void failedStatus() throws IOException {
+            final EvolutionRestResponse response = mock(EvolutionRestResponse.class);
+            doReturn(400).when(response).statusCode();
+            doReturn(Optional.of("{\"error\":\"bad\"}")).when(response).body();
+            doReturn(response).when(restClient).execute(any(), anyString(), anyMap(), anyMap(), anyString());
+            final BulkMigrationExecutor underTest = new BulkMigrationExecutor(restClient, StandardCharsets.UTF_8, 1000, 1000, 1);
+
+            final Optional<RuntimeException> res = underTest.execute(FILE_NAME_INFO, bulk("{\"delete\":{}}\n"));
+
+            assertThat(res).containsInstanceOf(MigrationException.class);
+            assertThat(res.get().getMessage()).startsWith("bulk request 1 of 'V1__data.ndjson' failed with HTTP status 400");
+        }
+
+        @Test
+        void concurrentRequests_areLimitedByParallelism() throws IOException, InterruptedException {
+            final AtomicInteger inFlight = new AtomicInteger();
+            final AtomicInteger maxInFlight = new AtomicInteger();
+            final CountDownLatch bothStarted = new CountDownLatch(2);
+            final EvolutionRestResponse response = successResponse(SUCCESS);
+            doAnswer(invocation -> {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                bothStarted.countDown();
+                bothStarted.await(10, TimeUnit.SECONDS);
+                inFlight.decrementAndGet();
+                return response;
+            }).when(restClient).execute(any(), anyString(), anyMap(), anyMap(), anyString());
+            final BulkMigrationExecutor underTest = new BulkMigrationExecutor(restClient, StandardCharsets.UTF_8, 1000, 1, 2);
+
+            final Optional<RuntimeException> res = underTest.execute(FILE_NAME_INFO, bulk("{\"delete\":{}}\n".repeat(10)));
+
+            assertThat(res).isEmpty();
+            assertThat(bothStarted.await(0, TimeUnit.SECONDS)).isTrue();
+            assertThat(maxInFlight.get()).isEqualTo(2);
+            verify(restClient, times(10)).execute(any(), anyString(), anyMap(), anyMap(), anyString());
+        }
+
+        @Test
+        void concurrentRequests_noRequestIsStartedAfterFailedRequest() throws IOException {
+            final AtomicInteger requests = new AtomicInteger();
+            final EvolutionRestResponse failed = mock(EvolutionRestResponse.class);
+            doReturn(500).when(failed).statusCode();
+            doAnswer(invocation -> {
+                requests.incrementAndGet();
+                return failed;
+            }).when(restClient).execute(any(), anyString(), anyMap(), anyMap(), anyString());
+            final BulkMigrationExecutor underTest = new BulkMigrationExecutor(restClient, StandardCharsets.UTF_8, 1000, 1, 2);
+
+            final Optional<RuntimeException> res = underTest.execute(FILE_NAME_INFO, bulk("{\"delete\":{}}\n".repeat(100)));
+
+            assertThat(res).containsInstanceOf(MigrationException.class);
+            assertThat(requests.get()).isLessThan(100);
+        }
+    }
+
+    @Nested
+    class itemErrors {
+
+        @Test
+        void noErrors_itemsAreNotParsed() throws IOException {
+            assertThat(BulkMigrationExecutor.itemErrors("{\"took\":1,\"errors\":false,\"items\":[invalid", 1)).isEmpty();
+        }
+
+        @Test
+        void filteredResponse_onlyFailedItems() throws IOException {
+            assertThat(BulkMigrationExecutor.itemErrors("""
+                    {"errors":true,"items":[
+                      {"index":{"error":{"type":"mapper_parsing_exception","reason":"failed to parse","index":"my_index"}}}
+                    ]}""", 2))
+                    .contains("1 of 2 items failed, first error: "
+                            + "index in index 'my_index' failed: mapper_parsing_exception (failed to parse)");
+        }
+
+        @Test
+        void errorsAfterItems() throws IOException {
+            assertThat(BulkMigrationExecutor.itemErrors("{\"items\":[{\"delete\":{\"_index\":\"i\",\"_id\":\"1\",\"status\":404}}],\"errors\":false}", 1))
+                    .isEmpty();
+        }
+    }
+
+    @Nested
+    class utf8Length {
+
+        @Test
+        void sameAsEncodedLength() {
+            final String value = "aä€😀";
+
+            assertThat(BulkMigrationExecutor.utf8Length(value)).isEqualTo(value.getBytes(StandardCharsets.UTF_8).length);
+        }
+    }
+
+    private List<String> respondWith(String responseBody) throws IOException {
+        final EvolutionRestResponse response = successResponse(responseBody);
+        final List<String> bodies = new ArrayList<>();
+        doAnswer(invocation -> {
+            bodies.add(invocation.getArgument(4));
+            return response;
+        }).when(restClient).execute(any(), anyString(), anyMap(), anyMap(), anyString());
+        return bodies;
+    }
+
+    private static EvolutionRestResponse successResponse(String responseBody) throws IOException {
+        final EvolutionRestResponse response = mock(EvolutionRestResponse.class);
+        doReturn(200).when(response).statusCode();
+        doReturn(Optional.of(responseBody)).when(response).body();
+        return response;
+    }
+
+    private static BulkMigrationRequest bulk(String content) {
+        return new BulkMigrationRequest(ScriptMigrationContent.lazy("V1__data.ndjson", () -> {
+                    throw new AssertionError("bulk data must not be loaded");
+                })
+                .readerOpener(() -> new StringReader(content))
+                .build());
+    }
+}
@@ -0,0 +1,318 @@
+package com.senacor.elasticsearch.evolution.core.internal.migration.execution;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.senacor.elasticsearch.evolution.core.api.MigrationException;
+import com.senacor.elasticsearch.evolution.rest.abstraction.EvolutionRestClient;
+import com.senacor.elasticsearch.evolution.rest.abstraction.EvolutionRestResponse;
+import com.senacor.elasticsearch.evolution.rest.abstraction.HttpMethod;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatNoException;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DocumentLockTest {
+
+    private static final String INDEX = "es_evolution";
+    private static final String LOCK_PATH = "/" + INDEX + "/_doc/0.1";
+    private static final String CREATE_PATH = "/" + INDEX + "/_create/0.1";
+    private static final int LEASE = 30_000;
+
+    @Mock
+    private EvolutionRestClient<?> restClient;
+    private final MutableClock clock = new MutableClock(Instant.parse("2026-01-01T10:00:00Z"));
+    private DocumentLock underTest;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (null != underTest) {
+            // stops the heartbeat
+            final EvolutionRestResponse deleted = response(200, null);
+            lenient().when(restClient.execute(eq(HttpMethod.DELETE), anyString(), isNull(), anyMap(), isNull())).thenReturn(deleted);
+            underTest.unlock();
+        }
+    }
+
+    private DocumentLock documentLock(int leaseTimeInMillis) {
+        final ObjectMapper objectMapper = new ObjectMapper()
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        underTest = new DocumentLock(restClient, objectMapper, INDEX, "0.1",
+                () -> Map.of("version", "0.1", "locked", true), leaseTimeInMillis, clock);
+        return underTest;
+    }
+
+    @Nested
+    class lock {
+
+        @Test
+        void createsLockDocumentWithLease() throws IOException {
+            final DocumentLock lock = documentLock(LEASE);
+            final EvolutionRestResponse created = response(201, written(7));
+            when(restClient.execute(eq(HttpMethod.PUT), eq(CREATE_PATH), anyMap(), isNull(), anyString())).thenReturn(created);
+
+            assertThat(lock.lock()).isTrue();
+
+            final ArgumentCaptor<String> body = ArgumentCaptor.forClass(String.class);
+            verify(restClient).execute(eq(HttpMethod.PUT), eq(CREATE_PATH), anyMap(), isNull(), body.capture());
+            assertThat(body.getValue())
+                    .contains("\"locked\":true")
+                    .contains("\"lockOwner\":\"" + lock.getOwner() + "\"")
+                    .contains("\"lockAcquiredAt\":\"2026-01-01T10:00:00Z\"")
+                    .contains("\"lockExpiresAt\":\"2026-01-01T10:00:30Z\"");
+        }
+
+        @Test
+        void withoutLease_hasNoExpiry() throws IOException {
+            final DocumentLock lock = documentLock(0);
+            final EvolutionRestResponse created = response(201, written(7));
+            when(restClient.execute(eq(HttpMethod.PUT), eq(CREATE_PATH), anyMap(), isNull(), anyString())).thenReturn(created);
+
+            assertThat(lock.lock()).isTrue();
+
+            verify(restClient).execute(eq(HttpMethod.PUT), eq(CREATE_PATH), anyMap(), isNull(),
+                    argThat((String body) -> !body.contains("lockExpiresAt")));
+        }
+
+        @Test
+        void validLeaseOfOtherOwner_isNotTakenOver() throws IOException {
+            final DocumentLock lock = documentLock(LEASE);
+            final EvolutionRestResponse conflict = response(409, null);
+            when(restClient.execute(eq(HttpMethod.PUT), eq(CREATE_PATH), anyMap(), isNull(), anyString())).thenReturn(conflict);
+            final EvolutionRestResponse lockDocument = response(200, lockDocument(3, "2026-01-01T10:00:01Z"));
+            when(restClient.execute(HttpMethod.GET, LOCK_PATH)).thenReturn(lockDocument);
+
+            assertThat(lock.lock()).isFalse();
+
+            verify(restClient, never()).execute(eq(HttpMethod.PUT), eq(LOCK_PATH), anyMap(), anyMap(), anyString());
+        }
+
+        @Test
+        void expiredLease_isTakenOverWithConditionalWrite() throws IOException {
+            final DocumentLock lock = documentLock(LEASE);
+            final EvolutionRestResponse conflict = response(409, null);
+            when(restClient.execute(eq(HttpMethod.PUT), eq(CREATE_PATH), anyMap(), isNull(), anyString())).thenReturn(conflict);
+            final EvolutionRestResponse lockDocument = response(200, lockDocument(3, "2026-01-01T09:59:59Z"));
+            when(restClient.execute(HttpMethod.GET, LOCK_PATH)).thenReturn(lockDocument);
+            final EvolutionRestResponse updated = response(200, written(4));
+            when(restClient.execute(eq(HttpMethod.PUT), eq(LOCK_PATH), anyMap(),
+                    eq(Map.of("if_seq_no", "3", "if_primary_term", "1")), contains(lock.getOwner())))
+                    .thenReturn(updated);
+            final EvolutionRestResponse deleted = response(200, null);
+            when(restClient.execute(HttpMethod.DELETE, LOCK_PATH, null, Map.of("if_seq_no", "4", "if_primary_term", "1"), null))
+                    .thenReturn(deleted);
+
+            assertThat(lock.lock()).isTrue();
+            assertThat(lock.unlock()).isTrue();
+        }
+
+        @Test
+        void expiredLeaseTakenOverByOtherInstance_isNotLocked() throws IOException {
+            final DocumentLock lock = documentLock(LEASE);
+            final EvolutionRestResponse conflict = response(409, null);
+            when(restClient.execute(eq(HttpMethod.PUT), anyString(), anyMap(), nullable(Map.class), anyString())).thenReturn(conflict);
+            final EvolutionRestResponse lockDocument = response(200, lockDocument(3, "2026-01-01T09:59:59Z"));
+            when(restClient.execute(HttpMethod.GET, LOCK_PATH)).thenReturn(lockDocument);
+
+            assertThat(lock.lock()).isFalse();
+            assertThat(lock.unlock()).isTrue();
+            verify(restClient, never()).execute(eq(HttpMethod.DELETE), anyString(), any(), anyMap(), any());
+        }
+    }
+
+    @Nested
+    class isLocked {
+
+        @Test
+        void validLease_isLocked() throws IOException {
+            final EvolutionRestResponse lockDocument = response(200, lockDocument(3, "2026-01-01T10:00:01Z"));
+            when(restClient.execute(HttpMethod.GET, LOCK_PATH)).thenReturn(lockDocument);
+
+            assertThat(documentLock(LEASE).isLocked()).isTrue();
+        }
+
+        @Test
+        void expiredLease_isNotLocked() throws IOException {
+            final EvolutionRestResponse lockDocument = response(200, lockDocument(3, "2026-01-01T09:59:59Z"));
+            when(restClient.execute(HttpMethod.GET, LOCK_PATH)).thenReturn(lockDocument);
+
+            assertThat(documentLock(LEASE).isLocked()).isFalse();
+        }
+
+        @Test
+        void lockDocumentWithoutLease_neverExpires() throws IOException {
+            final EvolutionRestResponse lockDocument = response(200, """
+                    {"found":true,"_seq_no":3,"_primary_term":1,"_source":{"version":"0.1","locked":true}}""");
+            when(restClient.execute(HttpMethod.GET, LOCK_PATH)).thenReturn(lockDocument);
+
+            assertThat(documentLock(LEASE).isLocked()).isTrue();
+        }
+    }
+
+    @Nested
+    class renew {
+
+        @Test
+        void extendsLeaseWithConditionalWrite() throws IOException {
+            final DocumentLock lock = lockedWithSeqNo7();
+            clock.advance(Duration.ofSeconds(10));
+            final EvolutionRestResponse updated = response(200, written(8));
+            when(restClient.execute(eq(HttpMethod.PUT), eq(LOCK_PATH), anyMap(),
+                    eq(Map.of("if_seq_no", "7", "if_primary_term", "1")), anyString()))
+                    .thenReturn(updated);
+            final EvolutionRestResponse deleted = response(200, null);
+            when(restClient.execute(HttpMethod.DELETE, LOCK_PATH, null, Map.of("if_seq_no", "8", "if_primary_term", "1"), null))
+                    .thenReturn(deleted);
+
+            lock.renew();
+
+            verify(restClient).execute(eq(HttpMethod.PUT), eq(LOCK_PATH), anyMap(), anyMap(),
+                    argThat((String body) -> body.contains("\"lockAcquiredAt\":\"2026-01-01T10:00:00Z\"")
+                            && body.contains("\"lockExpiresAt\":\"2026-01-01T10:00:40Z\"")));
+            clock.advance(Duration.ofSeconds(25));
+            assertThatNoException().isThrownBy(lock::requireLock);
+            assertThat(lock.unlock()).isTrue();
+        }
+
+        @Test
+        void conflict_losesLock() throws IOException {
+            final DocumentLock lock = lockedWithSeqNo7();
+            final EvolutionRestResponse conflict = response(409, null);
+            when(restClient.execute(eq(HttpMethod.PUT), eq(LOCK_PATH), anyMap(), anyMap(), anyString())).thenReturn(conflict);
+
+            lock.renew();
+
+            assertThatThrownBy(lock::requireLock)
+                    .isInstanceOf(MigrationException.class)
+                    .hasMessage("lost the lock of the elasticsearch-evolution history index 'es_evolution', another instance may migrate concurrently");
+            assertThat(lock.unlock()).isTrue();
+            verify(restClient, never()).execute(eq(HttpMethod.DELETE), anyString(), any(), anyMap(), any());
+        }
+
+        @Test
+        void failedRenewals_loseLockAfterLeaseExpired() throws IOException {
+            final DocumentLock lock = lockedWithSeqNo7();
+            when(restClient.execute(eq(HttpMethod.PUT), eq(LOCK_PATH), anyMap(), anyMap(), anyString()))
+                    .thenThrow(new IOException("test error"));
+
+            lock.renew();
+            clock.advance(Duration.ofSeconds(29));
+            assertThatNoException().isThrownBy(lock::requireLock);
+
+            clock.advance(Duration.ofSeconds(2));
+            assertThatThrownBy(lock::requireLock)
+                    .isInstanceOf(MigrationException.class)
+                    .hasMessageStartingWith("lost the lock");
+        }
+
+        @Test
+        void heartbeatRenewsLease() throws IOException {
+            final DocumentLock lock = documentLock(30);
+            final EvolutionRestResponse created = response(201, written(7));
+            when(restClient.execute(eq(HttpMethod.PUT), eq(CREATE_PATH), anyMap(), isNull(), anyString())).thenReturn(created);
+            final EvolutionRestResponse updated = response(200, written(8));
+            lenient().when(restClient.execute(eq(HttpMethod.PUT), eq(LOCK_PATH), anyMap(), anyMap(), anyString())).thenReturn(updated);
+            final EvolutionRestResponse deleted = response(200, null);
+            lenient().when(restClient.execute(eq(HttpMethod.DELETE), eq(LOCK_PATH), isNull(), anyMap(), isNull())).thenReturn(deleted);
+
+            assertThat(lock.lock()).isTrue();
+
+            verify(restClient, timeout(5_000).atLeast(2)).execute(eq(HttpMethod.PUT), eq(LOCK_PATH), anyMap(), anyMap(), anyString());
+            assertThat(lock.unlock()).isTrue();
+        }
+
+        private DocumentLock lockedWithSeqNo7() throws IOException {
+            // the lease is long enough, so the heartbeat does not renew during the test
+            final DocumentLock lock = documentLock(LEASE);
+            final EvolutionRestResponse created = response(201, written(7));
+            when(restClient.execute(eq(HttpMethod.PUT), eq(CREATE_PATH), anyMap(), isNull(), anyString())).thenReturn(created);
+            assertThat(lock.lock()).isTrue();
+            return lock;
+        }
+    }
+
+    @Nested
+    class isExpired {
+
+        @Test
+        void noExpiry() {
+            assertThat(DocumentLock.isExpired(Map.of(), Instant.now())).isFalse();
+        }
+
+        @Test
+        void invalidExpiry() {
+            assertThat(DocumentLock.isExpired(Map.of("lockExpiresAt", "tomorrow"), Instant.now())).isFalse();
+        }
+
+        @Test
+        void expiry() {
+            final Instant expiresAt = Instant.parse("2026-01-01T10:00:00Z");
+            final Map<String, Object> source = Map.of("lockExpiresAt", expiresAt.toString());
+
+            assertThat(DocumentLock.isExpired(source, expiresAt)).isFalse();
+            assertThat(DocumentLock.isExpired(source, expiresAt.plusMillis(1))).isTrue();
+        }
+    }
+
+    private static String written(long seqNo) {
+        return "{\"_id\":\"0.1\",\"_seq_no\":" + seqNo + ",\"_primary_term\":1}";
+    }
+
+    private static String lockDocument(long seqNo, String expiresAt) {
+        return "{\"found\":true,\"_seq_no\":" + seqNo + ",\"_primary_term\":1,\"_source\":{\"version\":\"0.1\",\"locked\":true," +
+                "\"lockOwner\":\"other\",\"lockExpiresAt\":\"" + expiresAt + "\"}}";
+    }
+
+    private static EvolutionRestResponse response(int statusCode, String body) throws IOException {
+        final EvolutionRestResponse response = mock(EvolutionRestResponse.class);
+        lenient().when(response.statusCode()).thenReturn(statusCode);
+        lenient().when(response.body()).thenReturn(Optional.ofNullable(body));
+        return response;
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -2,12 +2,15 @@ package com.senacor.elasticsearch.evolution.core.internal.migration.execution;
 
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.senacor.elasticsearch.evolution.core.api.config.HistoryLockMode;
+import com.senacor.elasticsearch.evolution.core.api.migration.MigrationFingerprint;
 import com.senacor.elasticsearch.evolution.core.api.migration.MigrationVersion;
 import com.senacor.elasticsearch.evolution.core.internal.model.dbhistory.MigrationScriptProtocol;
 import com.senacor.elasticsearch.evolution.core.test.EmbeddedElasticsearchExtension;
 import com.senacor.elasticsearch.evolution.core.test.EmbeddedElasticsearchExtension.ElasticsearchArgumentsProvider;
 import com.senacor.elasticsearch.evolution.core.test.EsUtils;
 import com.senacor.elasticsearch.evolution.rest.abstraction.EvolutionRestClient;
+import com.senacor.elasticsearch.evolution.rest.abstraction.HttpMethod;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -76,6 +79,45 @@ class HistoryRepositoryImplIT {
             assertThat(all.first().getVersion()).isEqualTo(MigrationVersion.fromVersion("1.0"));
         }
 
+        @ParameterizedTest(name = "{0}")
+        @ArgumentsSource(ElasticsearchArgumentsProvider.class)
+        void pagesThroughMoreProtocolsThanQuerySize(String versionInfo, EsUtils esUtils) {
+            final ObjectMapper objectMapper = new ObjectMapper()
+                    .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+            HistoryRepositoryImpl underTest = new HistoryRepositoryImpl(esUtils.getEvolutionRestClient(), INDEX,
+                    new MigrationScriptProtocolMapper(), 2, objectMapper);
+            for (int i = 1; i <= 5; i++) {
+                underTest.saveOrUpdate(new MigrationScriptProtocol().setVersion(i + ".0"));
+            }
+            underTest.refresh(INDEX);
+
+            NavigableSet<MigrationScriptProtocol> all = underTest.findAll();
+
+            assertThat(all)
+                    .extracting(MigrationScriptProtocol::getVersion)
+                    .containsExactly(MigrationVersion.fromVersion("1.0"), MigrationVersion.fromVersion("2.0"),
+                            MigrationVersion.fromVersion("3.0"), MigrationVersion.fromVersion("4.0"),
+                            MigrationVersion.fromVersion("5.0"));
+        }
+
+        @ParameterizedTest(name = "{0}")
+        @ArgumentsSource(ElasticsearchArgumentsProvider.class)
+        void pagesWhenFirstPageIsExactlyFull(String versionInfo, EsUtils esUtils) {
+            final ObjectMapper objectMapper = new ObjectMapper()
+                    .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+            HistoryRepositoryImpl underTest = new HistoryRepositoryImpl(esUtils.getEvolutionRestClient(), INDEX,
+                    new MigrationScriptProtocolMapper(), 2, objectMapper);
+            underTest.saveOrUpdate(new MigrationScriptProtocol().setVersion("1.0"));
+            underTest.saveOrUpdate(new MigrationScriptProtocol().setVersion("2.0"));
+            underTest.refresh(INDEX);
+
+            NavigableSet<MigrationScriptProtocol> all = underTest.findAll();
+
+            assertThat(all)
+                    .extracting(MigrationScriptProtocol::getVersion)
+                    .containsExactly(MigrationVersion.fromVersion("1.0"), MigrationVersion.fromVersion("2.0"));
+        }
+
         @ParameterizedTest(name = "{0}")
         @ArgumentsSource(ElasticsearchArgumentsProvider.class)
         void returnsProtocolsInVersionOrder(String versionInfo, EsUtils esUtils) {
@@ -232,6 +274,42 @@ class HistoryRepositoryImplIT {
         }
     }
 
+    @Nested
+    class fingerprint {
+        @ParameterizedTest(name = "{0}")
+        @ArgumentsSource(ElasticsearchArgumentsProvider.class)
+        void can_handle_when_index_does_not_exist(String versionInfo, EsUtils esUtils) {
+            HistoryRepositoryImpl underTest = createHistoryRepositoryImpl(esUtils.getEvolutionRestClient());
+
+            assertThat(underTest.findFingerprint()).isEmpty();
+        }
+
+        @ParameterizedTest(name = "{0}")
+        @ArgumentsSource(ElasticsearchArgumentsProvider.class)
+        void saveAndFindWithoutRefresh(String versionInfo, EsUtils esUtils) {
+            HistoryRepositoryImpl underTest = createHistoryRepositoryImpl(esUtils.getEvolutionRestClient());
+            underTest.createIndexIfAbsent();
+            MigrationFingerprint fingerprint = new MigrationFingerprint("abc", MigrationVersion.fromVersion("1.1"));
+
+            underTest.saveFingerprint(fingerprint);
+
+            assertThat(underTest.findFingerprint()).contains(fingerprint);
+        }
+
+        @ParameterizedTest(name = "{0}")
+        @ArgumentsSource(ElasticsearchArgumentsProvider.class)
+        void isNeitherReturnedByFindAllNorLocksTheIndex(String versionInfo, EsUtils esUtils) {
+            HistoryRepositoryImpl underTest = createHistoryRepositoryImpl(esUtils.getEvolutionRestClient());
+            underTest.createIndexIfAbsent();
+            underTest.saveFingerprint(new MigrationFingerprint("abc", MigrationVersion.fromVersion("1.1")));
+
+            assertSoftly(softly -> {
+                softly.assertThat(underTest.findAll()).isEmpty();
+                softly.assertThat(underTest.isLocked()).isFalse();
+            });
+        }
+    }
+
     @Nested
     class isLocked {
         @ParameterizedTest(name = "{0}")
@@ -423,6 +501,138 @@ class HistoryRepositoryImplIT {
 
     }
 
+    @Nested
+    class documentLock {
+
+        @ParameterizedTest(name = "{0}")
+        @ArgumentsSource(ElasticsearchArgumentsProvider.class)
+        void lockIsVisibleWithoutRefreshAndExclusive(String versionInfo, EsUtils esUtils) {
+            HistoryRepositoryImpl underTest = createHistoryRepositoryImpl(esUtils.getEvolutionRestClient(), HistoryLockMode.DOCUMENT);
+            HistoryRepositoryImpl other = createHistoryRepositoryImpl(esUtils.getEvolutionRestClient(), HistoryLockMode.DOCUMENT);
+            underTest.createIndexIfAbsent();
+
+            assertThat(underTest.isLocked()).as("isLocked before lock").isFalse();
+            assertThat(underTest.lock()).as("lock").isTrue();
+            assertThat(other.isLocked()).as("isLocked after lock").isTrue();
+            assertThat(other.lock()).as("lock of other instance").isFalse();
+            assertThat(other.unlock()).as("unlock of other instance").isTrue();
+            assertThat(other.isLocked()).as("isLocked after unlock of other instance").isTrue();
+
+            assertThat(underTest.unlock()).as("unlock").isTrue();
+            assertThat(other.isLocked()).as("isLocked after unlock").isFalse();
+            assertThat(other.lock()).as("lock of other instance after unlock").isTrue();
+        }
+
+        @ParameterizedTest(name = "{0}")
+        @ArgumentsSource(ElasticsearchArgumentsProvider.class)
+        void lockDocumentIsNotReturnedByFindAll(String versionInfo, EsUtils esUtils) {
+            HistoryRepositoryImpl underTest = createHistoryRepositoryImpl(esUtils.getEvolutionRestClient(), HistoryLockMode.DOCUMENT);
+            underTest.createIndexIfAbsent();
+            underTest.lock();
+
+            esUtils.refreshIndices();
+            assertThat(underTest.findAll()).isEmpty();
+        }
+
+        @ParameterizedTest(name = "{0}")
+        @ArgumentsSource(ElasticsearchArgumentsProvider.class)
+        void historyIsUnlockedForUpdateByQueryModeAfterUnlock(String versionInfo, EsUtils esUtils) {
+            HistoryRepositoryImpl underTest = createHistoryRepositoryImpl(esUtils.getEvolutionRestClient(), HistoryLockMode.DOCUMENT);
+            underTest.createIndexIfAbsent();
+            assertThat(underTest.lock()).as("lock").isTrue();
+            underTest.saveOrUpdate(new MigrationScriptProtocol().setVersion("1.0").setLocked(true));
+            assertThat(underTest.unlock()).as("unlock").isTrue();
+
+            assertThat(createHistoryRepositoryImpl(esUtils.getEvolutionRestClient()).isLocked())
+                    .as("isLocked in UPDATE_BY_QUERY mode")
+                    .isFalse();
+        }
+
+        @ParameterizedTest(name = "{0}")
+        @ArgumentsSource(ElasticsearchArgumentsProvider.class)
+        void lockIsVisibleToUpdateByQueryMode(String versionInfo, EsUtils esUtils) {
+            HistoryRepositoryImpl underTest = createHistoryRepositoryImpl(esUtils.getEvolutionRestClient(), HistoryLockMode.DOCUMENT);
+            underTest.createIndexIfAbsent();
+            underTest.lock();
+
+            assertThat(createHistoryRepositoryImpl(esUtils.getEvolutionRestClient()).isLocked()).isTrue();
+        }
+    }
+
+    @Nested
+    class stream {
+
+        @ParameterizedTest(name = "{0}")
+        @ArgumentsSource(ElasticsearchArgumentsProvider.class)
+        void historiesAreSeparated(String versionInfo, EsUtils esUtils) {
+            HistoryRepositoryImpl orders = createHistoryRepositoryImpl(esUtils.getEvolutionRestClient(), HistoryLockMode.DOCUMENT, "orders");
+            HistoryRepositoryImpl billing = createHistoryRepositoryImpl(esUtils.getEvolutionRestClient(), HistoryLockMode.DOCUMENT, "billing");
+            HistoryRepositoryImpl defaultStream = createHistoryRepositoryImpl(esUtils.getEvolutionRestClient());
+            orders.saveOrUpdate(new MigrationScriptProtocol().setVersion("1.0").setScriptName("orders"));
+            billing.saveOrUpdate(new MigrationScriptProtocol().setVersion("1.0").setScriptName("billing"));
+            billing.saveOrUpdate(new MigrationScriptProtocol().setVersion("2.0").setScriptName("billing"));
+            defaultStream.saveOrUpdate(new MigrationScriptProtocol().setVersion("3.0").setScriptName("default"));
+            esUtils.refreshIndices();
+
+            assertSoftly(softly -> {
+                softly.assertThat(orders.findAll())
+                        .extracting(MigrationScriptProtocol::getScriptName)
+                        .containsExactly("orders");
+                softly.assertThat(billing.findAll())
+                        .extracting(MigrationScriptProtocol::getScriptName)
+                        .containsExactly("billing", "billing");
+                softly.assertThat(defaultStream.findAll())
+                        .extracting(MigrationScriptProtocol::getScriptName)
+                        .containsExactly("default");
+            });
+        }
+
+        @ParameterizedTest(name = "{0}")
+        @ArgumentsSource(ElasticsearchArgumentsProvider.class)
+        void createdIndexMapsStreamAsKeyword(String versionInfo, EsUtils esUtils) throws IOException {
+            HistoryRepositoryImpl orders = createHistoryRepositoryImpl(esUtils.getEvolutionRestClient(), HistoryLockMode.DOCUMENT, "orders");
+            assertThat(orders.createIndexIfAbsent()).as("new index created").isTrue();
+            orders.saveOrUpdate(new MigrationScriptProtocol().setVersion("1.0").setScriptName("orders"));
+            esUtils.refreshIndices();
+
+            assertThat(esUtils.getEvolutionRestClient().execute(HttpMethod.GET, "/" + INDEX + "/_mapping/field/stream").body())
+                    .hasValueSatisfying(mapping -> assertThat(mapping).contains("\"type\":\"keyword\"").doesNotContain("\"text\""));
+            assertThat(orders.findAll())
+                    .extracting(MigrationScriptProtocol::getScriptName)
+                    .containsExactly("orders");
+        }
+
+        @ParameterizedTest(name = "{0}")
+        @ArgumentsSource(ElasticsearchArgumentsProvider.class)
+        void documentLocksAreIndependent(String versionInfo, EsUtils esUtils) {
+            HistoryRepositoryImpl orders = createHistoryRepositoryImpl(esUtils.getEvolutionRestClient(), HistoryLockMode.DOCUMENT, "orders");
+            HistoryRepositoryImpl billing = createHistoryRepositoryImpl(esUtils.getEvolutionRestClient(), HistoryLockMode.DOCUMENT, "billing");
+            orders.createIndexIfAbsent();
+
+            assertThat(orders.lock()).as("lock orders").isTrue();
+            assertThat(billing.isLocked()).as("billing isLocked").isFalse();
+            assertThat(billing.lock()).as("lock billing").isTrue();
+            assertThat(orders.unlock()).as("unlock orders").isTrue();
+            assertThat(billing.isLocked()).as("billing isLocked after unlock orders").isTrue();
+            assertThat(billing.unlock()).as("unlock billing").isTrue();
+        }
+
+        @ParameterizedTest(name = "{0}")
+        @ArgumentsSource(ElasticsearchArgumentsProvider.class)
+        void updateByQueryLocksAreIndependent(String versionInfo, EsUtils esUtils) {
+            HistoryRepositoryImpl orders = createHistoryRepositoryImpl(esUtils.getEvolutionRestClient(), HistoryLockMode.UPDATE_BY_QUERY, "orders");
+            HistoryRepositoryImpl defaultStream = createHistoryRepositoryImpl(esUtils.getEvolutionRestClient());
+            orders.saveOrUpdate(new MigrationScriptProtocol().setVersion("1.0"));
+            defaultStream.saveOrUpdate(new MigrationScriptProtocol().setVersion("1.0"));
+
+            assertThat(orders.lock()).as("lock orders").isTrue();
+            assertThat(orders.isLocked()).as("orders isLocked").isTrue();
+            assertThat(defaultStream.isLocked()).as("default stream isLocked").isFalse();
+            assertThat(orders.unlock()).as("unlock orders").isTrue();
+            assertThat(orders.isLocked()).as("orders isLocked after unlock").isFalse();
+        }
+    }
+
     private void indexDocumentWithLock(boolean locked, EsUtils esUtils) {
         HashMap<String, Object> source = new HashMap<>();
         source.put(LOCKED_FIELD_NAME, locked);
@@ -433,8 +643,16 @@ class HistoryRepositoryImplIT {
     }
 
     private HistoryRepositoryImpl createHistoryRepositoryImpl(EvolutionRestClient<?> restClient) {
+        return createHistoryRepositoryImpl(restClient, HistoryLockMode.UPDATE_BY_QUERY);
+    }
+
+    private HistoryRepositoryImpl createHistoryRepositoryImpl(EvolutionRestClient<?> restClient, HistoryLockMode lockMode) {
+        return createHistoryRepositoryImpl(restClient, lockMode, null);
+    }
+
+    private HistoryRepositoryImpl createHistoryRepositoryImpl(EvolutionRestClient<?> restClient, HistoryLockMode lockMode, String stream) {
         final ObjectMapper objectMapper = new ObjectMapper()
                 .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-        return new HistoryRepositoryImpl(restClient, INDEX, new MigrationScriptProtocolMapper(), 1000, objectMapper);
+        return new HistoryRepositoryImpl(restClient, INDEX, new MigrationScriptProtocolMapper(), 1000, objectMapper, lockMode, 60_000, stream);
     }
 }
\ No newline at end of file
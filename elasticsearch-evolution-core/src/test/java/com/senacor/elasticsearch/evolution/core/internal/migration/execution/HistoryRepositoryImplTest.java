@@ -3,6 +3,8 @@ package com.senacor.elasticsearch.evolution.core.internal.migration.execution;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.senacor.elasticsearch.evolution.core.api.MigrationException;
+import com.senacor.elasticsearch.evolution.core.api.config.HistoryLockMode;
+import com.senacor.elasticsearch.evolution.core.api.migration.MigrationFingerprint;
 import com.senacor.elasticsearch.evolution.core.internal.model.dbhistory.MigrationScriptProtocol;
 import com.senacor.elasticsearch.evolution.core.test.ArgumentProviders;
 import com.senacor.elasticsearch.evolution.rest.abstraction.EvolutionRestClient;
@@ -20,10 +22,17 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.IOException;
 import java.util.Map;
+import java.util.Optional;
 
+import static com.senacor.elasticsearch.evolution.core.api.migration.MigrationVersion.fromVersion;
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 /**
@@ -49,7 +58,7 @@ class HistoryRepositoryImplTest {
     class findAll {
         @Test
         void failed() throws IOException {
-            when(evolutionRestClient.execute(any(), anyString(), anyMap(), anyMap(), anyString()))
+            when(evolutionRestClient.execute(any(), anyString(), nullable(Map.class), anyMap(), nullable(String.class)))
                     .thenThrow(new IOException("test error"));
 
             assertThatThrownBy(() -> underTest.findAll())
@@ -72,6 +81,53 @@ class HistoryRepositoryImplTest {
         }
     }
 
+    @Nested
+    class findFingerprint {
+        @Test
+        void failed() throws IOException {
+            when(evolutionRestClient.execute(HttpMethod.GET, "/" + INDEX + "/_doc/0.2"))
+                    .thenThrow(new IOException("test error"));
+
+            assertThatThrownBy(() -> underTest.findFingerprint())
+                    .isInstanceOf(MigrationException.class)
+                    .hasMessage("findFingerprint failed!");
+        }
+
+        @Test
+        void notFound() throws IOException {
+            when(evolutionRestClient.execute(HttpMethod.GET, "/" + INDEX + "/_doc/0.2").statusCode())
+                    .thenReturn(404);
+
+            assertThat(underTest.findFingerprint()).isEmpty();
+        }
+
+        @Test
+        void found() throws IOException {
+            EvolutionRestResponse response = mock(EvolutionRestResponse.class);
+            when(response.statusCode()).thenReturn(200);
+            when(response.body()).thenReturn(Optional.of("""
+                    {"_index":"es_evolution","_id":"0.2","found":true,"_source":{"version":"0.2","fingerprint":"abc","latestVersion":"1.1"}}                    """));
+            when(evolutionRestClient.execute(HttpMethod.GET, "/" + INDEX + "/_doc/0.2"))
+                    .thenReturn(response);
+
+            assertThat(underTest.findFingerprint()).contains(new MigrationFingerprint("abc", fromVersion("1.1")));
+        }
+    }
+
+    @Nested
+    class saveFingerprint {
+        @Test
+        void failed() throws IOException {
+            when(evolutionRestClient.execute(any(), anyString(), anyMap(), isNull(), anyString()))
+                    .thenThrow(new IOException("test error"));
+            MigrationFingerprint fingerprint = new MigrationFingerprint("abc", fromVersion("1.1"));
+
+            assertThatThrownBy(() -> underTest.saveFingerprint(fingerprint))
+                    .isInstanceOf(MigrationException.class)
+                    .hasMessage("saveFingerprint of '%s' failed!", fingerprint);
+        }
+    }
+
     @Nested
     class isLocked {
         @Test
@@ -115,6 +171,428 @@ class HistoryRepositoryImplTest {
         }
     }
 
+    @Nested
+    class documentLock {
+
+        @Mock
+        private EvolutionRestClient<?> restClient;
+        private HistoryRepositoryImpl underTest;
+
+        @BeforeEach
+        void setUp() {
+            final ObjectMapper objectMapper = new ObjectMapper()
+                    .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+            underTest = new HistoryRepositoryImpl(restClient, INDEX, new MigrationScriptProtocolMapper(), 1000,
+                    objectMapper, HistoryLockMode.DOCUMENT, 0);
+        }
+
+        @Test
+        void isLocked_noLockDocument() throws IOException {
+            final EvolutionRestResponse response = response(404, "{\"_index\":\"es_evolution\",\"_id\":\"0.1\",\"found\":false}");
+            when(restClient.execute(HttpMethod.GET, "/" + INDEX + "/_doc/0.1")).thenReturn(response);
+
+            assertThat(underTest.isLocked()).isFalse();
+        }
+
+        @Test
+        void isLocked_lockDocumentFound() throws IOException {
+            final EvolutionRestResponse response = response(200, "{\"_index\":\"es_evolution\",\"_id\":\"0.1\",\"found\":true,\"_source\":{\"version\":\"0.1\",\"locked\":true}}");
+            when(restClient.execute(HttpMethod.GET, "/" + INDEX + "/_doc/0.1")).thenReturn(response);
+
+            assertThat(underTest.isLocked()).isTrue();
+        }
+
+        @Test
+        void isLocked_failed() throws IOException {
+            when(restClient.execute(HttpMethod.GET, "/" + INDEX + "/_doc/0.1")).thenThrow(new IOException("test error"));
+
+            assertThatThrownBy(() -> underTest.isLocked())
+                    .isInstanceOf(MigrationException.class)
+                    .hasMessage("isLocked check failed!");
+        }
+
+        @Test
+        void lock_createsLockDocumentAndRefreshesHistory() throws IOException {
+            final EvolutionRestResponse response = response(201, "{\"_id\":\"0.1\",\"result\":\"created\",\"_seq_no\":7,\"_primary_term\":2}");
+            when(restClient.execute(eq(HttpMethod.PUT), eq("/" + INDEX + "/_create/0.1"), anyMap(), isNull(), contains("\"locked\":true")))
+                    .thenReturn(response);
+            stubRefresh();
+
+            assertThat(underTest.lock()).isTrue();
+
+            verify(restClient).execute(eq(HttpMethod.GET), eq("/" + INDEX + "/_refresh"), isNull(), anyMap(), isNull());
+        }
+
+        @Test
+        void lock_alreadyLocked() throws IOException {
+            final EvolutionRestResponse response = response(409, "{\"error\":{\"type\":\"version_conflict_engine_exception\"}}");
+            when(restClient.execute(eq(HttpMethod.PUT), eq("/" + INDEX + "/_create/0.1"), anyMap(), isNull(), anyString()))
+                    .thenReturn(response);
+            final EvolutionRestResponse lockDocument = response(200, "{\"found\":true,\"_seq_no\":3,\"_primary_term\":1,\"_source\":{\"version\":\"0.1\",\"locked\":true}}");
+            when(restClient.execute(HttpMethod.GET, "/" + INDEX + "/_doc/0.1")).thenReturn(lockDocument);
+
+            assertThat(underTest.lock()).isFalse();
+            verify(restClient, never()).execute(eq(HttpMethod.GET), eq("/" + INDEX + "/_refresh"), isNull(), anyMap(), isNull());
+        }
+
+        @Test
+        void lock_failed() throws IOException {
+            when(restClient.execute(eq(HttpMethod.PUT), eq("/" + INDEX + "/_create/0.1"), anyMap(), isNull(), anyString()))
+                    .thenThrow(new IOException("test error"));
+
+            assertThat(underTest.lock()).isFalse();
+        }
+
+        @Test
+        void unlock_deletesOwnLockDocument() throws IOException {
+            lock();
+            final EvolutionRestResponse response = response(200, "{\"_id\":\"0.1\",\"result\":\"deleted\"}");
+            when(restClient.execute(HttpMethod.DELETE, "/" + INDEX + "/_doc/0.1", null,
+                    Map.of("if_seq_no", "7", "if_primary_term", "2"), null))
+                    .thenReturn(response);
+
+            assertThat(underTest.unlock()).isTrue();
+            verify(restClient).execute(HttpMethod.DELETE, "/" + INDEX + "/_doc/0.1", null,
+                    Map.of("if_seq_no", "7", "if_primary_term", "2"), null);
+        }
+
+        @Test
+        void unlock_lockDocumentWasChangedBySomeoneElse() throws IOException {
+            lock();
+            final EvolutionRestResponse response = response(409, null);
+            when(restClient.execute(eq(HttpMethod.DELETE), anyString(), isNull(), anyMap(), isNull()))
+                    .thenReturn(response);
+
+            assertThat(underTest.unlock()).isTrue();
+        }
+
+        @Test
+        void unlock_failed() throws IOException {
+            lock();
+            when(restClient.execute(eq(HttpMethod.DELETE), anyString(), isNull(), anyMap(), isNull()))
+                    .thenThrow(new IOException("test error"));
+
+            assertThat(underTest.unlock()).isFalse();
+        }
+
+        @Test
+        void saveOrUpdate_storesProtocolUnlocked() throws IOException {
+            final EvolutionRestResponse response = response(201, null);
+            when(restClient.execute(eq(HttpMethod.PUT), eq("/" + INDEX + "/_doc/1"), anyMap(), isNull(), anyString()))
+                    .thenReturn(response);
+
+            underTest.saveOrUpdate(new MigrationScriptProtocol().setVersion("1.0").setLocked(true));
+
+            verify(restClient).execute(eq(HttpMethod.PUT), eq("/" + INDEX + "/_doc/1"), anyMap(), isNull(),
+                    contains("\"locked\":false"));
+        }
+
+        @Test
+        void unlock_withoutLock_doesNothing() {
+            assertThat(underTest.unlock()).isTrue();
+            verifyNoInteractions(restClient);
+        }
+
+        private void lock() throws IOException {
+            final EvolutionRestResponse response = response(201, "{\"_id\":\"0.1\",\"result\":\"created\",\"_seq_no\":7,\"_primary_term\":2}");
+            when(restClient.execute(eq(HttpMethod.PUT), eq("/" + INDEX + "/_create/0.1"), anyMap(), isNull(), anyString()))
+                    .thenReturn(response);
+            stubRefresh();
+            assertThat(underTest.lock()).isTrue();
+        }
+
+        private void stubRefresh() throws IOException {
+            final EvolutionRestResponse refreshResponse = response(200, null);
+            when(restClient.execute(eq(HttpMethod.GET), eq("/" + INDEX + "/_refresh"), isNull(), anyMap(), isNull()))
+                    .thenReturn(refreshResponse);
+        }
+
+        private EvolutionRestResponse response(int statusCode, String body) throws IOException {
+            final EvolutionRestResponse response = mock(EvolutionRestResponse.class);
+            when(response.statusCode()).thenReturn(statusCode);
+            lenient().when(response.body()).thenReturn(Optional.ofNullable(body));
+            return response;
+        }
+    }
+
+    @Nested
+    class pagedFindAll {
+
+        @Mock
+        private EvolutionRestClient<?> restClient;
+        private HistoryRepositoryImpl underTest;
+
+        @BeforeEach
+        void setUp() {
+            final ObjectMapper objectMapper = new ObjectMapper()
+                    .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+            underTest = new HistoryRepositoryImpl(restClient, INDEX, new MigrationScriptProtocolMapper(), 2, objectMapper);
+        }
+
+        @Test
+        void singlePage_withoutPointInTimeOrScroll() throws IOException {
+            final EvolutionRestResponse onlyPage = response(200, page(null, hit("1.0", 1)));
+            when(restClient.execute(eq(HttpMethod.POST), eq("/" + INDEX + "/_search"), anyMap(),
+                    argThat((Map<String, String> params) -> !params.containsKey("scroll")),
+                    eq("{\"size\":2,\"query\":{\"bool\":{\"filter\":[{\"bool\":{\"must_not\":{\"exists\":{\"field\":\"stream\"}}}}]}},\"sort\":[\"_doc\"]}")))
+                    .thenReturn(onlyPage);
+
+            assertThat(underTest.findAll())
+                    .extracting(MigrationScriptProtocol::getVersion)
+                    .containsExactly(fromVersion("1.0"));
+            verify(restClient, times(1)).execute(any(), anyString(), any(), any(), any());
+        }
+
+        @Test
+        void pointInTime_pagesWithSearchAfter() throws IOException {
+            stubFullFirstPage();
+            final EvolutionRestResponse pit = response(200, "{\"id\":\"pit1\"}");
+            when(restClient.execute(HttpMethod.POST, "/" + INDEX + "/_pit", null, Map.of("keep_alive", "1m"), null)).thenReturn(pit);
+            final EvolutionRestResponse firstPage = response(200, page("\"pit_id\":\"pit2\"", hit("1.0", 1), hit("1.1", 2)));
+            when(restClient.execute(eq(HttpMethod.POST), eq("/_search"), anyMap(), isNull(),
+                    argThat((String body) -> body.contains("\"pit\":{\"id\":\"pit1\"") && !body.contains("search_after"))))
+                    .thenReturn(firstPage);
+            final EvolutionRestResponse secondPage = response(200, page("\"pit_id\":\"pit2\"", hit("2.0", 3)));
+            when(restClient.execute(eq(HttpMethod.POST), eq("/_search"), anyMap(), isNull(),
+                    argThat((String body) -> body.contains("\"pit\":{\"id\":\"pit2\"") && body.contains("\"search_after\":[2]"))))
+                    .thenReturn(secondPage);
+            final EvolutionRestResponse closed = response(200, null);
+            when(restClient.execute(HttpMethod.DELETE, "/_pit", Map.of("Content-Type", "application/json; charset=UTF-8"), null, "{\"id\":\"pit2\"}"))
+                    .thenReturn(closed);
+
+            assertThat(underTest.findAll())
+                    .extracting(MigrationScriptProtocol::getVersion)
+                    .containsExactly(fromVersion("1.0"), fromVersion("1.1"), fromVersion("2.0"));
+        }
+
+        @Test
+        void pointInTimeNotSupported_pagesWithScroll() throws IOException {
+            final EvolutionRestResponse rejected = response(400, null);
+            lenient().when(rejected.asString()).thenReturn("400");
+            stubFullFirstPage();
+            when(restClient.execute(HttpMethod.POST, "/" + INDEX + "/_pit", null, Map.of("keep_alive", "1m"), null)).thenReturn(rejected);
+            final EvolutionRestResponse firstPage = response(200, page("\"_scroll_id\":\"scroll1\"", hit("1.0", 1), hit("1.1", 2)));
+            when(restClient.execute(eq(HttpMethod.POST), eq("/" + INDEX + "/_search"), anyMap(),
+                    argThat((Map<String, String> params) -> "1m".equals(params.get("scroll"))), anyString()))
+                    .thenReturn(firstPage);
+            final EvolutionRestResponse lastPage = response(200, page("\"_scroll_id\":\"scroll1\""));
+            when(restClient.execute(eq(HttpMethod.POST), eq("/_search/scroll"), anyMap(), isNull(),
+                    eq("{\"scroll\":\"1m\",\"scroll_id\":\"scroll1\"}")))
+                    .thenReturn(lastPage);
+            final EvolutionRestResponse cleared = response(200, null);
+            when(restClient.execute(eq(HttpMethod.DELETE), eq("/_search/scroll"), anyMap(), isNull(), eq("{\"scroll_id\":\"scroll1\"}")))
+                    .thenReturn(cleared);
+
+            assertThat(underTest.findAll()).hasSize(2);
+            assertThat(underTest.findAll()).hasSize(2);
+
+            // points in time are not tried again
+            verify(restClient, times(1)).execute(HttpMethod.POST, "/" + INDEX + "/_pit", null, Map.of("keep_alive", "1m"), null);
+        }
+
+        @Test
+        void indexDoesNotExist() throws IOException {
+            final EvolutionRestResponse empty = response(200, page(null));
+            when(restClient.execute(eq(HttpMethod.POST), eq("/" + INDEX + "/_search"), anyMap(), anyMap(), anyString()))
+                    .thenReturn(empty);
+
+            assertThat(underTest.findAll()).isEmpty();
+            verify(restClient, times(1)).execute(any(), anyString(), any(), any(), any());
+        }
+
+        /**
+         * a full first page can not be continued, so the history is read again with a point in time or scroll
+         */
+        private void stubFullFirstPage() throws IOException {
+            final EvolutionRestResponse fullPage = response(200, page(null, hit("1.0", 1), hit("1.1", 2)));
+            when(restClient.execute(eq(HttpMethod.POST), eq("/" + INDEX + "/_search"), anyMap(),
+                    argThat((Map<String, String> params) -> !params.containsKey("scroll")), anyString()))
+                    .thenReturn(fullPage);
+        }
+
+        private String page(String context, String... hits) {
+            return "{" + (null == context ? "" : context + ",") + "\"hits\":{\"hits\":[" + String.join(",", hits) + "]}}";
+        }
+
+        private String hit(String version, long sort) {
+            return "{\"_id\":\"" + version + "\",\"_source\":{\"version\":\"" + version + "\",\"success\":true},\"sort\":[" + sort + "]}";
+        }
+
+        private EvolutionRestResponse response(int statusCode, String body) throws IOException {
+            final EvolutionRestResponse response = mock(EvolutionRestResponse.class);
+            lenient().when(response.statusCode()).thenReturn(statusCode);
+            lenient().when(response.body()).thenReturn(Optional.ofNullable(body));
+            return response;
+        }
+    }
+
+    @Nested
+    class stream {
+
+        @Mock
+        private EvolutionRestClient<?> restClient;
+        @Mock
+        private EvolutionRestResponse response;
+        private final ObjectMapper objectMapper = new ObjectMapper()
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+        @Test
+        void saveOrUpdate_prefixesIdAndStoresStream() throws IOException {
+            when(response.statusCode()).thenReturn(201);
+            when(restClient.execute(eq(HttpMethod.PUT), anyString(), anyMap(), isNull(), anyString())).thenReturn(response);
+
+            createHistoryRepository("orders").saveOrUpdate(new MigrationScriptProtocol().setVersion("1.1"));
+
+            verify(restClient).execute(eq(HttpMethod.PUT), eq("/" + INDEX + "/_doc/orders:1.1"), anyMap(), isNull(),
+                    contains("\"stream\":\"orders\""));
+        }
+
+        @Test
+        void defaultStream_keepsIdWithoutStream() throws IOException {
+            when(response.statusCode()).thenReturn(201);
+            when(restClient.execute(eq(HttpMethod.PUT), anyString(), anyMap(), isNull(), anyString())).thenReturn(response);
+
+            createHistoryRepository(null).saveOrUpdate(new MigrationScriptProtocol().setVersion("1.1"));
+
+            verify(restClient).execute(eq(HttpMethod.PUT), eq("/" + INDEX + "/_doc/1.1"), anyMap(), isNull(),
+                    argThat((String body) -> !body.contains("\"stream\"")));
+        }
+
+        @Test
+        void findAll_searchesOnlyTheStream() throws IOException {
+            stubStreamMapping("{\"type\":\"keyword\"}");
+            stubEmptySearch();
+
+            assertThat(createHistoryRepository("orders").findAll()).isEmpty();
+
+            verify(restClient).execute(eq(HttpMethod.POST), eq("/" + INDEX + "/_search"), anyMap(), anyMap(),
+                    eq("{\"size\":1000,\"query\":{\"bool\":{\"filter\":[{\"term\":{\"stream\":{\"value\":\"orders\"}}}]}},\"sort\":[\"_doc\"]}"));
+        }
+
+        @Test
+        void findAll_dynamicallyMappedStream_filtersOnKeywordSubField() throws IOException {
+            stubStreamMapping("{\"type\":\"text\",\"fields\":{\"keyword\":{\"type\":\"keyword\",\"ignore_above\":256}}}");
+            stubEmptySearch();
+
+            assertThat(createHistoryRepository("orders").findAll()).isEmpty();
+
+            verify(restClient).execute(eq(HttpMethod.POST), eq("/" + INDEX + "/_search"), anyMap(), anyMap(),
+                    eq("{\"size\":1000,\"query\":{\"bool\":{\"filter\":[{\"term\":{\"stream.keyword\":{\"value\":\"orders\"}}}]}},\"sort\":[\"_doc\"]}"));
+        }
+
+        @Test
+        void findAll_unmappedStream_doesNotChangeTheMapping() throws IOException {
+            stubUnmappedStream();
+            stubEmptySearch();
+            final HistoryRepositoryImpl underTest = createHistoryRepository("orders");
+
+            assertThat(underTest.findAll()).isEmpty();
+            assertThat(underTest.findAll()).isEmpty();
+
+            verify(restClient, never()).execute(eq(HttpMethod.PUT), anyString(), anyMap(), any(), anyString());
+            // not resolved yet, so the mapping is read again
+            verify(restClient, times(2)).execute(HttpMethod.GET, "/" + INDEX + "/_mapping/field/stream");
+            verify(restClient, times(2)).execute(eq(HttpMethod.POST), eq("/" + INDEX + "/_search"), anyMap(), anyMap(),
+                    eq("{\"size\":1000,\"query\":{\"bool\":{\"filter\":[{\"term\":{\"stream\":{\"value\":\"orders\"}}}]}},\"sort\":[\"_doc\"]}"));
+        }
+
+        @Test
+        void findAll_missingIndex_isEmpty() throws IOException {
+            final EvolutionRestResponse mappingResponse = mock(EvolutionRestResponse.class);
+            when(mappingResponse.statusCode()).thenReturn(404);
+            when(restClient.execute(HttpMethod.GET, "/" + INDEX + "/_mapping/field/stream")).thenReturn(mappingResponse);
+            stubEmptySearch();
+
+            assertThat(createHistoryRepository("orders").findAll()).isEmpty();
+
+            verify(restClient).execute(eq(HttpMethod.POST), eq("/" + INDEX + "/_search"), anyMap(), anyMap(),
+                    eq("{\"size\":1000,\"query\":{\"bool\":{\"filter\":[{\"term\":{\"stream\":{\"value\":\"orders\"}}}]}},\"sort\":[\"_doc\"]}"));
+        }
+
+        @Test
+        void createIndexIfAbsent_existingIndex_mapsUnmappedStreamAsKeyword() throws IOException {
+            final EvolutionRestResponse existsResponse = mock(EvolutionRestResponse.class);
+            when(existsResponse.statusCode()).thenReturn(200);
+            when(restClient.execute(HttpMethod.HEAD, "/" + INDEX)).thenReturn(existsResponse);
+            stubUnmappedStream();
+            final EvolutionRestResponse putMappingResponse = mock(EvolutionRestResponse.class);
+            when(putMappingResponse.statusCode()).thenReturn(200);
+            when(restClient.execute(eq(HttpMethod.PUT), eq("/" + INDEX + "/_mapping"), anyMap(), isNull(), anyString()))
+                    .thenReturn(putMappingResponse);
+            stubEmptySearch();
+            final HistoryRepositoryImpl underTest = createHistoryRepository("orders");
+
+            assertThat(underTest.createIndexIfAbsent()).isFalse();
+            assertThat(underTest.findAll()).isEmpty();
+
+            verify(restClient).execute(eq(HttpMethod.PUT), eq("/" + INDEX + "/_mapping"), anyMap(), isNull(),
+                    eq("{\"properties\":{\"stream\":{\"type\":\"keyword\"}}}"));
+            verify(restClient).execute(HttpMethod.GET, "/" + INDEX + "/_mapping/field/stream");
+        }
+
+        @Test
+        void findAll_streamMappedWithoutKeyword_fails() throws IOException {
+            stubStreamMapping("{\"type\":\"text\"}");
+
+            assertThatThrownBy(() -> createHistoryRepository("orders").findAll())
+                    .isInstanceOf(MigrationException.class)
+                    .hasMessage("field 'stream' of history index 'es_evolution' is mapped as 'text' without keyword sub field, but streams require a keyword mapping");
+        }
+
+        @Test
+        void findAll_defaultStreamExcludesOtherStreams() throws IOException {
+            when(response.statusCode()).thenReturn(200);
+            when(response.body()).thenReturn(Optional.of("{\"hits\":{\"hits\":[]}}"));
+            when(restClient.execute(eq(HttpMethod.POST), eq("/" + INDEX + "/_search"), anyMap(), anyMap(), anyString())).thenReturn(response);
+
+            assertThat(createHistoryRepository(null).findAll()).isEmpty();
+
+            verify(restClient).execute(eq(HttpMethod.POST), eq("/" + INDEX + "/_search"), anyMap(), anyMap(),
+                    eq("{\"size\":1000,\"query\":{\"bool\":{\"filter\":[{\"bool\":{\"must_not\":{\"exists\":{\"field\":\"stream\"}}}}]}},\"sort\":[\"_doc\"]}"));
+        }
+
+        @Test
+        void documentLock_usesLockDocumentOfTheStream() throws IOException {
+            when(response.statusCode()).thenReturn(404);
+            when(restClient.execute(HttpMethod.GET, "/" + INDEX + "/_doc/orders:0.1")).thenReturn(response);
+
+            assertThat(new HistoryRepositoryImpl(restClient, INDEX, new MigrationScriptProtocolMapper(), 1000,
+                    objectMapper, HistoryLockMode.DOCUMENT, 0, "orders").isLocked()).isFalse();
+        }
+
+        @Test
+        void invalidStream() {
+            assertThatThrownBy(() -> createHistoryRepository("Orders-Service"))
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessage("stream 'Orders-Service' must consist of lowercase letters, digits and underscores");
+        }
+
+        private HistoryRepositoryImpl createHistoryRepository(String stream) {
+            return new HistoryRepositoryImpl(restClient, INDEX, new MigrationScriptProtocolMapper(), 1000,
+                    objectMapper, HistoryLockMode.UPDATE_BY_QUERY, 0, stream);
+        }
+
+        private void stubStreamMapping(String fieldMapping) throws IOException {
+            final EvolutionRestResponse mappingResponse = mock(EvolutionRestResponse.class);
+            when(mappingResponse.statusCode()).thenReturn(200);
+            when(mappingResponse.body()).thenReturn(Optional.of("{\"" + INDEX + "\":{\"mappings\":{\"stream\":{\"full_name\":\"stream\",\"mapping\":{\"stream\":" + fieldMapping + "}}}}}"));
+            when(restClient.execute(HttpMethod.GET, "/" + INDEX + "/_mapping/field/stream")).thenReturn(mappingResponse);
+        }
+
+        private void stubUnmappedStream() throws IOException {
+            final EvolutionRestResponse mappingResponse = mock(EvolutionRestResponse.class);
+            when(mappingResponse.statusCode()).thenReturn(200);
+            when(mappingResponse.body()).thenReturn(Optional.of("{\"" + INDEX + "\":{\"mappings\":{}}}"));
+            when(restClient.execute(HttpMethod.GET, "/" + INDEX + "/_mapping/field/stream")).thenReturn(mappingResponse);
+        }
+
+        private void stubEmptySearch() throws IOException {
+            when(response.statusCode()).thenReturn(200);
+            when(response.body()).thenReturn(Optional.of("{\"hits\":{\"hits\":[]}}"));
+            when(restClient.execute(eq(HttpMethod.POST), eq("/" + INDEX + "/_search"), anyMap(), anyMap(), anyString())).thenReturn(response);
+        }
+    }
+
     @Nested
     class createIndexIfAbsent {
         @Test
@@ -127,6 +605,18 @@ class HistoryRepositoryImplTest {
                     .hasMessage("createIndexIfAbsent failed!");
         }
 
+        @Test
+        void newIndex_mapsStreamAsKeyword() throws IOException {
+            when(evolutionRestClient.execute(HttpMethod.HEAD, "/" + INDEX).statusCode())
+                    .thenReturn(404);
+            when(evolutionRestClient.execute(eq(HttpMethod.PUT), eq("/" + INDEX), anyMap(), isNull(), anyString()).statusCode())
+                    .thenReturn(200);
+
+            assertThat(underTest.createIndexIfAbsent()).isTrue();
+
+            verify(evolutionRestClient).execute(eq(HttpMethod.PUT), eq("/" + INDEX), anyMap(), isNull(),
+                    eq("{\"mappings\":{\"properties\":{\"stream\":{\"type\":\"keyword\"}}}}"));
+        }
     }
 
     @Nested
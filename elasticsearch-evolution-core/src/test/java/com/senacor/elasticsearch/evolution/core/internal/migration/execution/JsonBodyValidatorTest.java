@@ -0,0 +1,180 @@
+package com.senacor.elasticsearch.evolution.core.internal.migration.execution;
+
+import com.senacor.elasticsearch.evolution.core.api.MigrationException;
+import com.senacor.elasticsearch.evolution.core.api.migration.MigrationVersion;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.FileNameInfoImpl;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.MigrationRequest;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.MigrationScriptRequest;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.MigrationScriptRequests;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.ParsedMigration;
+import com.senacor.elasticsearch.evolution.core.internal.utils.ParallelMapper;
+import com.senacor.elasticsearch.evolution.rest.abstraction.EvolutionRestClient;
+import com.senacor.elasticsearch.evolution.rest.abstraction.HttpMethod;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.assertThatNoException;
+import static org.mockito.ArgumentMatchers.nullable;
+import static org.mockito.Mockito.lenient;
+
+@ExtendWith(MockitoExtension.class)
+class JsonBodyValidatorTest {
+
+    @Mock
+    private EvolutionRestClient<?> restClient;
+
+    private JsonBodyValidator underTest;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(restClient.getContentType(nullable(Map.class)))
+                .thenCallRealMethod();
+        underTest = new JsonBodyValidator(restClient, "application/json", new ParallelMapper(4, false));
+    }
+
+    @Nested
+    class validateRequest {
+
+        @ParameterizedTest
+        @ValueSource(strings = {
+                "{}",
+                "{\"a\": [1, 2.5, \"x\", true, null, {\"b\": {}}]}",
+                "{\n  // comment\n  \"a\": 1 /* comment */\n}",
+                "{\"index\":{}}\n{\"a\":1}\n{\"index\":{}}\n{\"a\":2}\n",
+                "   "})
+        void validBody(String body) {
+            assertThat(underTest.validate(request(body))).isEmpty();
+        }
+
+        @ParameterizedTest
+        @CsvSource(delimiter = '|', value = {
+                "{\"a\": 1,}           | Unexpected character ('}' (code 125)): was expecting double-quote to start field name | (line 1, column 9)",
+                "{\"a\": 1             | Unexpected end-of-input: expected close marker for Object                               | (line 1, column 8)",
+                "{\"a\": ${unknown}}   | Unrecognized token '$': was expecting (JSON String, Number, Array, Object               | (line 1, column 7)",
+                "{\"a\": 1}}           | Unexpected close marker '}'                                                               | (line 1, column 9)"})
+        void invalidBody(String body, String expectedError, String expectedLocation) {
+            assertThat(underTest.validate(request(body))).hasValueSatisfying(error -> assertThat(error)
+                    .startsWith(expectedError)
+                    .endsWith(expectedLocation));
+        }
+
+        @Test
+        void streamedBody() {
+            assertThat(underTest.validate(new MigrationScriptRequest()
+                    .setHttpMethod(HttpMethod.PUT)
+                    .setPath("/my_index")
+                    .setStreamedBody(() -> new StringReader("{\"a\": }"))))
+                    .hasValueSatisfying(error -> assertThat(error).startsWith("Unexpected character ('}' (code 125))"));
+        }
+
+        @ParameterizedTest
+        @ValueSource(strings = {"text/plain", "application/xml; charset=UTF-8", "application/jsonx"})
+        void otherContentType_isNotValidated(String contentType) {
+            assertThat(underTest.validate(request("{").addHttpHeader("Content-Type", contentType))).isEmpty();
+        }
+    }
+
+    @Nested
+    class isJson {
+
+        @ParameterizedTest
+        @ValueSource(strings = {"application/json", "application/json; charset=UTF-8", " Application/JSON ;charset=UTF-8",
+                "application/x-ndjson", "application/vnd.elasticsearch+json; compatible-with=8",
+                "application/vnd.elasticsearch+x-ndjson"})
+        void json(String contentType) {
+            assertThat(JsonBodyValidator.isJson(contentType)).isTrue();
+        }
+
+        @ParameterizedTest
+        @ValueSource(strings = {"text/plain", "application/xml", "application/jsonx", "text/json-seq", ""})
+        void notJson(String contentType) {
+            assertThat(JsonBodyValidator.isJson(contentType)).isFalse();
+        }
+    }
+
+    @Nested
+    class validateMigrations {
+
+        @Test
+        void valid() {
+            assertThatNoException().isThrownBy(() -> underTest.validate(List.of(
+                    migration("1", request("{}")),
+                    migration("2", new MigrationScriptRequests(List.of(request("{}"), request("")))))));
+        }
+
+        @Test
+        void allInvalidBodiesAreReported() {
+            assertThatThrownBy(() -> underTest.validate(List.of(
+                    migration("1", request("{")),
+                    migration("2", request("{}")),
+                    migration("3", new MigrationScriptRequests(List.of(request("{}"), request("[}")))))))
+                    .isInstanceOf(MigrationException.class)
+                    .hasMessageStartingWith("2 invalid JSON bodies found, no migration was executed:")
+                    .hasMessageContaining("- V1__1.http, PUT /my_index: Unexpected end-of-input")
+                    .hasMessageContaining("- V3__3.http, request 2 (PUT /my_index): Unexpected close marker '}'")
+                    .hasMessageNotContaining("V2__2.http");
+        }
+
+        @Test
+        void migrationsAreLoadedInParallel() {
+            final AtomicInteger loaded = new AtomicInteger();
+            final List<ParsedMigration<?>> migrations = List.of(
+                    lazyMigration("1", loaded),
+                    lazyMigration("2", loaded),
+                    lazyMigration("3", loaded));
+
+            underTest.validate(migrations);
+
+            assertThat(loaded).hasValue(3);
+        }
+
+        @Test
+        void parseError_isRethrown() {
+            final ParsedMigration<MigrationRequest> migration = new ParsedMigration<MigrationRequest>()
+                    .setFileNameInfo(new FileNameInfoImpl(MigrationVersion.fromVersion("1"), "1", "V1__1.http"))
+                    .setLazyMigrationRequest(() -> {
+                        throw new MigrationException("can't parse");
+                    });
+
+            assertThatThrownBy(() -> underTest.validate(List.of(migration)))
+                    .isInstanceOf(MigrationException.class)
+                    .hasMessage("can't parse");
+        }
+    }
+
+    private static MigrationScriptRequest request(String body) {
+        return new MigrationScriptRequest()
+                .setHttpMethod(HttpMethod.PUT)
+                .setPath("/my_index")
+                .setBody(body);
+    }
+
+    private static ParsedMigration<?> migration(String version, MigrationRequest request) {
+        return new ParsedMigration<MigrationRequest>()
+                .setFileNameInfo(new FileNameInfoImpl(MigrationVersion.fromVersion(version), version, "V" + version + "__" + version + ".http"))
+                .setMigrationRequest(request);
+    }
+
+    private static ParsedMigration<?> lazyMigration(String version, AtomicInteger loaded) {
+        return new ParsedMigration<MigrationRequest>()
+                .setFileNameInfo(new FileNameInfoImpl(MigrationVersion.fromVersion(version), version, "V" + version + "__" + version + ".http"))
+                .setLazyMigrationRequest(() -> {
+                    loaded.incrementAndGet();
+                    return request("{}");
+                });
+    }
+}
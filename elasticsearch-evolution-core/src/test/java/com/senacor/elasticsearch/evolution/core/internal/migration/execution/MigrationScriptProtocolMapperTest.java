@@ -29,8 +29,10 @@ class MigrationScriptProtocolMapperTest {
 
             Map<String, Object> res = underTest.mapToMap(protocol);
 
-            assertThat(res).hasSize(9)
+            assertThat(res).hasSize(11)
                     .containsEntry(CHECKSUM_FIELD_NAME, 0)
+                    .containsEntry(CONTENT_CHECKSUM_FIELD_NAME, null)
+                    .containsEntry(CHECKSUM_ALGORITHM_FIELD_NAME, null)
                     .containsEntry(DESCRIPTION_FIELD_NAME, null)
                     .containsEntry(EXECUTION_RUNTIME_IN_MILLIS_FIELD_NAME, 0)
                     .containsEntry(EXECUTION_TIMESTAMP_FIELD_NAME, null)
@@ -46,6 +48,8 @@ class MigrationScriptProtocolMapperTest {
             MigrationScriptProtocol protocol = new MigrationScriptProtocol()
                     .setVersion("1")
                     .setChecksum(1)
+                    .setContentChecksum(-3L)
+                    .setChecksumAlgorithm("XXH64")
                     .setDescription("des")
                     .setLocked(false)
                     .setSuccess(true)
@@ -56,8 +60,10 @@ class MigrationScriptProtocolMapperTest {
 
             Map<String, Object> res = underTest.mapToMap(protocol);
 
-            assertThat(res).hasSize(9)
+            assertThat(res).hasSize(11)
                     .containsEntry(CHECKSUM_FIELD_NAME, 1)
+                    .containsEntry(CONTENT_CHECKSUM_FIELD_NAME, -3L)
+                    .containsEntry(CHECKSUM_ALGORITHM_FIELD_NAME, "XXH64")
                     .containsEntry(DESCRIPTION_FIELD_NAME, "des")
                     .containsEntry(EXECUTION_RUNTIME_IN_MILLIS_FIELD_NAME, 2)
                     .containsEntry(EXECUTION_TIMESTAMP_FIELD_NAME, "2019-01-01T00:00:00Z")
@@ -79,6 +85,8 @@ class MigrationScriptProtocolMapperTest {
 
             assertSoftly(softly -> {
                 softly.assertThat(protocol.getChecksum()).isEqualTo(0);
+                softly.assertThat(protocol.getContentChecksum()).isNull();
+                softly.assertThat(protocol.getChecksumAlgorithm()).isNull();
                 softly.assertThat(protocol.getDescription()).isNull();
                 softly.assertThat(protocol.getExecutionRuntimeInMillis()).isEqualTo(0);
                 softly.assertThat(protocol.getExecutionTimestamp()).isNull();
@@ -94,6 +102,8 @@ class MigrationScriptProtocolMapperTest {
         void fullProtocol() {
             HashMap<String, Object> mapData = new HashMap<>();
             mapData.put(CHECKSUM_FIELD_NAME, 1);
+            mapData.put(CONTENT_CHECKSUM_FIELD_NAME, -3L);
+            mapData.put(CHECKSUM_ALGORITHM_FIELD_NAME, "XXH64");
             mapData.put(DESCRIPTION_FIELD_NAME, "des");
             mapData.put(EXECUTION_RUNTIME_IN_MILLIS_FIELD_NAME, 2);
             mapData.put(EXECUTION_TIMESTAMP_FIELD_NAME, "2019-01-01T00:00:00Z");
@@ -107,6 +117,8 @@ class MigrationScriptProtocolMapperTest {
 
             assertSoftly(softly -> {
                 softly.assertThat(protocol.getChecksum()).isEqualTo(1);
+                softly.assertThat(protocol.getContentChecksum()).isEqualTo(-3L);
+                softly.assertThat(protocol.getChecksumAlgorithm()).isEqualTo("XXH64");
                 softly.assertThat(protocol.getDescription()).isEqualTo("des");
                 softly.assertThat(protocol.getExecutionRuntimeInMillis()).isEqualTo(2);
                 softly.assertThat(protocol.getExecutionTimestamp()).isEqualTo(OffsetDateTime.of(2019, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC));
@@ -117,5 +129,15 @@ class MigrationScriptProtocolMapperTest {
                 softly.assertThat(protocol.getVersion()).isEqualTo(MigrationVersion.fromVersion("1"));
             });
         }
+
+        @Test
+        void contentChecksumDeserializedAsInteger() {
+            HashMap<String, Object> mapData = new HashMap<>();
+            mapData.put(CONTENT_CHECKSUM_FIELD_NAME, 42);
+
+            MigrationScriptProtocol protocol = underTest.mapFromMap(mapData);
+
+            assertThat(protocol.getContentChecksum()).isEqualTo(42L);
+        }
     }
 }
\ No newline at end of file
@@ -3,6 +3,8 @@ package com.senacor.elasticsearch.evolution.core.internal.migration.execution;
 import com.senacor.elasticsearch.evolution.core.api.MigrationException;
 import com.senacor.elasticsearch.evolution.core.api.config.ElasticsearchEvolutionConfigImpl;
 import com.senacor.elasticsearch.evolution.core.api.migration.HistoryRepository;
+import com.senacor.elasticsearch.evolution.core.api.migration.LockWaitMetrics;
+import com.senacor.elasticsearch.evolution.core.api.migration.MigrationFingerprint;
 import com.senacor.elasticsearch.evolution.core.api.migration.MigrationVersion;
 import com.senacor.elasticsearch.evolution.core.api.migration.java.Context;
 import com.senacor.elasticsearch.evolution.core.api.migration.java.JavaMigration;
@@ -10,10 +12,13 @@ import com.senacor.elasticsearch.evolution.core.internal.migration.execution.Mig
 import com.senacor.elasticsearch.evolution.core.internal.model.dbhistory.MigrationScriptProtocol;
 import com.senacor.elasticsearch.evolution.core.internal.model.migration.FileNameInfoImpl;
 import com.senacor.elasticsearch.evolution.core.internal.model.migration.JavaMigrationRequestContent;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.MigrationRequest;
 import com.senacor.elasticsearch.evolution.core.internal.model.migration.MigrationScriptRequest;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.MigrationScriptRequests;
 import com.senacor.elasticsearch.evolution.core.internal.model.migration.ParsedMigration;
 import com.senacor.elasticsearch.evolution.core.test.ArgumentProviders;
 import com.senacor.elasticsearch.evolution.core.test.ArgumentProviders.FailingHttpCodesProvider;
+import com.senacor.elasticsearch.evolution.rest.abstraction.EvolutionRequestBody;
 import com.senacor.elasticsearch.evolution.rest.abstraction.EvolutionRestClient;
 import com.senacor.elasticsearch.evolution.rest.abstraction.EvolutionRestResponse;
 import com.senacor.elasticsearch.evolution.rest.abstraction.HttpMethod;
@@ -33,19 +38,27 @@ import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.OffsetDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
 
 import static com.senacor.elasticsearch.evolution.core.api.migration.MigrationVersion.fromVersion;
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.assertj.core.api.SoftAssertions.assertSoftly;
@@ -107,11 +120,80 @@ class MigrationServiceImplTest {
                             .setBaselineVersion("1.0")
                             .setOutOfOrder(false));
 
+            LockWaitMetrics before = underTest.getLockWaitMetrics();
+
             assertTimeout(Duration.ofMillis(300), underTest::waitUntilUnlocked);
 
             InOrder order = inOrder(historyRepository);
             order.verify(historyRepository, times(2)).isLocked();
             order.verifyNoMoreInteractions();
+            assertThat(before).isEqualTo(LockWaitMetrics.EMPTY);
+            assertSoftly(softly -> {
+                softly.assertThat(underTest.getLockWaitMetrics().getWaits()).isEqualTo(1);
+                softly.assertThat(underTest.getLockWaitMetrics().getPolls()).isEqualTo(2);
+                softly.assertThat(underTest.getLockWaitMetrics().getTimeouts()).isZero();
+                softly.assertThat(underTest.getLockWaitMetrics().getWaitTimeInMillis()).isGreaterThanOrEqualTo(50);
+            });
+        }
+
+        @Test
+        void waitTimeGrowsExponentiallyUpToMaxTime() {
+            doReturn(true, true, true, true, false).when(historyRepository).isLocked();
+            MigrationServiceImpl underTest = new MigrationServiceImpl(historyRepository,
+                    20, 80, restClient,
+                    new ElasticsearchEvolutionConfigImpl()
+                            .setDefaultContentType(defaultContentType)
+                            .setEncoding(encoding));
+
+            // waits 10-20, 20-40, 40-80 and 40-80 ms
+            assertTimeout(Duration.ofMillis(1000), underTest::waitUntilUnlocked);
+
+            verify(historyRepository, times(5)).isLocked();
+            assertThat(underTest.getLockWaitMetrics().getPolls()).isEqualTo(5);
+            assertThat(underTest.getLockWaitMetrics().getMaxWaitTimeInMillis()).isBetween(110L, 1000L);
+        }
+
+        @Test
+        void lockIsNotReleasedBeforeTimeout() {
+            doReturn(true).when(historyRepository).isLocked();
+            MigrationServiceImpl underTest = new MigrationServiceImpl(historyRepository,
+                    10, 50, restClient,
+                    new ElasticsearchEvolutionConfigImpl()
+                            .setDefaultContentType(defaultContentType)
+                            .setEncoding(encoding)
+                            .setLockWaitTimeoutInMillis(200));
+
+            assertTimeout(Duration.ofMillis(1000), () -> assertThatThrownBy(underTest::waitUntilUnlocked)
+                    .isInstanceOf(MigrationException.class)
+                    .hasMessage("the elasticsearch-evolution history index is still locked after waiting 200ms (lockWaitTimeoutInMillis)"));
+
+            assertSoftly(softly -> {
+                softly.assertThat(underTest.getLockWaitMetrics().getWaits()).isEqualTo(1);
+                softly.assertThat(underTest.getLockWaitMetrics().getTimeouts()).isEqualTo(1);
+                softly.assertThat(underTest.getLockWaitMetrics().getWaitTimeInMillis()).isGreaterThanOrEqualTo(200);
+            });
+        }
+
+        @Test
+        void interrupted_failsAndKeepsInterruptFlag() {
+            doReturn(true).when(historyRepository).isLocked();
+            MigrationServiceImpl underTest = new MigrationServiceImpl(historyRepository,
+                    10_000, 10_000, restClient,
+                    new ElasticsearchEvolutionConfigImpl()
+                            .setDefaultContentType(defaultContentType)
+                            .setEncoding(encoding));
+
+            Thread.currentThread().interrupt();
+            try {
+                assertThatThrownBy(underTest::waitUntilUnlocked)
+                        .isInstanceOf(MigrationException.class)
+                        .hasMessage("waiting for the elasticsearch-evolution history index lock was interrupted")
+                        .hasCauseInstanceOf(InterruptedException.class);
+                assertThat(Thread.currentThread().isInterrupted()).isTrue();
+            } finally {
+                // clear the interrupt flag
+                Thread.interrupted();
+            }
         }
     }
 
@@ -435,6 +517,56 @@ class MigrationServiceImplTest {
             order.verifyNoMoreInteractions();
         }
 
+        @Test
+        void contentChecksumWasChanged_shouldThrowChecksumMismatchExceptionEvenIfLegacyChecksumIsEqual() {
+            doReturn(new TreeSet<>(singletonList(
+                    createMigrationScriptProtocol("1.0", true, 1)
+                            .setContentChecksum(10L)
+                            .setChecksumAlgorithm("XXH64")
+            ))).when(historyRepository).findAll();
+            MigrationServiceImpl underTest = new MigrationServiceImpl(historyRepository,
+                    0, 0, restClient,
+                    new ElasticsearchEvolutionConfigImpl()
+                            .setDefaultContentType(defaultContentType)
+                            .setEncoding(encoding)
+                            .setValidateOnMigrate(true)
+                            .setBaselineVersion("1.0")
+                            .setOutOfOrder(false));
+
+            List<ParsedMigration<?>> parsedMigrations = singletonList(
+                    createParsedMigrationScript("1.0", 1).setContentChecksum(11L));
+
+            assertThatThrownBy(() -> underTest.getPendingScriptsToBeExecuted(parsedMigrations))
+                    .isInstanceOf(MigrationException.class)
+                    .hasMessageContaining("has a different checksum from the given migration");
+        }
+
+        @Test
+        void contentChecksumIsEqual_legacyChecksumIsNotComputed() {
+            doReturn(new TreeSet<>(singletonList(
+                    createMigrationScriptProtocol("1.0", true, 1)
+                            .setContentChecksum(10L)
+                            .setChecksumAlgorithm("XXH64")
+            ))).when(historyRepository).findAll();
+            MigrationServiceImpl underTest = new MigrationServiceImpl(historyRepository,
+                    0, 0, restClient,
+                    new ElasticsearchEvolutionConfigImpl()
+                            .setDefaultContentType(defaultContentType)
+                            .setEncoding(encoding)
+                            .setValidateOnMigrate(true)
+                            .setBaselineVersion("1.0")
+                            .setOutOfOrder(false));
+            final AtomicInteger legacyChecksumComputed = new AtomicInteger();
+
+            List<ParsedMigration<?>> res = underTest.getPendingScriptsToBeExecuted(singletonList(
+                    createParsedMigrationScript("1.0")
+                            .setLazyChecksum(legacyChecksumComputed::incrementAndGet)
+                            .setContentChecksum(10L)));
+
+            assertThat(res).isEmpty();
+            assertThat(legacyChecksumComputed).hasValue(0);
+        }
+
         @Test
         void usingABaseline_onlyScriptsWithVersionHigherThanBaselineWillBeReturned() {
             doReturn(new TreeSet<>()).when(historyRepository).findAll();
@@ -649,6 +781,48 @@ class MigrationServiceImplTest {
             order.verifyNoMoreInteractions();
         }
 
+        @Test
+        void OK_requestWithStreamedBody() throws IOException {
+            ParsedMigration<MigrationScriptRequest> script = createParsedMigrationScript("1.1");
+            String contentType = "text/plain; charset=" + StandardCharsets.ISO_8859_1;
+            final MigrationScriptRequest migrationRequest = script.getMigrationRequest();
+            migrationRequest.setStreamedBody(() -> new StringReader("my-body äöü"))
+                    .addHttpHeader("content-type", contentType);
+            EvolutionRestResponse responseMock = createResponseMock(200);
+            when(restClient.getCharset(anyMap())).thenCallRealMethod();
+            final List<byte[]> sentBodies = new ArrayList<>();
+            doAnswer(invocation -> {
+                try (InputStream body = invocation.<EvolutionRequestBody>getArgument(4).open()) {
+                    sentBodies.add(body.readAllBytes());
+                }
+                return responseMock;
+            }).when(restClient).executeStreaming(any(), anyString(), anyMap(), isNull(), any());
+
+            MigrationServiceImpl underTest = new MigrationServiceImpl(historyRepository,
+                    0, 0, restClient,
+                    new ElasticsearchEvolutionConfigImpl()
+                            .setDefaultContentType(defaultContentType)
+                            .setEncoding(encoding)
+                            .setValidateOnMigrate(true)
+                            .setBaselineVersion("1.0")
+                            .setOutOfOrder(false));
+
+            MigrationScriptProtocol res = underTest.executeMigration(script).getProtocol();
+
+            assertThat(res.isSuccess()).isTrue();
+            assertThat(sentBodies).containsExactly("my-body äöü".getBytes(StandardCharsets.ISO_8859_1));
+
+            InOrder order = inOrder(historyRepository, restClient);
+            order.verify(restClient).getContentType(anyMap());
+            order.verify(restClient).getCharset(anyMap());
+            order.verify(restClient).executeStreaming(eq(migrationRequest.getHttpMethod()),
+                    eq(migrationRequest.getPath()),
+                    eq(Map.of(EvolutionRestClient.HEADER_NAME_CONTENT_TYPE, contentType)),
+                    isNull(),
+                    any());
+            order.verifyNoMoreInteractions();
+        }
+
         @Test
         void OK_requestWithCustomHeader() throws IOException {
             ParsedMigration<MigrationScriptRequest> script = createParsedMigrationScript("1.1");
@@ -868,6 +1042,119 @@ class MigrationServiceImplTest {
         }
     }
 
+    @Nested
+    class executeSeveralRequests {
+
+        @Test
+        void OK_requestsAreExecutedInOrderWithOneProtocol() throws IOException {
+            final ParsedMigration<MigrationRequest> script = createParsedMigrationScripts("1.1",
+                    request(HttpMethod.PUT, "/a"), request(HttpMethod.PUT, "/b"), request(HttpMethod.DELETE, "/c"));
+            EvolutionRestResponse responseMock = createResponseMock(200);
+            doReturn(responseMock).when(restClient).execute(any(), anyString(), anyMap(), isNull(), anyString());
+
+            ExecutionResult res = createMigrationService(1).executeMigration(script);
+
+            assertThat(res.getProtocol().isSuccess()).isTrue();
+            assertThat(res.getProtocol().getScriptName()).isEqualTo(script.getFileNameInfo().getScriptName());
+            assertThat(res.getError()).isEmpty();
+            InOrder order = inOrder(historyRepository, restClient);
+            order.verify(restClient).execute(eq(HttpMethod.PUT), eq("/a"), anyMap(), isNull(), anyString());
+            order.verify(restClient).execute(eq(HttpMethod.PUT), eq("/b"), anyMap(), isNull(), anyString());
+            order.verify(restClient).execute(eq(HttpMethod.DELETE), eq("/c"), anyMap(), isNull(), anyString());
+            order.verifyNoMoreInteractions();
+        }
+
+        @Test
+        void failed_noRequestIsStartedAfterFailedRequest() throws IOException {
+            final ParsedMigration<MigrationRequest> script = createParsedMigrationScripts("1.1",
+                    request(HttpMethod.PUT, "/a"), request(HttpMethod.PUT, "/b"), request(HttpMethod.PUT, "/c"));
+            EvolutionRestResponse okMock = createResponseMock(200);
+            EvolutionRestResponse failedMock = createResponseMock(400);
+            doReturn(okMock).when(restClient).execute(any(), eq("/a"), anyMap(), isNull(), anyString());
+            doReturn(failedMock).when(restClient).execute(any(), eq("/b"), anyMap(), isNull(), anyString());
+
+            ExecutionResult res = createMigrationService(1).executeMigration(script);
+
+            assertThat(res.getProtocol().isSuccess()).isFalse();
+            assertThat(res.getError()).get()
+                    .isInstanceOf(MigrationException.class)
+                    .extracting(Throwable::getMessage)
+                    .asString()
+                    .startsWith("execution of script '%s' failed with HTTP status 400".formatted(script.getFileNameInfo()));
+            verify(restClient, never()).execute(any(), eq("/c"), anyMap(), isNull(), anyString());
+        }
+
+        @Test
+        void OK_independentRequestsAreExecutedConcurrently() throws IOException {
+            final ParsedMigration<MigrationRequest> script = createParsedMigrationScripts("1.1",
+                    request(HttpMethod.PUT, "/a"), request(HttpMethod.PUT, "/b"), request(HttpMethod.PUT, "/c"));
+            // every request waits until all requests are in flight
+            final CountDownLatch inFlight = new CountDownLatch(3);
+            EvolutionRestResponse responseMock = createResponseMock(200);
+            doAnswer(invocation -> {
+                inFlight.countDown();
+                return inFlight.await(10, TimeUnit.SECONDS) ? responseMock : createResponseMock(500);
+            }).when(restClient).execute(any(), anyString(), anyMap(), isNull(), anyString());
+
+            ExecutionResult res = createMigrationService(3).executeMigration(script);
+
+            assertThat(res.getError()).isEmpty();
+            assertThat(res.getProtocol().isSuccess()).isTrue();
+        }
+
+        @Test
+        void failed_concurrentRequestsStopAtFirstFailedRequest() throws IOException {
+            final ParsedMigration<MigrationRequest> script = createParsedMigrationScripts("1.1",
+                    request(HttpMethod.PUT, "/a"), request(HttpMethod.PUT, "/b"),
+                    request(HttpMethod.PUT, "/a/_mapping"), request(HttpMethod.PUT, "/c"));
+            EvolutionRestResponse okMock = createResponseMock(200);
+            EvolutionRestResponse failedMock = createResponseMock(500);
+            doReturn(okMock).when(restClient).execute(any(), eq("/a"), anyMap(), isNull(), anyString());
+            doReturn(failedMock).when(restClient).execute(any(), eq("/b"), anyMap(), isNull(), anyString());
+
+            ExecutionResult res = createMigrationService(4).executeMigration(script);
+
+            assertThat(res.getProtocol().isSuccess()).isFalse();
+            assertThat(res.getError()).isPresent();
+            verify(restClient, never()).execute(any(), eq("/a/_mapping"), anyMap(), isNull(), anyString());
+            verify(restClient, never()).execute(any(), eq("/c"), anyMap(), isNull(), anyString());
+        }
+
+        private MigrationServiceImpl createMigrationService(int scriptRequestParallelism) {
+            return new MigrationServiceImpl(historyRepository,
+                    0, 0, restClient,
+                    new ElasticsearchEvolutionConfigImpl()
+                            .setDefaultContentType(defaultContentType)
+                            .setEncoding(encoding)
+                            .setScriptRequestParallelism(scriptRequestParallelism));
+        }
+    }
+
+    @Nested
+    class independentGroups {
+
+        @Test
+        void consecutiveRequestsWithDifferentTargetsAreGrouped() {
+            final MigrationScriptRequest a = request(HttpMethod.PUT, "/a");
+            final MigrationScriptRequest b = request(HttpMethod.PUT, "b?timeout=1m");
+            final MigrationScriptRequest aMapping = request(HttpMethod.PUT, "/a/_mapping");
+            final MigrationScriptRequest c = request(HttpMethod.PUT, "/c");
+            final MigrationScriptRequest bulk = request(HttpMethod.POST, "/_bulk");
+            final MigrationScriptRequest wildcard = request(HttpMethod.DELETE, "/logs-*");
+            final MigrationScriptRequest several = request(HttpMethod.DELETE, "/d,e");
+            final MigrationScriptRequest d = request(HttpMethod.PUT, "/d");
+
+            assertThat(MigrationServiceImpl.independentGroups(List.of(a, b, aMapping, c, bulk, wildcard, several, d)))
+                    .containsExactly(
+                            List.of(a, b),
+                            List.of(aMapping, c),
+                            List.of(bulk),
+                            List.of(wildcard),
+                            List.of(several),
+                            List.of(d));
+        }
+    }
+
     @Nested
     class executePendingScripts {
         @Test
@@ -908,6 +1195,96 @@ class MigrationServiceImplTest {
             order.verifyNoMoreInteractions();
         }
 
+        @Test
+        void invalidJsonBody_failsWithoutLocking() throws IOException {
+            ParsedMigration<MigrationScriptRequest> invalid = createParsedMigrationScript("1.1");
+            invalid.getMigrationRequest().setBody("{\"a\": }");
+            List<ParsedMigration<?>> scripts = asList(
+                    createParsedMigrationScript("1.0"),
+                    invalid);
+            doReturn(new TreeSet<>()).when(historyRepository).findAll();
+            MigrationServiceImpl underTest = new MigrationServiceImpl(historyRepository,
+                    0, 0, restClient,
+                    new ElasticsearchEvolutionConfigImpl()
+                            .setDefaultContentType(defaultContentType)
+                            .setEncoding(encoding)
+                            .setValidateOnMigrate(true)
+                            .setBaselineVersion("1.0")
+                            .setOutOfOrder(false));
+
+            assertThatThrownBy(() -> underTest.executePendingScripts(scripts))
+                    .isInstanceOf(MigrationException.class)
+                    .hasMessageStartingWith("1 invalid JSON bodies found, no migration was executed:")
+                    .hasMessageContaining("V1.1__1.1.http, DELETE /: Unexpected character ('}' (code 125))");
+
+            verify(historyRepository).findAll();
+            verifyNoMoreInteractions(historyRepository);
+            verify(restClient, never()).execute(any(), anyString(), anyMap(), isNull(), anyString());
+        }
+
+        @Test
+        void invalidJsonBody_isExecutedIfValidationIsDisabled() throws IOException {
+            ParsedMigration<MigrationScriptRequest> invalid = createParsedMigrationScript("1.0");
+            invalid.getMigrationRequest().setBody("{\"a\": }");
+            doReturn(false).when(historyRepository).isLocked();
+            doReturn(true).when(historyRepository).lock();
+            doReturn(true).when(historyRepository).unlock();
+            doReturn(new TreeSet<>()).when(historyRepository).findAll();
+            EvolutionRestResponse responseMock = createResponseMock(400);
+            doReturn(responseMock).when(restClient).execute(any(), anyString(), anyMap(), isNull(), anyString());
+            MigrationServiceImpl underTest = new MigrationServiceImpl(historyRepository,
+                    0, 0, restClient,
+                    new ElasticsearchEvolutionConfigImpl()
+                            .setDefaultContentType(defaultContentType)
+                            .setEncoding(encoding)
+                            .setValidateOnMigrate(true)
+                            .setBaselineVersion("1.0")
+                            .setOutOfOrder(false)
+                            .setValidateJsonBodies(false));
+
+            assertThatThrownBy(() -> underTest.executePendingScripts(List.of(invalid)))
+                    .isInstanceOf(MigrationException.class)
+                    .hasMessageStartingWith("execution of script '");
+
+            verify(historyRepository).lock();
+            verify(restClient).execute(any(), anyString(), anyMap(), isNull(), eq("{\"a\": }"));
+            verify(historyRepository).unlock();
+        }
+
+        @Test
+        void executedLazyMigrationRequest_isReleased() throws IOException {
+            final AtomicInteger loaded = new AtomicInteger();
+            ParsedMigration<MigrationScriptRequest> script = new ParsedMigration<MigrationScriptRequest>()
+                    .setFileNameInfo(new FileNameInfoImpl(fromVersion("1.0"), "1.0", createDefaultScriptName("1.0")))
+                    .setChecksum(1)
+                    .setLazyMigrationRequest(() -> {
+                        loaded.incrementAndGet();
+                        return new MigrationScriptRequest()
+                                .setHttpMethod(HttpMethod.DELETE)
+                                .setPath("/");
+                    });
+            doReturn(false).when(historyRepository).isLocked();
+            doReturn(true).when(historyRepository).lock();
+            doReturn(true).when(historyRepository).unlock();
+            doReturn(new TreeSet<>()).when(historyRepository).findAll();
+            EvolutionRestResponse responseMock = createResponseMock(200);
+            doReturn(responseMock).when(restClient).execute(any(), anyString(), anyMap(), isNull(), anyString());
+            MigrationServiceImpl underTest = new MigrationServiceImpl(historyRepository,
+                    0, 0, restClient,
+                    new ElasticsearchEvolutionConfigImpl()
+                            .setDefaultContentType(defaultContentType)
+                            .setEncoding(encoding)
+                            .setValidateOnMigrate(true)
+                            .setBaselineVersion("1.0")
+                            .setOutOfOrder(false));
+
+            underTest.executePendingScripts(List.of(script));
+
+            assertThat(loaded).hasValue(1);
+            assertThat(script.getMigrationRequest().getPath()).isEqualTo("/");
+            assertThat(loaded).hasValue(2);
+        }
+
         @Test
         void firstExecutionFailed() throws IOException {
             List<ParsedMigration<?>> scripts = asList(
@@ -1018,6 +1395,36 @@ class MigrationServiceImplTest {
             order.verifyNoMoreInteractions();
         }
 
+        @Test
+        void lockAcquiredByAnotherInstance_waitsAndRetries() throws IOException {
+            doReturn(false, true, false).when(historyRepository).isLocked();
+            doReturn(false, true).when(historyRepository).lock();
+            doReturn(true).when(historyRepository).unlock();
+            doReturn(new TreeSet<>()).when(historyRepository).findAll();
+            EvolutionRestResponse responseMock = createResponseMock(200);
+            doReturn(responseMock).when(restClient).execute(any(), anyString(), anyMap(), isNull(), anyString());
+
+            MigrationServiceImpl underTest = new MigrationServiceImpl(historyRepository,
+                    0, 0, restClient,
+                    new ElasticsearchEvolutionConfigImpl()
+                            .setDefaultContentType(defaultContentType)
+                            .setEncoding(encoding)
+                            .setValidateOnMigrate(true)
+                            .setBaselineVersion("1.0")
+                            .setOutOfOrder(false));
+
+            assertThat(underTest.executePendingScripts(List.of(createParsedMigrationScript("1.0")))).hasSize(1);
+
+            InOrder order = inOrder(historyRepository);
+            order.verify(historyRepository).createIndexIfAbsent();
+            order.verify(historyRepository).isLocked();
+            order.verify(historyRepository).lock();
+            order.verify(historyRepository, times(2)).isLocked();
+            order.verify(historyRepository).lock();
+            order.verify(historyRepository).saveOrUpdate(any());
+            order.verify(historyRepository).unlock();
+        }
+
         @Test
         void emptyScriptsCollection() {
             MigrationServiceImpl underTest = new MigrationServiceImpl(historyRepository,
@@ -1036,6 +1443,52 @@ class MigrationServiceImplTest {
             order.verifyNoMoreInteractions();
         }
 
+        @Test
+        void legacyHistoryEntry_isUpgradedWhileLocked() throws IOException {
+            List<ParsedMigration<?>> scripts = asList(
+                    createParsedMigrationScript("1.0").setContentChecksum(10L),
+                    createParsedMigrationScript("1.1").setContentChecksum(11L));
+            doReturn(false).when(historyRepository).isLocked();
+            doReturn(true).when(historyRepository).lock();
+            doReturn(true).when(historyRepository).unlock();
+            doReturn(new TreeSet<>(singletonList(createMigrationScriptProtocol("1.0", true))))
+                    .when(historyRepository).findAll();
+
+            EvolutionRestResponse responseMock = createResponseMock(200);
+            doReturn(responseMock).when(restClient).execute(any(), anyString(), anyMap(), isNull(), anyString());
+            MigrationServiceImpl underTest = new MigrationServiceImpl(historyRepository,
+                    0, 0, restClient,
+                    new ElasticsearchEvolutionConfigImpl()
+                            .setDefaultContentType(defaultContentType)
+                            .setEncoding(encoding)
+                            .setValidateOnMigrate(true)
+                            .setBaselineVersion("1.0")
+                            .setOutOfOrder(false));
+
+            List<MigrationScriptProtocol> res = underTest.executePendingScripts(scripts);
+
+            assertThat(res).hasSize(1);
+            assertSoftly(softly -> {
+                softly.assertThat(res.get(0).getContentChecksum()).isEqualTo(11L);
+                softly.assertThat(res.get(0).getChecksumAlgorithm()).isEqualTo("XXH64");
+            });
+            InOrder order = inOrder(historyRepository, restClient);
+            order.verify(historyRepository).findAll();
+            order.verify(historyRepository).createIndexIfAbsent();
+            order.verify(historyRepository).isLocked();
+            order.verify(historyRepository).lock();
+            order.verify(historyRepository).findAll();
+            order.verify(historyRepository).saveOrUpdate(argThat(protocol ->
+                    protocol.getVersion().equals(fromVersion("1.0"))
+                            && Long.valueOf(10L).equals(protocol.getContentChecksum())
+                            && "XXH64".equals(protocol.getChecksumAlgorithm())
+                            && protocol.isLocked()));
+            order.verify(restClient).execute(any(), anyString(), anyMap(), isNull(), anyString());
+            order.verify(historyRepository).saveOrUpdate(res.get(0));
+            order.verify(historyRepository).unlock();
+            order.verifyNoMoreInteractions();
+        }
+
         @Test
         void noPendingScripts_shouldNotLockRepository() {
             List<ParsedMigration<?>> scripts = asList(
@@ -1061,6 +1514,130 @@ class MigrationServiceImplTest {
             order.verify(historyRepository).findAll();
             order.verifyNoMoreInteractions();
         }
+
+        @Test
+        void invalidPendingScript_shouldFailBeforeLockingAndNotParseExecutedScripts() {
+            final AtomicInteger executedScriptParsed = new AtomicInteger();
+            List<ParsedMigration<?>> scripts = asList(
+                    createParsedMigrationScript("1.0")
+                            .setLazyMigrationRequest(() -> {
+                                executedScriptParsed.incrementAndGet();
+                                return new MigrationScriptRequest();
+                            }),
+                    createParsedMigrationScript("1.1")
+                            .setLazyMigrationRequest(() -> {
+                                throw new MigrationException("can't parse method and path: '/'");
+                            }));
+            doReturn(new TreeSet<>(singletonList(
+                    createMigrationScriptProtocol("1.0", true)
+            ))).when(historyRepository).findAll();
+            MigrationServiceImpl underTest = new MigrationServiceImpl(historyRepository,
+                    0, 0, restClient,
+                    new ElasticsearchEvolutionConfigImpl()
+                            .setDefaultContentType(defaultContentType)
+                            .setEncoding(encoding)
+                            .setValidateOnMigrate(true)
+                            .setBaselineVersion("1.0")
+                            .setOutOfOrder(false));
+
+            assertThatThrownBy(() -> underTest.executePendingScripts(scripts))
+                    .isInstanceOf(MigrationException.class)
+                    .hasMessage("can't parse method and path: '/'");
+            assertThat(executedScriptParsed).hasValue(0);
+            verify(historyRepository).findAll();
+            verifyNoMoreInteractions(historyRepository, restClient);
+        }
+    }
+
+    @Nested
+    class fingerprint {
+        private MigrationServiceImpl underTest;
+
+        @BeforeEach
+        void setUp() {
+            underTest = new MigrationServiceImpl(historyRepository,
+                    0, 0, restClient,
+                    new ElasticsearchEvolutionConfigImpl()
+                            .setDefaultContentType(defaultContentType)
+                            .setEncoding(encoding)
+                            .setBaselineVersion("1.0"));
+        }
+
+        @Test
+        void isUpToDate_sameFingerprint() {
+            doReturn(Optional.of(new MigrationFingerprint("abc", fromVersion("1.1"))))
+                    .when(historyRepository).findFingerprint();
+
+            assertThat(underTest.isUpToDate("abc")).isTrue();
+        }
+
+        @Test
+        void isUpToDate_differentFingerprint() {
+            doReturn(Optional.of(new MigrationFingerprint("abc", fromVersion("1.1"))))
+                    .when(historyRepository).findFingerprint();
+
+            assertThat(underTest.isUpToDate("def")).isFalse();
+        }
+
+        @Test
+        void isUpToDate_noFingerprintStored() {
+            doReturn(Optional.empty()).when(historyRepository).findFingerprint();
+
+            assertThat(underTest.isUpToDate("abc")).isFalse();
+        }
+
+        @Test
+        void isUpToDate_readFailed_shouldFallBackToFullMigration() {
+            doThrow(new MigrationException("test-error")).when(historyRepository).findFingerprint();
+
+            assertThat(underTest.isUpToDate("abc")).isFalse();
+        }
+
+        @Test
+        void markUpToDate_savesLatestVersion() {
+            doReturn(Optional.empty()).when(historyRepository).findFingerprint();
+
+            underTest.markUpToDate("abc", asList(
+                    createParsedMigrationScript("1.1"),
+                    createParsedMigrationScript("1.0"),
+                    createParsedMigrationScript("0.9")));
+
+            InOrder order = inOrder(historyRepository);
+            order.verify(historyRepository).findFingerprint();
+            order.verify(historyRepository).createIndexIfAbsent();
+            order.verify(historyRepository).saveFingerprint(new MigrationFingerprint("abc", fromVersion("1.1")));
+            order.verifyNoMoreInteractions();
+        }
+
+        @Test
+        void markUpToDate_storedFingerprintBelongsToNewerMigrations_shouldNotOverwrite() {
+            doReturn(Optional.of(new MigrationFingerprint("newer", fromVersion("1.2"))))
+                    .when(historyRepository).findFingerprint();
+
+            underTest.markUpToDate("abc", asList(
+                    createParsedMigrationScript("1.0"),
+                    createParsedMigrationScript("1.1")));
+
+            verify(historyRepository).findFingerprint();
+            verifyNoMoreInteractions(historyRepository);
+        }
+
+        @Test
+        void markUpToDate_noMigrations_shouldNotSave() {
+            underTest.markUpToDate("abc", emptyList());
+
+            verifyNoInteractions(historyRepository);
+        }
+
+        @Test
+        void markUpToDate_saveFailed_shouldNotThrow() {
+            doReturn(Optional.empty()).when(historyRepository).findFingerprint();
+            doThrow(new MigrationException("test-error")).when(historyRepository).saveFingerprint(any());
+
+            underTest.markUpToDate("abc", List.of(createParsedMigrationScript("1.0")));
+
+            verify(historyRepository).saveFingerprint(new MigrationFingerprint("abc", fromVersion("1.0")));
+        }
     }
 
     private EvolutionRestResponse createResponseMock(int statusCode) {
@@ -1097,6 +1674,20 @@ class MigrationServiceImplTest {
                         .setPath("/"));
     }
 
+    private ParsedMigration<MigrationRequest> createParsedMigrationScripts(String version, MigrationScriptRequest... requests) {
+        return new ParsedMigration<MigrationRequest>()
+                .setFileNameInfo(
+                        new FileNameInfoImpl(fromVersion(version), version, createDefaultScriptName(version)))
+                .setChecksum(1)
+                .setMigrationRequest(new MigrationScriptRequests(List.of(requests)));
+    }
+
+    private static MigrationScriptRequest request(HttpMethod httpMethod, String path) {
+        return new MigrationScriptRequest()
+                .setHttpMethod(httpMethod)
+                .setPath(path);
+    }
+
     private String createDefaultScriptName(String version) {
         return "V" + version + "__" + version + ".http";
     }
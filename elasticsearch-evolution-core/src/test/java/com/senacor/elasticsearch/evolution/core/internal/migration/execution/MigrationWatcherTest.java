@@ -0,0 +1,202 @@
+package com.senacor.elasticsearch.evolution.core.internal.migration.execution;
+
+import com.senacor.elasticsearch.evolution.core.api.config.ElasticsearchEvolutionConfigImpl;
+import com.senacor.elasticsearch.evolution.core.api.migration.MigrationScriptReader;
+import com.senacor.elasticsearch.evolution.core.api.migration.MigrationService;
+import com.senacor.elasticsearch.evolution.core.internal.migration.input.MigrationScriptParserImpl;
+import com.senacor.elasticsearch.evolution.core.internal.migration.input.MigrationScriptReaderImpl;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.MigrationScriptRequest;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.ParsedMigration;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.RawMigrationScript;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MigrationWatcherTest {
+
+    @Mock
+    private MigrationService migrationService;
+    @TempDir
+    private Path tempDir;
+
+    private final List<List<ParsedMigration<?>>> executed = new ArrayList<>();
+    private MigrationScriptReaderImpl reader;
+    private MigrationWatcher underTest;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Files.writeString(tempDir.resolve("V1__first.http"), "PUT /first");
+        Files.createDirectories(tempDir.resolve("sub"));
+        Files.writeString(tempDir.resolve("sub/V2__second.http"), "PUT /second");
+        final ElasticsearchEvolutionConfigImpl config = new ElasticsearchEvolutionConfigImpl()
+                .setLocations(List.of("file:" + tempDir, "classpath:es/ElasticsearchEvolutionTest/migrate_failed_step1"));
+        reader = spy(new MigrationScriptReaderImpl(config));
+        underTest = new MigrationWatcher(reader,
+                new MigrationScriptParserImpl(config.getEsMigrationPrefix(), config.getEsMigrationSuffixes(), Map.of(), "${", "}", false, "\n"),
+                migrationService);
+        lenient().when(migrationService.executePendingScripts(any())).thenAnswer(invocation -> {
+            final Collection<ParsedMigration<?>> migrations = invocation.getArgument(0);
+            synchronized (executed) {
+                executed.add(List.copyOf(migrations));
+            }
+            return List.of();
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        underTest.close();
+    }
+
+    @Nested
+    class start {
+
+        @Test
+        void executesAllMigrations() {
+            underTest.start();
+
+            assertThat(scriptNames(executed.get(0)))
+                    .containsExactlyInAnyOrder("first", "second", "createTemplateWithIndexMapping", "addDocument");
+        }
+    }
+
+    @Nested
+    class migrateChanges {
+
+        @Test
+        void readsAndParsesOnlyChangedAndAddedFiles() throws IOException {
+            underTest.start();
+            final Path changed = Files.writeString(tempDir.resolve("sub/V2__second.http"), "PUT /second_changed");
+            final Path added = Files.writeString(tempDir.resolve("V3__third.http"), "PUT /third");
+
+            underTest.migrateChanges(List.of(changed, added));
+
+            @SuppressWarnings("unchecked")
+            final ArgumentCaptor<Collection<Path>> files = ArgumentCaptor.forClass(Collection.class);
+            verify(reader).read(files.capture());
+            assertThat(files.getValue()).containsExactly(changed, added);
+            verify(reader, times(1)).read();
+            final Map<String, ParsedMigration<?>> before = byScriptName(executed.get(0));
+            final Map<String, ParsedMigration<?>> after = byScriptName(executed.get(1));
+            assertThat(after).containsOnlyKeys("first", "second", "third", "createTemplateWithIndexMapping", "addDocument");
+            assertThat(after.get("first")).isSameAs(before.get("first"));
+            assertThat(after.get("addDocument")).isSameAs(before.get("addDocument"));
+            assertThat(after.get("second")).isNotSameAs(before.get("second"));
+            assertThat(((MigrationScriptRequest) after.get("second").getMigrationRequest()).getPath()).isEqualTo("/second_changed");
+        }
+
+        @Test
+        void deletedFileAndDirectoryAreRemoved() throws IOException {
+            underTest.start();
+            final Path first = tempDir.resolve("V1__first.http");
+            final Path sub = tempDir.resolve("sub");
+            Files.delete(first);
+            Files.delete(sub.resolve("V2__second.http"));
+            Files.delete(sub);
+
+            underTest.migrateChanges(List.of(first, sub));
+
+            assertThat(scriptNames(executed.get(1))).containsExactlyInAnyOrder("createTemplateWithIndexMapping", "addDocument");
+        }
+
+        @Test
+        void addedDirectoryIsRead() throws IOException {
+            underTest.start();
+            final Path added = Files.createDirectories(tempDir.resolve("added/deeper"));
+            Files.writeString(added.resolve("V3__third.http"), "PUT /third");
+
+            underTest.migrateChanges(List.of(tempDir.resolve("added")));
+
+            assertThat(scriptNames(executed.get(1))).containsExactlyInAnyOrder("first", "second", "third", "createTemplateWithIndexMapping", "addDocument");
+        }
+
+        @Test
+        void customReaderWithoutReadingSingleFiles_readsAllMigrations() throws IOException {
+            underTest.close();
+            final MigrationScriptReader customReader = new MigrationScriptReader() {
+                @Override
+                public List<RawMigrationScript<?>> read() {
+                    return reader.read();
+                }
+
+                @Override
+                public List<Path> watchableLocations() {
+                    return reader.watchableLocations();
+                }
+            };
+            final ElasticsearchEvolutionConfigImpl config = new ElasticsearchEvolutionConfigImpl();
+            underTest = new MigrationWatcher(customReader,
+                    new MigrationScriptParserImpl(config.getEsMigrationPrefix(), config.getEsMigrationSuffixes(), Map.of(), "${", "}", false, "\n"),
+                    migrationService);
+            underTest.start();
+            final Path changed = Files.writeString(tempDir.resolve("sub/V2__second.http"), "PUT /second_changed");
+            final Path other = Files.writeString(tempDir.resolve("readme.txt"), "no migration");
+
+            underTest.migrateChanges(List.of(changed, other));
+
+            verify(reader, times(2)).read();
+            final Map<String, ParsedMigration<?>> after = byScriptName(executed.get(1));
+            assertThat(after).containsOnlyKeys("first", "second", "createTemplateWithIndexMapping", "addDocument");
+            assertThat(((MigrationScriptRequest) after.get("second").getMigrationRequest()).getPath()).isEqualTo("/second_changed");
+        }
+
+        @Test
+        void noMigrationChanged_doesNotMigrate() throws IOException {
+            underTest.start();
+            final Path other = Files.writeString(tempDir.resolve("readme.txt"), "no migration");
+
+            assertThat(underTest.migrateChanges(List.of(other, tempDir.resolve("V1__first.http")))).isZero();
+
+            verify(migrationService, times(1)).executePendingScripts(any());
+        }
+    }
+
+    @Nested
+    class watch {
+
+        @Test
+        void addedFileIsMigrated() throws IOException {
+            underTest.start();
+
+            Files.writeString(tempDir.resolve("sub/V3__third.http"), "PUT /third");
+
+            verify(migrationService, timeout(10_000).atLeast(2)).executePendingScripts(any());
+            synchronized (executed) {
+                assertThat(scriptNames(executed.get(executed.size() - 1)))
+                        .containsExactlyInAnyOrder("first", "second", "third", "createTemplateWithIndexMapping", "addDocument");
+            }
+        }
+    }
+
+    private static List<String> scriptNames(List<ParsedMigration<?>> migrations) {
+        return migrations.stream()
+                .map(migration -> migration.getFileNameInfo().getDescription())
+                .toList();
+    }
+
+    private static Map<String, ParsedMigration<?>> byScriptName(List<ParsedMigration<?>> migrations) {
+        return migrations.stream()
+                .collect(Collectors.toMap(migration -> migration.getFileNameInfo().getDescription(), Function.identity()));
+    }
+}
@@ -0,0 +1,106 @@
+package com.senacor.elasticsearch.evolution.core.internal.migration.input;
+
+import io.github.classgraph.Resource;
+import io.github.classgraph.ScanResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClassPathScannerTest {
+
+    private static final ClassLoader CLASS_LOADER = ClassPathScannerTest.class.getClassLoader();
+
+    @AfterEach
+    void tearDown() {
+        ClassPathScanner.clearSharedScans();
+    }
+
+    @Nested
+    class scan {
+
+        @Test
+        void coversAllPathsInOneScan() {
+            try (ScanResult scanResult = ClassPathScanner.scan(CLASS_LOADER,
+                    new TreeSet<>(List.of("scriptreader/sub/", "scriptreader_manifest/")), false, false)) {
+
+                assertThat(scanResult.getAllResources().getPaths())
+                        .contains("scriptreader/sub/content_sub.http", "scriptreader_manifest/V1__from_manifest.http")
+                        .noneMatch(path -> path.startsWith("scriptreader/content"));
+            }
+        }
+
+        @Test
+        void notSharedScansAreNotReused() {
+            final TreeSet<String> paths = new TreeSet<>(List.of("scriptreader/"));
+            try (ScanResult first = ClassPathScanner.scan(CLASS_LOADER, paths, false, false);
+                 ScanResult second = ClassPathScanner.scan(CLASS_LOADER, paths, false, false)) {
+
+                assertThat(second).isNotSameAs(first);
+            }
+        }
+
+        @Test
+        void sharedScansAreReusedForSameKey() {
+            final ScanResult first = ClassPathScanner.scan(CLASS_LOADER, new TreeSet<>(List.of("scriptreader/")), false, true);
+
+            assertThat(ClassPathScanner.scan(CLASS_LOADER, new TreeSet<>(List.of("scriptreader/")), false, true))
+                    .isSameAs(first);
+            assertThat(ClassPathScanner.scan(CLASS_LOADER, new TreeSet<>(List.of("scriptreader/")), true, true))
+                    .isNotSameAs(first);
+            assertThat(ClassPathScanner.scan(CLASS_LOADER, new TreeSet<>(List.of("scriptreader/sub/")), false, true))
+                    .isNotSameAs(first);
+        }
+
+        @Test
+        void scansTheGivenClassLoader(@TempDir Path classesDirectory) throws IOException {
+            Files.createDirectories(classesDirectory.resolve("classloader_only"));
+            Files.writeString(classesDirectory.resolve("classloader_only/V1__only.http"), "PUT /only");
+            try (URLClassLoader classLoader = new URLClassLoader(new URL[]{classesDirectory.toUri().toURL()}, CLASS_LOADER)) {
+                final TreeSet<String> paths = new TreeSet<>(List.of("classloader_only/"));
+
+                assertThat(ClassPathScanner.scan(classLoader, paths, false, true).getAllResources().getPaths())
+                        .containsExactly("classloader_only/V1__only.http");
+                assertThat(ClassPathScanner.scan(CLASS_LOADER, paths, false, true).getAllResources().getPaths())
+                        .isEmpty();
+            }
+        }
+
+        @Test
+        void clearSharedScansOfClassLoaderKeepsOtherScans(@TempDir Path classesDirectory) throws IOException {
+            try (URLClassLoader classLoader = new URLClassLoader(new URL[]{classesDirectory.toUri().toURL()}, CLASS_LOADER)) {
+                final TreeSet<String> paths = new TreeSet<>(List.of("scriptreader/"));
+                final ScanResult other = ClassPathScanner.scan(CLASS_LOADER, paths, false, true);
+                final ScanResult cleared = ClassPathScanner.scan(classLoader, paths, false, true);
+
+                ClassPathScanner.clearSharedScans(classLoader);
+
+                assertThat(ClassPathScanner.scan(CLASS_LOADER, paths, false, true)).isSameAs(other);
+                assertThat(ClassPathScanner.scan(classLoader, paths, false, true)).isNotSameAs(cleared);
+            }
+        }
+
+        @Test
+        void clearSharedScansClosesAndRemovesScans() {
+            final ScanResult first = ClassPathScanner.scan(CLASS_LOADER, new TreeSet<>(List.of("scriptreader/")), false, true);
+
+            ClassPathScanner.clearSharedScans();
+
+            final ScanResult second = ClassPathScanner.scan(CLASS_LOADER, new TreeSet<>(List.of("scriptreader/")), false, true);
+            assertThat(second).isNotSameAs(first);
+            assertThat(second.getAllResources())
+                    .extracting(Resource::getPath)
+                    .contains("scriptreader/content.http");
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.senacor.elasticsearch.evolution.core.internal.migration.input;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LightweightClassPathScannerTest {
+
+    private static final ClassLoader CLASS_LOADER = LightweightClassPathScannerTest.class.getClassLoader();
+
+    @Nested
+    class scan {
+
+        @Test
+        void directory() throws IOException {
+            final LightweightClassPathScanner.LocationScan res = LightweightClassPathScanner.scan(CLASS_LOADER,
+                    "scriptreader/", fileName -> fileName.endsWith(".http"), false).orElseThrow();
+
+            assertThat(res.resources())
+                    .extracting(LightweightClassPathScanner.Entry::relativePath)
+                    .containsExactlyInAnyOrder("content.http", "sub/content_sub.http", "sub/sub.http",
+                            "issue36/location/content.http", "issue36/location_with_suffix/content_sub.http",
+                            "issue293_trailing_newlines/with_trailing_newline.http");
+            assertThat(res.resources()).allSatisfy(entry -> {
+                assertThat(entry.file()).isRegularFile();
+                assertThat(entry.length()).isEqualTo(Files.size(entry.file()));
+                assertThat(entry.url()).isEqualTo(CLASS_LOADER.getResource("scriptreader/" + entry.relativePath()));
+            });
+            assertThat(res.classes()).isEmpty();
+        }
+
+        @Test
+        void directoryWithClasses() throws IOException {
+            final String location = "com/senacor/elasticsearch/evolution/core/internal/migration/input/testjavamigrations/withsubdir/";
+
+            final LightweightClassPathScanner.LocationScan res = LightweightClassPathScanner.scan(CLASS_LOADER,
+                    location, fileName -> true, true).orElseThrow();
+
+            assertThat(res.resources()).isEmpty();
+            assertThat(res.classes())
+                    .extracting(entry -> entry.className(location))
+                    .containsExactly("com.senacor.elasticsearch.evolution.core.internal.migration.input.testjavamigrations.withsubdir.subdir.V1_4__Valid_Filename_in_subdir");
+        }
+
+        @Test
+        void jarFile(@TempDir Path tempDir) throws IOException {
+            final Path jar = tempDir.resolve("migrations with space.jar");
+            try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+                for (String name : new String[]{"es/", "es/migration/", "es/migration/V1__a.http", "es/migration/sub/V2__b b.http",
+                        "es/migration/V3__empty.http", "es/migration/readme.txt", "es/migration/M.class",
+                        "es/migration/package-info.class", "es/other/V4__c.http"}) {
+                    out.putNextEntry(new JarEntry(name));
+                    if (!name.endsWith("/") && !name.contains("empty")) {
+                        out.write(("content of " + name).getBytes(StandardCharsets.UTF_8));
+                    }
+                    out.closeEntry();
+                }
+            }
+
+            try (URLClassLoader classLoader = new URLClassLoader(new URL[]{jar.toUri().toURL()}, null)) {
+                final LightweightClassPathScanner.LocationScan res = LightweightClassPathScanner.scan(classLoader,
+                        "es/migration/", fileName -> fileName.startsWith("V") && fileName.endsWith(".http"), true).orElseThrow();
+
+                assertThat(res.resources())
+                        .extracting(LightweightClassPathScanner.Entry::relativePath)
+                        .containsExactly("V1__a.http", "sub/V2__b b.http");
+                assertThat(res.resources()).allSatisfy(entry -> {
+                    assertThat(entry.file()).isNull();
+                    try (InputStream inputStream = entry.url().openStream()) {
+                        assertThat(new String(inputStream.readAllBytes(), StandardCharsets.UTF_8))
+                                .isEqualTo("content of es/migration/" + entry.relativePath());
+                    }
+                });
+                assertThat(res.classes())
+                        .extracting(entry -> entry.className("es/migration/"))
+                        .containsExactly("es.migration.M");
+            }
+        }
+
+        @Test
+        void notFound_isEmpty() throws IOException {
+            assertThat(LightweightClassPathScanner.scan(CLASS_LOADER, "scriptreader/not_existing/", fileName -> true, true))
+                    .isEmpty();
+        }
+
+        @Test
+        void unsupportedProtocol_isEmpty() throws IOException {
+            final ClassLoader classLoader = new ClassLoader(null) {
+                @Override
+                public Enumeration<URL> getResources(String name) throws IOException {
+                    return Collections.enumeration(Collections.singletonList(new URL("http://localhost/" + name)));
+                }
+            };
+
+            assertThat(LightweightClassPathScanner.scan(classLoader, "es/migration/", fileName -> true, true))
+                    .isEmpty();
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.senacor.elasticsearch.evolution.core.internal.migration.input;
+
+import com.senacor.elasticsearch.evolution.core.api.MigrationException;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.ContentChecksums;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.ScriptMigrationContent;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MigrationBundleReaderTest {
+
+    private static final String LARGE = "PUT /large\n" + "x".repeat(MigrationBundleReader.KEEP_THRESHOLD) + "\n";
+
+    private final ScriptContentLoader contentLoader = new ScriptContentLoader(StandardCharsets.UTF_8, "\n", true);
+    private final MigrationBundleReader underTest = new MigrationBundleReader(contentLoader,
+            fileName -> fileName.startsWith("V") && fileName.endsWith(".http"));
+
+    @Nested
+    class read {
+
+        @ParameterizedTest
+        @ValueSource(strings = {"migrations.zip", "migrations.jar", "migrations.tar", "migrations.tar.gz", "migrations.tgz"})
+        void allFormats(String bundleName, @TempDir Path tempDir) throws IOException {
+            final Map<String, String> entries = new LinkedHashMap<>();
+            entries.put("es/", null);
+            entries.put("es/migration/V1__first.http", "PUT /first\r\n");
+            entries.put("es/migration/readme.txt", "not a migration");
+            entries.put("es/migration/V2__empty.http", "");
+            entries.put("es/migration/sub/V3__äöü.http", "PUT /äöü\n");
+            entries.put("es/migration/V4__large.http", LARGE);
+            final Path bundle = write(tempDir.resolve(bundleName), entries);
+
+            final List<MigrationBundleReader.BundleEntry> res = underTest.read(bundle);
+
+            assertThat(res)
+                    .extracting(MigrationBundleReader.BundleEntry::path)
+                    .containsExactly("es/migration/V1__first.http", "es/migration/sub/V3__äöü.http", "es/migration/V4__large.http");
+            assertThat(res)
+                    .extracting(MigrationBundleReader.BundleEntry::fileName)
+                    .containsExactly("V1__first.http", "V3__äöü.http", "V4__large.http");
+            assertThat(res.get(2).bytes()).as("large entries are not kept").isNull();
+            for (MigrationBundleReader.BundleEntry entry : res) {
+                final ScriptMigrationContent content = underTest.load(bundle, entry).orElseThrow();
+                final String raw = entries.get(entry.path());
+                assertThat(content).isEqualTo(contentLoader.load(raw.getBytes(StandardCharsets.UTF_8)).orElseThrow());
+                assertThat(entry.checksums()).isEqualTo(new ContentChecksums(content.checksum(), content.contentChecksum()));
+            }
+        }
+
+        @Test
+        void tarWithLongPaths(@TempDir Path tempDir) throws IOException {
+            final String ustarPath = "es/" + "u".repeat(120) + "/V1__ustar.http";
+            final String gnuPath = "es/" + "g".repeat(200) + "/V2__gnu.http";
+            final String paxPath = "es/" + "p".repeat(200) + "/V3__pax.http";
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            writeTarEntry(out, ustarPath, "ustar".getBytes(StandardCharsets.UTF_8), '0');
+            writeTarEntry(out, "././@LongLink", (gnuPath + "\0").getBytes(StandardCharsets.UTF_8), 'L');
+            writeTarEntry(out, gnuPath.substring(0, 99), "gnu".getBytes(StandardCharsets.UTF_8), '0');
+            final String paxRecord = " path=" + paxPath + "\n";
+            final int length = paxRecord.length() + Integer.toString(paxRecord.length() + 3).length();
+            writeTarEntry(out, "PaxHeaders/V3", (length + paxRecord).getBytes(StandardCharsets.UTF_8), 'x');
+            writeTarEntry(out, "V3__pax_truncated.http", "pax".getBytes(StandardCharsets.UTF_8), '0');
+            out.write(new byte[1024]);
+            final Path bundle = Files.write(tempDir.resolve("migrations.tar"), out.toByteArray());
+
+            assertThat(underTest.read(bundle))
+                    .extracting(MigrationBundleReader.BundleEntry::path)
+                    .containsExactly(ustarPath, gnuPath, paxPath);
+        }
+
+        @ParameterizedTest
+        @ValueSource(strings = {"migrations.zip", "migrations.tar.gz"})
+        void openEntry_streamsKeptAndLargeEntries(String bundleName, @TempDir Path tempDir) throws IOException {
+            final Path bundle = write(tempDir.resolve(bundleName), Map.of(
+                    "V1__small.http", "PUT /small\r\n",
+                    "V2__large.http", LARGE));
+
+            final List<MigrationBundleReader.BundleEntry> res = underTest.read(bundle);
+
+            assertThat(res).hasSize(2);
+            for (MigrationBundleReader.BundleEntry entry : res) {
+                try (InputStream content = underTest.openEntry(bundle, entry)) {
+                    assertThat(new String(content.readAllBytes(), StandardCharsets.UTF_8))
+                            .isEqualTo(entry.fileName().equals("V1__small.http") ? "PUT /small\r\n" : LARGE);
+                }
+            }
+        }
+
+        @Test
+        void unsupportedFormat(@TempDir Path tempDir) throws IOException {
+            final Path bundle = Files.writeString(tempDir.resolve("migrations.rar"), "");
+
+            assertThatThrownBy(() -> underTest.read(bundle))
+                    .isInstanceOf(MigrationException.class)
+                    .hasMessage("unsupported bundle format: %s, supported are .zip, .jar, .tar, .tar.gz and .tgz", bundle);
+        }
+    }
+
+    /**
+     * @param entries path to content, directories have null content
+     */
+    static Path write(Path bundle, Map<String, String> entries) throws IOException {
+        final String name = bundle.getFileName().toString();
+        try (OutputStream out = Files.newOutputStream(bundle)) {
+            if (name.endsWith(".zip") || name.endsWith(".jar")) {
+                try (ZipOutputStream zip = new ZipOutputStream(out)) {
+                    for (Map.Entry<String, String> entry : entries.entrySet()) {
+                        zip.putNextEntry(new ZipEntry(entry.getKey()));
+                        if (null != entry.getValue()) {
+                            zip.write(entry.getValue().getBytes(StandardCharsets.UTF_8));
+                        }
+                        zip.closeEntry();
+                    }
+                }
+            } else {
+                final ByteArrayOutputStream tar = new ByteArrayOutputStream();
+                for (Map.Entry<String, String> entry : entries.entrySet()) {
+                    if (null == entry.getValue()) {
+                        writeTarEntry(tar, entry.getKey(), new byte[0], '5');
+                    } else {
+                        writeTarEntry(tar, entry.getKey(), entry.getValue().getBytes(StandardCharsets.UTF_8), '0');
+                    }
+                }
+                tar.write(new byte[1024]);
+                if (name.endsWith(".tar")) {
+                    tar.writeTo(out);
+                } else {
+                    try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                        tar.writeTo(gzip);
+                    }
+                }
+            }
+        }
+        return bundle;
+    }
+
+    /**
+     * writes a ustar header, paths longer than 100 bytes are split into prefix and name
+     */
+    private static void writeTarEntry(ByteArrayOutputStream out, String path, byte[] content, char type) throws IOException {
+        final byte[] header = new byte[512];
+        final byte[] pathBytes = path.getBytes(StandardCharsets.UTF_8);
+        if (pathBytes.length > 100) {
+            final int split = path.lastIndexOf('/');
+            putString(header, 0, path.substring(split + 1));
+            putString(header, 345, path.substring(0, split));
+        } else {
+            putString(header, 0, path);
+        }
+        putString(header, 100, "0000644");
+        putString(header, 124, "%011o".formatted(content.length));
+        putString(header, 136, "%011o".formatted(0));
+        header[156] = (byte) type;
+        putString(header, 257, "ustar");
+        putString(header, 263, "00");
+        putString(header, 148, "        ");
+        int checksum = 0;
+        for (byte b : header) {
+            checksum += b & 0xFF;
+        }
+        putString(header, 148, "%06o".formatted(checksum));
+        out.write(header);
+        out.write(content);
+        out.write(new byte[(512 - content.length % 512) % 512]);
+    }
+
+    private static void putString(byte[] header, int offset, String value) {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(bytes, 0, header, offset, bytes.length);
+    }
+}
@@ -7,6 +7,7 @@ import com.senacor.elasticsearch.evolution.core.api.migration.java.JavaMigration
 import com.senacor.elasticsearch.evolution.core.api.migration.java.JavaMigrationMetadata;
 import com.senacor.elasticsearch.evolution.core.internal.model.FileNameInfo;
 import com.senacor.elasticsearch.evolution.core.internal.model.migration.*;
+import com.senacor.elasticsearch.evolution.core.internal.utils.ParallelMapper;
 import com.senacor.elasticsearch.evolution.rest.abstraction.HttpMethod;
 import org.assertj.core.util.Maps;
 import org.junit.jupiter.api.Nested;
@@ -16,7 +17,12 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static java.lang.System.lineSeparator;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -107,6 +113,18 @@ class MigrationScriptParserImplTest {
             });
         }
 
+        @Test
+        void derivedDescriptionIsEqualToExplicitDescription() {
+            String fileName = "V1_2__my_description_text.http";
+            FileNameInfo fileNameInfo = underTest.parseFileNameFromScriptMigration(fileName);
+            FileNameInfo explicit = new FileNameInfoImpl(MigrationVersion.fromVersion("1.2"), "my description text", fileName);
+
+            assertThat(fileNameInfo)
+                    .isEqualTo(explicit)
+                    .hasSameHashCodeAs(explicit)
+                    .hasToString(explicit.toString());
+        }
+
         @Test
         void notMatching_MajorVersionMustBeGreaterThan0() {
             String fileName = "V0.1__my_description text.http";
@@ -188,6 +206,219 @@ class MigrationScriptParserImplTest {
         }
     }
 
+    @Nested
+    class parseCollectionLazily {
+        private final MigrationScriptParser underTest = new MigrationScriptParserImpl(
+                "V",
+                Collections.singletonList(".http"),
+                null,
+                null,
+                null,
+                false,
+                "\n");
+
+        @Test
+        void contentIsLoadedAndParsedOnlyWhenMigrationRequestIsAccessed() {
+            final AtomicInteger loaded = new AtomicInteger();
+            final ScriptMigrationContent content = ScriptMigrationContent.lazy("V1__create.http", () -> {
+                loaded.incrementAndGet();
+                return new ScriptMigrationContent("PUT /my_index");
+            }).build();
+
+            final ParsedMigration<?> res = underTest.parse(List.of(new RawMigrationScript<>()
+                            .setFileName("V1__create.http")
+                            .setContent(content)))
+                    .iterator().next();
+
+            assertThat(res.getFileNameInfo().getVersion()).isEqualTo(MigrationVersion.fromVersion("1"));
+            assertThat(loaded).hasValue(0);
+            assertThat(res.getMigrationRequest())
+                    .isEqualTo(new MigrationScriptRequest().setHttpMethod(HttpMethod.PUT).setPath("/my_index"));
+            assertThat(res.getChecksum()).isEqualTo("PUT /my_index".hashCode());
+            assertThat(loaded).hasValue(1);
+        }
+
+        @Test
+        void knownChecksumDoesNotLoadContent() {
+            final ScriptMigrationContent content = ScriptMigrationContent.lazy("V1__create.http", () -> {
+                        throw new IllegalStateException("must not be loaded");
+                    })
+                    .checksum(42)
+                    .build();
+
+            final ParsedMigration<?> res = underTest.parse(List.of(new RawMigrationScript<>()
+                            .setFileName("V1__create.http")
+                            .setContent(content)))
+                    .iterator().next();
+
+            assertThat(res.getChecksum()).isEqualTo(42);
+            assertThat(content.isLoaded()).isFalse();
+        }
+
+        @Test
+        void streamableContentIsParsedWithStreamedBody() throws IOException {
+            final ScriptMigrationContent content = ScriptMigrationContent.lazy("V1__create.http", () -> {
+                        throw new IllegalStateException("must not be loaded");
+                    })
+                    .checksum(42)
+                    .contentChecksum(43L)
+                    .contentReaderOpener(() -> new StringReader("PUT /my_index\n\n{\n  \"a\": 1\n}"))
+                    .build();
+
+            final ParsedMigration<?> res = underTest.parse(List.of(new RawMigrationScript<>()
+                            .setFileName("V1__create.http")
+                            .setContent(content)))
+                    .iterator().next();
+
+            assertThat(res.getMigrationRequest()).isInstanceOfSatisfying(MigrationScriptRequest.class, request -> {
+                assertThat(request.getHttpMethod()).isEqualTo(HttpMethod.PUT);
+                assertThat(request.getPath()).isEqualTo("/my_index");
+                assertThat(request.getBody()).isEmpty();
+                assertThat(request.getStreamedBody()).isNotNull();
+            });
+            try (Reader body = ((MigrationScriptRequest) res.getMigrationRequest()).getStreamedBody().open()) {
+                final StringWriter read = new StringWriter();
+                body.transferTo(read);
+                assertThat(read).hasToString("{\n  \"a\": 1\n}");
+            }
+            assertThat(content.isLoaded()).isFalse();
+        }
+
+        @Test
+        void contentIsReleasedAfterParsingAndLoadedAgainIfNeeded() {
+            final AtomicInteger loaded = new AtomicInteger();
+            final ScriptMigrationContent content = ScriptMigrationContent.lazy("V1__create.http", () -> {
+                loaded.incrementAndGet();
+                return new ScriptMigrationContent("PUT /my_index");
+            }).build();
+
+            final ParsedMigration<?> res = underTest.parse(List.of(new RawMigrationScript<>()
+                            .setFileName("V1__create.http")
+                            .setContent(content)))
+                    .iterator().next();
+
+            assertThat(res.getMigrationRequest()).isNotNull();
+            assertThat(content.isLoaded()).isFalse();
+            assertThat(res.getChecksum()).isEqualTo("PUT /my_index".hashCode());
+            assertThat(loaded).hasValue(1);
+
+            assertThat(content.content()).isEqualTo("PUT /my_index");
+            assertThat(loaded).hasValue(2);
+        }
+
+        @Test
+        void equalHeadersAreShared() {
+            final List<ParsedMigration<?>> res = new ArrayList<>(underTest.parse(List.of(
+                    new RawMigrationScript<>()
+                            .setFileName("V1__create.http")
+                            .setContent(ScriptMigrationContent.lazy("V1__create.http",
+                                    () -> new ScriptMigrationContent("PUT /my_index\nContent-Type: application/json")).build()),
+                    new RawMigrationScript<>()
+                            .setFileName("V2__update.http")
+                            .setContent(ScriptMigrationContent.lazy("V2__update.http",
+                                    () -> new ScriptMigrationContent("PUT /my_index/_mapping\nContent-Type: application/json")).build()))));
+
+            final MigrationScriptRequest first = (MigrationScriptRequest) res.get(0).getMigrationRequest();
+            final MigrationScriptRequest second = (MigrationScriptRequest) res.get(1).getMigrationRequest();
+            assertThat(first.getHttpHeader())
+                    .containsExactly(Map.entry("Content-Type", "application/json"))
+                    .isSameAs(second.getHttpHeader());
+
+            first.addHttpHeader("X-Other", "value");
+            assertThat(second.getHttpHeader()).containsOnlyKeys("Content-Type");
+        }
+
+        @Test
+        void invalidContentFailsWhenMigrationRequestIsAccessed() {
+            final ParsedMigration<?> res = underTest.parse(List.of(new RawMigrationScript<>()
+                            .setFileName("V1__create.http")
+                            .setContent(new ScriptMigrationContent("/"))))
+                    .iterator().next();
+
+            assertThatThrownBy(res::getMigrationRequest)
+                    .isInstanceOf(MigrationException.class)
+                    .hasMessageStartingWith("can't parse method and path: '/'");
+        }
+    }
+
+    @Nested
+    class parseBulkMigration {
+        private final MigrationScriptParser underTest = new MigrationScriptParserImpl(
+                "V",
+                Collections.singletonList(".http"),
+                Map.of("index", "my_index"),
+                "${",
+                "}",
+                true,
+                "\n");
+
+        @Test
+        void contentIsNeitherLoadedNorParsed() {
+            final ScriptMigrationContent content = ScriptMigrationContent.lazy("V1.1__bulk_data.ndjson", () -> {
+                        throw new IllegalStateException("must not be loaded");
+                    })
+                    .checksum(42)
+                    .contentChecksum(43L)
+                    .readerOpener(() -> new StringReader("{\"index\":{\"_index\":\"${index}\"}}"))
+                    .build();
+
+            final ParsedMigration<?> res = underTest.parse(List.of(new RawMigrationScript<>()
+                            .setFileName("V1.1__bulk_data.ndjson")
+                            .setContent(content)))
+                    .iterator().next();
+
+            assertThat(res.getFileNameInfo().getVersion()).isEqualTo(MigrationVersion.fromVersion("1.1"));
+            assertThat(res.getFileNameInfo().getDescription()).isEqualTo("bulk data");
+            assertThat(res.getMigrationRequest()).isInstanceOfSatisfying(BulkMigrationRequest.class,
+                    request -> assertThat(request.content()).isSameAs(content));
+            assertThat(res.getChecksum()).isEqualTo(42);
+            assertThat(res.getContentChecksum()).isEqualTo(43L);
+            assertThat(content.isLoaded()).isFalse();
+        }
+    }
+
+    @Nested
+    class parseCollectionInParallel {
+        private final MigrationScriptParser underTest = new MigrationScriptParserImpl(
+                "V",
+                Collections.singletonList(".http"),
+                null,
+                null,
+                null,
+                false,
+                "\n",
+                new ParallelMapper(4, false));
+
+        @Test
+        void keepsOrderOfRawMigrations() {
+            final List<RawMigrationScript<?>> rawMigrations = new ArrayList<>();
+            for (int i = 100; i > 0; i--) {
+                rawMigrations.add(new RawMigrationScript<>()
+                        .setFileName("V" + i + "__create.http")
+                        .setContent(new ScriptMigrationContent("PUT /index_" + i)));
+            }
+
+            Collection<ParsedMigration<?>> res = underTest.parse(rawMigrations);
+
+            assertThat(res)
+                    .extracting(parsedMigration -> parsedMigration.getFileNameInfo().getScriptName())
+                    .containsExactlyElementsOf(rawMigrations.stream().map(RawMigrationScript::getFileName).toList());
+        }
+
+        @Test
+        void failsWithSameExceptionAsSequentialParsing() {
+            assertThatThrownBy(() -> underTest.parse(List.of(
+                    new RawMigrationScript<>()
+                            .setFileName("V1__create.http")
+                            .setContent(new ScriptMigrationContent("PUT /")),
+                    new RawMigrationScript<>()
+                            .setFileName("V2_create.http")
+                            .setContent(new ScriptMigrationContent("PUT /")))))
+                    .isInstanceOf(MigrationException.class)
+                    .hasMessageStartingWith("Description in migration filename is required: 'V2_create.http'");
+        }
+    }
+
     @Nested
     class parseSingle {
         private final MigrationScriptParserImpl underTest = new MigrationScriptParserImpl(
@@ -528,6 +759,225 @@ class MigrationScriptParserImplTest {
                     .as("FileNameInfo")
                     .isEqualTo(new FileNameInfoImpl(metadata.version(), metadata.description(), fileName));
         }
+
+        @Test
+        void should_ParseLazyJavaMigration_withoutInstantiating() {
+            final JavaMigrationMetadata metadata = new JavaMigrationMetadata(MigrationVersion.fromVersion("3.1"), "my description");
+            final JavaMigrationRequestContent content = JavaMigrationRequestContent.lazy("my.Migration", metadata, 42,
+                    () -> {
+                        throw new IllegalStateException("must not be instantiated");
+                    });
+            final String fileName = "Migration";
+
+            final ParsedMigration<?> res = underTest.parse(new RawMigrationScript<JavaMigrationRequestContent>()
+                    .setFileName(fileName)
+                    .setContent(content));
+
+            assertThat(res.getMigrationRequest())
+                    .as("MigrationRequest")
+                    .isSameAs(content);
+            assertThat(res.getChecksum())
+                    .as("Checksum")
+                    .isEqualTo(42);
+            assertThat(res.getFileNameInfo())
+                    .as("FileNameInfo")
+                    .isEqualTo(new FileNameInfoImpl(metadata.version(), metadata.description(), fileName));
+            assertThat(content.isInstantiated())
+                    .as("instantiated")
+                    .isFalse();
+        }
+    }
+
+    @Nested
+    class parseSeveralRequests {
+        private final MigrationScriptParserImpl underTest = new MigrationScriptParserImpl(
+                "V",
+                Collections.singletonList(".http"),
+                Map.of("index", "my_index"),
+                "${",
+                "}",
+                true,
+                "\n");
+
+        @Test
+        void success_requestsInKibanaConsoleStyle() {
+            final String content = """
+                    # first request
+                    PUT /${index}
+                    Content-Type: application/json
+
+                    {
+                      "settings": {}
+                    }
+
+                    DELETE /old_index
+                    POST /${index}/_doc/1
+
+                    {"a": 1}
+                    // comment
+                    PUT /${index}/_mapping
+
+                    {
+                      "properties": {}
+                    }
+                    """;
+
+            final MigrationRequest res = parse(content);
+
+            assertThat(res).isEqualTo(new MigrationScriptRequests(List.of(
+                    new MigrationScriptRequest()
+                            .setHttpMethod(HttpMethod.PUT)
+                            .setPath("/my_index")
+                            .addHttpHeader("Content-Type", "application/json")
+                            .setBody("{\n  \"settings\": {}\n}"),
+                    new MigrationScriptRequest()
+                            .setHttpMethod(HttpMethod.DELETE)
+                            .setPath("/old_index"),
+                    new MigrationScriptRequest()
+                            .setHttpMethod(HttpMethod.POST)
+                            .setPath("/my_index/_doc/1")
+                            .setBody("{\"a\": 1}"),
+                    new MigrationScriptRequest()
+                            .setHttpMethod(HttpMethod.PUT)
+                            .setPath("/my_index/_mapping")
+                            .setBody("{\n  \"properties\": {}\n}\n"))));
+        }
+
+        @Test
+        void success_indentedOrLowerCaseMethodInBodyDoesNotStartRequest() {
+            final String content = "POST /_bulk\n\n PUT /a\nput /b\nPUTS /c\nGET\n";
+
+            final MigrationRequest res = parse(content);
+
+            assertThat(res).isEqualTo(new MigrationScriptRequest()
+                    .setHttpMethod(HttpMethod.POST)
+                    .setPath("/_bulk")
+                    .setBody(" PUT /a\nput /b\nPUTS /c\nGET\n"));
+        }
+
+        @Test
+        void failed_invalidSecondRequest() {
+            assertThatThrownBy(() -> parse("DELETE /a\nPUT /b\nHeader value\n"))
+                    .isInstanceOf(MigrationException.class)
+                    .hasMessage("can't parse header: 'Header value'. Header must be separated by ':' and should look like this: 'Content-Type: application/json'");
+        }
+
+        private MigrationRequest parse(String content) {
+            return underTest.parse(new RawMigrationScript<ScriptMigrationContent>()
+                            .setFileName("V1__several.http")
+                            .setContent(new ScriptMigrationContent(content)))
+                    .getMigrationRequest();
+        }
+    }
+
+    @Nested
+    class parseSinglePass {
+
+        @Test
+        void sameResultAsLineSplittingParser_forEdgeCases() {
+            for (String lineSeparator : List.of("\n", "\r\n", "XY")) {
+                for (String content : List.of(
+                        "PUT /index",
+                        "PUT  \t/index \t",
+                        "  # comment%1$s // comment%1$sPOST /a b%1$sH1: v1%1$s H2 = v2 : x %1$s:empty%1$skey:%1$s%1$sbody",
+                        "PUT /%1$s%1$s%1$s%1$s  %1$s{%1$s# comment%1$s%1$s\"a\": 1%1$s// comment%1$s// comment%1$s}%1$s%1$s",
+                        "PUT /%1$sContent-Type: application/json%1$s \t %1$s{}%1$s#",
+                        "DELETE /index%1$s%1$s",
+                        "GET /%1$s%1$s#%1$s%1$s",
+                        "PUT /%1$s%1$s/%1$s/ /%1$s#")) {
+                    assertSameResult(content.formatted(lineSeparator), lineSeparator);
+                }
+            }
+        }
+
+        @Test
+        void sameResultAsLineSplittingParser_forRandomContent() {
+            final Random random = new Random(42);
+            final String[] parts = {"\n", "\n", "\n", " ", "\t", "#", "/", "//", ":", "=", "a", "b", "{", "}", "\"x\""};
+            for (int i = 0; i < 10_000; i++) {
+                final StringBuilder content = new StringBuilder("PUT /index\n");
+                final int length = random.nextInt(30);
+                for (int j = 0; j < length; j++) {
+                    content.append(parts[random.nextInt(parts.length)]);
+                }
+                assertSameResult(content.toString(), "\n");
+            }
+        }
+
+        @Test
+        void failsLikeLineSplittingParser() {
+            assertThatThrownBy(() -> parse("\n# comment\nPUT /", "\n"))
+                    .isInstanceOf(MigrationException.class)
+                    .hasMessage("can't parse method and path: ''. Method and path must be separated by space and should look like this: 'PUT /my_index'");
+            assertThatThrownBy(() -> parse("PUT\t/index", "\n"))
+                    .isInstanceOf(MigrationException.class)
+                    .hasMessage("can't parse method and path: 'PUT\t/index'. Method and path must be separated by space and should look like this: 'PUT /my_index'");
+            assertThatThrownBy(() -> parse("PUT /index\n  Header value \n\n{}", "\n"))
+                    .isInstanceOf(MigrationException.class)
+                    .hasMessage("can't parse header: '  Header value '. Header must be separated by ':' and should look like this: 'Content-Type: application/json'");
+        }
+
+        private void assertSameResult(String content, String lineSeparator) {
+            final MigrationScriptRequest expected;
+            try {
+                expected = parseBySplittingLines(content, lineSeparator);
+            } catch (RuntimeException e) {
+                assertThatThrownBy(() -> parse(content, lineSeparator))
+                        .as(content)
+                        .isInstanceOf(e.getClass())
+                        .hasMessage(e.getMessage());
+                return;
+            }
+            assertThat(parse(content, lineSeparator))
+                    .as(content)
+                    .isEqualTo(expected);
+        }
+
+        private MigrationRequest parse(String content, String lineSeparator) {
+            return new MigrationScriptParserImpl("V", List.of(".http"), Map.of(), "${", "}", false, lineSeparator)
+                    .parse(new RawMigrationScript<ScriptMigrationContent>()
+                            .setFileName("V1__test.http")
+                            .setContent(new ScriptMigrationContent(content)))
+                    .getMigrationRequest();
+        }
+
+        /**
+         * the previous implementation, which splits the content into lines
+         */
+        private MigrationScriptRequest parseBySplittingLines(String content, String lineSeparator) {
+            final MigrationScriptRequest res = new MigrationScriptRequest();
+            int state = 0;
+            for (String line : content.split(lineSeparator, -1)) {
+                if (!line.trim().startsWith("#") && !line.trim().startsWith("//")) {
+                    if (state == 0) {
+                        String[] methodAndPath = line.trim().split(" +", 2);
+                        if (methodAndPath.length != 2) {
+                            throw new MigrationException(
+                                    "can't parse method and path: '%s'. Method and path must be separated by space and should look like this: 'PUT /my_index'".formatted(line));
+                        }
+                        res.setHttpMethod(HttpMethod.create(methodAndPath[0])).setPath(methodAndPath[1].trim());
+                        state = 1;
+                    } else if (state == 1) {
+                        if (line.trim().isEmpty()) {
+                            state = 2;
+                        } else {
+                            String[] header = line.trim().split("[:=]", 2);
+                            if (header.length != 2) {
+                                throw new MigrationException(
+                                        "can't parse header: '%s'. Header must be separated by ':' and should look like this: 'Content-Type: application/json'".formatted(line));
+                            }
+                            res.addHttpHeader(header[0].trim(), header[1].trim());
+                        }
+                    } else {
+                        if (!res.isBodyEmpty()) {
+                            res.addToBody(lineSeparator);
+                        }
+                        res.addToBody(line);
+                    }
+                }
+            }
+            return res;
+        }
     }
 
     private String createDefaultContent() {
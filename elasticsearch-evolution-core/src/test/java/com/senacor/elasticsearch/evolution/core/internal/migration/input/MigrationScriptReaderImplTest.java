@@ -4,25 +4,38 @@ import com.senacor.elasticsearch.evolution.core.api.MigrationException;
 import com.senacor.elasticsearch.evolution.core.api.config.ElasticsearchEvolutionConfigImpl;
 import com.senacor.elasticsearch.evolution.core.api.migration.MigrationVersion;
 import com.senacor.elasticsearch.evolution.core.api.migration.java.JavaMigrationMetadata;
+import com.senacor.elasticsearch.evolution.core.internal.migration.input.testjavamigrations.annotated.AnnotatedFailingInstantiation;
 import com.senacor.elasticsearch.evolution.core.internal.migration.input.testjavamigrations.direct.V1_2__Valid_Filename;
 import com.senacor.elasticsearch.evolution.core.internal.migration.input.testjavamigrations.nodefaultconstructor.V1_2__NoDefaultConstructor;
 import com.senacor.elasticsearch.evolution.core.internal.model.migration.JavaMigrationRequestContent;
 import com.senacor.elasticsearch.evolution.core.internal.model.migration.RawMigrationScript;
 import com.senacor.elasticsearch.evolution.core.internal.model.migration.ScriptMigrationContent;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.Reader;
 import java.io.StringReader;
+import java.io.StringWriter;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.net.URLClassLoader;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
 import java.util.stream.Stream;
 
 import static java.util.Collections.singletonList;
@@ -167,6 +180,49 @@ class MigrationScriptReaderImplTest {
         }
     }
 
+    @Nested
+    class lazyJavaMigrations {
+
+        @Test
+        void annotatedJavaMigrationIsNotInstantiatedWhileReading_fromClassPath() {
+            MigrationScriptReaderImpl underTest = new MigrationScriptReaderImpl(config
+                    .setLocations(singletonList("classpath:com/senacor/elasticsearch/evolution/core/internal/migration/input/testjavamigrations/annotated")));
+
+            final List<RawMigrationScript<?>> res = underTest.read();
+
+            assertThat(res)
+                    .hasSize(1)
+                    .allSatisfy(rawMigrationScript -> assertAnnotatedFailingInstantiation(rawMigrationScript));
+        }
+
+        @Test
+        void annotatedJavaMigrationIsNotInstantiatedWhileReading_fromClassProvider() {
+            MigrationScriptReaderImpl underTest = new MigrationScriptReaderImpl(config
+                    .setLocations(singletonList("classpath:unknown"))
+                    .setJavaMigrationClassProvider(cfg -> List.of(AnnotatedFailingInstantiation.class)));
+
+            final List<RawMigrationScript<?>> res = underTest.read();
+
+            assertThat(res)
+                    .hasSize(1)
+                    .allSatisfy(rawMigrationScript -> assertAnnotatedFailingInstantiation(rawMigrationScript));
+        }
+
+        private void assertAnnotatedFailingInstantiation(RawMigrationScript<?> rawMigrationScript) {
+            assertThat(rawMigrationScript.getFileName()).isEqualTo("AnnotatedFailingInstantiation");
+            assertThat(rawMigrationScript.getContent()).isInstanceOf(JavaMigrationRequestContent.class);
+            JavaMigrationRequestContent content = (JavaMigrationRequestContent) rawMigrationScript.getContent();
+            assertThat(content.isInstantiated()).isFalse();
+            assertThat(content.metadata())
+                    .isEqualTo(new JavaMigrationMetadata(MigrationVersion.fromVersion("1.5"), "Annotated failing instantiation"));
+            assertThat(content.checksum()).isEqualTo(7);
+
+            assertThatCode(content::javaMigration)
+                    .isInstanceOf(MigrationException.class)
+                    .hasMessage("Couldn't create instance of JavaMigration: %s", AnnotatedFailingInstantiation.class.getName());
+        }
+    }
+
     @Nested
     class readResources {
         @Nested
@@ -325,7 +381,8 @@ class MigrationScriptReaderImplTest {
                         .isInstanceOf(MigrationException.class)
                         .hasMessage("""
                                 could not read location path http:scriptreader, should look like this: \
-                                classpath:es/migration or this: file:/home/scripts/migration\
+                                classpath:es/migration or this: file:/home/scripts/migration \
+                                or this: bundle:/home/scripts/migrations.tar.gz\
                                 """);
             }
         }
@@ -431,6 +488,481 @@ class MigrationScriptReaderImplTest {
         }
     }
 
+    @Nested
+    class fromBundle {
+        @Test
+        void readsValidEntriesLazily(@TempDir Path tempDir) throws IOException {
+            final Map<String, String> entries = new LinkedHashMap<>();
+            entries.put("es/migration/V1__first.http", "PUT /first\n");
+            entries.put("es/migration/sub/V2__second.http", "PUT /second\n");
+            entries.put("es/migration/other.txt", "ignored");
+            final Path bundle = MigrationBundleReaderTest.write(tempDir.resolve("migrations.tar.gz"), entries);
+
+            final List<RawMigrationScript<?>> res = new MigrationScriptReaderImpl(config
+                    .setLocations(singletonList("bundle:" + bundle))
+                    .setEsMigrationSuffixes(singletonList(".http")))
+                    .read();
+
+            assertThat(res)
+                    .extracting(RawMigrationScript::getFileName)
+                    .containsExactly("V1__first.http", "V2__second.http");
+            assertThat(res).allSatisfy(script -> assertThat(((ScriptMigrationContent) script.getContent()).isLoaded())
+                    .as("content is decoded on first access")
+                    .isFalse());
+            assertThat(res.get(1).getContent())
+                    .isEqualTo(new ScriptMigrationContent("PUT /second\n"));
+        }
+
+        @Test
+        void fingerprintChangesWithBundle(@TempDir Path tempDir) throws IOException {
+            final Path bundle = MigrationBundleReaderTest.write(tempDir.resolve("migrations.zip"),
+                    Map.of("V1__first.http", "PUT /first"));
+            final MigrationScriptReaderImpl underTest = new MigrationScriptReaderImpl(config
+                    .setLocations(singletonList("bundle:" + bundle)));
+            final String before = underTest.fingerprint();
+
+            MigrationBundleReaderTest.write(bundle, Map.of("V1__first.http", "PUT /first", "V2__second.http", "PUT /second"));
+
+            assertThat(underTest.fingerprint()).isNotEqualTo(before);
+        }
+
+        @Test
+        void notExistingBundle(@TempDir Path tempDir) {
+            final String location = "bundle:" + tempDir.resolve("missing.zip");
+            final MigrationScriptReaderImpl underTest = new MigrationScriptReaderImpl(config
+                    .setLocations(singletonList(location)));
+
+            assertThatThrownBy(underTest::read)
+                    .isInstanceOf(MigrationException.class)
+                    .hasMessage("couldn't read migrations from " + location);
+        }
+    }
+
+    @Nested
+    class readInParallel {
+        @Test
+        void returnsSameMigrationsInSameOrderAsSequentialReading() throws URISyntaxException {
+            String absolutePathToScriptreader = Paths.get(resolveURL("scriptreader").toURI()).toFile().getAbsolutePath();
+            config.setLocations(Arrays.asList(
+                            "classpath:scriptreader",
+                            "file:" + absolutePathToScriptreader))
+                    .setEsMigrationPrefix("c")
+                    .setEsMigrationSuffixes(List.of(".http", ".other"));
+            final List<String> sequential = fileNames(new MigrationScriptReaderImpl(config).read());
+
+            final List<String> parallel = fileNames(new MigrationScriptReaderImpl(config.setReadParallelism(4)).read());
+            final List<String> virtual = fileNames(new MigrationScriptReaderImpl(config.setReadVirtualThreads(true)).read());
+
+            assertThat(sequential).hasSize(3);
+            assertThat(parallel).containsExactlyElementsOf(sequential);
+            assertThat(virtual).containsExactlyElementsOf(sequential);
+        }
+
+        @Test
+        void failsWithSameExceptionAsSequentialReading() {
+            final MigrationScriptReaderImpl underTest = new MigrationScriptReaderImpl(config
+                    .setLocations(singletonList("classpath:com/senacor/elasticsearch/evolution/core/internal/migration/input/testjavamigrations/instantiationfailed"))
+                    .setReadParallelism(4));
+
+            assertThatCode(underTest::read)
+                    .isInstanceOf(MigrationException.class)
+                    .hasMessage("Couldn't create instance of JavaMigration: com.senacor.elasticsearch.evolution.core.internal.migration.input.testjavamigrations.instantiationfailed.V1_2__Failing_instantiation");
+        }
+
+        private List<String> fileNames(List<RawMigrationScript<?>> rawMigrationScripts) {
+            return rawMigrationScripts.stream()
+                    .map(script -> script.getFileName() + ":" + script.getContent().checksum())
+                    .toList();
+        }
+    }
+
+    @Nested
+    class sharedClasspathScan {
+        @AfterEach
+        void tearDown() {
+            ClassPathScanner.clearSharedScans();
+        }
+
+        @Test
+        void readersWithSharedScanReturnSameMigrationsAsWithoutSharedScan() {
+            config.setLocations(Arrays.asList(
+                            "classpath:scriptreader/issue36/location",
+                            "classpath:scriptreader/sub",
+                            "classpath:com/senacor/elasticsearch/evolution/core/internal/migration/input/testjavamigrations/direct"))
+                    .setEsMigrationPrefix("");
+            config.setLightweightClasspathScan(false);
+            final List<String> notShared = fileNames(new MigrationScriptReaderImpl(config).read());
+
+            config.setShareClasspathScan(true);
+            final List<String> firstShared = fileNames(new MigrationScriptReaderImpl(config).read());
+            final List<String> secondShared = fileNames(new MigrationScriptReaderImpl(config.setReadParallelism(4)).read());
+
+            assertThat(notShared)
+                    .extracting(fileName -> fileName.substring(0, fileName.indexOf(':')))
+                    .containsExactlyInAnyOrder("content.http", "content_sub.http", "sub.http", "V1_2__Valid_Filename");
+            assertThat(firstShared).containsExactlyElementsOf(notShared);
+            assertThat(secondShared).containsExactlyElementsOf(notShared);
+        }
+
+        private List<String> fileNames(List<RawMigrationScript<?>> rawMigrationScripts) {
+            return rawMigrationScripts.stream()
+                    .map(script -> script.getFileName() + ":" + script.getContent().checksum())
+                    .toList();
+        }
+    }
+
+    @Nested
+    class lightweightClasspathScan {
+        @Test
+        void returnsSameMigrationsAsClassGraphScan() {
+            config.setLocations(Arrays.asList(
+                            "classpath:scriptreader",
+                            "classpath:com/senacor/elasticsearch/evolution/core/internal/migration/input/testjavamigrations/direct",
+                            "classpath:com/senacor/elasticsearch/evolution/core/internal/migration/input/testjavamigrations/withsubdir",
+                            "classpath:com/senacor/elasticsearch/evolution/core/internal/migration/input/testjavamigrations/annotated"))
+                    .setEsMigrationPrefix("")
+                    .setEsMigrationSuffixes(Arrays.asList(".http", ".other"));
+
+            final List<RawMigrationScript<?>> lightweight = new MigrationScriptReaderImpl(config).read();
+            final List<RawMigrationScript<?>> classGraph = new MigrationScriptReaderImpl(config.setLightweightClasspathScan(false)).read();
+
+            assertThat(fileNames(lightweight))
+                    .contains("content.http", "content_sub.http", "content.other", "V1_2__Valid_Filename",
+                            "V1_4__Valid_Filename_in_subdir", "AnnotatedFailingInstantiation")
+                    .containsExactlyInAnyOrderElementsOf(fileNames(classGraph));
+        }
+
+        @Test
+        void inJarFile() {
+            config.setLocations(singletonList("classpath:META-INF"))
+                    .setEsMigrationPrefix("MANIFEST")
+                    .setEsMigrationSuffixes(singletonList(".MF"));
+
+            final List<RawMigrationScript<?>> lightweight = new MigrationScriptReaderImpl(config).read();
+            final List<RawMigrationScript<?>> classGraph = new MigrationScriptReaderImpl(config.setLightweightClasspathScan(false)).read();
+
+            // ClassGraph ignores some jar files the classloader provides, e.g. those of the surefire booter
+            assertThat(lightweight).isNotEmpty()
+                    .containsAll(classGraph);
+        }
+
+        @Test
+        void notFoundLocationFallsBackToClassGraphScan() {
+            final MigrationScriptReaderImpl underTest = new MigrationScriptReaderImpl(config
+                    .setLocations(singletonList("classpath:scriptreader/not_existing")));
+
+            assertThat(underTest.read()).isEmpty();
+        }
+
+        @Test
+        void fingerprintIsStable() {
+            config.setLocations(Arrays.asList(
+                            "classpath:scriptreader",
+                            "classpath:com/senacor/elasticsearch/evolution/core/internal/migration/input/testjavamigrations/direct"))
+                    .setEsMigrationPrefix("c");
+
+            assertThat(new MigrationScriptReaderImpl(config).fingerprint())
+                    .hasSize(64)
+                    .isEqualTo(new MigrationScriptReaderImpl(config).fingerprint());
+        }
+
+        private List<String> fileNames(List<RawMigrationScript<?>> rawMigrationScripts) {
+            return rawMigrationScripts.stream()
+                    .map(RawMigrationScript::getFileName)
+                    .toList();
+        }
+    }
+
+    @Nested
+    class lazyContent {
+        @Test
+        void contentIsNotLoadedWhileReading() throws URISyntaxException {
+            String absolutePathToScriptreader = Paths.get(resolveURL("scriptreader").toURI()).toFile().getAbsolutePath();
+            final List<RawMigrationScript<?>> res = new MigrationScriptReaderImpl(config
+                    .setLocations(Arrays.asList(
+                            "classpath:scriptreader_manifest",
+                            "classpath:scriptreader/sub",
+                            "file:" + absolutePathToScriptreader + "/issue36/location"))
+                    .setEsMigrationPrefix(""))
+                    .read();
+
+            assertThat(res)
+                    .extracting(RawMigrationScript::getFileName)
+                    .containsExactlyInAnyOrder("V1__from_manifest.http", "V2__sub.http", "V1_2__Valid_Filename", "content_sub.http", "sub.http", "content.http");
+            assertThat(res)
+                    .extracting(RawMigrationScript::getContent)
+                    .filteredOn(ScriptMigrationContent.class::isInstance)
+                    .hasSize(5)
+                    .allSatisfy(content -> assertThat(((ScriptMigrationContent) content).isLoaded()).isFalse());
+            assertThat(res)
+                    .filteredOn(script -> script.getFileName().endsWith("__from_manifest.http") || script.getFileName().equals("V2__sub.http"))
+                    .allSatisfy(script -> {
+                        // checksums computed while streaming the content
+                        assertThat(script.getContent().checksum()).isIn("PUT /from_manifest".hashCode(), "PUT /sub".hashCode());
+                        assertThat(((ScriptMigrationContent) script.getContent()).isLoaded()).isFalse();
+                    });
+        }
+
+        @Test
+        void contentIsLoadedOnFirstAccess(@TempDir Path tempDir) throws IOException {
+            final Path script = Files.writeString(tempDir.resolve("V1__first.http"), "PUT /first\r\n");
+            final List<RawMigrationScript<?>> res = new MigrationScriptReaderImpl(config
+                    .setLocations(singletonList("file:" + tempDir)))
+                    .read();
+            Files.writeString(script, "PUT /changed\r\n");
+
+            assertThat(res).hasSize(1);
+            final ScriptMigrationContent content = (ScriptMigrationContent) res.get(0).getContent();
+            assertThat(content.content()).isEqualTo("PUT /changed\n");
+            assertThat(content.isLoaded()).isTrue();
+        }
+
+        @Test
+        void bulkDataIsIgnoredIfSuffixIsNotConfigured(@TempDir Path tempDir) throws IOException {
+            Files.writeString(tempDir.resolve("V1__data.ndjson"), "{\"index\":{}}\n{\"field\":1}\n");
+            Files.writeString(tempDir.resolve("V2__index.http"), "PUT /my_index");
+            final List<RawMigrationScript<?>> res = new MigrationScriptReaderImpl(config
+                    .setLocations(singletonList("file:" + tempDir))
+                    .setEsMigrationSuffixes(singletonList(".http")))
+                    .read();
+
+            assertThat(res).extracting(RawMigrationScript::getFileName).containsExactly("V2__index.http");
+        }
+
+        @Test
+        void bulkDataIsStreamedWithoutLoading(@TempDir Path tempDir) throws IOException {
+            final String data = "{\"index\":{}}\r\n{\"field\":\"ä\"}\r\n";
+            Files.writeString(tempDir.resolve("V1__data.ndjson"), data);
+            final List<RawMigrationScript<?>> res = new MigrationScriptReaderImpl(config
+                    .setLocations(singletonList("file:" + tempDir))
+                    .setEsMigrationSuffixes(List.of(".http", ".ndjson")))
+                    .read();
+
+            assertThat(res).extracting(RawMigrationScript::getFileName).containsExactly("V1__data.ndjson");
+            final ScriptMigrationContent content = (ScriptMigrationContent) res.get(0).getContent();
+            final StringWriter read = new StringWriter();
+            try (Reader reader = content.openReader()) {
+                reader.transferTo(read);
+            }
+            assertThat(read).hasToString(data);
+            assertThat(content.checksum()).isEqualTo(new ScriptMigrationContent(data.replace("\r\n", "\n")).checksum());
+            assertThat(content.isLoaded()).isFalse();
+        }
+
+        @Test
+        void largeScriptIsStreamable(@TempDir Path tempDir) throws IOException {
+            Files.writeString(tempDir.resolve("V1__small.http"), "PUT /small\r\n\r\n{}");
+            Files.writeString(tempDir.resolve("V2__large.http"), "PUT /large\r\n\r\n{\r\n\"a\": 1\r\n}\r\n");
+            final List<RawMigrationScript<?>> res = new MigrationScriptReaderImpl(config
+                    .setLocations(singletonList("file:" + tempDir))
+                    .setStreamBodyThreshold(20))
+                    .read();
+
+            assertThat(res).extracting(RawMigrationScript::getFileName).containsExactly("V1__small.http", "V2__large.http");
+            assertThat(((ScriptMigrationContent) res.get(0).getContent()).isStreamable()).isFalse();
+            final ScriptMigrationContent content = (ScriptMigrationContent) res.get(1).getContent();
+            assertThat(content.isStreamable()).isTrue();
+            final StringWriter read = new StringWriter();
+            try (Reader reader = content.openContentReader()) {
+                reader.transferTo(read);
+            }
+            assertThat(read).hasToString("PUT /large\n\n{\n\"a\": 1\n}\n");
+            assertThat(content.isLoaded()).isFalse();
+        }
+
+        @Test
+        void duplicatesAreRemovedWithoutLoadingContent(@TempDir Path tempDir) throws IOException {
+            Files.writeString(tempDir.resolve("V1__first.http"), "PUT /first");
+            final List<RawMigrationScript<?>> res = new MigrationScriptReaderImpl(config
+                    .setLocations(List.of("file:" + tempDir, "file:" + tempDir)))
+                    .read();
+
+            assertThat(res).extracting(RawMigrationScript::getFileName).containsExactly("V1__first.http");
+            assertThat(((ScriptMigrationContent) res.get(0).getContent()).isLoaded()).isFalse();
+        }
+
+        @Test
+        void deletedScriptFailsOnFirstAccess(@TempDir Path tempDir) throws IOException {
+            final Path script = Files.writeString(tempDir.resolve("V1__first.http"), "PUT /first");
+            final List<RawMigrationScript<?>> res = new MigrationScriptReaderImpl(config
+                    .setLocations(singletonList("file:" + tempDir)))
+                    .read();
+            Files.delete(script);
+
+            assertThatThrownBy(() -> res.get(0).getContent().checksum())
+                    .isInstanceOf(MigrationException.class)
+                    .hasMessage("can't read script from filesystem: V1__first.http");
+        }
+    }
+
+    @Nested
+    class fromManifest {
+        @Test
+        void readsOnlyScriptsAndJavaMigrationsListedInManifest() {
+            MigrationScriptReaderImpl underTest = new MigrationScriptReaderImpl(config
+                    .setLocations(singletonList("classpath:scriptreader_manifest")));
+
+            List<RawMigrationScript<?>> actual = underTest.read();
+
+            assertThat(actual)
+                    .extracting(RawMigrationScript::getFileName)
+                    .containsExactlyInAnyOrder("V1__from_manifest.http", "V2__sub.http", "V1_2__Valid_Filename");
+            assertThat(actual)
+                    .contains(new RawMigrationScript<ScriptMigrationContent>()
+                                    .setFileName("V1__from_manifest.http")
+                                    .setContent(new ScriptMigrationContent("PUT /from_manifest")),
+                            new RawMigrationScript<ScriptMigrationContent>()
+                                    .setFileName("V2__sub.http")
+                                    .setContent(new ScriptMigrationContent("PUT /sub")));
+        }
+
+        @Test
+        void ignoresJavaMigrationsWhenClassProviderIsSet() {
+            MigrationScriptReaderImpl underTest = new MigrationScriptReaderImpl(config
+                    .setLocations(singletonList("classpath:scriptreader_manifest"))
+                    .setJavaMigrationClassProvider(cfg -> List.of()));
+
+            List<RawMigrationScript<?>> actual = underTest.read();
+
+            assertThat(actual)
+                    .extracting(RawMigrationScript::getFileName)
+                    .containsExactlyInAnyOrder("V1__from_manifest.http", "V2__sub.http");
+        }
+
+        @Test
+        void failsWhenManifestIsStale() {
+            MigrationScriptReaderImpl underTest = new MigrationScriptReaderImpl(config
+                    .setLocations(singletonList("classpath:scriptreader_manifest_stale")));
+
+            assertThatThrownBy(underTest::read)
+                    .isInstanceOf(MigrationException.class)
+                    .hasMessageContaining("scripts not in the manifest=[V3__not_in_manifest.http]");
+            assertThatThrownBy(underTest::fingerprint)
+                    .isInstanceOf(MigrationException.class)
+                    .hasMessageContaining("is stale");
+        }
+
+        @Test
+        void fingerprintIsStable() {
+            config.setLocations(singletonList("classpath:scriptreader_manifest"));
+
+            assertThat(new MigrationScriptReaderImpl(config).fingerprint())
+                    .isEqualTo(new MigrationScriptReaderImpl(config).fingerprint());
+        }
+    }
+
+    @Nested
+    class fingerprint {
+        @Test
+        void isStable_fromClassPath() {
+            config.setLocations(singletonList("classpath:scriptreader"))
+                    .setEsMigrationPrefix("c");
+
+            String first = new MigrationScriptReaderImpl(config).fingerprint();
+            String second = new MigrationScriptReaderImpl(config).fingerprint();
+
+            assertThat(first).hasSize(64).isEqualTo(second);
+        }
+
+        @Test
+        void changesWithFoundMigrations_fromClassPath() {
+            String withContent = new MigrationScriptReaderImpl(config
+                    .setLocations(singletonList("classpath:scriptreader"))
+                    .setEsMigrationPrefix("c"))
+                    .fingerprint();
+            String withoutContent = new MigrationScriptReaderImpl(config
+                    .setEsMigrationPrefix("d"))
+                    .fingerprint();
+
+            assertThat(withContent).isNotEqualTo(withoutContent);
+        }
+
+        @Test
+        void changesWithPlaceholders() {
+            config.setLocations(singletonList("classpath:scriptreader"))
+                    .setEsMigrationPrefix("c");
+            String before = new MigrationScriptReaderImpl(config).fingerprint();
+
+            String after = new MigrationScriptReaderImpl(config.setPlaceholders(Map.of("x", "y"))).fingerprint();
+
+            assertThat(before).isNotEqualTo(after);
+        }
+
+        @Test
+        void changesWhenFileIsAddedOrModified_fromFileSystem(@TempDir Path tempDir) throws IOException {
+            Files.writeString(tempDir.resolve("V1__first.http"), "PUT /first");
+            MigrationScriptReaderImpl reader = new MigrationScriptReaderImpl(config
+                    .setLocations(singletonList("file:" + tempDir.toAbsolutePath())));
+            String initial = reader.fingerprint();
+            assertThat(reader.fingerprint()).isEqualTo(initial);
+
+            Files.writeString(tempDir.resolve("V2__second.http"), "PUT /second");
+            String added = reader.fingerprint();
+            assertThat(added).isNotEqualTo(initial);
+
+            Files.writeString(tempDir.resolve("V2__second.http"), "PUT /second_changed");
+            assertThat(reader.fingerprint()).isNotEqualTo(added);
+        }
+
+        @Test
+        void changesWhenFileIsMovedOrDuplicated_fromFileSystem(@TempDir Path tempDir) throws IOException {
+            final FileTime lastModified = FileTime.fromMillis(1_000_000);
+            final Path first = Files.createDirectories(tempDir.resolve("first")).resolve("V1__script.http");
+            final Path second = Files.createDirectories(tempDir.resolve("second")).resolve("V1__script.http");
+            Files.setLastModifiedTime(Files.writeString(first, "PUT /script"), lastModified);
+            MigrationScriptReaderImpl reader = new MigrationScriptReaderImpl(config
+                    .setLocations(singletonList("file:" + tempDir.toAbsolutePath())));
+            String initial = reader.fingerprint();
+
+            Files.setLastModifiedTime(Files.writeString(second, "PUT /script"), lastModified);
+            String duplicated = reader.fingerprint();
+            assertThat(duplicated).isNotEqualTo(initial);
+
+            Files.delete(first);
+            assertThat(reader.fingerprint()).isNotEqualTo(initial).isNotEqualTo(duplicated);
+        }
+
+        @Test
+        void changesWhenContentOfJarEntryWithSameSizeAndTimeChanges_fromClassPath(@TempDir Path tempDir) throws IOException {
+            config.setLocations(singletonList("classpath:es/migration"));
+
+            final String before = fingerprintOfJar(tempDir.resolve("before.jar"), "PUT /first");
+            final String after = fingerprintOfJar(tempDir.resolve("after.jar"), "PUT /other");
+
+            assertThat(after).isNotEqualTo(before);
+            assertThat(fingerprintOfJar(tempDir.resolve("again.jar"), "PUT /first")).isEqualTo(before);
+        }
+
+        private String fingerprintOfJar(Path jar, String content) throws IOException {
+            try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+                final JarEntry entry = new JarEntry("es/migration/V1__script.http");
+                // reproducible builds use a constant modification time
+                entry.setTime(1_000_000);
+                out.putNextEntry(entry);
+                out.write(content.getBytes(StandardCharsets.UTF_8));
+                out.closeEntry();
+            }
+            final ClassLoader originalClassLoader = Thread.currentThread().getContextClassLoader();
+            try (URLClassLoader classLoader = new URLClassLoader(new URL[]{jar.toUri().toURL()}, null)) {
+                Thread.currentThread().setContextClassLoader(classLoader);
+                return new MigrationScriptReaderImpl(config).fingerprint();
+            } finally {
+                Thread.currentThread().setContextClassLoader(originalClassLoader);
+            }
+        }
+
+        @Test
+        void invalidPath() {
+            final MigrationScriptReaderImpl underTest = new MigrationScriptReaderImpl(config
+                    .setLocations(singletonList("file:X:/snc/scripts"))
+                    .setEsMigrationPrefix("c"));
+
+            assertThatThrownBy(underTest::fingerprint)
+                    .isInstanceOf(MigrationException.class)
+                    .hasMessage("couldn't read migrations from file:X:/snc/scripts");
+        }
+    }
+
     @ParameterizedTest
     @ValueSource(strings = {
             "foo\nbar\n",
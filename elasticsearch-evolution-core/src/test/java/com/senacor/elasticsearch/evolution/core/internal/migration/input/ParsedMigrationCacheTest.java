@@ -0,0 +1,185 @@
+package com.senacor.elasticsearch.evolution.core.internal.migration.input;
+
+import com.senacor.elasticsearch.evolution.core.api.config.ElasticsearchEvolutionConfigImpl;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.MigrationRequest;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.MigrationScriptRequest;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.MigrationScriptRequests;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.ParsedMigration;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.RawMigrationScript;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.ScriptMigrationContent;
+import com.senacor.elasticsearch.evolution.core.internal.utils.ParallelMapper;
+import com.senacor.elasticsearch.evolution.core.internal.utils.XxHash64;
+import com.senacor.elasticsearch.evolution.rest.abstraction.HttpMethod;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ParsedMigrationCacheTest {
+
+    private static final String CONTENT = "PUT /${index}\nContent-Type: application/json\n\n{}";
+
+    @TempDir
+    private Path cacheDirectory;
+
+    private final AtomicInteger parseCount = new AtomicInteger();
+    private final AtomicInteger loadCount = new AtomicInteger();
+
+    @Nested
+    class request {
+
+        @Test
+        void unchangedSource_isNeitherReadNorParsedAgain() {
+            final MigrationRequest parsed = createCache(Map.of("index", "a")).request(lazyContent("1:1"), parser(Map.of("index", "a")));
+
+            final ParsedMigrationCache underTest = createCache(Map.of("index", "a"));
+            final ScriptMigrationContent content = lazyContent("1:1");
+
+            assertThat(underTest.request(content, parser(Map.of("index", "a")))).isEqualTo(parsed);
+            assertThat(content.isLoaded()).isFalse();
+            assertThat(parseCount).hasValue(1);
+            assertThat(loadCount).hasValue(1);
+        }
+
+        @Test
+        void changedStamp_readsContentButDoesNotParseSameContentAgain() {
+            final MigrationRequest parsed = createCache(Map.of("index", "a")).request(lazyContent("1:1"), parser(Map.of("index", "a")));
+
+            final ParsedMigrationCache underTest = createCache(Map.of("index", "a"));
+
+            assertThat(underTest.request(lazyContent("1:2"), parser(Map.of("index", "a")))).isEqualTo(parsed);
+            assertThat(parseCount).hasValue(1);
+            assertThat(loadCount).hasValue(2);
+        }
+
+        @Test
+        void withoutStamp_readsContentButDoesNotParseSameContentAgain() {
+            final MigrationRequest parsed = createCache(Map.of("index", "a")).request(lazyContent(null), parser(Map.of("index", "a")));
+
+            final ParsedMigrationCache underTest = createCache(Map.of("index", "a"));
+
+            assertThat(underTest.request(lazyContent(null), parser(Map.of("index", "a")))).isEqualTo(parsed);
+            assertThat(parseCount).hasValue(1);
+            assertThat(loadCount).hasValue(2);
+        }
+
+        @Test
+        void changedPlaceholders_parsesAgain() {
+            createCache(Map.of("index", "a")).request(lazyContent("1:1"), parser(Map.of("index", "a")));
+
+            final MigrationScriptRequest res = (MigrationScriptRequest) createCache(Map.of("index", "b")).request(lazyContent("1:1"), parser(Map.of("index", "b")));
+
+            assertThat(res.getPath()).isEqualTo("/b");
+            assertThat(parseCount).hasValue(2);
+        }
+
+        @Test
+        void severalRequests_areNotParsedAgain() {
+            final String content = "PUT /${index}\nContent-Type: application/json\n\n{}\n\nDELETE /old_${index}";
+            final MigrationRequest parsed = createCache(Map.of("index", "a")).request(new ScriptMigrationContent(content), parser(Map.of("index", "a")));
+
+            final MigrationRequest res = createCache(Map.of("index", "a")).request(new ScriptMigrationContent(content), parser(Map.of("index", "a")));
+
+            assertThat(res)
+                    .isInstanceOf(MigrationScriptRequests.class)
+                    .isEqualTo(parsed);
+            assertThat(((MigrationScriptRequests) res).requests())
+                    .extracting(MigrationScriptRequest::getPath)
+                    .containsExactly("/a", "/old_a");
+            assertThat(parseCount).hasValue(1);
+        }
+
+        @Test
+        void corruptFiles_areIgnoredAndRewritten() throws IOException {
+            final MigrationRequest parsed = createCache(Map.of("index", "a")).request(lazyContent("1:1"), parser(Map.of("index", "a")));
+            final List<Path> cacheFiles;
+            try (Stream<Path> files = Files.walk(cacheDirectory)) {
+                cacheFiles = files.filter(Files::isRegularFile).toList();
+            }
+            assertThat(cacheFiles).hasSize(2);
+            for (Path cacheFile : cacheFiles) {
+                Files.writeString(cacheFile, "{\"formatVersion\":1,\"httpMethod\":\"UNKNOWN");
+            }
+
+            assertThat(createCache(Map.of("index", "a")).request(lazyContent("1:1"), parser(Map.of("index", "a")))).isEqualTo(parsed);
+            assertThat(parseCount).hasValue(2);
+
+            final ScriptMigrationContent content = lazyContent("1:1");
+            assertThat(createCache(Map.of("index", "a")).request(content, parser(Map.of("index", "a")))).isEqualTo(parsed);
+            assertThat(content.isLoaded()).isFalse();
+            assertThat(parseCount).hasValue(2);
+        }
+
+        @Test
+        void unwritableDirectory_parsesWithoutCaching() throws IOException {
+            // a file instead of a directory
+            final Path file = Files.writeString(cacheDirectory.resolve("file"), "");
+            final ParsedMigrationCache underTest = new ParsedMigrationCache(new ElasticsearchEvolutionConfigImpl()
+                    .setParsedMigrationCacheDirectory(file.toString()));
+
+            assertThat(((MigrationScriptRequest) underTest.request(lazyContent("1:1"), parser(Map.of()))).getHttpMethod()).isEqualTo(HttpMethod.PUT);
+            assertThat(((MigrationScriptRequest) underTest.request(lazyContent("1:1"), parser(Map.of()))).getHttpMethod()).isEqualTo(HttpMethod.PUT);
+            assertThat(parseCount).hasValue(2);
+        }
+    }
+
+    @Nested
+    class checksum {
+
+        @Test
+        void isComputedFromContentEvenIfSourceIsUnchanged() {
+            createCache(Map.of()).request(lazyContent("1:1"), parser(Map.of()));
+            final String changedContent = CONTENT.replace("{}", "[]");
+            final MigrationScriptParserImpl underTest = new MigrationScriptParserImpl("V", List.of(".http"),
+                    Map.of(), "${", "}", true, "\n", ParallelMapper.SEQUENTIAL, createCache(Map.of()), false);
+
+            // same source and stamp, but the content changed, e.g. by a tool preserving the modification time
+            final ParsedMigration<?> res = underTest.parse(List.<RawMigrationScript<?>>of(new RawMigrationScript<ScriptMigrationContent>()
+                            .setFileName("V1__index.http")
+                            .setContent(ScriptMigrationContent.lazy("/scripts/V1__index.http",
+                                            () -> new ScriptMigrationContent(changedContent))
+                                    .sourceStamp("1:1")
+                                    .build())))
+                    .iterator().next();
+
+            assertThat(res.getChecksum()).isEqualTo(changedContent.hashCode());
+            assertThat(res.getContentChecksum()).isEqualTo(XxHash64.hash(changedContent));
+        }
+    }
+
+    private ParsedMigrationCache createCache(Map<String, String> placeholders) {
+        return new ParsedMigrationCache(new ElasticsearchEvolutionConfigImpl()
+                .setPlaceholders(placeholders)
+                .setParsedMigrationCacheDirectory(cacheDirectory.toString()));
+    }
+
+    private ScriptMigrationContent lazyContent(String sourceStamp) {
+        return ScriptMigrationContent.lazy("/scripts/V1__index.http", () -> {
+                    loadCount.incrementAndGet();
+                    return new ScriptMigrationContent(CONTENT);
+                })
+                .sourceStamp(sourceStamp)
+                .build();
+    }
+
+    private Function<ScriptMigrationContent, MigrationRequest> parser(Map<String, String> placeholders) {
+        final MigrationScriptParserImpl parser = new MigrationScriptParserImpl("V", List.of(".http"),
+                placeholders, "${", "}", true, "\n");
+        return content -> {
+            parseCount.incrementAndGet();
+            return parser.parse(new RawMigrationScript<ScriptMigrationContent>()
+                    .setFileName("V1__index.http")
+                    .setContent(content)).getMigrationRequest();
+        };
+    }
+}
@@ -0,0 +1,165 @@
+package com.senacor.elasticsearch.evolution.core.internal.migration.input;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PlaceholderReplacerTest {
+
+    @Nested
+    class replace {
+
+        @ParameterizedTest
+        @CsvSource(delimiter = '|', value = {
+                "PUT /${index}/_doc/${id}       | PUT /my-index/_doc/1",
+                "${index}${index}               | my-indexmy-index",
+                "PUT /${unknown}/${index}       | PUT /${unknown}/my-index",
+                "PUT /${${index}}               | PUT /${my-index}",
+                "PUT /${in ${index}             | PUT /${in my-index",
+                "PUT /${index                   | PUT /${index",
+                "PUT /index}                    | PUT /index}",
+                "PUT /${}                       | PUT /${}",
+                "PUT /no-placeholders           | PUT /no-placeholders",
+        })
+        void replacesAllPlaceholders(String content, String expected) {
+            final PlaceholderReplacer underTest = new PlaceholderReplacer(Map.of("index", "my-index", "id", "1"), "${", "}", true);
+
+            assertThat(underTest.replace("V1__test.http", content)).isEqualTo(expected);
+            // the second call uses the cached template
+            assertThat(underTest.replace("V1__test.http", content)).isEqualTo(expected);
+        }
+
+        @Test
+        void overlappingPrefix() {
+            final PlaceholderReplacer underTest = new PlaceholderReplacer(Map.of("$x", "a", "x", "b"), "$$", "%%", false);
+
+            assertThat(underTest.replace("V1__test.http", "$$$x%% $$x%%")).isEqualTo("a b");
+        }
+
+        @Test
+        void sameResultAsReplacingEachPlaceholder() {
+            final Map<String, String> placeholders = new LinkedHashMap<>();
+            placeholders.put("a", "value-a");
+            placeholders.put("bb", "");
+            placeholders.put("c-c", "value-c");
+            final PlaceholderReplacer underTest = new PlaceholderReplacer(placeholders, "${", "}", false);
+            final Random random = new Random(42);
+            final String[] parts = {"${", "}", "a", "bb", "c-c", "x", " ", "$", "{"};
+            for (int i = 0; i < 10_000; i++) {
+                final StringBuilder content = new StringBuilder();
+                final int length = random.nextInt(20);
+                for (int j = 0; j < length; j++) {
+                    content.append(parts[random.nextInt(parts.length)]);
+                }
+                String expected = content.toString();
+                for (Map.Entry<String, String> placeholder : placeholders.entrySet()) {
+                    expected = expected.replace("${" + placeholder.getKey() + "}", placeholder.getValue());
+                }
+
+                assertThat(underTest.replace("V1__test.http", content.toString()))
+                        .as(content.toString())
+                        .isEqualTo(expected);
+            }
+        }
+
+        @Test
+        void noPlaceholders_returnsSameContent() {
+            final String content = "PUT /${index}";
+
+            assertThat(new PlaceholderReplacer(null, "${", "}", false).replace("V1__test.http", content))
+                    .isSameAs(content);
+        }
+    }
+
+    @Nested
+    class replacing {
+
+        @ParameterizedTest
+        @CsvSource(delimiter = '|', value = {
+                "PUT /${index}/_doc/${id}       | PUT /my-index/_doc/1",
+                "${index}${index}               | my-indexmy-index",
+                "PUT /${unknown}/${index}       | PUT /${unknown}/my-index",
+                "PUT /${${index}}               | PUT /${my-index}",
+                "PUT /${in ${index}             | PUT /${in my-index",
+                "PUT /${index                   | PUT /${index",
+                "PUT /index}                    | PUT /index}",
+                "PUT /${}                       | PUT /${}",
+                "PUT /no-placeholders           | PUT /no-placeholders",
+                "PUT /$${index}$                | PUT /$my-index$",
+        })
+        void sameAsReplace(String content, String expected) throws IOException {
+            final PlaceholderReplacer underTest = new PlaceholderReplacer(Map.of("index", "my-index", "id", "1"), "${", "}", true);
+
+            assertThat(read(underTest.replacing("V1__test.http", new StringReader(content)))).isEqualTo(expected);
+        }
+
+        @Test
+        void overlappingPrefix() throws IOException {
+            final PlaceholderReplacer underTest = new PlaceholderReplacer(Map.of("$x", "a", "x", "b"), "$$", "%%", false);
+
+            assertThat(read(underTest.replacing(null, new StringReader("$$$x%% $$x%%")))).isEqualTo("a b");
+        }
+
+        @Test
+        void sameResultAsReplace() throws IOException {
+            final PlaceholderReplacer underTest = new PlaceholderReplacer(Map.of("a", "value-a", "bb", "", "c-c", "value-c"), "${", "}", false);
+            final Random random = new Random(42);
+            final String[] parts = {"${", "}", "a", "bb", "c-c", "x", " ", "$", "{"};
+            for (int i = 0; i < 10_000; i++) {
+                final StringBuilder content = new StringBuilder();
+                final int length = random.nextInt(20);
+                for (int j = 0; j < length; j++) {
+                    content.append(parts[random.nextInt(parts.length)]);
+                }
+
+                assertThat(read(underTest.replacing(null, new StringReader(content.toString()))))
+                        .as(content.toString())
+                        .isEqualTo(underTest.replace(null, content.toString()));
+            }
+        }
+
+        @Test
+        void tooLongName_isKept() throws IOException {
+            final String content = "${" + "x".repeat(300) + "} ${a}";
+            final PlaceholderReplacer underTest = new PlaceholderReplacer(Map.of("a", "value-a"), "${", "}", true);
+
+            assertThat(read(underTest.replacing("V1__test.http", new StringReader(content))))
+                    .isEqualTo("${" + "x".repeat(300) + "} value-a");
+        }
+
+        @Test
+        void noPlaceholders_returnsSameReader() {
+            final StringReader reader = new StringReader("PUT /${index}");
+
+            assertThat(new PlaceholderReplacer(null, "${", "}", false).replacing(null, reader))
+                    .isSameAs(reader);
+        }
+
+        private static String read(Reader reader) throws IOException {
+            final StringWriter res = new StringWriter();
+            reader.transferTo(res);
+            return res.toString();
+        }
+    }
+
+    @Nested
+    class isStreamable {
+
+        @Test
+        void valueWithLineBreak_isNotStreamable() {
+            assertThat(new PlaceholderReplacer(Map.of("a", "1", "b", "x\ny"), "${", "}", false).isStreamable()).isFalse();
+            assertThat(new PlaceholderReplacer(Map.of("a", "1", "b", "x y"), "${", "}", false).isStreamable()).isTrue();
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.senacor.elasticsearch.evolution.core.internal.migration.input;
+
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.ContentChecksums;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.ScriptMigrationContent;
+import com.senacor.elasticsearch.evolution.core.internal.utils.XxHash64;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ScriptContentLoaderTest {
+
+    static Stream<Arguments> contents() {
+        return Stream.of(
+                Arguments.of("PUT /index", "\n", false),
+                Arguments.of("PUT /index\r\n\r\n{\r\n}\r\n", "\n", false),
+                Arguments.of("PUT /index\r\n\r\n{\r\n}\r\n", "\n", true),
+                Arguments.of("a\rb\nc\r\nd\u000Be\ff\u0085g\u2028h\u2029i\r\r\n\n", "\n", true),
+                Arguments.of("a\rb\nc\r\nd\n", "\r\n", true),
+                Arguments.of("a\nb\n", "XY", true),
+                Arguments.of("\n", "\n", true),
+                Arguments.of("\r", "\n", false),
+                Arguments.of("äöü ß € 😀\r\n", "\n", true));
+    }
+
+    @Nested
+    class load {
+
+        @ParameterizedTest
+        @MethodSource("com.senacor.elasticsearch.evolution.core.internal.migration.input.ScriptContentLoaderTest#contents")
+        void fromBytes_sameAsRegexNormalization(String raw, String lineSeparator, boolean trim) {
+            final ScriptContentLoader underTest = new ScriptContentLoader(StandardCharsets.UTF_8, lineSeparator, trim);
+
+            assertLoaded(underTest.load(raw.getBytes(StandardCharsets.UTF_8)), raw, lineSeparator, trim);
+        }
+
+        @ParameterizedTest
+        @MethodSource("com.senacor.elasticsearch.evolution.core.internal.migration.input.ScriptContentLoaderTest#contents")
+        void fromInputStream_sameAsRegexNormalization(String raw, String lineSeparator, boolean trim) throws IOException {
+            final ScriptContentLoader underTest = new ScriptContentLoader(StandardCharsets.UTF_8, lineSeparator, trim);
+
+            assertLoaded(underTest.load(new OneByteInputStream(raw.getBytes(StandardCharsets.UTF_8))), raw, lineSeparator, trim);
+        }
+
+        @ParameterizedTest
+        @MethodSource("com.senacor.elasticsearch.evolution.core.internal.migration.input.ScriptContentLoaderTest#contents")
+        void fromReader_sameAsRegexNormalization(String raw, String lineSeparator, boolean trim) throws IOException {
+            final ScriptContentLoader underTest = new ScriptContentLoader(StandardCharsets.UTF_8, lineSeparator, trim);
+
+            assertLoaded(underTest.load(new StringReader(raw)), raw, lineSeparator, trim);
+        }
+
+        @Test
+        void fromInputStream_lineBreaksAndMultiByteCharactersAcrossBuffers() throws IOException {
+            final String raw = ("ä\r\n€" + "x".repeat(8187)).repeat(5);
+            final ScriptContentLoader underTest = new ScriptContentLoader(StandardCharsets.UTF_8, "\n", false);
+
+            assertLoaded(underTest.load(new ByteArrayInputStream(raw.getBytes(StandardCharsets.UTF_8))), raw, "\n", false);
+        }
+
+        @Test
+        void fromFile_smallAndMemoryMapped(@TempDir Path tempDir) throws IOException {
+            final Charset encoding = StandardCharsets.ISO_8859_1;
+            final String small = "PUT /index\r\näöü\r\n";
+            final String large = "PUT /index\r\n" + "ä".repeat((int) ScriptContentLoader.MEMORY_MAP_THRESHOLD) + "\r\n";
+            final Path smallFile = Files.writeString(tempDir.resolve("small.http"), small, encoding);
+            final Path largeFile = Files.writeString(tempDir.resolve("large.http"), large, encoding);
+            final ScriptContentLoader underTest = new ScriptContentLoader(encoding, "\n", true);
+
+            assertLoaded(underTest.load(smallFile), small, "\n", true);
+            assertLoaded(underTest.load(largeFile), large, "\n", true);
+        }
+
+        @Test
+        void empty() throws IOException {
+            final ScriptContentLoader underTest = new ScriptContentLoader(StandardCharsets.UTF_8, "\n", true);
+
+            assertThat(underTest.load(new byte[0])).isEmpty();
+            assertThat(underTest.load(InputStream.nullInputStream())).isEmpty();
+            assertThat(underTest.load(new StringReader(""))).isEmpty();
+        }
+
+        @Test
+        void malformedInputIsReplaced() {
+            final ScriptContentLoader underTest = new ScriptContentLoader(StandardCharsets.UTF_8, "\n", false);
+
+            assertThat(underTest.load(new byte[]{'a', (byte) 0xC3}))
+                    .contains(new ScriptMigrationContent("a\uFFFD"));
+        }
+
+        private void assertLoaded(Optional<ScriptMigrationContent> actual, String raw, String lineSeparator, boolean trim) {
+            final String normalized = raw.replaceAll("\\R", lineSeparator);
+            final String expected = trim && normalized.endsWith(lineSeparator)
+                    ? normalized.substring(0, normalized.length() - lineSeparator.length())
+                    : normalized;
+            assertThat(actual).hasValueSatisfying(content -> {
+                assertThat(content.content()).isEqualTo(expected);
+                assertThat(content.checksum()).isEqualTo(content.content().hashCode());
+                assertThat(content.contentChecksum()).isEqualTo(XxHash64.hash(content.content()));
+            });
+        }
+    }
+
+    @Nested
+    class checksums {
+
+        @ParameterizedTest
+        @MethodSource("com.senacor.elasticsearch.evolution.core.internal.migration.input.ScriptContentLoaderTest#contents")
+        void fromInputStream_sameAsLoaded(String raw, String lineSeparator, boolean trim) throws IOException {
+            final ScriptContentLoader underTest = new ScriptContentLoader(StandardCharsets.UTF_8, lineSeparator, trim);
+            final ScriptMigrationContent loaded = underTest.load(raw.getBytes(StandardCharsets.UTF_8)).orElseThrow();
+
+            assertThat(underTest.checksums(new OneByteInputStream(raw.getBytes(StandardCharsets.UTF_8))))
+                    .contains(new ContentChecksums(loaded.checksum(), loaded.contentChecksum()));
+        }
+
+        @Test
+        void fromFile_smallAndMemoryMapped(@TempDir Path tempDir) throws IOException {
+            final String small = "PUT /index\r\näöü 😀\r\n";
+            final String large = "PUT /index\r\n" + "ä😀".repeat((int) ScriptContentLoader.MEMORY_MAP_THRESHOLD / 4) + "\r\n";
+            final Path smallFile = Files.writeString(tempDir.resolve("small.http"), small);
+            final Path largeFile = Files.writeString(tempDir.resolve("large.http"), large);
+            final ScriptContentLoader underTest = new ScriptContentLoader(StandardCharsets.UTF_8, "\n", true);
+
+            for (Path file : new Path[]{smallFile, largeFile}) {
+                final ScriptMigrationContent loaded = underTest.load(file).orElseThrow();
+                assertThat(underTest.checksums(file))
+                        .contains(new ContentChecksums(loaded.checksum(), XxHash64.hash(loaded.content())));
+            }
+        }
+
+        @Test
+        void unpairedSurrogates_sameAsStringEncoding() throws IOException {
+            final String content = "a\uD83D b \uDE00 c\uD83D";
+            final ScriptContentLoader underTest = new ScriptContentLoader(StandardCharsets.UTF_8, "\n", false);
+
+            assertThat(underTest.load(new StringReader(content)).orElseThrow().contentChecksum())
+                    .isEqualTo(XxHash64.hash(content));
+        }
+
+        @Test
+        void empty() throws IOException {
+            final ScriptContentLoader underTest = new ScriptContentLoader(StandardCharsets.UTF_8, "\n", true);
+
+            assertThat(underTest.checksums(InputStream.nullInputStream())).isEmpty();
+        }
+    }
+
+    @Nested
+    class normalizing {
+
+        @ParameterizedTest
+        @MethodSource("com.senacor.elasticsearch.evolution.core.internal.migration.input.ScriptContentLoaderTest#contents")
+        void sameAsLoaded(String raw, String lineSeparator, boolean trim) throws IOException {
+            final ScriptContentLoader underTest = new ScriptContentLoader(StandardCharsets.UTF_8, lineSeparator, trim);
+
+            assertThat(read(underTest.normalizing(new StringReader(raw)), 8192))
+                    .isEqualTo(underTest.load(new StringReader(raw)).orElseThrow().content());
+            assertThat(read(underTest.normalizing(new OneCharReader(raw)), 1))
+                    .isEqualTo(underTest.load(new StringReader(raw)).orElseThrow().content());
+        }
+
+        @Test
+        void lineBreaksAcrossBuffers() throws IOException {
+            final String raw = ("ab\r\n" + "x".repeat(8187) + "\r").repeat(5);
+            final ScriptContentLoader underTest = new ScriptContentLoader(StandardCharsets.UTF_8, "\r\n", true);
+
+            assertThat(read(underTest.normalizing(new StringReader(raw)), 100))
+                    .isEqualTo(underTest.load(new StringReader(raw)).orElseThrow().content());
+        }
+
+        private static String read(Reader reader, int bufferSize) throws IOException {
+            final StringBuilder res = new StringBuilder();
+            final char[] buffer = new char[bufferSize];
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                res.append(buffer, 0, read);
+            }
+            return res.toString();
+        }
+    }
+
+    /**
+     * returns at most one character per read
+     */
+    private static class OneCharReader extends StringReader {
+        OneCharReader(String content) {
+            super(content);
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            return super.read(cbuf, off, Math.min(1, len));
+        }
+    }
+
+    /**
+     * returns at most one byte per read, to split multi byte characters and line breaks
+     */
+    private static class OneByteInputStream extends ByteArrayInputStream {
+        OneByteInputStream(byte[] bytes) {
+            super(bytes);
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) {
+            return super.read(b, off, Math.min(1, len));
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.senacor.elasticsearch.evolution.core.internal.migration.input;
+
+import com.senacor.elasticsearch.evolution.core.api.MigrationException;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.MigrationScriptRequest;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.RawMigrationScript;
+import com.senacor.elasticsearch.evolution.core.internal.model.migration.ScriptMigrationContent;
+import com.senacor.elasticsearch.evolution.rest.abstraction.HttpMethod;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StreamedScriptParserTest {
+
+    private static final Map<String, String> PLACEHOLDERS = Map.of("index", "my_index", "comment", "# comment", "type", "application/json");
+
+    static Stream<Arguments> scripts() {
+        return Stream.of(
+                Arguments.of("PUT /my_index\n\n{\n  \"a\": 1\n}", "\n", false),
+                Arguments.of("PUT /my_index\n\n{\n  \"a\": 1\n}\n", "\n", false),
+                Arguments.of("PUT /my_index\n\n{\n  \"a\": 1\n}\n\n", "\n", true),
+                Arguments.of("# comment\n// comment\nPUT   /${index}  \n  Content-Type: ${type}\n# comment\nX-Header = x\n\n\n\n  \n{\n# comment\n  // comment\n  \"a\": \"${index}\"\n\n}", "\n", false),
+                Arguments.of("POST /${index}/_doc\r\n\r\n{\r\n${comment}\r\n\"a\": \"${unknown}\"\r\n}\r\n", "\r\n", true),
+                Arguments.of("POST /${index}/_doc\r\n\r\n{\r\n\"a\": 1\r\n}\r\n", "\r", false),
+                Arguments.of("PUT /my_index\n\n" + "{\"a\": \"" + "x".repeat(20_000) + "\"}\n# comment " + "x".repeat(20_000) + "\n{}", "\n", false),
+                Arguments.of("PUT /my_index\n\n" + " ".repeat(20_000) + "\n{}", "\n", false),
+                Arguments.of("PUT /my_index\n\n  PUT /no_method_line\nput /no_method_line\nPUT\nPUT \n/", "\n", false));
+    }
+
+    @Nested
+    class parse {
+
+        @ParameterizedTest
+        @MethodSource("com.senacor.elasticsearch.evolution.core.internal.migration.input.StreamedScriptParserTest#scripts")
+        void sameAsParsedContent(String raw, String lineSeparator, boolean trim) throws IOException {
+            final PlaceholderReplacer placeholderReplacer = new PlaceholderReplacer(PLACEHOLDERS, "${", "}", true);
+            final ScriptContentLoader loader = new ScriptContentLoader(StandardCharsets.UTF_8, lineSeparator, trim);
+            final MigrationScriptRequest expected = (MigrationScriptRequest) new MigrationScriptParserImpl("V", List.of(".http"),
+                    PLACEHOLDERS, "${", "}", true, lineSeparator)
+                    .parse(new RawMigrationScript<ScriptMigrationContent>()
+                            .setFileName("V1__test.http")
+                            .setContent(loader.load(new StringReader(raw)).orElseThrow()))
+                    .getMigrationRequest();
+
+            final MigrationScriptRequest res = parse(raw, lineSeparator, trim, placeholderReplacer).orElseThrow();
+
+            assertThat(res.getHttpMethod()).isEqualTo(expected.getHttpMethod());
+            assertThat(res.getPath()).isEqualTo(expected.getPath());
+            assertThat(res.getHttpHeader()).isEqualTo(expected.getHttpHeader());
+            assertThat(res.getBody()).isEmpty();
+            assertThat(read(res.getStreamedBody().open(), 8192)).isEqualTo(expected.getBody());
+            assertThat(read(res.getStreamedBody().open(), 1)).isEqualTo(expected.getBody());
+        }
+
+        @Test
+        void withoutPlaceholderReplacement() throws IOException {
+            final MigrationScriptRequest res = parse("PUT /${index}\n\n{\"a\": \"${index}\"}", "\n", false, null).orElseThrow();
+
+            assertThat(res.getPath()).isEqualTo("/${index}");
+            assertThat(read(res.getStreamedBody().open(), 8192)).isEqualTo("{\"a\": \"${index}\"}");
+        }
+
+        @Test
+        void severalRequests_isNotStreamed() throws IOException {
+            assertThat(parse("PUT /my_index\n\n{}\nPUT /my_index/_doc/1\n\n{}", "\n", false, null)).isEmpty();
+            assertThat(parse("DELETE /my_index\nPUT /my_index\n\n{}", "\n", false, null)).isEmpty();
+        }
+
+        @Test
+        void withoutBody_isNotStreamed() throws IOException {
+            assertThat(parse("DELETE /my_index", "\n", false, null)).isEmpty();
+            assertThat(parse("DELETE /my_index\nX-Header: x\n", "\n", true, null)).isEmpty();
+            assertThat(parse("DELETE /my_index\n\n  \n# comment\n\n", "\n", false, null)).isEmpty();
+        }
+
+        @Test
+        void invalidMethodLine() {
+            assertThatThrownBy(() -> parse("\nPUT /my_index\n\n{}", "\n", false, null))
+                    .isInstanceOf(MigrationException.class)
+                    .hasMessageStartingWith("can't parse method and path: ''.");
+        }
+
+        @Test
+        void invalidHeader() {
+            assertThatThrownBy(() -> parse("PUT /my_index\nContent-Type application/json\n\n{}", "\n", false, null))
+                    .isInstanceOf(MigrationException.class)
+                    .hasMessageStartingWith("can't parse header: 'Content-Type application/json'.");
+        }
+
+        @Test
+        void bodyIsOpenedWhenRead() throws IOException {
+            final int[] opened = {0};
+            final ScriptContentLoader loader = new ScriptContentLoader(StandardCharsets.UTF_8, "\n", false);
+            final ScriptMigrationContent content = ScriptMigrationContent.lazy("V1__test.http", () -> {
+                        throw new AssertionError("the content must not be loaded");
+                    })
+                    .contentReaderOpener(() -> {
+                        opened[0]++;
+                        return loader.normalizing(new StringReader("PUT /my_index\n\n{}"));
+                    })
+                    .build();
+
+            final MigrationScriptRequest res = new StreamedScriptParser("V1__test.http", content, null, "\n").parse().orElseThrow();
+
+            assertThat(res.getHttpMethod()).isEqualTo(HttpMethod.PUT);
+            assertThat(opened[0]).as("opened to parse").isEqualTo(1);
+            assertThat(read(res.getStreamedBody().open(), 8192)).isEqualTo("{}");
+            assertThat(opened[0]).as("opened to read the body").isEqualTo(2);
+        }
+    }
+
+    @Nested
+    class isSupported {
+
+        @Test
+        void lineSeparators() {
+            assertThat(StreamedScriptParser.isSupported("\n")).isTrue();
+            assertThat(StreamedScriptParser.isSupported("\r\n")).isTrue();
+            assertThat(StreamedScriptParser.isSupported("\r")).isTrue();
+            assertThat(StreamedScriptParser.isSupported("")).isFalse();
+            assertThat(StreamedScriptParser.isSupported("\n\n")).isFalse();
+        }
+    }
+
+    private static Optional<MigrationScriptRequest> parse(String raw,
+                                                         String lineSeparator,
+                                                         boolean trim,
+                                                         PlaceholderReplacer placeholderReplacer) throws IOException {
+        final ScriptContentLoader loader = new ScriptContentLoader(StandardCharsets.UTF_8, lineSeparator, trim);
+        final ScriptMigrationContent content = ScriptMigrationContent.lazy("V1__test.http", () -> {
+                    try {
+                        return loader.load(new StringReader(raw)).orElseThrow();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                })
+                .contentReaderOpener(() -> loader.normalizing(new StringReader(raw)))
+                .build();
+        return new StreamedScriptParser("V1__test.http", content, placeholderReplacer, lineSeparator).parse();
+    }
+
+    private static String read(Reader reader, int bufferSize) throws IOException {
+        try (reader) {
+            final StringWriter res = new StringWriter();
+            final char[] buffer = new char[bufferSize];
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                res.write(buffer, 0, read);
+            }
+            return res.toString();
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.senacor.elasticsearch.evolution.core.internal.migration.input.testjavamigrations.annotated;
+
+import com.senacor.elasticsearch.evolution.core.api.migration.java.Context;
+import com.senacor.elasticsearch.evolution.core.api.migration.java.JavaMigration;
+import com.senacor.elasticsearch.evolution.core.api.migration.java.JavaMigrationInfo;
+
+@JavaMigrationInfo(version = "1.5", description = "Annotated failing instantiation", checksum = 7)
+public class AnnotatedFailingInstantiation implements JavaMigration {
+    public AnnotatedFailingInstantiation() {
+        throw new IllegalArgumentException("just failing instantiation");
+    }
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        // do nothing
+    }
+}
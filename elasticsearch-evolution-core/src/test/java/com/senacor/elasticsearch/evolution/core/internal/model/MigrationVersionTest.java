@@ -4,6 +4,8 @@ import com.senacor.elasticsearch.evolution.core.api.MigrationException;
 import com.senacor.elasticsearch.evolution.core.api.migration.MigrationVersion;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 
 import java.util.Arrays;
 
@@ -98,6 +100,16 @@ class MigrationVersionTest {
             assertThat(MigrationVersion.fromVersion("2.3").compareTo(null))
                     .isGreaterThan(0);
         }
+
+        @Test
+        void missingPartsAreZero() {
+            assertThat(MigrationVersion.fromVersion("2.3").compareTo(MigrationVersion.fromVersion("2.3.0.1")))
+                    .isLessThan(0);
+            assertThat(MigrationVersion.fromVersion("2.3.0.0").compareTo(MigrationVersion.fromVersion("2.3")))
+                    .isEqualTo(0);
+            assertThat(MigrationVersion.fromVersion("10").compareTo(MigrationVersion.fromVersion("9.9")))
+                    .isGreaterThan(0);
+        }
     }
 
     @Nested
@@ -196,6 +208,30 @@ class MigrationVersionTest {
                     .hasMessage("Invalid version containing non-numeric characters. Only 0..9 and . are allowed. Invalid version: 1-2")
                     .isInstanceOf(MigrationException.class);
         }
+
+        @ParameterizedTest
+        @ValueSource(strings = {"1.", ".1", "1..2", "1.a", "1_", "1. 2", "99999999999", "1.2_x"})
+        void invalidVersion_separatorsAndOverflow(String version) {
+            assertThatThrownBy(() -> MigrationVersion.fromVersion(version))
+                    .hasMessageStartingWith("Invalid version containing non-numeric characters.")
+                    .isInstanceOf(MigrationException.class);
+        }
+
+        @Test
+        void manyParts() {
+            MigrationVersion migrationVersion = MigrationVersion.fromVersion("1.2.3.4.5.6.7.8.9_10.0");
+
+            assertThat(migrationVersion.hashCode())
+                    .isEqualTo(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9, 10).hashCode());
+            assertThat(migrationVersion.toString())
+                    .isEqualTo("1.2.3.4.5.6.7.8.9.10");
+        }
+
+        @Test
+        void onlyZeros() {
+            assertThat(MigrationVersion.fromVersion("0.0.0").toString())
+                    .isEqualTo("0");
+        }
     }
 
     @Nested
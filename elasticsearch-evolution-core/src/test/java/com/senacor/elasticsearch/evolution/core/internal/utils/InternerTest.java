@@ -0,0 +1,61 @@
+package com.senacor.elasticsearch.evolution.core.internal.utils;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InternerTest {
+
+    private final Interner underTest = new Interner();
+
+    @Nested
+    class internString {
+
+        @Test
+        void equalStrings_returnSameInstance() {
+            final String first = underTest.intern(new String("application/json"));
+
+            assertThat(underTest.intern(new String("application/json"))).isSameAs(first);
+            assertThat(underTest.intern("text/plain")).isNotSameAs(first);
+        }
+
+        @Test
+        void null_returnsNull() {
+            assertThat(underTest.intern((String) null)).isNull();
+        }
+    }
+
+    @Nested
+    class internMap {
+
+        @Test
+        void equalMaps_returnSameUnmodifiableInstance() {
+            final Map<String, String> first = underTest.intern(new HashMap<>(Map.of("Content-Type", "application/json")));
+            final Map<String, String> second = underTest.intern(new HashMap<>(Map.of("Content-Type", "application/json")));
+
+            assertThat(second).isSameAs(first)
+                    .containsExactly(Map.entry("Content-Type", "application/json"));
+            assertThatThrownBy(() -> first.put("a", "b"))
+                    .isInstanceOf(UnsupportedOperationException.class);
+        }
+
+        @Test
+        void keysAndValuesAreInterned() {
+            final String value = underTest.intern("application/json");
+
+            final Map<String, String> res = underTest.intern(Map.of(new String("Content-Type"), new String("application/json")));
+
+            assertThat(res.get("Content-Type")).isSameAs(value);
+        }
+
+        @Test
+        void emptyMap() {
+            assertThat(underTest.intern(new HashMap<>())).isSameAs(Map.of());
+        }
+    }
+}
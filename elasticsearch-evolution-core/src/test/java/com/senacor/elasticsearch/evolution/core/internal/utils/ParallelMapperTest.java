@@ -0,0 +1,92 @@
+package com.senacor.elasticsearch.evolution.core.internal.utils;
+
+import com.senacor.elasticsearch.evolution.core.api.MigrationException;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ParallelMapperTest {
+
+    private static final List<Integer> ELEMENTS = IntStream.range(0, 200).boxed().toList();
+
+    @Nested
+    class map {
+
+        @ParameterizedTest
+        @ValueSource(booleans = {true, false})
+        void keepsInputOrder(boolean virtualThreads) {
+            final ParallelMapper underTest = new ParallelMapper(8, virtualThreads);
+
+            final List<String> res = underTest.map(ELEMENTS, element -> {
+                sleepRandomly();
+                return "e" + element;
+            });
+
+            assertThat(res).containsExactlyElementsOf(ELEMENTS.stream().map(element -> "e" + element).toList());
+        }
+
+        @ParameterizedTest
+        @ValueSource(booleans = {true, false})
+        void boundsConcurrentTasks(boolean virtualThreads) {
+            final ParallelMapper underTest = new ParallelMapper(4, virtualThreads);
+            final AtomicInteger running = new AtomicInteger();
+            final AtomicInteger maxRunning = new AtomicInteger();
+
+            underTest.map(ELEMENTS, element -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                sleepRandomly();
+                running.decrementAndGet();
+                return element;
+            });
+
+            assertThat(maxRunning.get()).isBetween(1, 4);
+        }
+
+        @Test
+        void sequentialRunsOnCallingThread() {
+            final Thread caller = Thread.currentThread();
+
+            final List<Boolean> res = ParallelMapper.SEQUENTIAL.map(ELEMENTS, element -> Thread.currentThread() == caller);
+
+            assertThat(res).containsOnly(true);
+        }
+
+        @Test
+        void rethrowsFirstFailureInInputOrder() {
+            final ParallelMapper underTest = new ParallelMapper(8, false);
+
+            assertThatThrownBy(() -> underTest.map(ELEMENTS, element -> {
+                if (element == 20 || element == 150) {
+                    throw new MigrationException("failed " + element);
+                }
+                return element;
+            }))
+                    .isInstanceOf(MigrationException.class)
+                    .hasMessage("failed 20");
+        }
+    }
+
+    @Test
+    void parallelismMustBeGreaterThan0() {
+        assertThatThrownBy(() -> new ParallelMapper(0, false))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("parallelism must be greater than 0: 0");
+    }
+
+    private static void sleepRandomly() {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextInt(3));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.senacor.elasticsearch.evolution.core.internal.utils;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReaderInputStreamTest {
+
+    @Nested
+    class read {
+
+        @ParameterizedTest
+        @ValueSource(strings = {"UTF-8", "UTF-16", "ISO-8859-1"})
+        void sameAsStringEncoding(String charsetName) throws IOException {
+            final Charset charset = Charset.forName(charsetName);
+            final String content = ("äöü ß € 😀 " + "x".repeat(8190)).repeat(3);
+
+            try (InputStream underTest = new ReaderInputStream(new OneCharReader(content), charset)) {
+                assertThat(underTest.readAllBytes()).isEqualTo(content.getBytes(charset));
+            }
+        }
+
+        @Test
+        void unpairedSurrogates_areReplaced() throws IOException {
+            final String content = "a\uD83D b \uDE00 c\uD83D";
+
+            try (InputStream underTest = new ReaderInputStream(new StringReader(content), StandardCharsets.UTF_8)) {
+                assertThat(underTest.readAllBytes()).isEqualTo(content.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        @Test
+        void singleBytes() throws IOException {
+            try (InputStream underTest = new ReaderInputStream(new StringReader("aä"), StandardCharsets.UTF_8)) {
+                assertThat(underTest.read()).isEqualTo('a');
+                assertThat(underTest.read()).isEqualTo(0xC3);
+                assertThat(underTest.read()).isEqualTo(0xA4);
+                assertThat(underTest.read()).isEqualTo(-1);
+            }
+        }
+
+        @Test
+        void empty() throws IOException {
+            try (InputStream underTest = new ReaderInputStream(Reader.nullReader(), StandardCharsets.UTF_8)) {
+                assertThat(underTest.read(new byte[10], 0, 10)).isEqualTo(-1);
+            }
+        }
+    }
+
+    /**
+     * returns at most one character per read, to split surrogate pairs
+     */
+    private static class OneCharReader extends StringReader {
+        OneCharReader(String content) {
+            super(content);
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            return super.read(cbuf, off, Math.min(1, len));
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.senacor.elasticsearch.evolution.core.internal.utils;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class XxHash64Test {
+
+    @Nested
+    class hash {
+
+        @ParameterizedTest
+        @CsvSource({
+                "'', EF46DB3751D8E999",
+                "a, D24EC4F1A98C6E5B",
+                "abc, 44BC2CF5AD770999",
+                "Nobody inspects the spammish repetition, FBCEA83C8A378BF1"
+        })
+        void referenceValues(String value, String expectedHex) {
+            assertThat(XxHash64.hash(value)).isEqualTo(Long.parseUnsignedLong(expectedHex, 16));
+        }
+    }
+
+    @Nested
+    class update {
+
+        @Test
+        void inChunks_sameAsAtOnce() {
+            final byte[] bytes = "0123456789abcdefghijklmnopqrstuvwxyz".repeat(20).getBytes(StandardCharsets.UTF_8);
+            final long expected = new XxHash64().update(bytes, 0, bytes.length).getValue();
+
+            for (int chunkSize = 1; chunkSize <= 70; chunkSize++) {
+                final XxHash64 underTest = new XxHash64();
+                for (int offset = 0; offset < bytes.length; offset += chunkSize) {
+                    underTest.update(bytes, offset, Math.min(chunkSize, bytes.length - offset));
+                }
+                assertThat(underTest.getValue()).as("chunk size %s", chunkSize).isEqualTo(expected);
+            }
+        }
+    }
+}
@@ -4,6 +4,7 @@ import co.elastic.clients.transport.rest5_client.low_level.Request;
 import co.elastic.clients.transport.rest5_client.low_level.RequestOptions;
 import co.elastic.clients.transport.rest5_client.low_level.Response;
 import co.elastic.clients.transport.rest5_client.low_level.Rest5Client;
+import com.senacor.elasticsearch.evolution.rest.abstraction.EvolutionRequestBody;
 import com.senacor.elasticsearch.evolution.rest.abstraction.EvolutionRestClient;
 import com.senacor.elasticsearch.evolution.rest.abstraction.EvolutionRestResponse;
 import com.senacor.elasticsearch.evolution.rest.abstraction.EvolutionRestResponseImpl;
@@ -13,10 +14,12 @@ import lombok.RequiredArgsConstructor;
 import org.apache.hc.core5.http.ContentType;
 import org.apache.hc.core5.http.HttpEntity;
 import org.apache.hc.core5.http.ParseException;
+import org.apache.hc.core5.http.io.entity.AbstractHttpEntity;
 import org.apache.hc.core5.http.io.entity.EntityUtils;
 import org.apache.hc.core5.http.io.entity.StringEntity;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Map;
 import java.util.Optional;
 
@@ -38,9 +41,6 @@ public class EvolutionESRest5Client implements EvolutionRestClient<Rest5Client>
                                          Map<String, String> urlParams,
                                          String body) throws IOException {
         final Request request = new Request(method.name(), endpoint);
-        if (null != urlParams) {
-            request.addParameters(urlParams);
-        }
         if (null != body
                 && !body.trim().isEmpty()) {
             ContentType contentType = getContentType(headers)
@@ -48,6 +48,28 @@ public class EvolutionESRest5Client implements EvolutionRestClient<Rest5Client>
                     .orElse(null);
             request.setEntity(new StringEntity(body, contentType));
         }
+        return performRequest(request, headers, urlParams);
+    }
+
+    @Override
+    public EvolutionRestResponse executeStreaming(@NonNull HttpMethod method,
+                                                  @NonNull String endpoint,
+                                                  Map<String, String> headers,
+                                                  Map<String, String> urlParams,
+                                                  EvolutionRequestBody body) throws IOException {
+        final Request request = new Request(method.name(), endpoint);
+        if (null != body) {
+            request.setEntity(new RequestBodyEntity(body, getContentType(headers).orElse(null)));
+        }
+        return performRequest(request, headers, urlParams);
+    }
+
+    private EvolutionRestResponse performRequest(Request request,
+                                                 Map<String, String> headers,
+                                                 Map<String, String> urlParams) throws IOException {
+        if (null != urlParams) {
+            request.addParameters(urlParams);
+        }
         if (null != headers) {
             RequestOptions.Builder builder = RequestOptions.DEFAULT.toBuilder();
             headers.forEach(builder::addHeader);
@@ -74,4 +96,41 @@ public class EvolutionESRest5Client implements EvolutionRestClient<Rest5Client>
     public Rest5Client getUnderlyingClient() {
         return restClient;
     }
+
+    /**
+     * streams the body, every call of {@link #getContent()} opens the body again, so the request can be retried
+     */
+    private static final class RequestBodyEntity extends AbstractHttpEntity {
+        private final EvolutionRequestBody body;
+
+        RequestBodyEntity(EvolutionRequestBody body, String contentType) {
+            super(contentType, null);
+            this.body = body;
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return true;
+        }
+
+        @Override
+        public long getContentLength() {
+            return body.contentLength();
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            return body.open();
+        }
+
+        @Override
+        public boolean isStreaming() {
+            return false;
+        }
+
+        @Override
+        public void close() {
+            // the body is opened and closed per request
+        }
+    }
 }
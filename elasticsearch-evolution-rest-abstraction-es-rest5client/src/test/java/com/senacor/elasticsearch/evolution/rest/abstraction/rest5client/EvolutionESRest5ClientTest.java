@@ -1,11 +1,13 @@
 package com.senacor.elasticsearch.evolution.rest.abstraction.rest5client;
 
 import co.elastic.clients.transport.rest5_client.low_level.Node;
+import co.elastic.clients.transport.rest5_client.low_level.Request;
 import co.elastic.clients.transport.rest5_client.low_level.Response;
 import co.elastic.clients.transport.rest5_client.low_level.Rest5Client;
 import com.senacor.elasticsearch.evolution.rest.abstraction.EvolutionRestResponse;
 import com.senacor.elasticsearch.evolution.rest.abstraction.HttpMethod;
 import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpEntity;
 import org.apache.hc.core5.http.HttpHost;
 import org.apache.hc.core5.http.ParseException;
 import org.apache.hc.core5.http.io.entity.EntityUtils;
@@ -14,20 +16,25 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Answers;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.SoftAssertions.assertSoftly;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -171,6 +178,50 @@ class EvolutionESRest5ClientTest {
         order.verifyNoMoreInteractions();
     }
 
+    @Test
+    void executeStreaming_should_streamRepeatableBody(@Mock Response response) throws IOException, ParseException {
+        when(restClient.performRequest(any()))
+                .thenReturn(response);
+        when(response.getStatusCode())
+                .thenReturn(201);
+        when(response.getEntity())
+                .thenReturn(null);
+        final AtomicInteger opened = new AtomicInteger();
+
+        final EvolutionRestResponse res = underTest.executeStreaming(HttpMethod.PUT,
+                "/my_index",
+                Map.of("Content-Type", "application/json; charset=UTF-8"),
+                null,
+                () -> {
+                    opened.incrementAndGet();
+                    return new ByteArrayInputStream("{\"ä\": 1}".getBytes(StandardCharsets.UTF_8));
+                });
+
+        assertThat(res.statusCode())
+                .as("status code")
+                .isEqualTo(201);
+        assertThat(opened)
+                .as("body is opened when it is sent")
+                .hasValue(0);
+        final ArgumentCaptor<Request> request = ArgumentCaptor.forClass(Request.class);
+        verify(restClient).performRequest(request.capture());
+        final HttpEntity entity = request.getValue().getEntity();
+        assertThat(entity.isRepeatable())
+                .as("repeatable")
+                .isTrue();
+        assertThat(entity.getContentType())
+                .as("content type")
+                .isEqualTo("application/json; charset=UTF-8");
+        assertThat(EntityUtils.toString(entity))
+                .as("body")
+                .isEqualTo("{\"ä\": 1}");
+        assertThat(EntityUtils.toString(entity))
+                .as("body of retried request")
+                .isEqualTo("{\"ä\": 1}");
+        assertThat(opened)
+                .hasValue(2);
+    }
+
     @Test
     void getUnderlyingClient_should_returnTheInternalRestClient() {
         assertThat(underTest.getUnderlyingClient())
@@ -1,5 +1,6 @@
 package com.senacor.elasticsearch.evolution.rest.abstraction.os.genericclient;
 
+import com.senacor.elasticsearch.evolution.rest.abstraction.EvolutionRequestBody;
 import com.senacor.elasticsearch.evolution.rest.abstraction.EvolutionRestClient;
 import com.senacor.elasticsearch.evolution.rest.abstraction.EvolutionRestResponse;
 import com.senacor.elasticsearch.evolution.rest.abstraction.EvolutionRestResponseImpl;
@@ -32,15 +33,43 @@ public class EvolutionOpenSearchGenericClient implements EvolutionRestClient<Ope
                                          Map<String, String> headers,
                                          Map<String, String> urlParams,
                                          String body) throws IOException {
+        Body genericBody = null == body
+                ? null
+                : Body.from(body.getBytes(StandardCharsets.UTF_8), getContentType(headers).orElse(null));
+        return execute(method, endpoint, headers, urlParams, genericBody);
+    }
+
+    /**
+     * The body is passed as stream to the {@link OpenSearchGenericClient}, but the OpenSearch transports
+     * ({@code ApacheHttpClient5Transport} and {@code RestClientTransport}) copy generic request bodies into a byte
+     * array before sending them, so the body is held in memory once while it is sent. Passing the stream still avoids
+     * the additional string copy of {@link #execute(HttpMethod, String, Map, Map, String)}.
+     */
+    @Override
+    public EvolutionRestResponse executeStreaming(@NonNull HttpMethod method,
+                                                  @NonNull String endpoint,
+                                                  Map<String, String> headers,
+                                                  Map<String, String> urlParams,
+                                                  EvolutionRequestBody body) throws IOException {
+        if (null == body) {
+            return execute(method, endpoint, headers, urlParams, (Body) null);
+        }
+        try (Body genericBody = Body.from(body.open(), getContentType(headers).orElse(null))) {
+            return execute(method, endpoint, headers, urlParams, genericBody);
+        }
+    }
+
+    private EvolutionRestResponse execute(HttpMethod method,
+                                          String endpoint,
+                                          Map<String, String> headers,
+                                          Map<String, String> urlParams,
+                                          Body genericBody) throws IOException {
         Collection<Map.Entry<String, String>> requestHeaders = Optional.ofNullable(headers)
                 .map(Map::entrySet)
                 .orElse(Set.of());
         Map<String, String> parameters = null == urlParams
                 ? Map.of()
                 : urlParams;
-        Body genericBody = null == body
-                ? null
-                : Body.from(body.getBytes(StandardCharsets.UTF_8), getContentType(headers).orElse(null));
 
         final Request request = Requests.create(method.name(), endpoint, requestHeaders, parameters, genericBody);
 
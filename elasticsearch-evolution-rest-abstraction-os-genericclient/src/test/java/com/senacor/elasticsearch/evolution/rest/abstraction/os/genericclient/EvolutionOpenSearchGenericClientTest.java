@@ -13,18 +13,24 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.opensearch.client.opensearch.OpenSearchClient;
 import org.opensearch.client.opensearch.generic.Body;
 import org.opensearch.client.opensearch.generic.OpenSearchGenericClient;
+import org.opensearch.client.opensearch.generic.Request;
 import org.opensearch.client.opensearch.generic.Response;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.SoftAssertions.assertSoftly;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -172,6 +178,51 @@ class EvolutionOpenSearchGenericClientTest {
         order.verifyNoMoreInteractions();
     }
 
+    @Test
+    void executeStreaming_should_passBodyAsStream(@Mock Response response) throws IOException {
+        final AtomicReference<String> sentBody = new AtomicReference<>();
+        final AtomicReference<String> sentContentType = new AtomicReference<>();
+        when(openSearchGenericClient.execute(any()))
+                .thenAnswer(invocation -> {
+                    // the streamed body can only be read once and is closed after the request
+                    final Body body = invocation.<Request>getArgument(0).getBody().orElseThrow();
+                    sentContentType.set(body.contentType());
+                    sentBody.set(body.bodyAsString());
+                    return response;
+                });
+        when(response.getStatus())
+                .thenReturn(201);
+        when(response.getBody())
+                .thenReturn(Optional.empty());
+        final AtomicInteger opened = new AtomicInteger();
+
+        final EvolutionRestResponse res = underTest.executeStreaming(HttpMethod.PUT,
+                "/my_index",
+                Map.of("Content-Type", "application/json; charset=UTF-8"),
+                null,
+                () -> {
+                    opened.incrementAndGet();
+                    return new ByteArrayInputStream("{\"ä\": 1}".getBytes(StandardCharsets.UTF_8));
+                });
+
+        assertThat(res.statusCode())
+                .as("status code")
+                .isEqualTo(201);
+        assertThat(opened)
+                .as("opened")
+                .hasValue(1);
+        assertSoftly(softly -> {
+            softly.assertThat(sentContentType)
+                    .as("content type")
+                    .hasValue("application/json; charset=UTF-8");
+            softly.assertThat(sentBody)
+                    .as("body")
+                    .hasValue("{\"ä\": 1}");
+        });
+        verify(openSearchGenericClient).execute(any());
+        verifyNoMoreInteractions(openSearchGenericClient);
+    }
+
     @Test
     void getUnderlyingClient_should_returnTheInternalOpenSearchGenericClient() {
         assertThat(underTest.getUnderlyingClient())
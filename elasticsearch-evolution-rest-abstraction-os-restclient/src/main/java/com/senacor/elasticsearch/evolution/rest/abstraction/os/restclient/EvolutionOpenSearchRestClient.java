@@ -1,5 +1,6 @@
 package com.senacor.elasticsearch.evolution.rest.abstraction.os.restclient;
 
+import com.senacor.elasticsearch.evolution.rest.abstraction.EvolutionRequestBody;
 import com.senacor.elasticsearch.evolution.rest.abstraction.EvolutionRestClient;
 import com.senacor.elasticsearch.evolution.rest.abstraction.EvolutionRestResponse;
 import com.senacor.elasticsearch.evolution.rest.abstraction.EvolutionRestResponseImpl;
@@ -7,6 +8,7 @@ import com.senacor.elasticsearch.evolution.rest.abstraction.HttpMethod;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import org.apache.http.HttpEntity;
+import org.apache.http.entity.AbstractHttpEntity;
 import org.apache.http.entity.ContentType;
 import org.apache.http.nio.entity.NStringEntity;
 import org.apache.http.util.EntityUtils;
@@ -16,6 +18,8 @@ import org.opensearch.client.Response;
 import org.opensearch.client.RestClient;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Map;
 import java.util.Optional;
 
@@ -37,9 +41,6 @@ public class EvolutionOpenSearchRestClient implements EvolutionRestClient<RestCl
                                          Map<String, String> urlParams,
                                          String body) throws IOException {
         final Request request = new Request(method.name(), endpoint);
-        if (null != urlParams) {
-            request.addParameters(urlParams);
-        }
         if (null != body
                 && !body.trim().isEmpty()) {
             ContentType contentType = getContentType(headers)
@@ -47,6 +48,28 @@ public class EvolutionOpenSearchRestClient implements EvolutionRestClient<RestCl
                     .orElse(null);
             request.setEntity(new NStringEntity(body, contentType));
         }
+        return performRequest(request, headers, urlParams);
+    }
+
+    @Override
+    public EvolutionRestResponse executeStreaming(@NonNull HttpMethod method,
+                                                  @NonNull String endpoint,
+                                                  Map<String, String> headers,
+                                                  Map<String, String> urlParams,
+                                                  EvolutionRequestBody body) throws IOException {
+        final Request request = new Request(method.name(), endpoint);
+        if (null != body) {
+            request.setEntity(new RequestBodyEntity(body, getContentType(headers).orElse(null)));
+        }
+        return performRequest(request, headers, urlParams);
+    }
+
+    private EvolutionRestResponse performRequest(Request request,
+                                                 Map<String, String> headers,
+                                                 Map<String, String> urlParams) throws IOException {
+        if (null != urlParams) {
+            request.addParameters(urlParams);
+        }
         if (null != headers) {
             RequestOptions.Builder builder = RequestOptions.DEFAULT.toBuilder();
             headers.forEach(builder::addHeader);
@@ -68,4 +91,43 @@ public class EvolutionOpenSearchRestClient implements EvolutionRestClient<RestCl
     public RestClient getUnderlyingClient() {
         return restClient;
     }
+
+    /**
+     * streams the body, every call of {@link #getContent()} opens the body again, so the request can be retried
+     */
+    private static final class RequestBodyEntity extends AbstractHttpEntity {
+        private final EvolutionRequestBody body;
+
+        RequestBodyEntity(EvolutionRequestBody body, String contentType) {
+            this.body = body;
+            setContentType(contentType);
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return true;
+        }
+
+        @Override
+        public long getContentLength() {
+            return body.contentLength();
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            return body.open();
+        }
+
+        @Override
+        public void writeTo(OutputStream outStream) throws IOException {
+            try (InputStream inputStream = body.open()) {
+                inputStream.transferTo(outStream);
+            }
+        }
+
+        @Override
+        public boolean isStreaming() {
+            return false;
+        }
+    }
 }
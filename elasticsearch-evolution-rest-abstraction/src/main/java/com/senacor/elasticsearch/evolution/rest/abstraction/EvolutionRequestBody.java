@@ -0,0 +1,26 @@
+package com.senacor.elasticsearch.evolution.rest.abstraction;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A request body, which is streamed to the HTTP request instead of being held in memory as a whole.
+ */
+public interface EvolutionRequestBody {
+
+    /**
+     * Opens a new stream of the encoded body. May be called several times, e.g. if the request is retried on another
+     * node.
+     *
+     * @return the encoded body, must be closed by the caller
+     * @throws IOException if the body can't be read
+     */
+    InputStream open() throws IOException;
+
+    /**
+     * @return the length of the encoded body in bytes or -1, if it is unknown
+     */
+    default long contentLength() {
+        return -1;
+    }
+}
@@ -3,6 +3,10 @@ package com.senacor.elasticsearch.evolution.rest.abstraction;
 import lombok.NonNull;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
@@ -44,6 +48,30 @@ public interface EvolutionRestClient<T> {
         return execute(method, endpoint, null, null, null);
     }
 
+    /**
+     * Execute a REST request with a streamed body and returns the response as {@link EvolutionRestResponse}.
+     * <p>
+     * Clients should stream the body to the HTTP request. This default implementation reads the whole body into a
+     * string, decoded with the charset of the Content-Type header (default UTF-8), and calls
+     * {@link #execute(HttpMethod, String, Map, Map, String)}.
+     *
+     * @param body the body or null, if the request has no body
+     * @throws IOException if the request fails
+     */
+    default EvolutionRestResponse executeStreaming(@NonNull HttpMethod method,
+                                                   @NonNull String endpoint,
+                                                   Map<String, String> headers,
+                                                   Map<String, String> urlParams,
+                                                   EvolutionRequestBody body) throws IOException {
+        String stringBody = null;
+        if (null != body) {
+            try (InputStream inputStream = body.open()) {
+                stringBody = new String(inputStream.readAllBytes(), getCharset(headers));
+            }
+        }
+        return execute(method, endpoint, headers, urlParams, stringBody);
+    }
+
     /**
      * @return The Content-Type value if available in the given headers
      */
@@ -60,6 +88,23 @@ public interface EvolutionRestClient<T> {
                 .findFirst();
     }
 
+    /**
+     * @return The charset of the Content-Type in the given headers or UTF-8, if there is none
+     */
+    default Charset getCharset(Map<String, String> headers) {
+        return getContentType(headers)
+                .flatMap(contentType -> {
+                    for (String parameter : contentType.split(";")) {
+                        final String trimmed = parameter.trim();
+                        if (trimmed.toLowerCase(Locale.ROOT).startsWith("charset=")) {
+                            return Optional.of(Charset.forName(trimmed.substring("charset=".length()).replace("\"", "").trim()));
+                        }
+                    }
+                    return Optional.empty();
+                })
+                .orElse(StandardCharsets.UTF_8);
+    }
+
     /**
      * @return the underlying client used for creating requests
      */
@@ -4,7 +4,9 @@ import lombok.NonNull;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
@@ -105,4 +107,55 @@ class EvolutionRestClientTest {
                     .isEmpty();
         }
     }
-}
\ No newline at end of file
+
+    @Nested
+    class GetCharset {
+
+        @Test
+        void whenContentTypeHasNoCharset_thenReturnUtf8() {
+            assertThat(underTest.getCharset(Map.of(EvolutionRestClient.HEADER_NAME_CONTENT_TYPE, "application/json")))
+                    .isEqualTo(StandardCharsets.UTF_8);
+        }
+
+        @Test
+        void whenHeadersIsNull_thenReturnUtf8() {
+            assertThat(underTest.getCharset(null))
+                    .isEqualTo(StandardCharsets.UTF_8);
+        }
+
+        @Test
+        void whenContentTypeHasCharset_thenReturnCharset() {
+            assertThat(underTest.getCharset(Map.of(EvolutionRestClient.HEADER_NAME_CONTENT_TYPE, "application/json; Charset=\"ISO-8859-1\"")))
+                    .isEqualTo(StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    @Nested
+    class ExecuteStreaming {
+
+        @Test
+        void defaultImplementation_executesWithBodyDecodedWithCharsetOfContentType() throws IOException {
+            final String[] executedBody = new String[1];
+            final EvolutionRestClient<?> client = new EvolutionRestClient<>() {
+                @Override
+                public EvolutionRestResponse execute(@NonNull HttpMethod method, @NonNull String endpoint, Map<String, String> headers, Map<String, String> urlParams, String body) {
+                    executedBody[0] = body;
+                    return new EvolutionRestResponseImpl(200, Optional.empty(), Optional.empty());
+                }
+
+                @Override
+                public Object getUnderlyingClient() {
+                    return null;
+                }
+            };
+
+            final EvolutionRestResponse res = client.executeStreaming(HttpMethod.PUT, "/my_index",
+                    Map.of(EvolutionRestClient.HEADER_NAME_CONTENT_TYPE, "application/json; charset=ISO-8859-1"),
+                    null,
+                    () -> new ByteArrayInputStream("{\"ä\":1}".getBytes(StandardCharsets.ISO_8859_1)));
+
+            assertThat(res.statusCode()).isEqualTo(200);
+            assertThat(executedBody[0]).isEqualTo("{\"ä\":1}");
+        }
+    }
+}